@@ -38,4 +38,7 @@ public interface A0BCConfig {
 
     /** Retrieves the desired behavior for internal transactions */
     boolean isInternalTransactionStorageEnabled();
+
+    /** Retrieves whether the state used by a block is read ahead of its execution */
+    boolean isStatePrefetchEnabled();
 }
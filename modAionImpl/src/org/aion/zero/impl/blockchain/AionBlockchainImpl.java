@@ -66,8 +66,7 @@ import org.aion.zero.impl.core.FastImportResult;
 import org.aion.zero.impl.core.ImportResult;
 import org.aion.zero.impl.db.TransactionStore;
 import org.aion.zero.impl.forks.ForkUtility;
-import org.aion.zero.impl.trie.Trie;
-import org.aion.zero.impl.trie.TrieImpl;
+import org.aion.zero.impl.trie.ListTrie;
 import org.aion.zero.impl.trie.TrieNodeResult;
 import org.aion.zero.impl.types.BlockContext;
 import org.aion.zero.impl.types.BlockIdentifier;
@@ -79,7 +78,6 @@ import org.aion.zero.impl.valid.GreatGrandParentBlockHeaderValidator;
 import org.aion.zero.impl.valid.ParentBlockHeaderValidator;
 import org.aion.base.TransactionTypeRule;
 import org.aion.base.Bloom;
-import org.aion.rlp.RLP;
 import org.aion.types.AionAddress;
 import org.aion.util.bytes.ByteUtil;
 import org.aion.util.conversions.Hex;
@@ -155,6 +153,7 @@ public class AionBlockchainImpl implements IAionBlockchain {
     private long exitOn = Long.MAX_VALUE;
     private AionRepositoryImpl repository;
     private RepositoryCache<AccountState> track;
+    private final StatePrefetcher statePrefetcher;
     private TransactionStore transactionStore;
     private Block bestBlock;
     private StakingBlock bestStakingBlock;
@@ -198,6 +197,9 @@ public class AionBlockchainImpl implements IAionBlockchain {
 
     private SelfNodeStatusCallback callback;
 
+    /** The number of the block whose world state was downloaded by fast sync, if any. */
+    private volatile long fastSyncPivotNumber;
+
     public AionBlockchainImpl(CfgAion cfgAion, boolean forTest) {
         this(generateBCConfig(cfgAion), AionRepositoryImpl.inst(),
             forTest ? new ChainConfiguration() {
@@ -253,6 +255,7 @@ public class AionBlockchainImpl implements IAionBlockchain {
         this.config = config;
         this.repository = repository;
         this.storeInternalTransactions = config.isInternalTransactionStorageEnabled();
+        this.statePrefetcher = config.isStatePrefetchEnabled() ? new StatePrefetcher() : null;
 
         /**
          * Because we dont have any hardforks, later on chain configuration must be determined by
@@ -266,6 +269,7 @@ public class AionBlockchainImpl implements IAionBlockchain {
         unityGreatGrandParentBlockHeaderValidator = chainConfiguration.createUnityGreatGrandParentHeaderValidator();
 
         this.transactionStore = this.repository.getTransactionStore();
+        this.fastSyncPivotNumber = this.repository.getFastSyncPivotNumber();
 
         this.minerCoinbase = this.config.getMinerCoinbase();
         if (minerCoinbase == null) {
@@ -381,6 +385,11 @@ public class AionBlockchainImpl implements IAionBlockchain {
             public boolean isInternalTransactionStorageEnabled() {
                 return CfgAion.inst().getDb().isInternalTxStorageEnabled();
             }
+
+            @Override
+            public boolean isStatePrefetchEnabled() {
+                return cfgAion.getDb().isStatePrefetch();
+            }
         };
     }
 
@@ -399,17 +408,16 @@ public class AionBlockchainImpl implements IAionBlockchain {
             return ConstantUtil.EMPTY_TRIE_HASH;
         }
 
-        Trie txsState = new TrieImpl(null);
-
-        for (int i = 0; i < transactions.size(); i++) {
-            byte[] txEncoding = transactions.get(i).getEncoded();
+        List<byte[]> encodings = new ArrayList<>(transactions.size());
+        for (AionTransaction transaction : transactions) {
+            byte[] txEncoding = transaction.getEncoded();
             if (txEncoding != null) {
-                txsState.update(RLP.encodeInt(i), txEncoding);
+                encodings.add(txEncoding);
             } else {
                 return ConstantUtil.EMPTY_TRIE_HASH;
             }
         }
-        return txsState.getRootHash();
+        return ListTrie.computeRoot(encodings);
     }
 
     private static byte[] calcReceiptsTrie(List<AionTxReceipt> receipts) {
@@ -417,11 +425,11 @@ public class AionBlockchainImpl implements IAionBlockchain {
             return ConstantUtil.EMPTY_TRIE_HASH;
         }
 
-        Trie receiptsTrie = new TrieImpl(null);
-        for (int i = 0; i < receipts.size(); i++) {
-            receiptsTrie.update(RLP.encodeInt(i), receipts.get(i).getReceiptTrieEncoded());
+        List<byte[]> encodings = new ArrayList<>(receipts.size());
+        for (AionTxReceipt receipt : receipts) {
+            encodings.add(receipt.getReceiptTrieEncoded());
         }
-        return receiptsTrie.getRootHash();
+        return ListTrie.computeRoot(encodings);
     }
 
     private static byte[] calcLogBloom(List<AionTxReceipt> receipts) {
@@ -609,6 +617,16 @@ public class AionBlockchainImpl implements IAionBlockchain {
         return getBlockStore().getBlockByHash(hash);
     }
 
+    @Override
+    public List<Block> getBlocksByHashes(List<byte[]> hashes) {
+        return getBlockStore().getBlocksByHashes(hashes);
+    }
+
+    @Override
+    public List<byte[]> getEncodedBodiesByHashes(List<byte[]> hashes) {
+        return getBlockStore().getEncodedBodiesByHashes(hashes);
+    }
+
     @Override
     public List<byte[]> getListOfHashesEndWith(byte[] hash, int qty) {
         return getBlockStore().getListHashesEndWith(hash, qty < 1 ? 1 : qty);
@@ -822,12 +840,12 @@ public class AionBlockchainImpl implements IAionBlockchain {
     }
 
     /**
-     * If using TOP pruning we need to check the pruning restriction for the block. Otherwise, there
-     * is not prune restriction.
+     * If using TOP pruning or after fast sync we need to check the pruning restriction for the
+     * block. Otherwise, there is not prune restriction.
      */
     public boolean hasPruneRestriction() {
         // no restriction when not in TOP pruning mode
-        return repository.usesTopPruning();
+        return repository.usesTopPruning() || fastSyncPivotNumber > 0;
     }
 
     /**
@@ -838,7 +856,12 @@ public class AionBlockchainImpl implements IAionBlockchain {
         if (!hasPruneRestriction()) {
             return false;
         }
-        return blockNumber < bestBlockNumber.get() - repository.getPruneBlockCount() + 1;
+        // the blocks up to the fast sync pivot have no world state
+        if (blockNumber <= fastSyncPivotNumber) {
+            return true;
+        }
+        return repository.usesTopPruning()
+                && blockNumber < bestBlockNumber.get() - repository.getPruneBlockCount() + 1;
     }
 
     /**
@@ -924,6 +947,146 @@ public class AionBlockchainImpl implements IAionBlockchain {
         }
     }
 
+    /**
+     * Imports a block up to the fast sync pivot without executing its transactions, therefore
+     * without creating its world state. The block must extend the best block. Its header and
+     * transaction root are validated, except for the rules that depend on the world state, i.e.
+     * the stake of the producer of a staking block.
+     *
+     * @param block the block to be imported
+     * @return a result describing the status of the attempted import
+     * @see #completeFastSync(Block)
+     */
+    public synchronized ImportResult tryImportWithoutExecution(final Block block) {
+        if (block == null) {
+            return INVALID_BLOCK;
+        }
+        if (getBlockStore().getMaxNumber() >= block.getNumber()
+                && getBlockStore().isBlockStored(block.getHash(), block.getNumber())) {
+            return EXIST;
+        }
+        if (!bestBlock.isParentOf(block)) {
+            return NO_PARENT;
+        }
+
+        if (!isValidWithoutState(block.getHeader())) {
+            LOG.warn("Block {} has an invalid block header", block.getNumber());
+            return INVALID_BLOCK;
+        }
+        byte[] trieListHash = calcTxTrie(block.getTransactionsList());
+        if (!Arrays.equals(block.getTxTrieRoot(), trieListHash)) {
+            LOG.warn(
+                    "Block's given Trie Hash doesn't match: {} != {}",
+                    toHexString(block.getTxTrieRoot()),
+                    toHexString(trieListHash));
+            return INVALID_BLOCK;
+        }
+
+        updateTotalDifficulty(block);
+        getBlockStore().saveBlock(block, totalDifficulty.get(), true);
+        setBestBlock(block);
+        try {
+            getBlockStore().flush();
+        } catch (Exception e) {
+            LOG.error("Unable to flush the block store.", e);
+        }
+
+        pubBestBlock = bestBlock;
+        if (callback != null) {
+            callback.updateBlockStatus(
+                    block.getNumber(), block.getHash().clone(), block.getTotalDifficulty());
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(
+                    "Block saved without execution: number: {}, hash: {}",
+                    block.getNumber(),
+                    block.getShortHash());
+        }
+        return IMPORTED_BEST;
+    }
+
+    private boolean isValidWithoutState(BlockHeader header) {
+        if (header.getSealType() == BlockSealType.SEAL_POW_BLOCK) {
+            return isValid(header);
+        } else if (header.getSealType() == BlockSealType.SEAL_POS_BLOCK) {
+            // the stake backing the block cannot be computed without the world state
+            return headerValidator.validate(header, LOG)
+                    && forkUtility.isUnityForkActive(header.getNumber());
+        } else {
+            LOG.debug("Invalid header seal type!");
+            return false;
+        }
+    }
+
+    /**
+     * Switches the world state to the state of the given pivot block after fast sync downloaded
+     * it. The pivot must be the best block, imported by {@link #tryImportWithoutExecution(Block)}.
+     * The following blocks are executed on top of its state as usual.
+     *
+     * @param pivot the block whose world state was downloaded
+     * @return {@code true} if the world state of the pivot is complete and is used from now on,
+     *     {@code false} otherwise
+     */
+    public synchronized boolean completeFastSync(final Block pivot) {
+        if (!Arrays.equals(bestBlock.getHash(), pivot.getHash())
+                || !repository.isValidRoot(pivot.getStateRoot())) {
+            return false;
+        }
+
+        repository.syncToRoot(pivot.getStateRoot());
+        repository.saveFastSyncPivotNumber(pivot.getNumber());
+        flush();
+        fastSyncPivotNumber = pivot.getNumber();
+
+        LOG.info(
+                "Fast sync completed with the world state of block number: {}, hash: {}",
+                pivot.getNumber(),
+                pivot.getShortHash());
+        return true;
+    }
+
+    /**
+     * Reverts the chain to the last block that has a world state, dropping the blocks imported by
+     * {@link #tryImportWithoutExecution(Block)} above it. Used when fast sync gives up, so that the
+     * following blocks can be executed.
+     *
+     * @return the best block after the revert
+     */
+    public synchronized Block revertToLastExecutedBlock() {
+        Block block = bestBlock;
+        while (block.getNumber() > 0 && !repository.isValidRoot(block.getStateRoot())) {
+            block = getBlockStore().getBlockByHashWithInfo(block.getParentHash());
+            if (block == null) {
+                throw new IllegalStateException("Missing the ancestors of the best block.");
+            }
+        }
+        if (block == bestBlock) {
+            return bestBlock;
+        }
+
+        LOG.info(
+                "Reverting from block number: {} to the last block with a world state, number: {}, hash: {}",
+                bestBlock.getNumber(),
+                block.getNumber(),
+                block.getShortHash());
+        getBlockStore().revert(block.getNumber());
+        getBlockStore().flush();
+        repository.syncToRoot(block.getStateRoot());
+
+        bestStakingBlock = null;
+        setBestBlock(block);
+        loadBestMiningBlock();
+        loadBestStakingBlock();
+        totalDifficulty.set(block.getTotalDifficulty());
+        pubBestBlock = bestBlock;
+        if (callback != null) {
+            callback.updateBlockStatus(
+                    block.getNumber(), block.getHash().clone(), block.getTotalDifficulty());
+        }
+        return bestBlock;
+    }
+
     public static long shutdownHook = Long.MAX_VALUE;
 
     public synchronized ImportResult tryToConnect(final Block block) {
@@ -1571,6 +1734,35 @@ public class AionBlockchainImpl implements IAionBlockchain {
         return getBlockStore().getBlockByHashWithInfo(header.getParentHash());
     }
 
+    /**
+     * Runs the checks of a block that do not depend on the chain state, i.e. the header seal and
+     * the transaction signatures. Unlike the import, this method is not synchronized.
+     *
+     * @return {@code true} if the block passed the checks, {@code false} otherwise
+     */
+    public boolean preValidate(Block block) {
+        return this.headerValidator.validate(block.getHeader(), LOG)
+                && preValidateTransactions(block);
+    }
+
+    /**
+     * Checks the transaction signatures of a block ahead of its import. The results are kept by
+     * the transaction validator, so that {@link #tryToConnect(Block)} does not repeat the work.
+     * Unlike the import, this method is not synchronized and can validate several blocks
+     * concurrently with the import of their predecessors.
+     *
+     * @return {@code true} if all the signatures are valid, {@code false} otherwise
+     */
+    public boolean preValidateTransactions(Block block) {
+        boolean unityForkEnabled = forkUtility.isUnityForkActive(block.getNumber());
+        for (AionTransaction tx : block.getTransactionsList()) {
+            if (!TXValidator.isValid(tx, unityForkEnabled)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public boolean isValid(BlockHeader header) {
         /*
          * The block header should already be validated at this point by P2P or mining,
@@ -1829,6 +2021,11 @@ public class AionBlockchainImpl implements IAionBlockchain {
                 boolean incrementSenderNonce = true;
                 boolean checkBlockEnergyLimit = false;
 
+                // read the accounts used by the block in parallel instead of during execution
+                if (statePrefetcher != null) {
+                    statePrefetcher.prefetch(repository, block);
+                }
+
                 List<AionTxExecSummary> executionSummaries =
                         BulkExecutor.executeAllTransactionsInBlock(
                                 block.getDifficulty(),
@@ -2070,11 +2267,11 @@ public class AionBlockchainImpl implements IAionBlockchain {
             return emptyList();
         }
 
-        // identifying block we'll move from
-        Block startBlock = getBlockByNumber(blockNumber);
+        // identifying block we'll move from, without reading its body
+        byte[] startHash = getBlockStore().getBlockHashByNumber(blockNumber);
 
         // if nothing found on main chain, return empty array
-        if (startBlock == null) {
+        if (startHash == null) {
             return emptyList();
         }
 
@@ -2124,13 +2321,7 @@ public class AionBlockchainImpl implements IAionBlockchain {
 
         startNumber = blockNumber + qty - 1;
 
-        Block block = getBlockByNumber(startNumber);
-
-        if (block == null) {
-            return null;
-        }
-
-        return block.getHash();
+        return getBlockStore().getBlockHashByNumber(startNumber);
     }
 
     // NOTE: Functionality removed because not used and untested
@@ -26,6 +26,7 @@ import org.aion.zero.impl.Version;
 import org.aion.zero.impl.config.CfgNetP2p;
 import org.aion.mcf.db.Repository;
 import org.aion.p2p.Handler;
+import org.aion.p2p.Handler.Priority;
 import org.aion.p2p.INode;
 import org.aion.p2p.IP2pMgr;
 import org.aion.p2p.impl1.P2pMgr;
@@ -39,6 +40,7 @@ import org.aion.zero.impl.config.CfgAion;
 import org.aion.zero.impl.db.AionRepositoryImpl;
 import org.aion.zero.impl.db.DBUtils;
 import org.aion.zero.impl.pow.AionPoW;
+import org.aion.zero.impl.sync.FastSyncManager;
 import org.aion.zero.impl.sync.NodeWrapper;
 import org.aion.zero.impl.sync.SyncMgr;
 import org.aion.zero.impl.sync.handler.BlockPropagationHandler;
@@ -47,11 +49,16 @@ import org.aion.zero.impl.sync.handler.BroadcastTxHandler;
 import org.aion.zero.impl.sync.handler.ReqBlocksBodiesHandler;
 import org.aion.zero.impl.sync.handler.ReqBlocksHeadersHandler;
 import org.aion.zero.impl.sync.handler.ReqStatusHandler;
+import org.aion.zero.impl.sync.handler.RequestBlocksHandler;
+import org.aion.zero.impl.sync.handler.RequestTrieDataHandler;
 import org.aion.zero.impl.sync.handler.ResBlocksBodiesHandler;
 import org.aion.zero.impl.sync.handler.ResBlocksHeadersHandler;
 import org.aion.zero.impl.sync.handler.ResStatusHandler;
+import org.aion.zero.impl.sync.handler.ResponseBlocksHandler;
+import org.aion.zero.impl.sync.handler.ResponseTrieDataHandler;
 import org.aion.zero.impl.types.BlockContext;
 import org.aion.zero.impl.types.StakingBlock;
+import org.aion.zero.impl.vm.common.BulkExecutor;
 import org.slf4j.Logger;
 
 public class AionHub {
@@ -132,6 +139,7 @@ public class AionHub {
         }
 
         this.mempool.checkAvmFlag();
+        BulkExecutor.setSpeculativeExecution(cfg.getTx().getSpeculativeExecution());
 
         this.startingBlock = this.blockchain.getBestBlock();
         if (!cfg.getConsensus().isSeed()) {
@@ -166,7 +174,11 @@ public class AionHub {
                         cfgNetP2p.getMaxTempNodes(),
                         cfgNetP2p.getMaxActiveNodes(),
                         cfgNetP2p.getBootlistSyncOnly(),
-                        cfgNetP2p.getErrorTolerance());
+                        cfgNetP2p.getErrorTolerance(),
+                        Map.of(
+                                Priority.HIGH, cfgNetP2p.getReceiveWorkersHigh(),
+                                Priority.NORMAL, cfgNetP2p.getReceiveWorkersNormal(),
+                                Priority.LOW, cfgNetP2p.getReceiveWorkersLow()));
 
         this.syncMgr = new SyncMgr(
                 blockchain,
@@ -174,7 +186,8 @@ public class AionHub {
                 eventMgr,
                 cfg.getSync().getShowStatus(),
                 cfg.getSync().getShowStatistics(),
-                cfg.getNet().getP2p().getMaxActiveNodes());
+                cfg.getNet().getP2p().getMaxActiveNodes(),
+                cfg.getSync().getFastSync());
 
         ChainConfiguration chainConfig = new ChainConfiguration();
         this.propHandler =
@@ -239,6 +252,16 @@ public class AionHub {
         cbs.add(new ResBlocksBodiesHandler(syncLOG, surveyLOG, syncMgr, p2pMgr));
         cbs.add(new BroadcastTxHandler(syncLOG, mempool, p2pMgr, inSyncOnlyMode));
         cbs.add(new BroadcastNewBlockHandler(syncLOG, surveyLOG, propHandler, p2pMgr));
+        if (!inSyncOnlyMode) {
+            // serves the state and blocks requested by peers using fast sync
+            cbs.add(new RequestTrieDataHandler(syncLOG, blockchain, p2pMgr));
+            cbs.add(new RequestBlocksHandler(syncLOG, blockchain, p2pMgr));
+        }
+        FastSyncManager fastSyncMgr = syncMgr.getFastSyncManager();
+        if (fastSyncMgr != null) {
+            cbs.add(new ResponseTrieDataHandler(syncLOG, fastSyncMgr.getReceivedTrieData()));
+            cbs.add(new ResponseBlocksHandler(syncLOG, fastSyncMgr, p2pMgr));
+        }
         this.p2pMgr.register(cbs);
     }
 
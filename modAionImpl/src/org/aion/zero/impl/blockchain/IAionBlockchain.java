@@ -47,6 +47,24 @@ public interface IAionBlockchain extends UnityChain {
      */
     List<Block> getBlocksByRange(long first, long last);
 
+    /**
+     * Retrieves the blocks with the given hashes, reading the ones that are not cached from the
+     * database with a single request.
+     *
+     * @param hashes the hashes of the requested blocks
+     * @return the blocks in the order of the given hashes, with {@code null} for unknown hashes
+     */
+    List<Block> getBlocksByHashes(List<byte[]> hashes);
+
+    /**
+     * Retrieves the encoded bodies of the blocks with the given hashes, reading the bodies of
+     * ancient blocks without decoding them.
+     *
+     * @param hashes the hashes of the requested blocks
+     * @return the bodies in the order of the given hashes, with {@code null} for unknown hashes
+     */
+    List<byte[]> getEncodedBodiesByHashes(List<byte[]> hashes);
+
     /**
      * Recovery functionality for rebuilding the world state.
      *
@@ -314,6 +314,11 @@ public class StandaloneBlockchain extends AionBlockchainImpl {
                                 public boolean isInternalTransactionStorageEnabled() {
                                     return true;
                                 }
+
+                                @Override
+                                public boolean isStatePrefetchEnabled() {
+                                    return false;
+                                }
                             }
                             : this.a0Config;
 
@@ -434,7 +439,7 @@ public class StandaloneBlockchain extends AionBlockchainImpl {
                 bc.setBestBlock(best);
                 bc.setTotalDifficulty(totalDiff);
                 bc.getRepository().loadImportableState(trieData, DatabaseType.STATE);
-                bc.getRepository().getWorldState().setRoot(best.getStateRoot());
+                bc.getRepository().setRoot(best.getStateRoot());
                 bc.getRepository().getWorldState().sync(false);
             }
 
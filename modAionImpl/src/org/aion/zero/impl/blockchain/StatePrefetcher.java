@@ -0,0 +1,129 @@
+package org.aion.zero.impl.blockchain;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.aion.base.AionTransaction;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.mcf.blockchain.Block;
+import org.aion.types.AionAddress;
+import org.aion.zero.impl.db.AionRepositoryImpl;
+import org.slf4j.Logger;
+
+/**
+ * Loads the state referenced by a block into the repository caches before the block is executed.
+ *
+ * <p>The transactions of a block only discover the accounts they need while executing, one cold
+ * database read at a time. The senders, recipients and coinbase are however known upfront, so
+ * their trie nodes, account states and contract details are read concurrently on a shared pool of
+ * worker threads instead.
+ */
+final class StatePrefetcher {
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
+
+    private static final int THREADS =
+            Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+
+    /** Shared by all the chains in the process, the threads are only busy while importing. */
+    private static final ExecutorService pool =
+            Executors.newFixedThreadPool(
+                    THREADS,
+                    new ThreadFactory() {
+                        private final AtomicInteger count = new AtomicInteger();
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "prefetch-" + count.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+
+    private final LongAdder accounts = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+
+    /** Returns the addresses read by the given block, in the order of first use. */
+    static Set<AionAddress> referencedAddresses(Block block) {
+        Set<AionAddress> addresses = new LinkedHashSet<>();
+        for (AionTransaction tx : block.getTransactionsList()) {
+            addresses.add(tx.getSenderAddress());
+            // contract deployments create new accounts
+            if (tx.getDestinationAddress() != null) {
+                addresses.add(tx.getDestinationAddress());
+            }
+        }
+        addresses.add(block.getCoinbase());
+        return addresses;
+    }
+
+    /**
+     * Reads the state referenced by the given block into the caches of the repository. Blocks
+     * until all the reads complete, since the repository may not be updated while they run.
+     */
+    void prefetch(AionRepositoryImpl repository, Block block) {
+        long start = System.nanoTime();
+
+        Set<AionAddress> addresses = referencedAddresses(block);
+        List<Callable<Long>> tasks = new ArrayList<>(addresses.size());
+        for (AionAddress address : addresses) {
+            tasks.add(() -> repository.prefetch(address));
+        }
+
+        long loaded = 0;
+        try {
+            loaded = awaitAll(pool.invokeAll(tasks));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        accounts.add(addresses.size());
+        nodes.add(loaded);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(
+                    "Prefetched {} accounts and {} trie nodes for block {} in {} us.",
+                    addresses.size(),
+                    loaded,
+                    block.getNumber(),
+                    (System.nanoTime() - start) / 1_000);
+        }
+    }
+
+    /** Waits for the given reads and returns the number of trie nodes they loaded. */
+    private static long awaitAll(Collection<Future<Long>> futures) throws InterruptedException {
+        long loaded = 0;
+        for (Future<Long> future : futures) {
+            try {
+                loaded += future.get();
+            } catch (ExecutionException e) {
+                // the state is read again during execution
+                LOG.debug("Unable to prefetch state.", e.getCause());
+            }
+        }
+        return loaded;
+    }
+
+    /** Returns the number of accounts prefetched so far. */
+    long getPrefetchedAccountCount() {
+        return accounts.sum();
+    }
+
+    /**
+     * Returns the number of trie nodes read from the database by the prefetcher, i.e. the cold
+     * reads removed from block execution.
+     */
+    long getPrefetchedNodeCount() {
+        return nodes.sum();
+    }
+}
@@ -20,6 +20,7 @@ public class CfgDb {
         public static final String DEFAULT = "default";
 
         public static final String BLOCK = "block";
+        public static final String HEADER = "header";
         public static final String INDEX = "index";
         public static final String PENDING_BLOCK = "pendingBlock";
 
@@ -32,6 +33,8 @@ public class CfgDb {
 
         public static final String STATE = "state";
         public static final String STATE_ARCHIVE = "stateArchive";
+        public static final String STATE_MARKS = "stateMarks";
+        public static final String FLAT_STATE = "flatState";
         public static final String TRANSACTION = "transaction";
 
         public static final String TX_CACHE = "pendingtxCache";
@@ -46,6 +49,10 @@ public class CfgDb {
         public static final String DB_PATH = "db_path";
 
         public static final String CHECK_INTEGRITY = "check_integrity";
+        public static final String ENABLE_COLUMN_FAMILIES = "enable_column_families";
+        public static final String ENABLE_WRITE_BEHIND = "enable_write_behind";
+        public static final String ANCIENT_DEPTH = "ancient_depth";
+        public static final String ENABLE_FLAT_STATE = "enable_flat_state";
 
         public static final String ENABLE_AUTO_COMMIT = "enable_auto_commit";
         public static final String ENABLE_DB_CACHE = "enable_db_cache";
@@ -68,6 +75,13 @@ public class CfgDb {
     private CfgPrune prune;
     private PruneOption prune_option;
     private boolean internalTxStorage;
+    private boolean columnFamilies;
+    private boolean writeBehind;
+    private long ancientDepth;
+    private boolean flatState;
+    private boolean statePrefetch;
+
+    private static final long MINIMUM_ANCIENT_DEPTH = 1024;
 
     /**
      * Enabling expert mode allows more detailed database configurations.
@@ -113,6 +127,21 @@ public class CfgDb {
                         case "internal-tx-storage":
                             this.internalTxStorage = Boolean.parseBoolean(ConfigUtil.readValue(sr));
                             break;
+                        case "column-families":
+                            this.columnFamilies = Boolean.parseBoolean(ConfigUtil.readValue(sr));
+                            break;
+                        case "write-behind":
+                            this.writeBehind = Boolean.parseBoolean(ConfigUtil.readValue(sr));
+                            break;
+                        case "ancient-depth":
+                            setAncientDepth(Long.parseLong(ConfigUtil.readValue(sr)));
+                            break;
+                        case "flat-state":
+                            this.flatState = Boolean.parseBoolean(ConfigUtil.readValue(sr));
+                            break;
+                        case "state-prefetch":
+                            this.statePrefetch = Boolean.parseBoolean(ConfigUtil.readValue(sr));
+                            break;
                             // parameter considered only when expert==false
                         case "vendor":
                             this.vendor = ConfigUtil.readValue(sr);
@@ -252,6 +281,60 @@ public class CfgDb {
             xmlWriter.writeCharacters(String.valueOf(internalTxStorage));
             xmlWriter.writeEndElement();
 
+            // only written when enabled since the layout is optional
+            if (columnFamilies) {
+                xmlWriter.writeCharacters("\r\n\t\t");
+                xmlWriter.writeComment(
+                        "Boolean value. Stores all databases as column families of a single rocksdb instance with atomic flushes.");
+                xmlWriter.writeCharacters("\r\n\t\t");
+                xmlWriter.writeComment(
+                        "Caution: changing the layout requires re-syncing from genesis!");
+                xmlWriter.writeCharacters("\r\n\t\t");
+                xmlWriter.writeStartElement("column-families");
+                xmlWriter.writeCharacters(String.valueOf(columnFamilies));
+                xmlWriter.writeEndElement();
+            }
+
+            if (writeBehind) {
+                xmlWriter.writeCharacters("\r\n\t\t");
+                xmlWriter.writeComment(
+                        "Boolean value. Writes flushed data to disk in the background while blocks are imported. Requires column families.");
+                xmlWriter.writeCharacters("\r\n\t\t");
+                xmlWriter.writeStartElement("write-behind");
+                xmlWriter.writeCharacters(String.valueOf(writeBehind));
+                xmlWriter.writeEndElement();
+            }
+
+            if (ancientDepth > 0) {
+                xmlWriter.writeCharacters("\r\n\t\t");
+                xmlWriter.writeComment(
+                        "Integer value with minimum set to 1024. Main chain blocks older than best block level minus this number are moved to append-only files.");
+                xmlWriter.writeCharacters("\r\n\t\t");
+                xmlWriter.writeStartElement("ancient-depth");
+                xmlWriter.writeCharacters(String.valueOf(ancientDepth));
+                xmlWriter.writeEndElement();
+            }
+
+            if (flatState) {
+                xmlWriter.writeCharacters("\r\n\t\t");
+                xmlWriter.writeComment(
+                        "Boolean value. Answers account and storage reads from a flat copy of the recent state instead of the state trie.");
+                xmlWriter.writeCharacters("\r\n\t\t");
+                xmlWriter.writeStartElement("flat-state");
+                xmlWriter.writeCharacters(String.valueOf(flatState));
+                xmlWriter.writeEndElement();
+            }
+
+            if (statePrefetch) {
+                xmlWriter.writeCharacters("\r\n\t\t");
+                xmlWriter.writeComment(
+                        "Boolean value. Reads the accounts referenced by a block in parallel before executing it.");
+                xmlWriter.writeCharacters("\r\n\t\t");
+                xmlWriter.writeStartElement("state-prefetch");
+                xmlWriter.writeCharacters(String.valueOf(statePrefetch));
+                xmlWriter.writeEndElement();
+            }
+
             if (!expert) {
                 xmlWriter.writeCharacters("\r\n\t\t");
                 xmlWriter.writeComment(
@@ -319,6 +402,48 @@ public class CfgDb {
         return vendor;
     }
 
+    public boolean isColumnFamilies() {
+        return columnFamilies;
+    }
+
+    public void setColumnFamilies(boolean columnFamilies) {
+        this.columnFamilies = columnFamilies;
+    }
+
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    public void setWriteBehind(boolean writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    public long getAncientDepth() {
+        return ancientDepth;
+    }
+
+    /** Sets the depth of the ancient blocks, with {@code 0} keeping all blocks in the database. */
+    public void setAncientDepth(long ancientDepth) {
+        // must be at least MINIMUM_ANCIENT_DEPTH when enabled
+        this.ancientDepth = ancientDepth <= 0 ? 0 : Math.max(ancientDepth, MINIMUM_ANCIENT_DEPTH);
+    }
+
+    public boolean isFlatState() {
+        return flatState;
+    }
+
+    public void setFlatState(boolean flatState) {
+        this.flatState = flatState;
+    }
+
+    public boolean isStatePrefetch() {
+        return statePrefetch;
+    }
+
+    public void setStatePrefetch(boolean statePrefetch) {
+        this.statePrefetch = statePrefetch;
+    }
+
     public boolean isInternalTxStorageEnabled() {
         return internalTxStorage;
     }
@@ -404,11 +529,19 @@ public class CfgDb {
 
             Properties props = propSet.get(Names.DEFAULT);
             props.setProperty(Props.CHECK_INTEGRITY, String.valueOf(this.check_integrity));
+            props.setProperty(Props.ENABLE_COLUMN_FAMILIES, String.valueOf(this.columnFamilies));
+            props.setProperty(Props.ENABLE_WRITE_BEHIND, String.valueOf(this.writeBehind));
+            props.setProperty(Props.ANCIENT_DEPTH, String.valueOf(this.ancientDepth));
+            props.setProperty(Props.ENABLE_FLAT_STATE, String.valueOf(this.flatState));
         } else {
             Properties props = new Properties();
             props.setProperty(Props.DB_TYPE, this.vendor);
             props.setProperty(Props.ENABLE_DB_COMPRESSION, String.valueOf(this.compression));
             props.setProperty(Props.CHECK_INTEGRITY, String.valueOf(this.check_integrity));
+            props.setProperty(Props.ENABLE_COLUMN_FAMILIES, String.valueOf(this.columnFamilies));
+            props.setProperty(Props.ENABLE_WRITE_BEHIND, String.valueOf(this.writeBehind));
+            props.setProperty(Props.ANCIENT_DEPTH, String.valueOf(this.ancientDepth));
+            props.setProperty(Props.ENABLE_FLAT_STATE, String.valueOf(this.flatState));
 
             props.setProperty(Props.ENABLE_DB_CACHE, "true");
             props.setProperty(Props.DB_CACHE_SIZE, String.valueOf(128 * (int) Utils.MEGA_BYTE));
@@ -437,6 +570,11 @@ public class CfgDb {
         CfgDb cfgDb = (CfgDb) o;
         return compression == cfgDb.compression
                 && check_integrity == cfgDb.check_integrity
+                && columnFamilies == cfgDb.columnFamilies
+                && writeBehind == cfgDb.writeBehind
+                && ancientDepth == cfgDb.ancientDepth
+                && flatState == cfgDb.flatState
+                && statePrefetch == cfgDb.statePrefetch
                 && expert == cfgDb.expert
                 && Objects.equal(path, cfgDb.path)
                 && Objects.equal(vendor, cfgDb.vendor)
@@ -452,6 +590,11 @@ public class CfgDb {
                 vendor,
                 compression,
                 check_integrity,
+                columnFamilies,
+                writeBehind,
+                ancientDepth,
+                flatState,
+                statePrefetch,
                 prune,
                 prune_option,
                 expert,
@@ -21,6 +21,9 @@ public final class CfgNetP2p {
         this.errorTolerance = 50;
         this.clusterNodeMode = false;
         this.syncOnlyMode = false;
+        this.receiveWorkersHigh = 0;
+        this.receiveWorkersNormal = 0;
+        this.receiveWorkersLow = 0;
     }
 
     private String ip;
@@ -41,6 +44,13 @@ public final class CfgNetP2p {
 
     private int errorTolerance;
 
+    // the number of workers serving each receive priority, where 0 selects the default allocation
+    private int receiveWorkersHigh;
+
+    private int receiveWorkersNormal;
+
+    private int receiveWorkersLow;
+
     public void fromXML(final XMLStreamReader sr) throws XMLStreamException {
         loop:
         while (sr.hasNext()) {
@@ -76,6 +86,15 @@ public final class CfgNetP2p {
                         case "err-tolerance":
                             this.errorTolerance = Integer.parseInt(ConfigUtil.readValue(sr));
                             break;
+                        case "receive-workers-high":
+                            this.receiveWorkersHigh = Integer.parseInt(ConfigUtil.readValue(sr));
+                            break;
+                        case "receive-workers-normal":
+                            this.receiveWorkersNormal = Integer.parseInt(ConfigUtil.readValue(sr));
+                            break;
+                        case "receive-workers-low":
+                            this.receiveWorkersLow = Integer.parseInt(ConfigUtil.readValue(sr));
+                            break;
                         default:
                             // ConfigUtil.skipElement(sr);
                             break;
@@ -171,6 +190,18 @@ public final class CfgNetP2p {
         return errorTolerance;
     }
 
+    public int getReceiveWorkersHigh() {
+        return receiveWorkersHigh;
+    }
+
+    public int getReceiveWorkersNormal() {
+        return receiveWorkersNormal;
+    }
+
+    public int getReceiveWorkersLow() {
+        return receiveWorkersLow;
+    }
+
     public boolean inClusterNodeMode() {
         return clusterNodeMode;
     }
@@ -192,6 +223,9 @@ public final class CfgNetP2p {
                 && maxTempNodes == cfgNetP2p.maxTempNodes
                 && maxActiveNodes == cfgNetP2p.maxActiveNodes
                 && errorTolerance == cfgNetP2p.errorTolerance
+                && receiveWorkersHigh == cfgNetP2p.receiveWorkersHigh
+                && receiveWorkersNormal == cfgNetP2p.receiveWorkersNormal
+                && receiveWorkersLow == cfgNetP2p.receiveWorkersLow
                 && Objects.equal(ip, cfgNetP2p.ip);
     }
 
@@ -206,6 +240,9 @@ public final class CfgNetP2p {
                 syncOnlyMode,
                 maxTempNodes,
                 maxActiveNodes,
-                errorTolerance);
+                errorTolerance,
+                receiveWorkersHigh,
+                receiveWorkersNormal,
+                receiveWorkersLow);
     }
 }
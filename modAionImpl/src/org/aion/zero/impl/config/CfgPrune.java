@@ -16,6 +16,7 @@ public class CfgPrune implements PruneConfig {
     private boolean archived;
     private int current_count = MINIMUM_CURRENT_COUNT;
     private int archive_rate = MINIMUM_ARCHIVE_RATE;
+    private boolean mark_sweep = false;
 
     private static final int MINIMUM_CURRENT_COUNT = 128;
     private static final int MINIMUM_ARCHIVE_RATE = 1000;
@@ -73,6 +74,9 @@ public class CfgPrune implements PruneConfig {
                                 this.archive_rate = MINIMUM_ARCHIVE_RATE;
                             }
                             break;
+                        case "mark_sweep":
+                            this.mark_sweep = Boolean.parseBoolean(ConfigUtil.readValue(sr));
+                            break;
                         default:
                             ConfigUtil.skipElement(sr);
                             break;
@@ -118,6 +122,14 @@ public class CfgPrune implements PruneConfig {
         xmlWriter.writeCharacters(String.valueOf(this.archive_rate));
         xmlWriter.writeEndElement();
 
+        xmlWriter.writeCharacters("\r\n\t\t\t");
+        xmlWriter.writeComment(
+                "Boolean value. When pruning without archiving, remove the unused states with periodic mark-and-sweep passes over the state database instead of in-memory reference counting.");
+        xmlWriter.writeCharacters("\r\n\t\t\t");
+        xmlWriter.writeStartElement("mark_sweep");
+        xmlWriter.writeCharacters(String.valueOf(this.mark_sweep));
+        xmlWriter.writeEndElement();
+
         xmlWriter.writeCharacters("\r\n\t\t");
         xmlWriter.writeEndElement();
     }
@@ -142,6 +154,11 @@ public class CfgPrune implements PruneConfig {
         return archive_rate;
     }
 
+    @Override
+    public boolean isMarkSweep() {
+        return mark_sweep;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -150,11 +167,12 @@ public class CfgPrune implements PruneConfig {
         return enabled == cfgPrune.enabled
                 && archived == cfgPrune.archived
                 && current_count == cfgPrune.current_count
-                && archive_rate == cfgPrune.archive_rate;
+                && archive_rate == cfgPrune.archive_rate
+                && mark_sweep == cfgPrune.mark_sweep;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(enabled, archived, current_count, archive_rate);
+        return Objects.hashCode(enabled, archived, current_count, archive_rate, mark_sweep);
     }
 }
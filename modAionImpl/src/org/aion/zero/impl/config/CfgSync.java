@@ -17,6 +17,7 @@ public final class CfgSync {
 
     private boolean showStatus;
     private Set<StatsType> showStatistics;
+    private boolean fastSync;
 
     public CfgSync() {
         this.showStatus = false;
@@ -38,6 +39,9 @@ public final class CfgSync {
                         case "show-statistics":
                             parseSelectedStats(showStatistics, ConfigUtil.readValue(sr));
                             break;
+                        case "fast-sync":
+                            this.fastSync = Boolean.parseBoolean(ConfigUtil.readValue(sr));
+                            break;
                         default:
                             ConfigUtil.skipElement(sr);
                             break;
@@ -106,6 +110,17 @@ public final class CfgSync {
             xmlWriter.writeCharacters(printSelectedStats().toLowerCase());
             xmlWriter.writeEndElement();
 
+            // only written when enabled since the mode is optional
+            if (fastSync) {
+                xmlWriter.writeCharacters("\r\n\t\t");
+                xmlWriter.writeComment(
+                        "Boolean value. Downloads the world state of a recent block instead of executing the chain when starting from genesis.");
+                xmlWriter.writeCharacters("\r\n\t\t");
+                xmlWriter.writeStartElement("fast-sync");
+                xmlWriter.writeCharacters(String.valueOf(fastSync));
+                xmlWriter.writeEndElement();
+            }
+
             // close element sync
             xmlWriter.writeCharacters("\r\n\t");
             xmlWriter.writeEndElement();
@@ -163,16 +178,24 @@ public final class CfgSync {
         return showStatistics;
     }
 
+    public void setFastSync(boolean fastSync) {
+        this.fastSync = fastSync;
+    }
+
+    public boolean getFastSync() {
+        return this.fastSync;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         CfgSync cfgSync = (CfgSync) o;
-        return showStatus == cfgSync.showStatus;
+        return showStatus == cfgSync.showStatus && fastSync == cfgSync.fastSync;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(showStatus);
+        return Objects.hashCode(showStatus, fastSync);
     }
 }
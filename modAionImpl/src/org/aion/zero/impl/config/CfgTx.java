@@ -18,6 +18,8 @@ public class CfgTx {
         this.poolDump = false;
         this.poolBackup = false;
         this.pendingTransactionTimeout = 3600;
+        this.indexedPool = false;
+        this.speculativeExecution = false;
     }
 
     private int cacheMax;
@@ -30,6 +32,10 @@ public class CfgTx {
 
     private int pendingTransactionTimeout;
 
+    private boolean indexedPool;
+
+    private boolean speculativeExecution;
+
     public void fromXML(final XMLStreamReader sr) throws XMLStreamException {
         loop:
         while (sr.hasNext()) {
@@ -61,6 +67,13 @@ public class CfgTx {
                                 this.pendingTransactionTimeout = 60;
                             }
                             break;
+                        case "indexedpool":
+                            this.indexedPool = Boolean.parseBoolean(ConfigUtil.readValue(sr));
+                            break;
+                        case "speculativeexecution":
+                            this.speculativeExecution =
+                                    Boolean.parseBoolean(ConfigUtil.readValue(sr));
+                            break;
                         default:
                             ConfigUtil.skipElement(sr);
                             break;
@@ -137,6 +150,14 @@ public class CfgTx {
         return poolBackup;
     }
 
+    public boolean getIndexedPool() {
+        return indexedPool;
+    }
+
+    public boolean getSpeculativeExecution() {
+        return speculativeExecution;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -146,11 +167,20 @@ public class CfgTx {
                 && buffer == cfgTx.buffer
                 && poolDump == cfgTx.poolDump
                 && poolBackup == cfgTx.poolBackup
-                && pendingTransactionTimeout == cfgTx.pendingTransactionTimeout;
+                && pendingTransactionTimeout == cfgTx.pendingTransactionTimeout
+                && indexedPool == cfgTx.indexedPool
+                && speculativeExecution == cfgTx.speculativeExecution;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(cacheMax, buffer, poolDump, poolBackup, pendingTransactionTimeout);
+        return Objects.hashCode(
+                cacheMax,
+                buffer,
+                poolDump,
+                poolBackup,
+                pendingTransactionTimeout,
+                indexedPool,
+                speculativeExecution);
     }
 }
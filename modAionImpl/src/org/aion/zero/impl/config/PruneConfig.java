@@ -34,4 +34,15 @@ public interface PruneConfig {
      * @return integer value representing the archive rate
      */
     int getArchiveRate();
+
+    /**
+     * Indicates if the states outside the retained blocks should be removed by periodic
+     * mark-and-sweep passes over the state database instead of journal reference counting. Only
+     * applies when pruning is enabled and archiving is disabled.
+     *
+     * @return {@code true} when mark-and-sweep pruning is enabled, {@code false} otherwise.
+     */
+    default boolean isMarkSweep() {
+        return false;
+    }
 }
@@ -4,6 +4,7 @@ import static org.aion.zero.impl.db.DatabaseUtils.connectAndOpen;
 import static org.aion.zero.impl.db.DatabaseUtils.verifyAndBuildPath;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -16,8 +17,11 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.aion.base.AccountState;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
 import org.aion.db.impl.DBVendor;
+import org.aion.db.impl.rocksdb.RocksDBConstants;
+import org.aion.db.impl.rocksdb.SharedRocksDB;
 import org.aion.db.store.ArchivedDataSource;
 import org.aion.db.store.JournalPruneDataSource;
+import org.aion.db.store.MarkSweepDataSource;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.aion.zero.impl.config.CfgDb.Names;
@@ -45,6 +49,7 @@ public abstract class AbstractRepository implements Repository<AccountState> {
 
     protected static final String INDEX_DB = Names.INDEX;
     protected static final String BLOCK_DB = Names.BLOCK;
+    protected static final String HEADER_DB = Names.HEADER;
     protected static final String PENDING_BLOCK_DB = Names.PENDING_BLOCK;
     protected static final String CONTRACT_INDEX_DB = Names.CONTRACT_INDEX;
     protected static final String DETAILS_DB = Names.DETAILS;
@@ -52,9 +57,13 @@ public abstract class AbstractRepository implements Repository<AccountState> {
     protected static final String GRAPH_DB = Names.GRAPH;
     protected static final String STATE_DB = Names.STATE;
     protected static final String STATE_ARCHIVE_DB = Names.STATE_ARCHIVE;
+    protected static final String STATE_MARKS_DB = Names.STATE_MARKS;
+    protected static final String FLAT_STATE_DB = Names.FLAT_STATE;
     protected static final String PENDING_TX_POOL_DB = Names.TX_POOL;
     protected static final String PENDING_TX_CACHE_DB = Names.TX_CACHE;
     protected static final String CONTRACT_PERFORM_CODE_DB = Names.CONTRACT_PERFORM_CODE;
+    protected static final String SHARED_DB = "shared";
+    protected static final String ANCIENT_DIR = "ancient";
 
     // State trie.
     protected Trie worldState;
@@ -72,16 +81,31 @@ public abstract class AbstractRepository implements Repository<AccountState> {
     protected ByteArrayKeyValueDatabase graphDatabase;
     protected ByteArrayKeyValueDatabase indexDatabase;
     protected ByteArrayKeyValueDatabase blockDatabase;
+    protected ByteArrayKeyValueDatabase headerDatabase;
     protected ByteArrayKeyValueDatabase stateDatabase;
     protected ByteArrayKeyValueDatabase stateArchiveDatabase;
+    protected ByteArrayKeyValueDatabase stateMarksDatabase;
+    protected ByteArrayKeyValueDatabase flatStateDatabase;
     protected ByteArrayKeyValueDatabase txPoolDatabase;
     protected ByteArrayKeyValueDatabase pendingTxCacheDatabase;
     protected ByteArrayKeyValueDatabase contractPerformCodeDatabase;
 
     protected Collection<ByteArrayKeyValueDatabase> databaseGroup;
 
+    // holds the main chain blocks older than the ancient depth, null when disabled
+    protected AncientBlockStore ancientBlockStore;
+    protected long ancientDepth;
+
+    /**
+     * The instance holding all the databases as column families when the shared layout is
+     * enabled, {@code null} otherwise.
+     */
+    protected SharedRocksDB sharedDatabase;
+
     protected ArchivedDataSource stateWithArchive;
     protected JournalPruneDataSource stateDSPrune;
+    // not null when the state is pruned by mark-and-sweep instead of the journal
+    protected MarkSweepDataSource stateMarkSweep;
     protected DetailsDataStore detailsDS;
     protected Map<Long, Set<ByteArrayWrapper>> cacheForBlockPruning;
 
@@ -167,24 +191,70 @@ public abstract class AbstractRepository implements Repository<AccountState> {
                             cfg.getDatabaseConfig(Names.DEFAULT)
                                     .getProperty(Props.CHECK_INTEGRITY));
 
+            boolean enableColumnFamilies =
+                    Boolean.valueOf(
+                            cfg.getDatabaseConfig(Names.DEFAULT)
+                                    .getProperty(Props.ENABLE_COLUMN_FAMILIES));
+            boolean enableWriteBehind =
+                    Boolean.valueOf(
+                            cfg.getDatabaseConfig(Names.DEFAULT)
+                                    .getProperty(Props.ENABLE_WRITE_BEHIND));
+            if (enableColumnFamilies && vendor == DBVendor.ROCKSDB) {
+                sharedDatabase =
+                        new SharedRocksDB(
+                                SHARED_DB,
+                                cfg.getDbPath(),
+                                LOG,
+                                Boolean.valueOf(
+                                        cfg.getDatabaseConfig(Names.DEFAULT)
+                                                .getProperty(Props.ENABLE_DB_COMPRESSION)),
+                                RocksDBConstants.SHARED_CACHE_SIZE,
+                                RocksDBConstants.SHARED_WRITE_BUFFER_SIZE,
+                                enableWriteBehind ? RocksDBConstants.MAX_PENDING_COMMITS : 0);
+                LOGGEN.info("Using a single rocksdb instance with column families at {}.", sharedDatabase.getPath());
+            } else if (enableColumnFamilies) {
+                LOGGEN.warn("Column families are only supported by rocksdb. Using separate databases for vendor {}.", vendor.toValue());
+            }
+            if (enableWriteBehind && sharedDatabase == null) {
+                LOGGEN.warn("Write-behind flushes require column families with rocksdb. Flushing synchronously.");
+            }
+
             // getting state specific properties
             sharedProps = cfg.getDatabaseConfig(STATE_DB);
             // locking enabled for state when JournalPrune not used
             sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
             sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
             sharedProps.setProperty(Props.DB_NAME, STATE_DB);
-            this.stateDatabase = connectAndOpen(sharedProps, LOG);
+            this.stateDatabase = openDatabase(sharedProps, false);
             if (stateDatabase == null || stateDatabase.isClosed()) {
                 throw newException(STATE_DB, sharedProps);
             }
             databaseGroup.add(stateDatabase);
 
+            boolean enableFlatState =
+                    Boolean.valueOf(
+                            cfg.getDatabaseConfig(Names.DEFAULT)
+                                    .getProperty(Props.ENABLE_FLAT_STATE));
+            if (enableFlatState) {
+                // getting flat state specific properties
+                sharedProps = cfg.getDatabaseConfig(FLAT_STATE_DB);
+                sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
+                sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
+                sharedProps.setProperty(Props.DB_NAME, FLAT_STATE_DB);
+                this.flatStateDatabase = openDatabase(sharedProps, false);
+                if (flatStateDatabase == null || flatStateDatabase.isClosed()) {
+                    throw newException(FLAT_STATE_DB, sharedProps);
+                }
+                databaseGroup.add(flatStateDatabase);
+                LOGGEN.info("Flat state ENABLED.");
+            }
+
             // getting transaction specific properties
             sharedProps = cfg.getDatabaseConfig(TRANSACTION_DB);
             sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
             sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
             sharedProps.setProperty(Props.DB_NAME, TRANSACTION_DB);
-            this.transactionDatabase = connectAndOpen(sharedProps, LOG);
+            this.transactionDatabase = openDatabase(sharedProps, false);
             if (transactionDatabase == null || transactionDatabase.isClosed()) {
                 throw newException(TRANSACTION_DB, sharedProps);
             }
@@ -196,7 +266,7 @@ public abstract class AbstractRepository implements Repository<AccountState> {
             sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
             sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
             sharedProps.setProperty(Props.DB_NAME, CONTRACT_INDEX_DB);
-            this.contractIndexDatabase = connectAndOpen(sharedProps, LOG);
+            this.contractIndexDatabase = openDatabase(sharedProps, false);
             if (contractIndexDatabase == null || contractIndexDatabase.isClosed()) {
                 throw newException(CONTRACT_INDEX_DB, sharedProps);
             }
@@ -207,7 +277,7 @@ public abstract class AbstractRepository implements Repository<AccountState> {
             sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
             sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
             sharedProps.setProperty(Props.DB_NAME, CONTRACT_PERFORM_CODE_DB);
-            this.contractPerformCodeDatabase = connectAndOpen(sharedProps, LOG);
+            this.contractPerformCodeDatabase = openDatabase(sharedProps, false);
             if (contractPerformCodeDatabase == null || contractPerformCodeDatabase.isClosed()) {
                 throw newException(CONTRACT_PERFORM_CODE_DB, sharedProps);
             }
@@ -218,7 +288,7 @@ public abstract class AbstractRepository implements Repository<AccountState> {
             sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
             sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
             sharedProps.setProperty(Props.DB_NAME, DETAILS_DB);
-            this.detailsDatabase = connectAndOpen(sharedProps, LOG);
+            this.detailsDatabase = openDatabase(sharedProps, false);
             if (detailsDatabase == null || detailsDatabase.isClosed()) {
                 throw newException(DETAILS_DB, sharedProps);
             }
@@ -229,7 +299,7 @@ public abstract class AbstractRepository implements Repository<AccountState> {
             sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
             sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
             sharedProps.setProperty(Props.DB_NAME, STORAGE_DB);
-            this.storageDatabase = connectAndOpen(sharedProps, LOG);
+            this.storageDatabase = openDatabase(sharedProps, false);
             if (storageDatabase == null || storageDatabase.isClosed()) {
                 throw newException(STORAGE_DB, sharedProps);
             }
@@ -240,7 +310,7 @@ public abstract class AbstractRepository implements Repository<AccountState> {
             sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
             sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
             sharedProps.setProperty(Props.DB_NAME, GRAPH_DB);
-            this.graphDatabase = connectAndOpen(sharedProps, LOG);
+            this.graphDatabase = openDatabase(sharedProps, false);
             if (graphDatabase == null || graphDatabase.isClosed()) {
                 throw newException(GRAPH_DB, sharedProps);
             }
@@ -251,7 +321,7 @@ public abstract class AbstractRepository implements Repository<AccountState> {
             sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
             sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
             sharedProps.setProperty(Props.DB_NAME, INDEX_DB);
-            this.indexDatabase = connectAndOpen(sharedProps, LOG);
+            this.indexDatabase = openDatabase(sharedProps, false);
             if (indexDatabase == null || indexDatabase.isClosed()) {
                 throw newException(INDEX_DB, sharedProps);
             }
@@ -262,12 +332,39 @@ public abstract class AbstractRepository implements Repository<AccountState> {
             sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
             sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
             sharedProps.setProperty(Props.DB_NAME, BLOCK_DB);
-            this.blockDatabase = connectAndOpen(sharedProps, LOG);
+            this.blockDatabase = openDatabase(sharedProps, false);
             if (blockDatabase == null || blockDatabase.isClosed()) {
                 throw newException(BLOCK_DB, sharedProps);
             }
             databaseGroup.add(blockDatabase);
 
+            // using block specific properties
+            sharedProps.setProperty(Props.DB_NAME, HEADER_DB);
+            this.headerDatabase = openDatabase(sharedProps, false);
+            if (headerDatabase == null || headerDatabase.isClosed()) {
+                throw newException(HEADER_DB, sharedProps);
+            }
+            databaseGroup.add(headerDatabase);
+
+            ancientDepth =
+                    Long.parseLong(
+                            cfg.getDatabaseConfig(Names.DEFAULT)
+                                    .getProperty(Props.ANCIENT_DEPTH, "0"));
+            if (ancientDepth > 0) {
+                File ancientDir = new File(cfg.getDbPath(), ANCIENT_DIR);
+                try {
+                    this.ancientBlockStore =
+                            new AncientBlockStore(ancientDir, AncientBlockStore.DEFAULT_SEGMENT_SIZE);
+                } catch (IOException e) {
+                    throw new InvalidFilePathException(
+                            "The ancient block store could not be opened in «"
+                                    + ancientDir
+                                    + "»: "
+                                    + e.getMessage());
+                }
+                LOGGEN.info("Ancient block store ENABLED. Block depth set to {}.", ancientDepth);
+            }
+
             // using block specific properties
             sharedProps.setProperty(Props.DB_NAME, PENDING_BLOCK_DB);
             this.pendingStoreProperties = sharedProps;
@@ -277,7 +374,7 @@ public abstract class AbstractRepository implements Repository<AccountState> {
             sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
             sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
             sharedProps.setProperty(Props.DB_NAME, PENDING_TX_POOL_DB);
-            this.txPoolDatabase = connectAndOpen(sharedProps, LOG);
+            this.txPoolDatabase = openDatabase(sharedProps, true);
             if (txPoolDatabase == null || txPoolDatabase.isClosed()) {
                 throw newException(PENDING_TX_POOL_DB, sharedProps);
             }
@@ -288,7 +385,7 @@ public abstract class AbstractRepository implements Repository<AccountState> {
             sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
             sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
             sharedProps.setProperty(Props.DB_NAME, PENDING_TX_CACHE_DB);
-            this.pendingTxCacheDatabase = connectAndOpen(sharedProps, LOG);
+            this.pendingTxCacheDatabase = openDatabase(sharedProps, true);
             if (pendingTxCacheDatabase == null || pendingTxCacheDatabase.isClosed()) {
                 throw newException(PENDING_TX_CACHE_DB, sharedProps);
             }
@@ -309,7 +406,7 @@ public abstract class AbstractRepository implements Repository<AccountState> {
                 sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
                 sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
                 sharedProps.setProperty(Props.DB_NAME, STATE_ARCHIVE_DB);
-                this.stateArchiveDatabase = connectAndOpen(sharedProps, LOG);
+                this.stateArchiveDatabase = openDatabase(sharedProps, false);
                 databaseGroup.add(stateArchiveDatabase);
 
                 stateWithArchive = new ArchivedDataSource(stateDatabase, stateArchiveDatabase);
@@ -326,20 +423,64 @@ public abstract class AbstractRepository implements Repository<AccountState> {
             } else {
                 stateArchiveDatabase = null;
                 stateWithArchive = null;
-                stateDSPrune = new JournalPruneDataSource(stateDatabase, LOG);
+
+                if (pruneEnabled && this.cfg.getPruneConfig().isMarkSweep()) {
+                    // using state config for the marks
+                    sharedProps = cfg.getDatabaseConfig(STATE_DB);
+                    sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
+                    sharedProps.setProperty(Props.ENABLE_AUTO_COMMIT, "true");
+                    sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
+                    sharedProps.setProperty(Props.DB_NAME, STATE_MARKS_DB);
+                    this.stateMarksDatabase = openDatabase(sharedProps, true);
+                    if (stateMarksDatabase == null || stateMarksDatabase.isClosed()) {
+                        throw newException(STATE_MARKS_DB, sharedProps);
+                    }
+
+                    stateMarkSweep = new MarkSweepDataSource(stateDatabase);
+                    stateDSPrune = new JournalPruneDataSource(stateMarkSweep, LOG);
+
+                    LOGGEN.info(
+                            "Mark-and-sweep pruning ENABLED. Top block count set to {}.",
+                            pruneBlockCount);
+                } else {
+                    stateMarkSweep = null;
+                    stateDSPrune = new JournalPruneDataSource(stateDatabase, LOG);
+
+                    if (pruneEnabled) {
+                        LOGGEN.info("Pruning ENABLED. Top block count set to {}.", pruneBlockCount);
+                    }
+                }
 
                 if (pruneEnabled) {
-                    LOGGEN.info("Pruning ENABLED. Top block count set to {}.", pruneBlockCount);
                     cacheForBlockPruning = new HashMap<>(3 * pruneBlockCount);
                 }
             }
 
-            stateDSPrune.setPruneEnabled(pruneEnabled);
+            // with mark-and-sweep the journal only forwards the inserts
+            stateDSPrune.setPruneEnabled(pruneEnabled && stateMarkSweep == null);
         } catch (Exception e) { // Setting up databases and caches went wrong.
             throw e;
         }
     }
 
+    /**
+     * Opens the database described by the given properties, either as a column family of the
+     * shared instance or as a separate database.
+     *
+     * @param autoCommit {@code true} for column families whose writes are not part of the atomic
+     *     flush, such as the pending transaction backups
+     */
+    private ByteArrayKeyValueDatabase openDatabase(Properties props, boolean autoCommit) {
+        if (sharedDatabase == null) {
+            return connectAndOpen(props, LOG);
+        }
+
+        ByteArrayKeyValueDatabase db =
+                sharedDatabase.getColumnFamily(props.getProperty(Props.DB_NAME), autoCommit);
+        db.open();
+        return db;
+    }
+
     private InvalidFilePathException newException(String dbName, Properties props) {
         return new InvalidFilePathException(
                 "The «"
@@ -11,10 +11,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
 import org.aion.db.store.ArrayStore;
 import org.aion.db.store.ObjectStore;
@@ -27,6 +29,7 @@ import org.aion.mcf.blockchain.BlockHeader;
 import org.aion.rlp.RLP;
 import org.aion.rlp.RLPElement;
 import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPWriter;
 import org.aion.util.bytes.ByteUtil;
 import org.aion.util.conversions.Hex;
 import org.aion.zero.impl.types.BlockUtil;
@@ -37,10 +40,30 @@ public class AionBlockStore {
     private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
     private static final Logger LOG_CONS = AionLoggerFactory.getLogger(LogEnum.CONS.name());
 
-    protected Lock lock = new ReentrantLock();
+    /**
+     * Queries share the read lock and see a consistent view of the main chain, while imports and
+     * index corrections hold the write lock for the duration of the change.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
     private ArrayStore<List<BlockInfo>> index;
     private ObjectStore<Block> blocks;
+    private final ByteArrayKeyValueDatabase blocksDatabase;
+
+    /**
+     * Holds the block headers separately from the blocks, so that walking the chain and serving
+     * headers does not read the block bodies. {@code null} when there is no header database, in
+     * which case the headers are read from the blocks.
+     */
+    private final ObjectStore<BlockHeader> headers;
+    // headers are small, so many more of them are cached than blocks
+    private static final int HEADER_CACHE_SIZE = 4096;
+
+    /** Holds the main chain blocks older than {@link #ancientDepth}, {@code null} if disabled. */
+    private final AncientBlockStore ancient;
+    private final long ancientDepth;
+    // bounds the time spent moving blocks on each flush, e.g. when enabled on an existing chain
+    private static final int MAX_BLOCKS_FROZEN_PER_FLUSH = 4096;
 
     private boolean checkIntegrity;
 
@@ -54,6 +77,34 @@ public class AionBlockStore {
     }
 
     public AionBlockStore(ByteArrayKeyValueDatabase index, ByteArrayKeyValueDatabase blocks, boolean checkIntegrity, int blockCacheSize) {
+        this(index, blocks, checkIntegrity, blockCacheSize, null, 0);
+    }
+
+    public AionBlockStore(
+            ByteArrayKeyValueDatabase index,
+            ByteArrayKeyValueDatabase blocks,
+            boolean checkIntegrity,
+            int blockCacheSize,
+            AncientBlockStore ancient,
+            long ancientDepth) {
+        this(index, blocks, null, checkIntegrity, blockCacheSize, ancient, ancientDepth);
+    }
+
+    /**
+     * @param headers the database storing the block headers, or {@code null} to read the headers
+     *     from the blocks
+     * @param ancient the store receiving the main chain blocks deeper than {@code ancientDepth},
+     *     or {@code null} to keep all the blocks in the key-value database
+     * @param ancientDepth the number of topmost block levels kept in the key-value database
+     */
+    public AionBlockStore(
+            ByteArrayKeyValueDatabase index,
+            ByteArrayKeyValueDatabase blocks,
+            ByteArrayKeyValueDatabase headers,
+            boolean checkIntegrity,
+            int blockCacheSize,
+            AncientBlockStore ancient,
+            long ancientDepth) {
         if (index == null) {
             throw new NullPointerException("index db is null");
         }
@@ -64,8 +115,21 @@ public class AionBlockStore {
 
         this.index = Stores.newArrayStore(index, BLOCK_INFO_SERIALIZER);
 
-        // Note: because of cache use the blocks db should write lock on get as well
-        this.blocks = Stores.newObjectStoreWithCache(blocks, BLOCK_SERIALIZER, blockCacheSize, false);
+        // Note: queries read the blocks concurrently under the read lock, so the cache must be safe
+        // for concurrent gets; the Caffeine cache used for larger sizes is, the small LRU cache is not
+        boolean lockedCache = blockCacheSize > 0 && blockCacheSize < 200;
+        this.ancient = ancient;
+        this.ancientDepth = ancientDepth;
+        this.blocksDatabase = blocks;
+        Serializer<Block> serializer =
+                ancient == null ? BLOCK_SERIALIZER : new PointerSerializer(ancient);
+        this.blocks = Stores.newObjectStoreWithCache(blocks, serializer, blockCacheSize, lockedCache);
+        if (headers == null) {
+            this.headers = null;
+        } else {
+            int headerCacheSize = blockCacheSize > 0 ? Math.max(blockCacheSize, HEADER_CACHE_SIZE) : 0;
+            this.headers = Stores.newObjectStoreWithCache(headers, HEADER_SERIALIZER, headerCacheSize, false);
+        }
         this.checkIntegrity = checkIntegrity;
     }
 
@@ -87,6 +151,80 @@ public class AionBlockStore {
             }
         };
 
+    private static final Serializer<BlockHeader> HEADER_SERIALIZER =
+        new Serializer<>() {
+            @Override
+            public byte[] serialize(BlockHeader header) {
+                return header.getEncoded();
+            }
+
+            @Override
+            public BlockHeader deserialize(byte[] bytes) {
+                BlockHeader header = BlockUtil.newHeaderFromRlp(bytes);
+                if (header != null) {
+                    return header;
+                } else {
+                    throw new NullPointerException("Invalid rlp encode data: " + ByteUtil.toHexString(bytes));
+                }
+            }
+        };
+
+    /** Follows the pointers left in the key-value database to the blocks in the ancient store. */
+    private static final class PointerSerializer implements Serializer<Block> {
+        private final AncientBlockStore ancient;
+
+        PointerSerializer(AncientBlockStore ancient) {
+            this.ancient = ancient;
+        }
+
+        @Override
+        public byte[] serialize(Block block) {
+            return BLOCK_SERIALIZER.serialize(block);
+        }
+
+        @Override
+        public Block deserialize(byte[] bytes) {
+            long number = AncientBlockStore.pointedNumber(bytes);
+            return number < 0 ? BLOCK_SERIALIZER.deserialize(bytes) : ancient.getBlock(number);
+        }
+    }
+
+    /**
+     * Reads the block with the given hash and number, directly from the ancient store when it was
+     * moved there.
+     */
+    private Block readBlock(byte[] hash, long number) {
+        if (ancient != null) {
+            Block block = ancient.getBlock(number, hash);
+            if (block != null) {
+                return block;
+            }
+        }
+        return blocks.get(hash);
+    }
+
+    /**
+     * Reads the header of the block with the given hash without its body. Falls back to the block
+     * for the blocks stored before the header database existed.
+     */
+    private BlockHeader readHeader(byte[] hash) {
+        if (headers != null) {
+            BlockHeader header = headers.get(hash);
+            if (header != null) {
+                return header;
+            }
+        }
+        Block block = blocks.get(hash);
+        return block == null ? null : block.getHeader();
+    }
+
+    private void deleteBlock(byte[] hash) {
+        blocks.delete(hash);
+        if (headers != null) {
+            headers.delete(hash);
+        }
+    }
+
     /**
      *  Get current highest block data, usually use this method when the kernel need to know the
      *  block information itself.
@@ -94,7 +232,7 @@ public class AionBlockStore {
      * @see #getBestBlockWithInfo()
      */
     public Block getBestBlock() {
-        lock.lock();
+        lock.readLock().lock();
 
         try {
             long maxLevel = index.size() - 1L;
@@ -127,7 +265,7 @@ public class AionBlockStore {
 
             return bestBlock;
         } finally {
-            lock.unlock();
+            lock.readLock().unlock();
         }
     }
 
@@ -140,7 +278,7 @@ public class AionBlockStore {
      * @see #getBestBlock()
      */
     public Block getBestBlockWithInfo() {
-        lock.lock();
+        lock.readLock().lock();
 
         try {
             long maxLevel = index.size() - 1L;
@@ -171,12 +309,12 @@ public class AionBlockStore {
 
             return bestBlock;
         } finally {
-            lock.unlock();
+            lock.readLock().unlock();
         }
     }
 
     public byte[] getBlockHashByNumber(long blockNumber) {
-        lock.lock();
+        lock.readLock().lock();
 
         try {
             if (blockNumber < 0L || blockNumber >= index.size()) {
@@ -193,7 +331,7 @@ public class AionBlockStore {
 
             return null;
         } finally {
-            lock.unlock();
+            lock.readLock().unlock();
         }
     }
 
@@ -202,10 +340,10 @@ public class AionBlockStore {
             return null;
         }
 
-        lock.lock();
+        lock.readLock().lock();
 
         try {
-            Block branchBlock = blocks.get(branchBlockHash);
+            BlockHeader branchBlock = readHeader(branchBlockHash);
             if (branchBlock.getNumber() < blockNumber) {
                 throw new IllegalArgumentException(
                     "Requested block number > branch hash number: "
@@ -214,22 +352,90 @@ public class AionBlockStore {
                         + branchBlock.getNumber());
             }
             while (branchBlock.getNumber() > blockNumber) {
-                branchBlock = blocks.get(branchBlock.getParentHash());
+                branchBlock = readHeader(branchBlock.getParentHash());
             }
             return branchBlock.getHash();
         } finally{
-            lock.unlock();
+            lock.readLock().unlock();
         }
     }
 
     public void flush() {
-        lock.lock();
+        lock.writeLock().lock();
 
         try {
+            if (ancient != null) {
+                freeze();
+            }
             blocks.commit();
+            if (headers != null) {
+                headers.commit();
+            }
             index.commit();
         } finally {
-            lock.unlock();
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves the main chain blocks deeper than the ancient depth to the ancient store and replaces
+     * them with pointers in the key-value database. The pointers are written once the blocks are
+     * durable, so that an interrupted move leaves the blocks readable from the key-value database.
+     */
+    private void freeze() {
+        long end = Math.min(index.size() - ancientDepth, ancient.size() + MAX_BLOCKS_FROZEN_PER_FLUSH);
+        if (ancient.size() >= end) {
+            return;
+        }
+
+        Map<byte[], byte[]> pointers = new HashMap<>();
+        try {
+            for (long number = ancient.size(); number < end; number++) {
+                List<BlockInfo> infos = index.get(number);
+                BlockInfo info = infos == null ? null : getMainChainInfo(infos);
+                Block block = info == null ? null : blocks.get(info.getHash());
+                if (block == null) {
+                    // e.g. the levels below the pivot of a fast sync, retried on the next flush
+                    LOG.debug("Unable to move block {} to the ancient store.", number);
+                    break;
+                }
+                ancient.append(block);
+                pointers.put(block.getHash(), AncientBlockStore.pointer(number));
+            }
+            ancient.force();
+        } catch (IOException e) {
+            LOG.error("Unable to move blocks to the ancient store.", e);
+            return;
+        }
+
+        if (!pointers.isEmpty()) {
+            blocksDatabase.putBatch(pointers);
+            LOG.debug("Moved {} blocks to the ancient store.", pointers.size());
+        }
+    }
+
+    private static BlockInfo getMainChainInfo(List<BlockInfo> infos) {
+        for (BlockInfo info : infos) {
+            if (info.isMainChain()) {
+                return info;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Discards the blocks from the ancient store that are above the given level.
+     *
+     * @implNote Must be called under the write lock.
+     */
+    private void truncateAncient(long level) {
+        if (ancient == null) {
+            return;
+        }
+        try {
+            ancient.truncate(level + 1);
+        } catch (IOException e) {
+            LOG.error("Unable to truncate the ancient store to level " + level + ".", e);
         }
     }
 
@@ -242,7 +448,7 @@ public class AionBlockStore {
             throw new NullPointerException("Total difficulty is null");
         }
 
-        lock.lock();
+        lock.writeLock().lock();
 
         try {
             if (!block.getHeader().isGenesis()) {
@@ -277,9 +483,12 @@ public class AionBlockStore {
             blockInfos.add(new BlockInfo(block.getHash(), totalDifficulty, mainChain));
 
             blocks.put(block.getHash(), block);
+            if (headers != null) {
+                headers.put(block.getHash(), block.getHeader());
+            }
             index.set(block.getNumber(), blockInfos);
         } finally {
-            lock.unlock();
+            lock.writeLock().unlock();
         }
     }
 
@@ -288,7 +497,7 @@ public class AionBlockStore {
             return null;
         }
 
-        lock.lock();
+        lock.readLock().lock();
 
         try {
             List<Block> result = new ArrayList<>();
@@ -311,12 +520,12 @@ public class AionBlockStore {
 
             return result;
         } finally {
-            lock.unlock();
+            lock.readLock().unlock();
         }
     }
 
     public Block getChainBlockByNumber(long number) {
-        lock.lock();
+        lock.readLock().lock();
 
         try {
             long size = index.size();
@@ -336,7 +545,7 @@ public class AionBlockStore {
             for (BlockInfo blockInfo : blockInfos) {
                 if (blockInfo.isMainChain()) {
                     byte[] hash = blockInfo.getHash();
-                    Block block = blocks.get(hash);
+                    Block block = readBlock(hash, number);
                     if (block != null) {
                         block.setTotalDifficulty(blockInfo.getTotalDifficulty());
                         block.setMainChain();
@@ -348,7 +557,7 @@ public class AionBlockStore {
 
             return null;
         } finally {
-            lock.unlock();
+            lock.readLock().unlock();
         }
     }
 
@@ -359,7 +568,7 @@ public class AionBlockStore {
      */
     List<Block> getAllChainBlockByNumber(long number) {
 
-        lock.lock();
+        lock.readLock().lock();
 
         try {
             long size = index.size();
@@ -401,7 +610,7 @@ public class AionBlockStore {
 
             return blockList;
         } finally {
-            lock.unlock();
+            lock.readLock().unlock();
         }
     }
 
@@ -424,7 +633,7 @@ public class AionBlockStore {
             return null;
         }
 
-        lock.lock();
+        lock.readLock().lock();
 
         try {
             Block block = getChainBlockByNumber(first);
@@ -440,7 +649,7 @@ public class AionBlockStore {
                 blocks.add(block);
 
                 for (long i = first - 1; i >= (last > 0 ? last : 1); i--) {
-                    block = getBlockByHashWithInfo(block.getParentHash());
+                    block = getBlockWithInfo(block.getParentHash(), i);
                     if (block == null) {
                         // the block should have been stored but null was returned above
                         LOG.error(
@@ -486,7 +695,7 @@ public class AionBlockStore {
                 blocks.addFirst(lastBlock);
                 long newLast = lastBlock.getNumber();
                 for (long i = newLast - 1; i > first; i--) {
-                    lastBlock = getBlockByHashWithInfo(lastBlock.getParentHash());
+                    lastBlock = getBlockWithInfo(lastBlock.getParentHash(), i);
                     if (lastBlock == null) {
                         LOG.error(
                                 "Encountered a kernel database corruption: cannot find block at level {} in block data store.",
@@ -507,7 +716,7 @@ public class AionBlockStore {
                 return blocks;
             }
         } finally {
-            lock.unlock();
+            lock.readLock().unlock();
         }
     }
 
@@ -523,12 +732,75 @@ public class AionBlockStore {
             return null;
         }
 
-        lock.lock();
+        lock.readLock().lock();
 
         try {
             return blocks.get(hash);
         } finally {
-            lock.unlock();
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the block data for several block hashes, like {@link #getBlockByHash(byte[])}. The blocks
+     * missing from the cache are read from the database with one batch request.
+     *
+     * @param hashes the block hashes
+     * @return the blocks in the order of the given hashes, with {@code null} for unknown hashes
+     */
+    public List<Block> getBlocksByHashes(List<byte[]> hashes) {
+        if (hashes == null) {
+            return null;
+        }
+
+        lock.readLock().lock();
+
+        try {
+            return blocks.getBatch(hashes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the encoded bodies of the blocks with the given hashes, as given by {@link
+     * Block#getEncodedBody()}. The bodies of the blocks in the ancient store are read without
+     * decoding the blocks.
+     *
+     * @param hashes the block hashes
+     * @return the bodies in the order of the given hashes, with {@code null} for unknown hashes
+     */
+    public List<byte[]> getEncodedBodiesByHashes(List<byte[]> hashes) {
+        if (hashes == null) {
+            return null;
+        }
+
+        lock.readLock().lock();
+
+        try {
+            List<byte[]> bodies = new ArrayList<>(hashes.size());
+            if (ancient == null) {
+                for (Block block : blocks.getBatch(hashes)) {
+                    bodies.add(block == null ? null : block.getEncodedBody());
+                }
+                return bodies;
+            }
+
+            List<byte[]> values = blocksDatabase.getBatch(hashes);
+            for (byte[] value : values) {
+                if (value == null) {
+                    bodies.add(null);
+                } else {
+                    long number = AncientBlockStore.pointedNumber(value);
+                    bodies.add(
+                            number < 0
+                                    ? BLOCK_SERIALIZER.deserialize(value).getEncodedBody()
+                                    : ancient.getEncodedBody(number));
+                }
+            }
+            return bodies;
+        } finally {
+            lock.readLock().unlock();
         }
     }
 
@@ -546,7 +818,7 @@ public class AionBlockStore {
             return false;
         }
 
-        lock.lock();
+        lock.readLock().lock();
 
         try {
             // the index size is cached, making this check faster than reading from the db
@@ -556,7 +828,7 @@ public class AionBlockStore {
                 return blocks.get(hash) != null;
             }
         } finally {
-            lock.unlock();
+            lock.readLock().unlock();
         }
     }
 
@@ -570,25 +842,37 @@ public class AionBlockStore {
             return null;
         }
 
-        lock.lock();
+        lock.readLock().lock();
 
         try {
-            Block retBlock = blocks.get(hash);
-            if (retBlock == null) {
-                return null;
-            } else {
-                BlockInfo blockInfo = getBlockInfoForHash(hash, retBlock.getNumber());
-                if (blockInfo != null) {
-                    if (blockInfo.isMainChain()) {
-                        retBlock.setMainChain();
-                    }
+            return withInfo(blocks.get(hash));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
 
-                    retBlock.setTotalDifficulty(blockInfo.getTotalDifficulty());
+    /**
+     * Like {@link #getBlockByHashWithInfo(byte[])} for a block with known number, which can be read
+     * directly from the ancient store.
+     */
+    private Block getBlockWithInfo(byte[] hash, long number) {
+        Block block = ancient == null ? null : ancient.getBlock(number, hash);
+        return block != null ? withInfo(block) : getBlockByHashWithInfo(hash);
+    }
+
+    private Block withInfo(Block block) {
+        if (block == null) {
+            return null;
+        } else {
+            BlockInfo blockInfo = getBlockInfoForHash(block.getHash(), block.getNumber());
+            if (blockInfo != null) {
+                if (blockInfo.isMainChain()) {
+                    block.setMainChain();
                 }
-                return retBlock;
+
+                block.setTotalDifficulty(blockInfo.getTotalDifficulty());
             }
-        } finally {
-            lock.unlock();
+            return block;
         }
     }
 
@@ -645,29 +929,29 @@ public class AionBlockStore {
     }
 
     public long getMaxNumber() {
-        lock.lock();
+        lock.readLock().lock();
 
         try {
             return index.size() - 1L;
         } finally {
-            lock.unlock();
+            lock.readLock().unlock();
         }
     }
 
     public List<byte[]> getListHashesEndWith(byte[] hash, long number) {
-        lock.lock();
+        lock.readLock().lock();
 
         try {
-            List<Block> blocks = getListBlocksEndWith(hash, number);
-            List<byte[]> hashes = new ArrayList<>(blocks.size());
+            List<BlockHeader> headers = getListHeadersEndWith(hash, number);
+            List<byte[]> hashes = new ArrayList<>(headers.size());
 
-            for (Block b : blocks) {
-                hashes.add(b.getHash());
+            for (BlockHeader header : headers) {
+                hashes.add(header.getHash());
             }
 
             return hashes;
         } finally {
-            lock.unlock();
+            lock.readLock().unlock();
         }
     }
 
@@ -676,19 +960,28 @@ public class AionBlockStore {
             return null;
         }
 
-        lock.lock();
+        lock.readLock().lock();
 
         try {
-            List<Block> blocks = getListBlocksEndWith(hash, qty);
-            List<BlockHeader> headers = new ArrayList<>(blocks.size());
+            BlockHeader header = readHeader(hash);
+
+            if (header == null) {
+                return new ArrayList<>();
+            }
+
+            List<BlockHeader> result = new ArrayList<>((int) qty);
 
-            for (Block b : blocks) {
-                headers.add(b.getHeader());
+            for (int i = 0; i < qty; ++i) {
+                result.add(header);
+                header = readHeader(header.getParentHash());
+                if (header == null) {
+                    break;
+                }
             }
 
-            return headers;
+            return result;
         } finally {
-            lock.unlock();
+            lock.readLock().unlock();
         }
     }
 
@@ -697,28 +990,34 @@ public class AionBlockStore {
             return null;
         }
 
-        Block block = this.blocks.get(hash);
-
-        if (block == null) {
-            return new ArrayList<>();
-        }
+        lock.readLock().lock();
 
-        List<Block> result = new ArrayList<>((int) qty);
+        try {
+            Block block = this.blocks.get(hash);
 
-        for (int i = 0; i < qty; ++i) {
-            result.add(block);
-            block = this.blocks.get(block.getParentHash());
             if (block == null) {
-                break;
+                return new ArrayList<>();
             }
-        }
 
-        return result;
+            List<Block> result = new ArrayList<>((int) qty);
+
+            for (int i = 0; i < qty; ++i) {
+                result.add(block);
+                block = this.blocks.get(block.getParentHash());
+                if (block == null) {
+                    break;
+                }
+            }
+
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     /** @return the common block that was found during the re-branching */
     public long reBranch(Block forkBlock) {
-        lock.lock();
+        lock.writeLock().lock();
 
         try {
             Block bestBlock = getBestBlock();
@@ -726,7 +1025,7 @@ public class AionBlockStore {
             long currentLevel = Math.max(bestBlock.getNumber(), forkBlock.getNumber());
 
             // 1. First ensure that you are one the save level
-            Block forkLine = forkBlock;
+            BlockHeader forkLine = forkBlock.getHeader();
             if (forkBlock.getNumber() > bestBlock.getNumber()) {
                 branchingLevel = currentLevel;
 
@@ -738,7 +1037,7 @@ public class AionBlockStore {
                         setBlockInfoForLevel(currentLevel, blocks);
 
                         // For collecting branching blocks
-                        branchingBlk.push(this.blocks.get(blockInfo.getHash()));
+                        collectBranching(branchingBlk, blockInfo.getHash());
                     } else {
                         LOG.error(
                                 "Encountered a kernel database corruption: cannot find block with fork line hash {} at the level {} in index data store.",
@@ -747,12 +1046,12 @@ public class AionBlockStore {
                         LOG.error(
                                 "Please reboot your node to trigger automatic database recovery by the kernel.");
                     }
-                    forkLine = this.blocks.get(forkLine.getParentHash());
+                    forkLine = readHeader(forkLine.getParentHash());
                     --currentLevel;
                 }
             }
 
-            Block bestLine = bestBlock;
+            BlockHeader bestLine = bestBlock.getHeader();
             if (bestBlock.getNumber() > forkBlock.getNumber()) {
 
                 while (currentLevel > forkBlock.getNumber()) {
@@ -764,7 +1063,7 @@ public class AionBlockStore {
                         setBlockInfoForLevel(currentLevel, blocks);
 
                         // For collecting prebranching blocks
-                        preBranchingBlk.push(this.blocks.get(blockInfo.getHash()));
+                        collectBranching(preBranchingBlk, blockInfo.getHash());
                     } else {
                         LOG.error(
                                 "Encountered a kernel database corruption: cannot find block with best line hash {} at the level {} in index data store.",
@@ -773,7 +1072,7 @@ public class AionBlockStore {
                         LOG.error(
                                 "Please reboot your node to trigger automatic database recovery by the kernel.");
                     }
-                    bestLine = this.blocks.get(bestLine.getParentHash());
+                    bestLine = readHeader(bestLine.getParentHash());
                     --currentLevel;
                 }
             }
@@ -785,7 +1084,14 @@ public class AionBlockStore {
 
             return commonBlockNumber;
         } finally {
-            lock.unlock();
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Collects the blocks logged by {@link #logBranchingDetails()}, read only when logged. */
+    private void collectBranching(Deque<Block> collected, byte[] hash) {
+        if (LOG_CONS.isDebugEnabled()) {
+            collected.push(this.blocks.get(hash));
         }
     }
 
@@ -818,7 +1124,7 @@ public class AionBlockStore {
      * @return the common block that was found during the re-branching
      * @implNote The method calling this method must handle the locking.
      */
-    private long loopBackToCommonBlock(Block bestLine, Block forkLine) {
+    private long loopBackToCommonBlock(BlockHeader bestLine, BlockHeader forkLine) {
         long currentLevel = bestLine.getNumber();
 
         if (forkLine.getNumber() != currentLevel) {
@@ -826,7 +1132,7 @@ public class AionBlockStore {
             return -1L;
         }
 
-        while (!bestLine.isEqual(forkLine)) {
+        while (!Arrays.equals(bestLine.getHash(), forkLine.getHash())) {
             List<BlockInfo> levelBlocks = getBlockInfoForLevel(currentLevel);
             BlockInfo bestInfo = getBlockInfoForHash(levelBlocks, bestLine.getHash());
             if (bestInfo != null) {
@@ -834,7 +1140,7 @@ public class AionBlockStore {
                 setBlockInfoForLevel(currentLevel, levelBlocks);
 
                 // For collecting preBranching blocks
-                preBranchingBlk.push(this.blocks.get(bestInfo.getHash()));
+                collectBranching(preBranchingBlk, bestInfo.getHash());
             } else {
                 LOG.error(
                         "Encountered a kernel database corruption: cannot find block with best line hash {} at the level {} in index data store.",
@@ -850,7 +1156,7 @@ public class AionBlockStore {
                 setBlockInfoForLevel(currentLevel, levelBlocks);
 
                 // For collecting branching blocks
-                branchingBlk.push(this.blocks.get(forkInfo.getHash()));
+                collectBranching(branchingBlk, forkInfo.getHash());
             } else {
                 LOG.error(
                         "Encountered a kernel database corruption: cannot find block with fork line hash {} at the level {} in index data store.",
@@ -860,8 +1166,8 @@ public class AionBlockStore {
                         "Please reboot your node to trigger automatic database recovery by the kernel.");
             }
 
-            bestLine = this.blocks.get(bestLine.getParentHash());
-            forkLine = this.blocks.get(forkLine.getParentHash());
+            bestLine = readHeader(bestLine.getParentHash());
+            forkLine = readHeader(forkLine.getParentHash());
 
             --currentLevel;
         }
@@ -884,7 +1190,7 @@ public class AionBlockStore {
      * @param targetLevel the height of the blockchain that we must revert to
      */
     public void revert(long targetLevel) {
-        lock.lock();
+        lock.writeLock().lock();
 
         try {
             LOG.info("Block store revert STARTED.");
@@ -906,6 +1212,8 @@ public class AionBlockStore {
                 return;
             }
 
+            truncateAncient(targetLevel);
+
             // walk back removing blocks greater than the given level value
             while (currentLevel > targetLevel) {
                 // remove all the blocks at that level
@@ -916,6 +1224,9 @@ public class AionBlockStore {
                 } else {
                     for (BlockInfo bk_info : currentLevelBlocks) {
                         blocks.deleteInBatch(bk_info.getHash());
+                        if (headers != null) {
+                            headers.deleteInBatch(bk_info.getHash());
+                        }
                         currentBatchSize++;
                     }
                 }
@@ -923,7 +1234,7 @@ public class AionBlockStore {
                 // remove the level
                 index.remove(currentLevel);
                 if (currentBatchSize >= TARGET_BATCH_SIZE) {
-                    blocks.flushBatch();
+                    flushDeletes();
                     if (System.nanoTime() - time > TEN_SEC) {
                         LOG.info("Progress report: current height=" + currentLevel);
                         time = System.nanoTime();
@@ -932,21 +1243,28 @@ public class AionBlockStore {
                 }
                 --currentLevel;
             }
-            blocks.flushBatch();
+            flushDeletes();
 
             LOG.warn("Revert complete. Please be aware that the current main chain is the same as at the start of the operation."
                     + "To keep this revert operation fast the main chain has not been updated based on existing side chains.");
         } catch (Exception e) {
             // making sure the blocks get deleted if interrupted
-            blocks.flushBatch();
+            flushDeletes();
         } finally {
             LOG.info("Block store revert COMPLETE.");
-            lock.unlock();
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void flushDeletes() {
+        blocks.flushBatch();
+        if (headers != null) {
+            headers.flushBatch();
         }
     }
 
     public void pruneAndCorrect() {
-        lock.lock();
+        lock.writeLock().lock();
 
         try {
             Block block = getBestBlockWithInfo();
@@ -1000,13 +1318,13 @@ public class AionBlockStore {
                 level++;
             }
         } finally {
-            lock.unlock();
+            lock.writeLock().unlock();
         }
     }
 
     /** @implNote The method calling this method must handle the locking. */
     private void pruneSideChains(Block block) {
-        lock.lock();
+        lock.writeLock().lock();
 
         try {
             // current level
@@ -1027,7 +1345,7 @@ public class AionBlockStore {
 
             // deleting incorrect parallel blocks
             for (BlockInfo wrongBlock : levelBlocks) {
-                blocks.delete(wrongBlock.getHash());
+                deleteBlock(wrongBlock.getHash());
             }
 
             // set new block info with total difficulty set to the block's difficulty
@@ -1039,7 +1357,7 @@ public class AionBlockStore {
 
             setBlockInfoForLevel(level, levelBlocks);
         } finally {
-            lock.unlock();
+            lock.writeLock().unlock();
         }
     }
 
@@ -1074,7 +1392,7 @@ public class AionBlockStore {
             throw new NullPointerException();
         }
 
-        lock.lock();
+        lock.writeLock().lock();
 
         try {
             long blockNumber = block.getNumber();
@@ -1119,12 +1437,12 @@ public class AionBlockStore {
 
             return block.getTotalDifficulty();
         } finally {
-            lock.unlock();
+            lock.writeLock().unlock();
         }
     }
 
     public String dumpPastBlocks(long numberOfBlocks, String reportsFolder) throws IOException {
-        lock.lock();
+        lock.readLock().lock();
 
         try {
             long firstBlock = getMaxNumber();
@@ -1169,13 +1487,13 @@ public class AionBlockStore {
             writer.close();
             return file.getName();
         } finally {
-            lock.unlock();
+            lock.readLock().unlock();
         }
     }
 
     String dumpPastBlocksForConsensusTest(long firstBlock, String reportsFolder)
             throws IOException {
-        lock.lock();
+        lock.readLock().lock();
 
         try {
             if (firstBlock < 0) {
@@ -1226,7 +1544,7 @@ public class AionBlockStore {
             writer.close();
             return file.getName();
         } finally {
-            lock.unlock();
+            lock.readLock().unlock();
         }
     }
 
@@ -1235,13 +1553,13 @@ public class AionBlockStore {
             return false;
         }
 
-        lock.lock();
+        lock.readLock().lock();
 
         try {
             // when null -> there was no block info for the hash
             return getBlockInfoForHash(getBlockInfoForLevel(level), hash) != null;
         } finally {
-            lock.unlock();
+            lock.readLock().unlock();
         }
     }
 
@@ -1258,13 +1576,13 @@ public class AionBlockStore {
             return false;
         }
 
-        lock.lock();
+        lock.readLock().lock();
 
         try {
             BlockInfo info = getBlockInfoForHash(getBlockInfoForLevel(level), hash);
             return info != null && info.isMainChain();
         } finally {
-            lock.unlock();
+            lock.readLock().unlock();
         }
     }
 
@@ -1295,7 +1613,7 @@ public class AionBlockStore {
             throw new IllegalArgumentException("maxnumber is below then zero");
         }
 
-        lock.lock();
+        lock.writeLock().lock();
 
         try {
             // correcting the size if smaller than should be
@@ -1307,7 +1625,7 @@ public class AionBlockStore {
                 log.info("Corrupted index size corrected from {} to {}.", storedSize, index.size());
             }
         } finally {
-            lock.unlock();
+            lock.writeLock().unlock();
         }
     }
 
@@ -1321,7 +1639,7 @@ public class AionBlockStore {
             throw new NullPointerException("log is null");
         }
 
-        lock.lock();
+        lock.writeLock().lock();
 
         try {
             Block currentBlock = block;
@@ -1351,7 +1669,7 @@ public class AionBlockStore {
                 }
             }
         } finally {
-            lock.unlock();
+            lock.writeLock().unlock();
         }
     }
 
@@ -1361,7 +1679,7 @@ public class AionBlockStore {
      * @param block the block that will be re-imported and should not be removed from the database
      */
      void redoIndexWithoutSideChains(Block block) {
-        lock.lock();
+        lock.writeLock().lock();
 
         try {
 
@@ -1372,7 +1690,7 @@ public class AionBlockStore {
                 // delete all the side-chain blocks
                 for (BlockInfo blockInfo : level) {
                     if (!Arrays.equals(currentHash, blockInfo.getHash())) {
-                        blocks.delete(blockInfo.getHash());
+                        deleteBlock(blockInfo.getHash());
                     }
                 }
 
@@ -1380,7 +1698,7 @@ public class AionBlockStore {
                 index.set(block.getNumber(), Collections.emptyList());
             }
         } finally {
-            lock.unlock();
+            lock.writeLock().unlock();
         }
     }
 
@@ -1441,10 +1759,16 @@ public class AionBlockStore {
         }
 
         public byte[] getEncoded() {
-            byte[] hashElement = RLP.encodeElement(hash);
-            byte[] totalDiffElement = RLP.encodeElement(totalDifficulty.toByteArray());
-            byte[] mainChainElement = RLP.encodeByte(mainChain ? (byte) 0x1 : (byte) 0x0);
-            return RLP.encodeList(hashElement, totalDiffElement, mainChainElement);
+            return writeTo(new RLPWriter()).toByteArray();
+        }
+
+        /** Writes the encoding returned by {@link #getEncoded()}. */
+        RLPWriter writeTo(RLPWriter writer) {
+            return writer.beginList()
+                    .addElement(hash)
+                    .addElement(totalDifficulty.toByteArray())
+                    .addByte(mainChain ? (byte) 0x1 : (byte) 0x0)
+                    .endList();
         }
 
         @Override
@@ -1473,13 +1797,11 @@ public class AionBlockStore {
             new Serializer<>() {
                 @Override
                 public byte[] serialize(List<BlockInfo> object) {
-                    byte[][] infoList = new byte[object.size()][];
-                    int i = 0;
+                    RLPWriter writer = new RLPWriter(object.size() * 4 + 1).beginList();
                     for (BlockInfo b : object) {
-                        infoList[i] = b.getEncoded();
-                        i++;
+                        b.writeTo(writer);
                     }
-                    return RLP.encodeList(infoList);
+                    return writer.endList().toByteArray();
                 }
 
                 @Override
@@ -1574,7 +1896,7 @@ public class AionBlockStore {
      *  Don't remove it, see load method and AKI-370
      */
     public IntegrityCheckResult indexIntegrityCheck() {
-        lock.lock();
+        lock.writeLock().lock();
 
         try {
             if (index.size() > 0) {
@@ -1720,12 +2042,12 @@ public class AionBlockStore {
                 return IntegrityCheckResult.CORRECT;
             }
         } finally{
-            lock.unlock();
+            lock.writeLock().unlock();
         }
     }
 
     public void close() {
-        lock.lock();
+        lock.writeLock().lock();
 
         try {
             index.close();
@@ -1734,10 +2056,21 @@ public class AionBlockStore {
         } finally {
             try {
                 blocks.close();
+                if (headers != null) {
+                    headers.close();
+                }
             } catch (Exception e) {
                 LOG.error("Not able to close the blocks database:", e);
             } finally {
-                lock.unlock();
+                try {
+                    if (ancient != null) {
+                        ancient.close();
+                    }
+                } catch (Exception e) {
+                    LOG.error("Not able to close the ancient block store:", e);
+                } finally {
+                    lock.writeLock().unlock();
+                }
             }
         }
     }
@@ -1747,26 +2080,27 @@ public class AionBlockStore {
             throw new IllegalArgumentException();
         }
 
-        lock.lock();
+        lock.writeLock().lock();
 
         try {
 
             long level = index.size() - 1;
 
             LOG.debug("blockstore rollback block level from {} to {}", level, blockNumber);
+            truncateAncient(blockNumber);
 
             while (level > blockNumber) {
                 // remove all the blocks at that level
                 List<BlockInfo> currentLevelBlocks = getBlockInfoForLevel(level);
 
                 for (BlockInfo bk_info : currentLevelBlocks) {
-                    blocks.delete(bk_info.getHash());
+                    deleteBlock(bk_info.getHash());
                 }
 
                 index.remove(level--);
             }
         } finally {
-            lock.unlock();
+            lock.writeLock().unlock();
         }
     }
 }
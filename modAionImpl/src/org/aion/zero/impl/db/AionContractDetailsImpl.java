@@ -9,6 +9,7 @@ import com.google.common.annotations.VisibleForTesting;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
@@ -22,8 +23,8 @@ import org.aion.mcf.db.InternalVmType;
 import org.aion.precompiled.ContractInfo;
 import org.aion.rlp.RLP;
 import org.aion.rlp.RLPElement;
-import org.aion.rlp.RLPItem;
 import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
 import org.aion.types.AionAddress;
 import org.aion.util.conversions.Hex;
 import org.aion.util.types.ByteArrayWrapper;
@@ -55,6 +56,8 @@ public class AionContractDetailsImpl implements ContractDetails {
     private AionAddress address;
 
     private SecureTrie storageTrie = new SecureTrie(null);
+    // flat view of the storage consulted before the trie until the storage is modified
+    private FlatState.StorageView flatStorage = null;
 
     public boolean externalStorage;
     private ByteArrayKeyValueStore externalStorageDataSource;
@@ -184,6 +187,7 @@ public class AionContractDetailsImpl implements ContractDetails {
 
         byte[] data = RLP.encodeElement(value.toBytes());
         storageTrie.update(key.toBytes(), data);
+        flatStorage = null;
 
         setDirty(true);
         rlpEncoded = null;
@@ -194,6 +198,7 @@ public class AionContractDetailsImpl implements ContractDetails {
         Objects.requireNonNull(key);
 
         storageTrie.delete(key.toBytes());
+        flatStorage = null;
 
         setDirty(true);
         rlpEncoded = null;
@@ -208,10 +213,24 @@ public class AionContractDetailsImpl implements ContractDetails {
      */
     @Override
     public ByteArrayWrapper get(ByteArrayWrapper key) {
-        byte[] data = storageTrie.get(key.toBytes());
+        byte[] data = (flatStorage == null) ? null : flatStorage.get(key);
+        if (data == null) {
+            data = storageTrie.get(key.toBytes());
+            if (flatStorage != null) {
+                flatStorage.fill(key, data);
+            }
+        }
         return (data == null || data.length == 0)
                 ? null
-                : ByteArrayWrapper.wrap(RLP.decode2(data).get(0).getRLPData());
+                : ByteArrayWrapper.wrap(RLPView.wrap(data).getRLPData());
+    }
+
+    /**
+     * Sets the flat view used to read the storage at the current storage root. The view is
+     * discarded when the storage is modified.
+     */
+    void setFlatStorage(FlatState.StorageView flatStorage) {
+        this.flatStorage = flatStorage;
     }
 
     public void setVmType(InternalVmType vmType) {
@@ -316,9 +335,8 @@ public class AionContractDetailsImpl implements ContractDetails {
      * @param fastCheck indicates whether the contractDetails needs to sync with external storage.
      */
     public void decode(byte[] rlpCode, boolean fastCheck) {
-        RLPList data = RLP.decode2(rlpCode);
-
-        RLPList rlpList = (RLPList) data.get(0);
+        // the storage and code are only copied when they are used
+        List<RLPView> rlpList = RLPView.wrap(rlpCode).elements();
 
         // partial decode either encoding
         boolean keepStorageInMem = decodeEncodingWithoutVmType(rlpList, fastCheck);
@@ -351,30 +369,28 @@ public class AionContractDetailsImpl implements ContractDetails {
      * @return {@code true} if the storage must continue to be kept in memory, {@code false}
      *     otherwise
      */
-    public boolean decodeEncodingWithoutVmType(RLPList rlpList, boolean fastCheck) {
-        RLPItem isExternalStorage = (RLPItem) rlpList.get(1);
-        RLPItem storage = (RLPItem) rlpList.get(3);
-        this.externalStorage = isExternalStorage.getRLPData().length > 0;
-        boolean keepStorageInMem = storage.getRLPData().length <= detailsInMemoryStorageLimit;
+    public boolean decodeEncodingWithoutVmType(List<RLPView> rlpList, boolean fastCheck) {
+        RLPView isExternalStorage = rlpList.get(1);
+        RLPView storage = rlpList.get(3);
+        this.externalStorage = !isExternalStorage.isEmpty();
+        boolean keepStorageInMem = storage.length() <= detailsInMemoryStorageLimit;
 
         // No externalStorage require.
         if (fastCheck && !externalStorage && keepStorageInMem) {
             return keepStorageInMem;
         }
 
-        RLPItem address = (RLPItem) rlpList.get(0);
-        RLPElement code = rlpList.get(4);
+        RLPView address = rlpList.get(0);
+        RLPView code = rlpList.get(4);
 
-        if (address == null
-                || address.getRLPData() == null
-                || address.getRLPData().length != AionAddress.LENGTH) {
+        if (address.isList() || address.length() != AionAddress.LENGTH) {
             throw new IllegalArgumentException("rlp decode error: invalid contract address");
         } else {
             this.address = new AionAddress(address.getRLPData());
         }
 
-        if (code instanceof RLPList) {
-            for (RLPElement e : ((RLPList) code)) {
+        if (code.isList()) {
+            for (RLPView e : code) {
                 setCode(e.getRLPData());
             }
         } else {
@@ -555,12 +571,28 @@ public class AionContractDetailsImpl implements ContractDetails {
     private ByteArrayKeyValueStore getExternalStorageDataSource() {
         if (externalStorageDataSource == null) {
             externalStorageDataSource =
-                    new XorDataSource(
-                            dataSource, h256(("details-storage/" + address.toString()).getBytes()));
+                    new XorDataSource(dataSource, getStorageSubKey(address));
         }
         return externalStorageDataSource;
     }
 
+    /**
+     * Returns the key that separates the storage of the given contract from the storage of other
+     * contracts in the shared storage database. The storage trie nodes of the contract are stored
+     * under their hash XOR-ed with this key.
+     */
+    public static byte[] getStorageSubKey(AionAddress address) {
+        return h256(("details-storage/" + address.toString()).getBytes());
+    }
+
+    /**
+     * Returns the key that separates the object graph of the given AVM contract from the data of
+     * other contracts in the shared object graph database.
+     */
+    public static byte[] getObjectGraphSubKey(AionAddress address) {
+        return h256(("details-graph/" + address.toString()).getBytes());
+    }
+
     /**
      * Returns the data source specific to the current contract.
      *
@@ -573,9 +605,7 @@ public class AionContractDetailsImpl implements ContractDetails {
                         "The contract object graph source was not initialized.");
             } else {
                 contractObjectGraphSource =
-                        new XorDataSource(
-                                objectGraphSource,
-                                h256(("details-graph/" + address.toString()).getBytes()));
+                        new XorDataSource(objectGraphSource, getObjectGraphSubKey(address));
             }
         }
         return contractObjectGraphSource;
@@ -40,15 +40,37 @@ public final class AionRepositoryCache implements RepositoryCache<AccountState>
     /** local transformed code cache */
     private final Map<AionAddress, TransformedCodeInfo> cachedTransformedCode;
 
+    /** addresses read from the tracked repository or received from children, may be null */
+    private final Set<AionAddress> accessed;
+
     private final Lock lock = new ReentrantLock();
 
     public AionRepositoryCache(final Repository trackedRepository) {
+        this(trackedRepository, null);
+    }
+
+    /**
+     * Creates a cache which adds to the given set the address of every account it reads from the
+     * tracked repository or creates locally. Since writes always go to a locally cached account,
+     * the set covers everything the cache will push to the repository when flushed.
+     *
+     * @param trackedRepository the repository being tracked
+     * @param accessed receives the touched addresses, or {@code null} to not record them
+     */
+    public AionRepositoryCache(final Repository trackedRepository, Set<AionAddress> accessed) {
         this.repository = trackedRepository;
+        this.accessed = accessed;
         this.cachedAccounts = new HashMap<>();
         this.cachedDetails = new HashMap<>();
         this.cachedTransformedCode = new HashMap<>();
     }
 
+    private void recordAccess(AionAddress address) {
+        if (accessed != null) {
+            accessed.add(address);
+        }
+    }
+
     @Override
     public RepositoryCache startTracking() {
         return new AionRepositoryCache(this);
@@ -58,6 +80,7 @@ public final class AionRepositoryCache implements RepositoryCache<AccountState>
     public void createAccount(AionAddress address) {
         lock.lock();
         try {
+            recordAccess(address);
             AccountState accountState = new AccountState();
             cachedAccounts.put(address, accountState);
 
@@ -103,6 +126,7 @@ public final class AionRepositoryCache implements RepositoryCache<AccountState>
     public boolean hasAccountState(AionAddress address) {
         lock.lock();
         try {
+            recordAccess(address);
             AccountState accountState = cachedAccounts.get(address);
 
             if (accountState != null) {
@@ -144,6 +168,7 @@ public final class AionRepositoryCache implements RepositoryCache<AccountState>
         lock.lock();
 
         try {
+            recordAccess(address);
             ContractDetails contractDetails = cachedDetails.get(address);
 
             if (contractDetails == null) {
@@ -176,6 +201,7 @@ public final class AionRepositoryCache implements RepositoryCache<AccountState>
 
             // when account not cached load from repository
             if (accountState == null) {
+                recordAccess(address);
                 // load directly to the caches given as parameters
                 repository.loadAccountState(address, accounts, details);
             } else {
@@ -199,6 +225,7 @@ public final class AionRepositoryCache implements RepositoryCache<AccountState>
     private void loadAccountState(AionAddress address) {
         lock.lock();
         try {
+            recordAccess(address);
             repository.loadAccountState(address, this.cachedAccounts, this.cachedDetails);
         } finally {
             lock.unlock();
@@ -311,6 +338,9 @@ public final class AionRepositoryCache implements RepositoryCache<AccountState>
             if (transformedCodeInfo != null) {
                 transformedCode = transformedCodeInfo.getTransformedCode(ByteArrayWrapper.wrap(codeHash), avmVersion);
             }
+            if (transformedCode == null) {
+                recordAccess(address);
+            }
             // If we don't find it in the cache, go to the underlying repo
             return transformedCode != null ? transformedCode : repository.getTransformedCode(address, codeHash, avmVersion);
         }
@@ -519,6 +549,10 @@ public final class AionRepositoryCache implements RepositoryCache<AccountState>
 
         lock.lock();
         try {
+            if (accessed != null) {
+                accessed.addAll(accounts.keySet());
+                accessed.addAll(details.keySet());
+            }
 
             for (Map.Entry<AionAddress, AccountState> accEntry : accounts.entrySet()) {
                 this.cachedAccounts.put(accEntry.getKey(), accEntry.getValue());
@@ -621,6 +655,7 @@ public final class AionRepositoryCache implements RepositoryCache<AccountState>
     }
 
     public InternalVmType getVMUsed(AionAddress contract, byte[] codeHash) {
+        recordAccess(contract);
         return repository.getVMUsed(contract, codeHash);
     }
 
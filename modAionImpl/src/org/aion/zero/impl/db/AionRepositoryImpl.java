@@ -29,6 +29,7 @@ import org.aion.mcf.db.InternalVmType;
 import org.aion.mcf.db.Repository;
 import org.aion.mcf.db.RepositoryCache;
 import org.aion.mcf.db.TransformedCodeInfo;
+import org.aion.zero.impl.trie.Cache;
 import org.aion.zero.impl.trie.SecureTrie;
 import org.aion.zero.impl.trie.Trie;
 import org.aion.zero.impl.trie.TrieImpl;
@@ -55,6 +56,9 @@ public class AionRepositoryImpl extends AbstractRepository {
     // pending block store
     private PendingBlockStore pendingStore;
 
+    // stored with the block index, whose other keys are the 8 byte block levels and the index size
+    private static final byte[] FAST_SYNC_PIVOT_KEY = "fastSyncPivot".getBytes();
+
     // inferred contract information not used for consensus
     private ObjectStore<ContractInformation> contractInfoSource;
 
@@ -64,6 +68,16 @@ public class AionRepositoryImpl extends AbstractRepository {
     // TODO: include in the repository config after the FVM is decoupled or remove RepositoryConfig and pass individual parameters
     private int blockCacheSize;
 
+    // flat view of the world state shared with the snapshots
+    @VisibleForTesting FlatState flatState;
+    // the state root at which the flat state is read
+    private ByteArrayWrapper flatRoot;
+    // changes to the world state since the flat root, added to the flat state on commitBlock
+    private FlatState.Diff flatDiff = new FlatState.Diff();
+
+    // removes the unused states when mark-and-sweep pruning is enabled
+    private StatePruner statePruner;
+
     /**
      * used by getSnapShotTo
      *
@@ -96,7 +110,21 @@ public class AionRepositoryImpl extends AbstractRepository {
                             transactionDatabase, AionTransactionStoreSerializer.serializer);
 
             // Setup block store.
-            this.blockStore = new AionBlockStore(indexDatabase, blockDatabase, checkIntegrity, blockCacheSize);
+            this.blockStore =
+                    new AionBlockStore(
+                            indexDatabase,
+                            blockDatabase,
+                            headerDatabase,
+                            checkIntegrity,
+                            blockCacheSize,
+                            ancientBlockStore,
+                            ancientDepth);
+
+            if (stateMarkSweep != null) {
+                this.statePruner =
+                        new StatePruner(
+                                stateMarkSweep, stateMarksDatabase, blockStore, pruneBlockCount);
+            }
 
             this.pendingStore = new PendingBlockStore(pendingStoreProperties);
             this.contractInfoSource = Stores.newObjectStoreWithCache(contractIndexDatabase, ContractInformation.RLP_SERIALIZER, 10, true);
@@ -104,6 +132,12 @@ public class AionRepositoryImpl extends AbstractRepository {
 
             // Setup world trie.
             worldState = createStateTrie();
+
+            if (flatStateDatabase != null) {
+                this.flatState =
+                        new FlatState(flatStateDatabase, FlatState.DEFAULT_MAX_LAYERS, LOG);
+            }
+            this.flatRoot = ByteArrayWrapper.wrap(worldState.getRootHash());
         } catch (Exception e) {
             LOGGEN.error("Shutdown due to failure to initialize repository.");
             // the above message does not get logged without the printStackTrace below
@@ -145,6 +179,9 @@ public class AionRepositoryImpl extends AbstractRepository {
                     } catch (Exception e) {
                         LOG.error("key deleted exception [{}]", e.toString());
                     }
+                    if (flatState != null) {
+                        flatDiff.deleteAccount(address);
+                    }
                     if (LOG.isDebugEnabled()) {
                         LOG.debug("key deleted <key={}>", Hex.toHexString(address.toByteArray()));
                     }
@@ -196,6 +233,17 @@ public class AionRepositoryImpl extends AbstractRepository {
                     // TODO: incorrect check codeHash != trie hash
                     if (!Arrays.equals(accountState.getCodeHash(), ConstantUtil.EMPTY_TRIE_HASH)) {
                         accountState.setStateRoot(contractDetails.getStorageHash());
+
+                        if (flatState != null) {
+                            for (Map.Entry<ByteArrayWrapper, ByteArrayWrapper> storageEntry :
+                                    contractDetailsCache.getCachedStorage().entrySet()) {
+                                ByteArrayWrapper value = storageEntry.getValue();
+                                flatDiff.updateStorage(
+                                        address,
+                                        storageEntry.getKey(),
+                                        value == null ? null : RLP.encodeElement(value.toBytes()));
+                            }
+                        }
                     }
 
                     updateAccountState(address, accountState);
@@ -261,13 +309,41 @@ public class AionRepositoryImpl extends AbstractRepository {
                 LOG.info("worldState.sync()");
             }
             worldState.sync();
+            if (LOG.isDebugEnabled() && worldState instanceof TrieImpl) {
+                Cache cache = ((TrieImpl) worldState).getCache();
+                LOG.debug(
+                        "worldState cache: nodes={} bytes={} hits={} misses={} evictions={}",
+                        cache.getSize(),
+                        cache.getCleanBytes(),
+                        cache.getHitCount(),
+                        cache.getMissCount(),
+                        cache.getEvictionCount());
+            }
+            if (LOG.isDebugEnabled() && flatState != null) {
+                LOG.debug(
+                        "flatState: layers={} hits={} misses={}",
+                        flatState.getLayerCount(),
+                        flatState.getHitCount(),
+                        flatState.getMissCount());
+            }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("details: prefetchHits={}", detailsDS.getPrefetchHitCount());
+            }
+            detailsDS.clearPrefetched();
 
             // Flush all necessary caches.
             if (LOG.isInfoEnabled()) {
                 LOG.info("flush all databases");
             }
 
-            if (databaseGroup != null) {
+            if (sharedDatabase != null) {
+                // the block and transaction stores are written in the same batch as the state
+                // so that a crash cannot leave the stores out of step
+                blockStore.flush();
+                transactionStore.commit();
+                // in write-behind mode this only hands the batch to the background writer
+                sharedDatabase.commit();
+            } else if (databaseGroup != null) {
                 for (ByteArrayKeyValueDatabase db : databaseGroup) {
                     if (!db.isAutoCommitEnabled()) {
                         db.commit();
@@ -317,6 +393,7 @@ public class AionRepositoryImpl extends AbstractRepository {
         rwLock.writeLock().lock();
         try {
             worldState.setRoot(root);
+            resetFlatRoot(root);
         } finally {
             rwLock.writeLock().unlock();
         }
@@ -468,7 +545,11 @@ public class AionRepositoryImpl extends AbstractRepository {
     /** @implNote The method calling this method must handle the locking. */
     private void updateAccountState(AionAddress address, AccountState accountState) {
         // locked by calling method
-        worldState.update(address.toByteArray(), accountState.getEncoded());
+        byte[] encoding = accountState.getEncoded();
+        worldState.update(address.toByteArray(), encoding);
+        if (flatState != null) {
+            flatDiff.updateAccount(address, encoding);
+        }
     }
 
     /**
@@ -501,6 +582,9 @@ public class AionRepositoryImpl extends AbstractRepository {
 
             if (details != null) {
                 details = details.getSnapshotTo(storageRoot, vm);
+                if (readsFlatState()) {
+                    details.setFlatStorage(flatState.getStorageView(flatRoot, address));
+                }
             }
 
             return details;
@@ -532,7 +616,16 @@ public class AionRepositoryImpl extends AbstractRepository {
         AccountState result = null;
 
         try {
-            byte[] accountData = worldState.get(address.toByteArray());
+            byte[] accountData = null;
+            if (readsFlatState()) {
+                accountData = flatState.getAccount(flatRoot, address);
+            }
+            if (accountData == null) {
+                accountData = worldState.get(address.toByteArray());
+                if (readsFlatState()) {
+                    flatState.fillAccount(flatRoot, address, accountData);
+                }
+            }
 
             if (accountData.length != 0) {
                 result = new AccountState(accountData);
@@ -549,6 +642,26 @@ public class AionRepositoryImpl extends AbstractRepository {
         }
     }
 
+    /**
+     * Loads the trie nodes, account state and contract details of the given address into memory
+     * ahead of their use, e.g. by the transactions of a block that is about to be executed. Can be
+     * called concurrently for different addresses, but must complete before the repository is
+     * updated.
+     *
+     * @return the number of trie nodes read from the database by this call
+     */
+    public long prefetch(AionAddress address) {
+        rwLock.readLock().lock();
+        try {
+            long missesBefore = Cache.getThreadMissCount();
+            getAccountState(address);
+            detailsDS.prefetch(address.toByteArray());
+            return Cache.getThreadMissCount() - missesBefore;
+        } finally {
+            rwLock.readLock().unlock();
+        }
+    }
+
     @Override
     public boolean hasAccountState(AionAddress address) {
         return getAccountState(address) != null;
@@ -588,11 +701,48 @@ public class AionRepositoryImpl extends AbstractRepository {
         rwLock.writeLock().lock();
         try {
             worldState.setRoot(root);
+            resetFlatRoot(root);
         } finally {
             rwLock.writeLock().unlock();
         }
     }
 
+    /** @implNote The method calling this method must handle the locking. */
+    private void resetFlatRoot(byte[] root) {
+        if (flatState != null) {
+            flatRoot = ByteArrayWrapper.wrap(root);
+            flatDiff = new FlatState.Diff();
+        }
+    }
+
+    /**
+     * The flat state can be read only while the world state is at the flat root, i.e. there are no
+     * changes pending the next commitBlock.
+     *
+     * @implNote The method calling this method must handle the locking.
+     */
+    private boolean readsFlatState() {
+        return flatState != null && flatDiff.isEmpty();
+    }
+
+    /**
+     * Adds the changes since the previous commit to the flat state as a layer on top of the
+     * previous root.
+     *
+     * @implNote The method calling this method must handle the locking.
+     */
+    private void commitFlatState() {
+        ByteArrayWrapper root = ByteArrayWrapper.wrap(worldState.getRootHash());
+        if (!isSnapshot) {
+            // the main repository moved to a state not tracked by the flat state
+            // (e.g. after a restart following a crash) and starts tracking it from scratch
+            flatState.anchor(flatRoot);
+        }
+        flatState.addLayer(flatRoot, root, flatDiff);
+        flatRoot = root;
+        flatDiff = new FlatState.Diff();
+    }
+
     public int getPruneBlockCount() {
         return this.pruneBlockCount;
     }
@@ -603,6 +753,10 @@ public class AionRepositoryImpl extends AbstractRepository {
         try {
             worldState.sync();
 
+            if (flatState != null) {
+                commitFlatState();
+            }
+
             if (pruneEnabled) {
                 // cache the block number & hash for retrieval during pruneBlocks
                 if (cacheForBlockPruning.containsKey(blockNumber)) {
@@ -620,6 +774,10 @@ public class AionRepositoryImpl extends AbstractRepository {
                 stateDSPrune.storeBlockChanges(blockHash, blockNumber);
                 detailsDS.getStorageDSPrune().storeBlockChanges(blockHash, blockNumber);
                 pruneBlocks(blockNumber);
+
+                if (statePruner != null) {
+                    statePruner.onBlockCommitted(blockNumber, blockStateRoot);
+                }
             }
         } finally {
             rwLock.writeLock().unlock();
@@ -693,6 +851,10 @@ public class AionRepositoryImpl extends AbstractRepository {
             repo.worldState = repo.createStateTrie();
             repo.worldState.setRoot(root);
 
+            // snapshots read the flat state at their own root
+            repo.flatState = this.flatState;
+            repo.flatRoot = ByteArrayWrapper.wrap(root);
+
             // gives snapshots access to the pending store
             repo.pendingStore = this.pendingStore;
 
@@ -745,6 +907,38 @@ public class AionRepositoryImpl extends AbstractRepository {
     public void close() {
         rwLock.writeLock().lock();
         try {
+            try {
+                if (statePruner != null) {
+                    // must stop before the state databases are closed
+                    statePruner.shutdown();
+                    LOGGEN.info("State pruner stopped.");
+                    statePruner = null;
+                }
+            } catch (Exception e) {
+                LOGGEN.error("Exception occurred while stopping the state pruner.", e);
+            }
+
+            try {
+                if (flatStateDatabase != null) {
+                    // persist the head state so that the flat state can be used after a restart
+                    if (flatState != null) {
+                        if (flatDiff.isEmpty()) {
+                            flatState.flatten(flatRoot);
+                        }
+                        flatState.close();
+                    }
+                    if (!flatStateDatabase.isAutoCommitEnabled()) {
+                        flatStateDatabase.commit();
+                    }
+                    flatStateDatabase.close();
+                    LOGGEN.info("Flat state database closed.");
+                    flatStateDatabase = null;
+                    flatState = null;
+                }
+            } catch (Exception e) {
+                LOGGEN.error("Exception occurred while closing the flat state database.", e);
+            }
+
             try {
                 if (detailsDS != null) {
                     detailsDS.close();
@@ -786,6 +980,16 @@ public class AionRepositoryImpl extends AbstractRepository {
                 LOGGEN.error("Exception occurred while closing the state archive database.", e);
             }
 
+            try {
+                if (stateMarksDatabase != null) {
+                    stateMarksDatabase.close();
+                    LOGGEN.info("State marks database closed.");
+                    stateMarksDatabase = null;
+                }
+            } catch (Exception e) {
+                LOGGEN.error("Exception occurred while closing the state marks database.", e);
+            }
+
             try {
                 if (transactionStore != null) {
                     transactionStore.close();
@@ -1015,7 +1219,7 @@ public class AionRepositoryImpl extends AbstractRepository {
         if (limit <= 0) {
             return Collections.emptyList();
         } else {
-            byte[] subKey = h256(("details-storage/" + contract.toString()).getBytes());
+            byte[] subKey = AionContractDetailsImpl.getStorageSubKey(contract);
 
             ByteArrayKeyValueStore db =
                     new XorDataSource(selectDatabase(DatabaseType.STORAGE), subKey);
@@ -1082,6 +1286,25 @@ public class AionRepositoryImpl extends AbstractRepository {
         return TrieNodeResult.IMPORTED;
     }
 
+    /**
+     * Imports a batch of trie nodes to the indicated blockchain database with a single write.
+     * Unlike {@link #importTrieNode(byte[], byte[], DatabaseType)}, the nodes are not compared
+     * with the stored values, so they must be validated by the caller.
+     *
+     * @param nodes the key-value pairs to be stored
+     * @param dbType the database where the key-value pairs should be stored
+     * @throws IllegalArgumentException if the database type is not supported
+     */
+    public void importTrieNodes(Map<ByteArrayWrapper, byte[]> nodes, DatabaseType dbType) {
+        ByteArrayKeyValueDatabase db = selectDatabase(dbType);
+
+        Map<byte[], byte[]> batch = new HashMap<>(nodes.size());
+        for (Map.Entry<ByteArrayWrapper, byte[]> node : nodes.entrySet()) {
+            batch.put(node.getKey().toBytes(), node.getValue());
+        }
+        db.putBatch(batch);
+    }
+
     private ByteArrayKeyValueDatabase selectDatabase(DatabaseType dbType) {
         switch (dbType) {
             case DETAILS:
@@ -1090,6 +1313,8 @@ public class AionRepositoryImpl extends AbstractRepository {
                 return storageDatabase;
             case STATE:
                 return stateDatabase;
+            case GRAPH:
+                return graphDatabase;
             default:
                 throw new IllegalArgumentException(
                         "The database type " + dbType.toString() + " is not supported.");
@@ -1119,7 +1344,6 @@ public class AionRepositoryImpl extends AbstractRepository {
      *     future light clients and during sync through state transfer to ensure the contract data
      *     is fully downloaded)
      */
-    @VisibleForTesting
     public void saveIndexedContractInformation(
             AionAddress contract,
             ByteArrayWrapper codeHash,
@@ -1142,6 +1366,25 @@ public class AionRepositoryImpl extends AbstractRepository {
         }
     }
 
+    /**
+     * Stores the number of the block whose world state was downloaded by fast sync. The blocks
+     * below it have no world state. The value is written to disk by the next {@link #flush()}.
+     */
+    public void saveFastSyncPivotNumber(long number) {
+        indexDatabase.put(FAST_SYNC_PIVOT_KEY, ByteUtil.longToBytes(number));
+    }
+
+    /**
+     * @return the number of the block whose world state was downloaded by fast sync, or {@code 0}
+     *     if the chain was not fast synced
+     */
+    public long getFastSyncPivotNumber() {
+        return indexDatabase
+                .get(FAST_SYNC_PIVOT_KEY)
+                .map(ByteUtil::byteArrayToLong)
+                .orElse(0L);
+    }
+
     private Map<AionAddress, Pair<ByteArrayWrapper, InternalVmType>> cachedContractIndex =
             new HashMap<>();
 
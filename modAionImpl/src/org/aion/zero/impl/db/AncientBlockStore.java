@@ -0,0 +1,253 @@
+package org.aion.zero.impl.db;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.mcf.blockchain.Block;
+import org.aion.zero.impl.types.BlockUtil;
+import org.slf4j.Logger;
+
+/**
+ * Stores the main chain blocks deep enough to be considered final in sequential, memory-mapped
+ * segment files instead of the key-value block database. Such blocks are never modified, so they
+ * do not need to pay for compactions and are read without random access amplification.
+ *
+ * <p>The headers and bodies are appended to separate files, so that bodies can be served to peers
+ * without decoding the blocks. A third file holds a fixed size record per block number with the
+ * block hash and the positions of its header and body. The blocks are stored in order starting
+ * from genesis, so the store is described by its number of blocks.
+ *
+ * <p>The records of the appended blocks are kept in memory and only written to the index once the
+ * headers and bodies are durable, so that a record never points to data lost by a crash.
+ *
+ * <p>The entries of the frozen blocks in the key-value database are replaced with pointers, see
+ * {@link #pointer(long)}, which allows them to still be found by hash.
+ *
+ * @implNote Appends and truncations must not run concurrently with reads.
+ */
+public class AncientBlockStore implements Closeable {
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
+
+    /** The default size of the header and body segment files. */
+    public static final long DEFAULT_SEGMENT_SIZE = 1L << 30;
+
+    // hash, header position and length, body position and length
+    private static final int RECORD_SIZE = 32 + 8 + 4 + 8 + 4;
+    private static final int RECORDS_PER_SEGMENT = 1 << 20;
+
+    // block encodings start with a list prefix, so they cannot be mistaken for pointers
+    private static final byte POINTER_PREFIX = 0x00;
+    private static final int POINTER_SIZE = 1 + Long.BYTES;
+
+    private final MappedSegments headers;
+    private final MappedSegments bodies;
+    private final MappedSegments index;
+    // the records of the blocks appended since the last call to force
+    private final List<byte[]> unforced = new ArrayList<>();
+    private long count;
+
+    /**
+     * Opens the store in the given directory, discarding the records whose data is incomplete and
+     * any data appended after the last complete record.
+     */
+    public AncientBlockStore(File directory, long segmentSize) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Unable to create the directory " + directory + ".");
+        }
+
+        this.headers = new MappedSegments(directory, "headers", segmentSize);
+        this.bodies = new MappedSegments(directory, "bodies", segmentSize);
+        this.index =
+                new MappedSegments(directory, "index", (long) RECORD_SIZE * RECORDS_PER_SEGMENT);
+
+        // recover from an interrupted append
+        count = index.size() / RECORD_SIZE;
+        while (count > 0 && !isComplete(record(count - 1))) {
+            count--;
+        }
+        index.truncate(count * RECORD_SIZE);
+        if (count == 0) {
+            headers.truncate(0);
+            bodies.truncate(0);
+        } else {
+            ByteBuffer last = record(count - 1);
+            headers.truncate(last.getLong(32) + last.getInt(40));
+            bodies.truncate(last.getLong(44) + last.getInt(52));
+        }
+        LOG.info("Ancient block store opened with {} blocks.", count);
+    }
+
+    private boolean isComplete(ByteBuffer record) {
+        return record.getLong(32) + record.getInt(40) <= headers.size()
+                && record.getLong(44) + record.getInt(52) <= bodies.size();
+    }
+
+    /** Returns the number of stored blocks, which is also the number of the next block. */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * Appends the given block, which must be the main chain block following the last stored one.
+     * The data becomes durable after the next call to {@link #force()}.
+     */
+    public void append(Block block) throws IOException {
+        if (block.getNumber() != count) {
+            throw new IllegalArgumentException(
+                    "Expected block " + count + " but got block " + block.getNumber() + ".");
+        }
+
+        byte[] header = block.getHeader().getEncoded();
+        byte[] body = block.getEncodedBody();
+        long headerPosition = headers.append(header);
+        long bodyPosition = bodies.append(body);
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.put(block.getHash());
+        record.putLong(headerPosition).putInt(header.length);
+        record.putLong(bodyPosition).putInt(body.length);
+        unforced.add(record.array());
+        count++;
+    }
+
+    /**
+     * Writes the appended blocks to the storage device. Their records are added to the index only
+     * after the headers and bodies were written.
+     */
+    public void force() throws IOException {
+        headers.force();
+        bodies.force();
+
+        int written = 0;
+        try {
+            for (byte[] record : unforced) {
+                index.append(record);
+                written++;
+            }
+        } finally {
+            unforced.subList(0, written).clear();
+        }
+        index.force();
+    }
+
+    /** Discards the blocks with numbers greater or equal to the given one. */
+    public void truncate(long number) throws IOException {
+        long keep = Math.max(0, number);
+        if (keep >= count) {
+            return;
+        }
+
+        ByteBuffer first = record(keep);
+        long indexed = count - unforced.size();
+        if (keep >= indexed) {
+            unforced.subList((int) (keep - indexed), unforced.size()).clear();
+        } else {
+            unforced.clear();
+            // the records are removed first, so that none points past the end of the data
+            index.truncate(keep * RECORD_SIZE);
+        }
+        headers.truncate(first.getLong(32));
+        bodies.truncate(first.getLong(44));
+        count = keep;
+        LOG.info("Ancient block store truncated to {} blocks.", count);
+    }
+
+    private ByteBuffer record(long number) throws IOException {
+        long indexed = count - unforced.size();
+        if (number >= indexed) {
+            return ByteBuffer.wrap(unforced.get((int) (number - indexed)));
+        }
+        return ByteBuffer.wrap(index.read(number * RECORD_SIZE, RECORD_SIZE));
+    }
+
+    /** Returns the hash of the block with the given number or {@code null} if it is not stored. */
+    public byte[] getHash(long number) {
+        if (number < 0 || number >= count) {
+            return null;
+        }
+
+        try {
+            return Arrays.copyOf(record(number).array(), 32);
+        } catch (IOException e) {
+            LOG.error("Unable to read the ancient block " + number + ".", e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the encoding of the body of the block with the given number, as given by {@link
+     * Block#getEncodedBody()}, or {@code null} if it is not stored.
+     */
+    public byte[] getEncodedBody(long number) {
+        if (number < 0 || number >= count) {
+            return null;
+        }
+
+        try {
+            ByteBuffer record = record(number);
+            return bodies.read(record.getLong(44), record.getInt(52));
+        } catch (IOException e) {
+            LOG.error("Unable to read the ancient block " + number + ".", e);
+            return null;
+        }
+    }
+
+    /** Returns the block with the given number or {@code null} if it is not stored. */
+    public Block getBlock(long number) {
+        if (number < 0 || number >= count) {
+            return null;
+        }
+
+        try {
+            ByteBuffer record = record(number);
+            byte[] header = headers.read(record.getLong(32), record.getInt(40));
+            byte[] body = bodies.read(record.getLong(44), record.getInt(52));
+            return BlockUtil.newBlockFromHeaderAndBody(header, body);
+        } catch (IOException e) {
+            LOG.error("Unable to read the ancient block " + number + ".", e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the block with the given number if it is stored and has the given hash, {@code null}
+     * otherwise.
+     */
+    public Block getBlock(long number, byte[] hash) {
+        byte[] stored = getHash(number);
+        return stored != null && Arrays.equals(stored, hash) ? getBlock(number) : null;
+    }
+
+    /** Encodes the value replacing a frozen block in the key-value database. */
+    public static byte[] pointer(long number) {
+        return ByteBuffer.allocate(POINTER_SIZE).put(POINTER_PREFIX).putLong(number).array();
+    }
+
+    /**
+     * Decodes the block number from a value of the key-value block database.
+     *
+     * @return the number of the frozen block or {@code -1} if the value is a block encoding
+     */
+    public static long pointedNumber(byte[] value) {
+        if (value.length != POINTER_SIZE || value[0] != POINTER_PREFIX) {
+            return -1;
+        }
+        return ByteBuffer.wrap(value, 1, Long.BYTES).getLong();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            headers.close();
+            bodies.close();
+        } finally {
+            index.close();
+        }
+    }
+}
@@ -141,7 +141,7 @@ public class ContractDetailsCacheImpl implements ContractDetails {
      * @param value The value.
      */
     @Override
-    public void put(ByteArrayWrapper key, ByteArrayWrapper value) {
+    public synchronized void put(ByteArrayWrapper key, ByteArrayWrapper value) {
         Objects.requireNonNull(key);
         Objects.requireNonNull(value);
 
@@ -150,7 +150,7 @@ public class ContractDetailsCacheImpl implements ContractDetails {
     }
 
     @Override
-    public void delete(ByteArrayWrapper key) {
+    public synchronized void delete(ByteArrayWrapper key) {
         Objects.requireNonNull(key);
 
         storage.put(key, null);
@@ -160,11 +160,14 @@ public class ContractDetailsCacheImpl implements ContractDetails {
     /**
      * Returns the value associated with key if it exists, otherwise returns null.
      *
+     * <p>Synchronized because the lookup caches the parent's value locally, and the details of a
+     * repository may be read by several speculative executions at once.
+     *
      * @param key The key to query.
      * @return the associated value or null.
      */
     @Override
-    public ByteArrayWrapper get(ByteArrayWrapper key) {
+    public synchronized ByteArrayWrapper get(ByteArrayWrapper key) {
         ByteArrayWrapper value;
 
         // go to parent if not locally stored
@@ -252,6 +255,14 @@ public class ContractDetailsCacheImpl implements ContractDetails {
         }
     }
 
+    /**
+     * Returns the storage values read or written through this cache, where deleted keys are mapped
+     * to {@code null}.
+     */
+    Map<ByteArrayWrapper, ByteArrayWrapper> getCachedStorage() {
+        return storage;
+    }
+
     /** Syncs the storage trie. */
     @Override
     public void syncStorage() {
@@ -3,7 +3,10 @@ package org.aion.zero.impl.db;
 import static org.aion.util.types.ByteArrayWrapper.wrap;
 
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
 import org.aion.db.store.JournalPruneDataSource;
 import org.aion.mcf.db.InternalVmType;
@@ -20,6 +23,12 @@ public class DetailsDataStore {
     private ByteArrayKeyValueDatabase graphSrc;
     private Logger log;
 
+    /** Marks contracts found missing by {@link #prefetch(byte[])}. */
+    private static final byte[] ABSENT = new byte[0];
+
+    private final Map<ByteArrayWrapper, byte[]> prefetched = new ConcurrentHashMap<>();
+    private final LongAdder prefetchHits = new LongAdder();
+
     public DetailsDataStore(
             ByteArrayKeyValueDatabase detailsCache,
             ByteArrayKeyValueDatabase storageCache,
@@ -41,7 +50,7 @@ public class DetailsDataStore {
      */
     public synchronized AionContractDetailsImpl get(InternalVmType vm, byte[] key) {
 
-        Optional<byte[]> rawDetails = detailsSrc.get(key);
+        Optional<byte[]> rawDetails = getRaw(key, true);
 
         // If it doesn't exist in cache or database.
         if (!rawDetails.isPresent()) {
@@ -59,10 +68,46 @@ public class DetailsDataStore {
 
     /** Determine if the contract exists in the database. */
     public synchronized boolean isPresent(byte[] key) {
-        Optional<byte[]> rawDetails = detailsSrc.get(key);
+        Optional<byte[]> rawDetails = getRaw(key, false);
         return rawDetails.isPresent();
     }
 
+    private Optional<byte[]> getRaw(byte[] key, boolean consume) {
+        ByteArrayWrapper wrappedKey = wrap(key);
+        byte[] rawDetails = consume ? prefetched.remove(wrappedKey) : prefetched.get(wrappedKey);
+        if (rawDetails == null) {
+            return detailsSrc.get(key);
+        }
+
+        prefetchHits.increment();
+        return rawDetails == ABSENT ? Optional.empty() : Optional.of(rawDetails);
+    }
+
+    /**
+     * Reads the encoding of the given contract ahead of a call to {@link #get(InternalVmType,
+     * byte[])}, which will then be served from memory. Unlike the other methods this one does not
+     * lock the store, so several contracts can be read concurrently.
+     *
+     * @implNote Prefetching must complete before the contract is updated or removed. Otherwise the
+     *     encoding read from the database could replace the newer one.
+     */
+    public void prefetch(byte[] key) {
+        ByteArrayWrapper wrappedKey = wrap(key);
+        if (!prefetched.containsKey(wrappedKey)) {
+            prefetched.put(wrappedKey, detailsSrc.get(key).orElse(ABSENT));
+        }
+    }
+
+    /** Drops the prefetched contracts that were not read, e.g. for blocks that were rejected. */
+    public void clearPrefetched() {
+        prefetched.clear();
+    }
+
+    /** Returns the number of reads served by {@link #prefetch(byte[])}. */
+    public long getPrefetchHitCount() {
+        return prefetchHits.sum();
+    }
+
     public synchronized void update(AionAddress key, AionContractDetailsImpl contractDetails) {
 
         contractDetails.setAddress(key);
@@ -70,6 +115,7 @@ public class DetailsDataStore {
 
         // Put into cache.
         byte[] rawDetails = contractDetails.getEncoded();
+        prefetched.remove(wrap(key.toByteArray()));
         detailsSrc.put(key.toByteArray(), rawDetails);
 
         contractDetails.syncStorage();
@@ -77,6 +123,7 @@ public class DetailsDataStore {
 
     public synchronized void remove(byte[] key) {
         ByteArrayWrapper wrappedKey = wrap(key);
+        prefetched.remove(wrappedKey);
         detailsSrc.delete(key);
     }
 
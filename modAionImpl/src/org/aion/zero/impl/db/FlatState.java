@@ -0,0 +1,574 @@
+package org.aion.zero.impl.db;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import org.aion.db.impl.ByteArrayKeyValueDatabase;
+import org.aion.types.AionAddress;
+import org.aion.util.bytes.ByteUtil;
+import org.aion.util.types.ByteArrayWrapper;
+import org.slf4j.Logger;
+
+/**
+ * A flat view of the world state keyed by account address and storage key, used to answer state
+ * reads without walking the state and storage tries.
+ *
+ * <p>The view is made of a disk layer holding accounts and storage at a single state root and of
+ * in-memory diff layers, one per committed block, holding the changes made by the block. A read at
+ * a given state root walks the diff layers from that root down to the disk layer. Roots that do
+ * not connect to the disk layer are unknown to the flat state and must be read from the tries.
+ *
+ * <p>The disk layer is filled lazily: values read from the tries are stored through the {@code
+ * fill} methods when no diff layer between the read root and the disk layer changed them. Diff
+ * layers deeper than the configured limit are merged into the disk layer, so that the recent blocks
+ * remain available to reorgs.
+ *
+ * <p>The lookup methods return {@code null} when the value is unknown, an empty array when the
+ * account or storage key is known not to exist and the encoding stored in the trie otherwise.
+ *
+ * <p>The disk layer keys are prefixed by an epoch stored next to the disk root. Resetting the disk
+ * layer moves both to a new epoch in a single batch, so the entries of the previous epochs are no
+ * longer read. Those entries are then deleted by a background thread. The last epoch whose
+ * predecessors were deleted is stored as well, so that a deletion interrupted by a shutdown is
+ * resumed on the next start.
+ *
+ * @implNote The instance is shared by a repository and its snapshots and is thread safe.
+ */
+final class FlatState {
+
+    /** The number of blocks kept as diff layers above the disk layer. */
+    static final int DEFAULT_MAX_LAYERS = 128;
+
+    /** Marks accounts and storage keys known not to exist. */
+    static final byte[] ABSENT = new byte[0];
+
+    private static final byte ACCOUNT_PREFIX = 'a';
+    private static final byte GENERATION_PREFIX = 'g';
+    private static final byte STORAGE_PREFIX = 's';
+    private static final byte[] ROOT_KEY = "root".getBytes();
+    private static final byte[] EPOCH_KEY = "epoch".getBytes();
+    // shorter than an epoch prefix, like the other metadata keys
+    private static final byte[] RECLAIMED_KEY = "reclaim".getBytes();
+
+    private static final int RECLAIM_BATCH_SIZE = 10_000;
+
+    private final ByteArrayKeyValueDatabase database;
+    private final int maxLayers;
+    private final Logger log;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // diff layers by the state root they lead to
+    private final Map<ByteArrayWrapper, Layer> layers = new HashMap<>();
+    // the state root of the disk layer, null when the disk layer is not usable
+    private ByteArrayWrapper diskRoot;
+    // the key range of the disk layer
+    private long epoch;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // deletes the entries of the previous epochs
+    private final ExecutorService reclaimer =
+            Executors.newSingleThreadExecutor(
+                    r -> {
+                        Thread t = new Thread(r, "flat-state-reclaim");
+                        t.setDaemon(true);
+                        return t;
+                    });
+    private volatile boolean closed = false;
+
+    FlatState(ByteArrayKeyValueDatabase database, int maxLayers, Logger log) {
+        this.database = database;
+        this.maxLayers = maxLayers;
+        this.log = log;
+        this.diskRoot = database.get(ROOT_KEY).map(ByteArrayWrapper::wrap).orElse(null);
+        this.epoch = database.get(EPOCH_KEY).map(ByteUtil::byteArrayToLong).orElse(0L);
+
+        long reclaimed = database.get(RECLAIMED_KEY).map(ByteUtil::byteArrayToLong).orElse(0L);
+        if (reclaimed < epoch) {
+            scheduleReclaim(epoch);
+        }
+    }
+
+    /** The changes made to the world state by one or more blocks. */
+    static final class Diff {
+        private final Map<AionAddress, byte[]> accounts = new HashMap<>();
+        private final Map<AionAddress, Map<ByteArrayWrapper, byte[]>> storage = new HashMap<>();
+        // accounts whose storage was cleared before the changes in the storage map
+        private final Set<AionAddress> destructed = new HashSet<>();
+
+        void updateAccount(AionAddress address, byte[] encoding) {
+            accounts.put(address, encoding);
+        }
+
+        void deleteAccount(AionAddress address) {
+            accounts.put(address, ABSENT);
+            storage.remove(address);
+            destructed.add(address);
+        }
+
+        /** @param encoding the value as stored in the storage trie, {@code null} for deletions */
+        void updateStorage(AionAddress address, ByteArrayWrapper key, byte[] encoding) {
+            storage.computeIfAbsent(address, k -> new HashMap<>())
+                    .put(key, encoding == null ? ABSENT : encoding);
+        }
+
+        boolean isEmpty() {
+            return accounts.isEmpty() && storage.isEmpty();
+        }
+
+        private byte[] account(AionAddress address) {
+            return accounts.get(address);
+        }
+
+        private byte[] storage(AionAddress address, ByteArrayWrapper key) {
+            Map<ByteArrayWrapper, byte[]> values = storage.get(address);
+            if (values != null) {
+                byte[] encoding = values.get(key);
+                if (encoding != null) {
+                    return encoding;
+                }
+            }
+            return destructed.contains(address) ? ABSENT : null;
+        }
+    }
+
+    private static final class Layer {
+        final ByteArrayWrapper parent;
+        final Diff changes;
+
+        Layer(ByteArrayWrapper parent, Diff changes) {
+            this.parent = parent;
+            this.changes = changes;
+        }
+    }
+
+    /** The storage of a single account at a given state root. */
+    final class StorageView {
+        private final ByteArrayWrapper root;
+        private final AionAddress address;
+
+        private StorageView(ByteArrayWrapper root, AionAddress address) {
+            this.root = root;
+            this.address = address;
+        }
+
+        byte[] get(ByteArrayWrapper key) {
+            return getStorage(root, address, key);
+        }
+
+        void fill(ByteArrayWrapper key, byte[] encoding) {
+            fillStorage(root, address, key, encoding);
+        }
+    }
+
+    StorageView getStorageView(ByteArrayWrapper root, AionAddress address) {
+        return new StorageView(root, address);
+    }
+
+    byte[] getAccount(ByteArrayWrapper root, AionAddress address) {
+        lock.readLock().lock();
+        try {
+            return find(root, layer -> layer.account(address), accountKey(address));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    byte[] getStorage(ByteArrayWrapper root, AionAddress address, ByteArrayWrapper key) {
+        lock.readLock().lock();
+        try {
+            return find(
+                    root,
+                    layer -> layer.storage(address, key),
+                    storageKey(address, generation(address), key));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Stores an account read from the trie at the given root. */
+    void fillAccount(ByteArrayWrapper root, AionAddress address, byte[] encoding) {
+        if (encoding == null || encoding.length == 0) {
+            // the disk layer only holds existing values
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            fill(root, layer -> layer.account(address), accountKey(address), encoding);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Stores a storage value read from the trie at the given root. */
+    void fillStorage(
+            ByteArrayWrapper root, AionAddress address, ByteArrayWrapper key, byte[] encoding) {
+        if (encoding == null || encoding.length == 0) {
+            // the disk layer only holds existing values
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            fill(
+                    root,
+                    layer -> layer.storage(address, key),
+                    storageKey(address, generation(address), key),
+                    encoding);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** @implNote The method calling this method must hold the read lock. */
+    private byte[] find(ByteArrayWrapper root, Function<Diff, byte[]> lookup, byte[] diskKey) {
+        ByteArrayWrapper current = root;
+        while (!current.equals(diskRoot)) {
+            Layer layer = layers.get(current);
+            if (layer == null) {
+                misses.increment();
+                return null;
+            }
+            byte[] encoding = lookup.apply(layer.changes);
+            if (encoding != null) {
+                hits.increment();
+                return encoding;
+            }
+            current = layer.parent;
+        }
+
+        Optional<byte[]> encoding = database.get(diskKey);
+        if (encoding.isPresent()) {
+            hits.increment();
+            return encoding.get();
+        } else {
+            misses.increment();
+            return null;
+        }
+    }
+
+    /** @implNote The method calling this method must hold the write lock. */
+    private void fill(
+            ByteArrayWrapper root, Function<Diff, byte[]> lookup, byte[] diskKey, byte[] encoding) {
+        // the value read at the given root is also the value at the disk root
+        // only when no layer in between changed it
+        ByteArrayWrapper current = root;
+        while (!current.equals(diskRoot)) {
+            Layer layer = layers.get(current);
+            if (layer == null || lookup.apply(layer.changes) != null) {
+                return;
+            }
+            current = layer.parent;
+        }
+        database.put(diskKey, encoding);
+    }
+
+    /**
+     * Adds the changes made by a block on top of the layer for its parent state root and merges
+     * the layers exceeding the depth limit into the disk layer.
+     *
+     * @return {@code false} when the parent root is unknown, in which case the changes are dropped
+     */
+    boolean addLayer(ByteArrayWrapper parent, ByteArrayWrapper root, Diff changes) {
+        lock.writeLock().lock();
+        try {
+            if (chain(parent) == null) {
+                return false;
+            }
+            if (chain(root) != null) {
+                // the same state was already reached, for example by an empty block
+                return true;
+            }
+            layers.put(root, new Layer(parent, changes));
+
+            List<ByteArrayWrapper> chain = chain(root);
+            if (chain.size() > maxLayers) {
+                for (int i = chain.size() - 1; i >= maxLayers; i--) {
+                    merge(chain.get(i));
+                }
+                removeUnreachableLayers();
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Resets the flat state to an empty disk layer at the given root unless the root is already
+     * known. Used when the head of the chain moved to a state the flat state does not track.
+     */
+    void anchor(ByteArrayWrapper root) {
+        lock.writeLock().lock();
+        try {
+            if (chain(root) != null) {
+                return;
+            }
+
+            log.info("Resetting the flat state to root {}.", root);
+            layers.clear();
+            // the new epoch is written in the same batch as the root
+            // to keep the disk layer consistent
+            database.putToBatch(EPOCH_KEY, ByteUtil.longToBytes(epoch + 1));
+            database.putToBatch(ROOT_KEY, root.toBytes());
+            database.commitBatch();
+            epoch++;
+            diskRoot = root;
+            scheduleReclaim(epoch);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void scheduleReclaim(long current) {
+        reclaimer.execute(() -> reclaim(current));
+    }
+
+    /** Deletes the disk layer entries of the epochs before the given one. */
+    private void reclaim(long current) {
+        long deleted = 0;
+        List<byte[]> stale = new ArrayList<>(RECLAIM_BATCH_SIZE);
+        Iterator<byte[]> keys = database.keys();
+        while (keys.hasNext() && !closed) {
+            byte[] key = keys.next();
+            // the metadata keys are shorter than an epoch prefix
+            if (key.length > Long.BYTES && ByteBuffer.wrap(key).getLong() < current) {
+                stale.add(key);
+                if (stale.size() == RECLAIM_BATCH_SIZE) {
+                    if (!delete(stale)) {
+                        return;
+                    }
+                    deleted += stale.size();
+                    stale.clear();
+                }
+            }
+        }
+        if (!delete(stale)) {
+            return;
+        }
+        deleted += stale.size();
+
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            database.put(RECLAIMED_KEY, ByteUtil.longToBytes(current));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Deleted {} flat state entries of the epochs before {}.", deleted, current);
+    }
+
+    /** @return {@code false} if the flat state was closed and nothing was deleted */
+    private boolean delete(List<byte[]> keys) {
+        // excludes the merges, which write to the database under the same lock
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            if (!keys.isEmpty()) {
+                database.deleteBatch(keys);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Waits until the deletion of the previous epochs scheduled so far is complete. */
+    void awaitReclaim() throws InterruptedException {
+        try {
+            reclaimer.submit(() -> {}).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Stops the deletion of the previous epochs, which is resumed when the flat state is opened
+     * again. Must be called before the database is closed.
+     */
+    void close() {
+        lock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        reclaimer.shutdownNow();
+        try {
+            if (!reclaimer.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.warn("The flat state reclaim did not stop in time.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Merges all the diff layers leading to the given root into the disk layer, so that the flat
+     * state can be used after a restart.
+     */
+    void flatten(ByteArrayWrapper root) {
+        lock.writeLock().lock();
+        try {
+            List<ByteArrayWrapper> chain = chain(root);
+            if (chain == null) {
+                return;
+            }
+            for (int i = chain.size() - 1; i >= 0; i--) {
+                merge(chain.get(i));
+            }
+            removeUnreachableLayers();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    boolean isKnown(ByteArrayWrapper root) {
+        lock.readLock().lock();
+        try {
+            return chain(root) != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the roots of the layers from the given root down to the disk layer, or {@code null}
+     * when the root does not connect to the disk layer.
+     */
+    private List<ByteArrayWrapper> chain(ByteArrayWrapper root) {
+        List<ByteArrayWrapper> chain = new ArrayList<>();
+        ByteArrayWrapper current = root;
+        while (!current.equals(diskRoot)) {
+            Layer layer = layers.get(current);
+            if (layer == null) {
+                return null;
+            }
+            chain.add(current);
+            current = layer.parent;
+        }
+        return chain;
+    }
+
+    /** Writes the layer for the given root, whose parent is the disk root, to the disk layer. */
+    private void merge(ByteArrayWrapper root) {
+        Diff changes = layers.remove(root).changes;
+
+        // storage of destructed accounts is discarded by moving to a new key range
+        Map<AionAddress, Long> generations = new HashMap<>();
+        for (AionAddress address : changes.destructed) {
+            long generation = generation(address) + 1;
+            generations.put(address, generation);
+            database.putToBatch(generationKey(address), ByteUtil.longToBytes(generation));
+        }
+
+        for (Map.Entry<AionAddress, byte[]> entry : changes.accounts.entrySet()) {
+            if (entry.getValue().length == 0) {
+                database.deleteInBatch(accountKey(entry.getKey()));
+            } else {
+                database.putToBatch(accountKey(entry.getKey()), entry.getValue());
+            }
+        }
+
+        for (Map.Entry<AionAddress, Map<ByteArrayWrapper, byte[]>> entry :
+                changes.storage.entrySet()) {
+            AionAddress address = entry.getKey();
+            long generation = generations.computeIfAbsent(address, this::generation);
+            for (Map.Entry<ByteArrayWrapper, byte[]> value : entry.getValue().entrySet()) {
+                byte[] key = storageKey(address, generation, value.getKey());
+                if (value.getValue().length == 0) {
+                    database.deleteInBatch(key);
+                } else {
+                    database.putToBatch(key, value.getValue());
+                }
+            }
+        }
+
+        // the root is written in the same batch to keep the disk layer consistent
+        database.putToBatch(ROOT_KEY, root.toBytes());
+        database.commitBatch();
+        diskRoot = root;
+    }
+
+    private void removeUnreachableLayers() {
+        List<ByteArrayWrapper> unreachable = new ArrayList<>();
+        for (ByteArrayWrapper root : layers.keySet()) {
+            if (chain(root) == null) {
+                unreachable.add(root);
+            }
+        }
+        for (ByteArrayWrapper root : unreachable) {
+            layers.remove(root);
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug(
+                    "Flat state disk root {} with {} layers, removed {} unreachable layers.",
+                    diskRoot,
+                    layers.size(),
+                    unreachable.size());
+        }
+    }
+
+    private long generation(AionAddress address) {
+        return database.get(generationKey(address)).map(ByteUtil::byteArrayToLong).orElse(0L);
+    }
+
+    private byte[] accountKey(AionAddress address) {
+        return ByteUtil.merge(
+                ByteUtil.longToBytes(epoch), new byte[] {ACCOUNT_PREFIX}, address.toByteArray());
+    }
+
+    private byte[] generationKey(AionAddress address) {
+        return ByteUtil.merge(
+                ByteUtil.longToBytes(epoch), new byte[] {GENERATION_PREFIX}, address.toByteArray());
+    }
+
+    private byte[] storageKey(AionAddress address, long generation, ByteArrayWrapper key) {
+        return ByteUtil.merge(
+                ByteUtil.longToBytes(epoch),
+                new byte[] {STORAGE_PREFIX},
+                address.toByteArray(),
+                ByteUtil.longToBytes(generation),
+                key.toBytes());
+    }
+
+    int getLayerCount() {
+        lock.readLock().lock();
+        try {
+            return layers.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** @return the number of reads answered by the flat state */
+    long getHitCount() {
+        return hits.sum();
+    }
+
+    /** @return the number of reads left to the tries */
+    long getMissCount() {
+        return misses.sum();
+    }
+}
@@ -0,0 +1,191 @@
+package org.aion.zero.impl.db;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An append-only sequence of bytes stored in segment files of bounded size and read through memory
+ * mappings. Items are addressed by their position in the sequence and never span two segments:
+ * an item that does not fit in the remaining space of a segment starts the next one.
+ *
+ * @implNote Appends and truncations must not run concurrently with reads.
+ */
+final class MappedSegments implements Closeable {
+
+    private final File directory;
+    private final String prefix;
+    private final long segmentSize;
+
+    private final List<Segment> segments = new ArrayList<>();
+    // the position following the last byte written
+    private long size;
+    // the first segment modified since the last call to force
+    private int firstDirty;
+
+    private static final class Segment {
+        final File file;
+        final FileChannel channel;
+        // the mapping is replaced when reads go past its end
+        volatile MappedByteBuffer map;
+
+        Segment(File file) throws IOException {
+            this.file = file;
+            this.channel =
+                    FileChannel.open(
+                            file.toPath(),
+                            StandardOpenOption.CREATE,
+                            StandardOpenOption.READ,
+                            StandardOpenOption.WRITE);
+        }
+    }
+
+    /**
+     * Opens the segments with the given prefix from the directory, creating the first one if
+     * needed.
+     *
+     * @param segmentSize the maximum size of a segment file, at most {@link Integer#MAX_VALUE}
+     */
+    MappedSegments(File directory, String prefix, long segmentSize) throws IOException {
+        if (segmentSize <= 0 || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid segment size " + segmentSize + ".");
+        }
+        this.directory = directory;
+        this.prefix = prefix;
+        this.segmentSize = segmentSize;
+
+        File file = segmentFile(0);
+        while (file.exists()) {
+            segments.add(new Segment(file));
+            file = segmentFile(segments.size());
+        }
+        if (segments.isEmpty()) {
+            segments.add(new Segment(file));
+        }
+
+        int last = segments.size() - 1;
+        size = last * segmentSize + segments.get(last).channel.size();
+        firstDirty = last;
+    }
+
+    private File segmentFile(int index) {
+        return new File(directory, String.format("%s-%05d.dat", prefix, index));
+    }
+
+    /** Returns the position following the last byte written. */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Appends the given data after the last byte written, or at the start of a new segment when it
+     * does not fit in the last one.
+     *
+     * @return the position of the data
+     */
+    long append(byte[] data) throws IOException {
+        if (data.length > segmentSize) {
+            throw new IllegalArgumentException(
+                    "Item of " + data.length + " bytes exceeds the segment size.");
+        }
+
+        int index = (int) (size / segmentSize);
+        long offset = size % segmentSize;
+        if (offset + data.length > segmentSize) {
+            index++;
+            offset = 0;
+        }
+        while (segments.size() <= index) {
+            segments.add(new Segment(segmentFile(segments.size())));
+        }
+
+        FileChannel channel = segments.get(index).channel;
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        long written = offset;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, written);
+        }
+
+        long position = index * segmentSize + offset;
+        size = position + data.length;
+        return position;
+    }
+
+    /** Reads the given number of bytes starting at the given position. */
+    byte[] read(long position, int length) throws IOException {
+        int index = (int) (position / segmentSize);
+        int offset = (int) (position % segmentSize);
+        if (index >= segments.size() || position + length > size) {
+            throw new IOException("Read past the end of " + prefix + " at position " + position + ".");
+        }
+
+        Segment segment = segments.get(index);
+        MappedByteBuffer map = segment.map;
+        if (map == null || map.capacity() < offset + length) {
+            map = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, segment.channel.size());
+            segment.map = map;
+        }
+
+        byte[] data = new byte[length];
+        ByteBuffer view = map.duplicate();
+        view.position(offset);
+        view.get(data);
+        return data;
+    }
+
+    /** Writes the data appended since the last call to the storage device. */
+    void force() throws IOException {
+        for (int i = firstDirty; i < segments.size(); i++) {
+            segments.get(i).channel.force(false);
+        }
+        firstDirty = segments.size() - 1;
+    }
+
+    /** Discards the bytes from the given position onwards. */
+    void truncate(long position) throws IOException {
+        if (position >= size) {
+            return;
+        }
+
+        int last = (int) (position / segmentSize);
+        while (segments.size() > last + 1 && segments.size() > 1) {
+            Segment segment = segments.remove(segments.size() - 1);
+            segment.map = null;
+            segment.channel.close();
+            if (!segment.file.delete()) {
+                throw new IOException("Unable to delete " + segment.file + ".");
+            }
+        }
+
+        Segment segment = segments.get(last);
+        // the previous mapping must not be read past the new end of the file
+        segment.map = null;
+        segment.channel.truncate(position % segmentSize);
+
+        size = position;
+        firstDirty = Math.min(firstDirty, last);
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException error = null;
+        for (Segment segment : segments) {
+            segment.map = null;
+            try {
+                segment.channel.close();
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+        segments.clear();
+        if (error != null) {
+            throw error;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package org.aion.zero.impl.db;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.aion.db.impl.ByteArrayKeyValueDatabase;
+import org.aion.db.store.MarkSweepDataSource;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.mcf.blockchain.Block;
+import org.aion.util.types.ByteArrayWrapper;
+import org.aion.zero.impl.trie.TrieImpl;
+import org.aion.zero.impl.trie.scan.MarkNodes;
+import org.aion.zero.impl.trie.scan.ScanAction;
+import org.slf4j.Logger;
+
+/**
+ * Removes the world state nodes that are no longer reachable from the retained blocks with
+ * periodic mark-and-sweep cycles, replacing the per block reference counting of the journal.
+ *
+ * <p>A cycle marks the nodes reachable from the state roots of the topmost blocks by storing their
+ * hashes in an on-disk database, so that the memory used does not grow with the size of the
+ * state. The state database is then swept and the unmarked nodes are deleted. The nodes written
+ * while the cycle runs are protected by the {@link MarkSweepDataSource}, which allows blocks to be
+ * imported concurrently. Both passes run on a background thread and pause regularly to limit
+ * their impact on the import.
+ */
+final class StatePruner {
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
+
+    /** The minimum number of blocks between the start of two cycles. */
+    static final int MIN_CYCLE_INTERVAL = 1024;
+
+    static final int SWEEP_BATCH_SIZE = 10_000;
+
+    private static final int MARK_THREADS =
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+    // the expected number of nodes written during one cycle, used to size the filter of inserts
+    private static final long EXPECTED_INSERTS = 2_000_000L;
+    // bounds the memory used by the filter of marked nodes to roughly 60 MB
+    private static final long MAX_MARKS_IN_FILTER = 50_000_000L;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    // throttling applied to both the mark and the sweep
+    private static final int PAUSE_INTERVAL = 10_000;
+    private static final long PAUSE_MS = 5;
+
+    private final MarkSweepDataSource state;
+    private final ByteArrayKeyValueDatabase marks;
+    private final AionBlockStore blockStore;
+    private final int retainedBlocks;
+    private final int cycleInterval;
+
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(
+                    r -> {
+                        Thread t = new Thread(r, "db-prune");
+                        t.setDaemon(true);
+                        return t;
+                    });
+
+    // the roots of the last committed blocks, which may not be in the block store yet
+    private final Deque<byte[]> recentRoots = new ArrayDeque<>();
+    private long bestNumber = -1;
+    private long lastCycle = -1;
+    private Future<?> running = null;
+    private volatile boolean stopped = false;
+
+    /**
+     * @param state the data source of the world state
+     * @param marks the database used to store the marked nodes, emptied by each cycle
+     * @param blockStore used to find the states of the retained blocks
+     * @param retainedBlocks the number of topmost block levels whose states are kept
+     */
+    StatePruner(
+            MarkSweepDataSource state,
+            ByteArrayKeyValueDatabase marks,
+            AionBlockStore blockStore,
+            int retainedBlocks) {
+        this.state = state;
+        this.marks = marks;
+        this.blockStore = blockStore;
+        this.retainedBlocks = retainedBlocks;
+        this.cycleInterval = Math.max(retainedBlocks, MIN_CYCLE_INTERVAL);
+    }
+
+    /**
+     * Records the state of a committed block and starts a new cycle when enough blocks were
+     * committed since the previous one. Must be called after the state of the block was written
+     * to the database and before any other state is written.
+     */
+    synchronized void onBlockCommitted(long number, byte[] stateRoot) {
+        recentRoots.addLast(stateRoot);
+        while (recentRoots.size() > retainedBlocks) {
+            recentRoots.removeFirst();
+        }
+        bestNumber = Math.max(bestNumber, number);
+
+        if (lastCycle < 0) {
+            lastCycle = bestNumber;
+            return;
+        }
+        if (stopped || bestNumber - lastCycle < cycleInterval) {
+            return;
+        }
+        if (running != null && !running.isDone()) {
+            // the previous cycle is still sweeping
+            return;
+        }
+
+        lastCycle = bestNumber;
+        // the nodes written from now on are not reachable from the roots collected below
+        state.startTracking(EXPECTED_INSERTS);
+        long best = bestNumber;
+        List<byte[]> roots = new ArrayList<>(recentRoots);
+        running = executor.submit(() -> runCycle(best, roots));
+    }
+
+    /** Executes a complete cycle. Tracking must have been started on the state data source. */
+    void runCycle(long best, List<byte[]> recent) {
+        long start = System.currentTimeMillis();
+        try {
+            marks.drop();
+
+            Set<ByteArrayWrapper> roots = retainedRoots(best, recent);
+            MarkNodes mark = mark(roots);
+            long marked = mark.getCount();
+            long swept = sweep(mark);
+
+            LOG.info(
+                    "State pruning at block {}: marked {} nodes from {} roots and removed {} nodes in {} ms.",
+                    best,
+                    marked,
+                    roots.size(),
+                    swept,
+                    System.currentTimeMillis() - start);
+        } catch (CancellationException e) {
+            LOG.info("State pruning at block {} interrupted.", best);
+        } catch (RuntimeException e) {
+            LOG.error("State pruning at block " + best + " failed.", e);
+        } finally {
+            state.stopTracking();
+            if (!stopped) {
+                marks.drop();
+            }
+        }
+    }
+
+    private Set<ByteArrayWrapper> retainedRoots(long best, List<byte[]> recent) {
+        Set<ByteArrayWrapper> roots = new LinkedHashSet<>();
+        for (byte[] root : recent) {
+            roots.add(ByteArrayWrapper.wrap(root));
+        }
+        // includes the side chains that can still be imported
+        for (long level = Math.max(0, best - retainedBlocks + 1); level <= best; level++) {
+            for (Block block : blockStore.getBlocksByNumber(level)) {
+                roots.add(ByteArrayWrapper.wrap(block.getStateRoot()));
+            }
+        }
+        return roots;
+    }
+
+    private MarkNodes mark(Set<ByteArrayWrapper> roots) {
+        MarkNodes mark = new MarkNodes(marks);
+        AtomicLong visited = new AtomicLong();
+        ScanAction action =
+                (hash, node) -> {
+                    mark.doOnNode(hash, node);
+                    throttle(visited.incrementAndGet());
+                };
+
+        ForkJoinPool pool = new ForkJoinPool(MARK_THREADS);
+        try {
+            for (ByteArrayWrapper root : roots) {
+                // the tries of consecutive blocks share most nodes, which are only scanned once
+                TrieImpl.scanTreeParallel(root.toBytes(), state, action, mark::isMarked, pool);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return mark;
+    }
+
+    private long sweep(MarkNodes mark) {
+        BloomFilter<byte[]> filter =
+                BloomFilter.create(
+                        Funnels.byteArrayFunnel(),
+                        Math.max(1, Math.min(mark.getCount(), MAX_MARKS_IN_FILTER)),
+                        FALSE_POSITIVE_RATE);
+        Iterator<byte[]> marked = marks.keys();
+        while (marked.hasNext()) {
+            filter.put(marked.next());
+        }
+
+        long swept = 0, scanned = 0;
+        List<byte[]> unmarked = new ArrayList<>(SWEEP_BATCH_SIZE);
+        Iterator<byte[]> keys = state.keys();
+        while (keys.hasNext()) {
+            byte[] key = keys.next();
+            // the filter has no false negatives, so only its positives are checked on disk
+            if (!filter.mightContain(key) || !mark.isMarked(key)) {
+                unmarked.add(key);
+                if (unmarked.size() == SWEEP_BATCH_SIZE) {
+                    swept += state.sweep(unmarked);
+                    unmarked.clear();
+                }
+            }
+            throttle(++scanned);
+        }
+        if (!unmarked.isEmpty()) {
+            swept += state.sweep(unmarked);
+        }
+        return swept;
+    }
+
+    private void throttle(long count) {
+        if (stopped) {
+            throw new CancellationException();
+        }
+        if (count % PAUSE_INTERVAL == 0) {
+            try {
+                Thread.sleep(PAUSE_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            }
+        }
+    }
+
+    /** Interrupts the running cycle, if any, and waits for it to stop. */
+    void shutdown() {
+        synchronized (this) {
+            // no new cycle is started after this
+            stopped = true;
+        }
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOG.warn("State pruning did not stop in time.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -7,6 +7,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -35,6 +36,7 @@ import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.aion.mcf.blockchain.Block;
 import org.aion.txpool.TxPoolA0;
+import org.aion.txpool.TxPoolA1;
 import org.aion.zero.impl.blockchain.AionBlockchainImpl;
 import org.aion.zero.impl.blockchain.AionImpl;
 import org.aion.zero.impl.blockchain.IAionBlockchain;
@@ -92,12 +94,38 @@ public class AionPendingStateImpl implements IPendingState {
         }
     }
 
+    /**
+     * An immutable view of the pending state as of the last mutation. The pending tx list is the
+     * block template of the pool, built by the writer that publishes the snapshot.
+     */
+    private static final class PendingSnapshot {
+
+        private final Block best;
+        private final RepositoryCache<AccountState> repository;
+        private final Map<AionAddress, BigInteger> nonces;
+        private final List<AionTransaction> pendingTxs;
+
+        private PendingSnapshot(
+                Block best,
+                RepositoryCache<AccountState> repository,
+                Map<AionAddress, BigInteger> nonces,
+                List<AionTransaction> pendingTxs) {
+            this.best = best;
+            this.repository = repository;
+            this.nonces = nonces;
+            this.pendingTxs = pendingTxs;
+        }
+    }
+
     private static final int MAX_VALIDATED_PENDING_TXS = 8192;
 
     private final int MAX_TXCACHE_FLUSH_SIZE = MAX_VALIDATED_PENDING_TXS >> 2;
 
     private final int MAX_REPLAY_TX_BUFFER_SIZE = MAX_VALIDATED_PENDING_TXS >> 2;
 
+    /** Below this many txs the batch is validated inline, the fork-join overhead is not worth it. */
+    private static final int MIN_PARALLEL_VALIDATION_SIZE = 16;
+
     private AionBlockchainImpl blockchain;
 
     private TransactionStore transactionStore;
@@ -112,6 +140,13 @@ public class AionPendingStateImpl implements IPendingState {
 
     private AtomicReference<Block> best;
 
+    /**
+     * The last state published by a writer. Every mutation of the pool or the pending repository
+     * happens under the monitor and ends with {@link #publishPendingState}, so the read methods can
+     * use this reference without taking the monitor.
+     */
+    private volatile PendingSnapshot snapshot = new PendingSnapshot(null, null, Collections.emptyMap(), Collections.emptyList());
+
     private PendingTxCache pendingTxCache;
 
     private EventExecuteService ees;
@@ -153,7 +188,10 @@ public class AionPendingStateImpl implements IPendingState {
 
         @Override
         public void run() {
-            processTxBuffer();
+            synchronized (AionPendingStateImpl.this) {
+                processTxBuffer();
+                publishPendingState(Collections.emptySet());
+            }
         }
     }
 
@@ -161,6 +199,8 @@ public class AionPendingStateImpl implements IPendingState {
         if (bufferEnable && !txBuffer.isEmpty()) {
 
             List<PooledTransaction> txs = new ArrayList<>();
+            // the buffered txs were executed on the published pending state
+            Block bestBlock = snapshot.best;
             try {
                 for (AionTxExecSummary summary : txBuffer) {
                     txs.add(
@@ -187,12 +227,12 @@ public class AionPendingStateImpl implements IPendingState {
                                     .equals(summary.getTransaction())) {
                         AionTxReceipt rp = new AionTxReceipt();
                         rp.setTransaction(newPending.get(cnt).tx);
-                        fireTxUpdate(rp, PendingTransactionState.DROPPED, best.get());
+                        fireTxUpdate(rp, PendingTransactionState.DROPPED, bestBlock);
                     }
                     cnt++;
 
                     fireTxUpdate(
-                            summary.getReceipt(), PendingTransactionState.NEW_PENDING, best.get());
+                            summary.getReceipt(), PendingTransactionState.NEW_PENDING, bestBlock);
                 }
 
                 if (!txs.isEmpty() && !loadPendingTx) {
@@ -306,7 +346,11 @@ public class AionPendingStateImpl implements IPendingState {
                     ITxPool.PROP_TX_TIMEOUT,
                     String.valueOf(CfgAion.inst().getTx().getTxPendingTimeout()));
 
-            this.txPool = new TxPoolA0(prop);
+            if (_cfgAion.getTx().getIndexedPool()) {
+                this.txPool = new TxPoolA1(prop);
+            } else {
+                this.txPool = new TxPoolA0(prop);
+            }
 
         } else {
             txPool = null;
@@ -337,6 +381,7 @@ public class AionPendingStateImpl implements IPendingState {
             this.pendingTxCache =
                     new PendingTxCache(CfgAion.inst().getTx().getCacheMax(), poolBackUp);
             this.pendingState = repository.startTracking();
+            publishPendingState(null);
 
             this.dumpPool = test || CfgAion.inst().getTx().getPoolDump();
 
@@ -406,9 +451,13 @@ public class AionPendingStateImpl implements IPendingState {
         this.evtMgr.registerEvent(evts);
     }
 
-    public synchronized RepositoryCache<?> getRepository() {
-        // Todo : no class use this method.
-        return pendingState;
+    /**
+     * @return a tracking view over the published pending repository, so that the changes of the
+     *     caller are never written to the pending state
+     */
+    public RepositoryCache<?> getRepository() {
+        RepositoryCache<AccountState> published = snapshot.repository;
+        return published == null ? null : published.startTracking();
     }
 
     public int getPendingTxSize() {
@@ -416,13 +465,53 @@ public class AionPendingStateImpl implements IPendingState {
     }
 
     @Override
-    public synchronized List<AionTransaction> getPendingTransactions() {
-        return isSeed ? new ArrayList<>() : this.txPool.snapshot();
+    public List<AionTransaction> getPendingTransactions() {
+        if (isSeed) {
+            return new ArrayList<>();
+        }
+
+        return new ArrayList<>(snapshot.pendingTxs);
     }
 
-    public synchronized Block getBestBlock() {
-        best.set(blockchain.getBestBlock());
-        return best.get();
+    /** @return the best block of the published pending state, which may trail the chain */
+    public Block getBestBlock() {
+        Block published = snapshot.best;
+        return published != null ? published : blockchain.getBestBlock();
+    }
+
+    /**
+     * Publishes the current pending state for the read methods. Must be called under the monitor
+     * after every change of the pool, the pending repository or the best block.
+     *
+     * @param touched the senders whose pending nonce may have changed since the last publish, or
+     *     {@code null} to recompute the nonces of every sender in the pool
+     */
+    private void publishPendingState(Set<AionAddress> touched) {
+        // built first, the template selection drops the timed out txs from the pool
+        List<AionTransaction> pendingTxs =
+                isSeed ? Collections.emptyList() : Collections.unmodifiableList(txPool.snapshot());
+
+        Map<AionAddress, BigInteger> nonces;
+        if (touched == null) {
+            nonces = new HashMap<>();
+            for (AionTransaction tx : txPool.snapshotAll()) {
+                nonces.computeIfAbsent(tx.getSenderAddress(), this::pendingStateNonce);
+            }
+        } else if (touched.isEmpty()) {
+            nonces = snapshot.nonces;
+        } else {
+            nonces = new HashMap<>(snapshot.nonces);
+            for (AionAddress addr : touched) {
+                nonces.put(addr, pendingStateNonce(addr));
+            }
+        }
+
+        snapshot =
+                new PendingSnapshot(
+                        best.get(),
+                        pendingState,
+                        Collections.unmodifiableMap(nonces),
+                        pendingTxs);
     }
 
     /**
@@ -439,6 +528,42 @@ public class AionPendingStateImpl implements IPendingState {
                 && beaconHashValidator.validateTxForPendingState(tx);
     }
 
+    /**
+     * Runs the checks of {@link #isValid} which do not depend on the pending repository for the
+     * whole batch on the common fork-join pool. Signature verification dominates the admission
+     * cost of plain transfers and has no ordering constraint, so only the execution against the
+     * pending state is left to the serial path.
+     *
+     * @return the validity of each tx keyed by identity, empty when the batch is too small
+     */
+    private Map<AionTransaction, Boolean> prevalidate(List<AionTransaction> transactions) {
+        if (transactions.size() < MIN_PARALLEL_VALIDATION_SIZE) {
+            return Collections.emptyMap();
+        }
+
+        long t1 = System.nanoTime();
+        List<Boolean> results =
+                transactions.parallelStream().map(this::isValid).collect(Collectors.toList());
+
+        Map<AionTransaction, Boolean> validity = new IdentityHashMap<>(transactions.size());
+        for (int i = 0; i < transactions.size(); i++) {
+            validity.put(transactions.get(i), results.get(i));
+        }
+
+        if (LOGGER_TX.isDebugEnabled()) {
+            LOGGER_TX.debug(
+                    "prevalidate tx#[{}] took {} us",
+                    transactions.size(),
+                    (System.nanoTime() - t1) / 1000);
+        }
+        return validity;
+    }
+
+    private boolean isValid(AionTransaction tx, Map<AionTransaction, Boolean> validity) {
+        Boolean valid = validity.get(tx);
+        return valid == null ? isValid(tx) : valid;
+    }
+
     /**
      * Tries to add the given transactions to the PendingState
      *
@@ -456,11 +581,14 @@ public class AionPendingStateImpl implements IPendingState {
         List<AionTransaction> newPending = new ArrayList<>();
         List<AionTransaction> newLargeNonceTx = new ArrayList<>();
         List<TxResponse> txResponses = new ArrayList<>();
+        Set<AionAddress> touched = new HashSet<>();
+        Map<AionTransaction, Boolean> validity = prevalidate(transactions);
 
         for (AionTransaction tx : transactions) {
             BigInteger txNonce = tx.getNonceBI();
-            BigInteger bestPSNonce = bestPendingStateNonce(tx.getSenderAddress());
+            BigInteger bestPSNonce = pendingStateNonce(tx.getSenderAddress());
             AionAddress txFrom = tx.getSenderAddress();
+            touched.add(txFrom);
 
             int cmp = txNonce.compareTo(bestPSNonce);
 
@@ -536,7 +664,7 @@ public class AionPendingStateImpl implements IPendingState {
                     boolean added = false;
 
                     do {
-                        TxResponse implResponse = addPendingTransactionImpl(tx);
+                        TxResponse implResponse = addPendingTransactionImpl(tx, validity);
                         if (!added) {
                             txResponses.add(implResponse);
                             added = true;
@@ -567,7 +695,7 @@ public class AionPendingStateImpl implements IPendingState {
             // typically because of low energy
             else if (bestRepoNonce(txFrom).compareTo(txNonce) < 1) {
                 // repay Tx
-                TxResponse implResponse = addPendingTransactionImpl(tx);
+                TxResponse implResponse = addPendingTransactionImpl(tx, validity);
                 if (implResponse.equals(TxResponse.SUCCESS)) {
                     newPending.add(tx);
                     txResponses.add(TxResponse.REPAID);
@@ -594,6 +722,8 @@ public class AionPendingStateImpl implements IPendingState {
                     txPool.size());
         }
 
+        publishPendingState(touched);
+
         if (!newPending.isEmpty()) {
             IEvent evtRecv = new EventTx(EventTx.CALLBACK.PENDINGTXRECEIVED0);
             evtRecv.setFuncArgs(Collections.singletonList(newPending));
@@ -622,8 +752,9 @@ public class AionPendingStateImpl implements IPendingState {
     private List<TxResponse> seedProcess(List<AionTransaction> transactions) {
         List<AionTransaction> newTx = new ArrayList<>();
         List<TxResponse> txResponses = new ArrayList<>();
+        Map<AionTransaction, Boolean> validity = prevalidate(transactions);
         for (AionTransaction tx : transactions) {
-            if (isValid(tx)) {
+            if (isValid(tx, validity)) {
                 newTx.add(tx);
                 txResponses.add(TxResponse.SUCCESS);
             } else {
@@ -675,12 +806,14 @@ public class AionPendingStateImpl implements IPendingState {
      * Executes pending tx on the latest best block Fires pending state update
      *
      * @param tx transaction come from API or P2P
+     * @param validity the results of {@link #prevalidate} for the batch of the tx
      * @return SUCCESS if transaction gets NEW_PENDING state, else appropriate message such as
      *     DROPPED, INVALID_TX, etc.
      */
-    private TxResponse addPendingTransactionImpl(final AionTransaction tx) {
+    private TxResponse addPendingTransactionImpl(
+            final AionTransaction tx, Map<AionTransaction, Boolean> validity) {
 
-        if (!isValid(tx)) {
+        if (!isValid(tx, validity)) {
             LOGGER_TX.error("invalid Tx [{}]", tx.toString());
             fireDroppedTx(tx, "INVALID_TX");
             return TxResponse.INVALID_TX;
@@ -882,6 +1015,8 @@ public class AionPendingStateImpl implements IPendingState {
             events.add(new EventTx(EventTx.CALLBACK.TXBACKUP0));
         }
 
+        publishPendingState(null);
+
         this.evtMgr.newEvents(events);
 
         // This is for debug purpose, do not use in the regular kernel running.
@@ -904,7 +1039,7 @@ public class AionPendingStateImpl implements IPendingState {
 
         Map<AionAddress, BigInteger> nonceMap = new HashMap<>();
         for (AionAddress addr : cacheTxAccount) {
-            nonceMap.put(addr, bestPendingStateNonce(addr));
+            nonceMap.put(addr, pendingStateNonce(addr));
         }
 
         List<AionTransaction> newPendingTx = this.pendingTxCache.flush(nonceMap);
@@ -1121,8 +1256,18 @@ public class AionPendingStateImpl implements IPendingState {
         }
     }
 
-    public synchronized BigInteger bestPendingStateNonce(AionAddress addr) {
-        return isSeed ? BigInteger.ZERO : this.pendingState.getNonce(addr);
+    public BigInteger bestPendingStateNonce(AionAddress addr) {
+        if (isSeed) {
+            return BigInteger.ZERO;
+        }
+
+        // senders without pending txs have the nonce of the best block
+        BigInteger nonce = snapshot.nonces.get(addr);
+        return nonce == null ? bestRepoNonce(addr) : nonce;
+    }
+
+    private BigInteger pendingStateNonce(AionAddress addr) {
+        return this.pendingState.getNonce(addr);
     }
 
     private BigInteger bestRepoNonce(AionAddress addr) {
@@ -1193,7 +1338,7 @@ public class AionPendingStateImpl implements IPendingState {
         LOGGER_TX.info("=========== ps nonce");
         addrs.addAll(cacheAddr);
         for (AionAddress addr : addrs) {
-            LOGGER_TX.info("{} {}", addr.toString(), bestPendingStateNonce(addr));
+            LOGGER_TX.info("{} {}", addr.toString(), pendingStateNonce(addr));
         }
     }
 
@@ -1345,7 +1490,8 @@ public class AionPendingStateImpl implements IPendingState {
         return isSeed ? "0" : this.txPool.getVersion();
     }
 
-    public void updateBest() {
-        getBestBlock();
+    public synchronized void updateBest() {
+        best.set(blockchain.getBestBlock());
+        publishPendingState(Collections.emptySet());
     }
 }
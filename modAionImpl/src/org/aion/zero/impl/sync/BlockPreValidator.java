@@ -0,0 +1,129 @@
+package org.aion.zero.impl.sync;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.aion.mcf.blockchain.Block;
+import org.aion.zero.impl.blockchain.AionBlockchainImpl;
+import org.slf4j.Logger;
+
+/**
+ * The validation stage of the block import. Checks the transaction signatures (see {@link
+ * AionBlockchainImpl#preValidateTransactions(Block)}) on a pool of worker threads, a bounded
+ * number of blocks ahead of the block being imported, so that validating the next blocks overlaps
+ * with the execution of the current one.
+ *
+ * <p>The results only spare the import from repeating the work. Blocks are still fully validated
+ * by {@link AionBlockchainImpl#tryToConnect(Block)}, so the consensus rules are unchanged. The
+ * header seals are not checked here, since the import must check them itself and would gain
+ * nothing from an earlier check.
+ */
+final class BlockPreValidator {
+
+    private final AionBlockchainImpl chain;
+    private final ExecutorService pool;
+    private final int window;
+    private final Logger log;
+
+    /**
+     * @param threads the number of blocks validated concurrently
+     * @param window the maximum number of blocks validated ahead of the import
+     */
+    BlockPreValidator(AionBlockchainImpl chain, int threads, int window, Logger log) {
+        if (threads < 1 || window < 1) {
+            throw new IllegalArgumentException(
+                    "The number of threads and the window must be positive.");
+        }
+        this.chain = chain;
+        this.window = window;
+        this.log = log;
+
+        AtomicInteger count = new AtomicInteger();
+        this.pool =
+                Executors.newFixedThreadPool(
+                        threads,
+                        r -> {
+                            Thread t = new Thread(r, "sync-pv-" + count.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        });
+    }
+
+    /** Starts validating the given blocks, which must then be imported in the given order. */
+    Batch validate(List<Block> blocks) {
+        return new Batch(blocks);
+    }
+
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Tracks the validation of a batch of blocks. Closing the batch cancels the validation of the
+     * blocks that were not imported, e.g. when the import stops at a failed block.
+     */
+    final class Batch implements AutoCloseable {
+        private final List<Block> blocks;
+        private final Deque<Future<?>> pending = new ArrayDeque<>();
+        private int next = 0;
+
+        private Batch(List<Block> blocks) {
+            this.blocks = blocks;
+            fill();
+        }
+
+        /** Keeps the validation a full window ahead of the import. */
+        private void fill() {
+            while (next < blocks.size() && pending.size() < window) {
+                Block block = blocks.get(next++);
+                try {
+                    pending.add(pool.submit(() -> chain.preValidateTransactions(block)));
+                } catch (RejectedExecutionException e) {
+                    // shutting down, the import validates the block itself
+                    next = blocks.size();
+                }
+            }
+        }
+
+        /**
+         * Waits for the validation of the next block to be imported and starts validating the
+         * following ones.
+         */
+        void awaitNext() {
+            Future<?> current = pending.poll();
+            fill();
+            if (current == null) {
+                return;
+            }
+
+            try {
+                current.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                log.debug("Unable to validate block ahead of import.", e.getCause());
+            }
+        }
+
+        @Override
+        public void close() {
+            next = blocks.size();
+            for (Future<?> future : pending) {
+                future.cancel(false);
+            }
+            pending.clear();
+        }
+
+        @VisibleForTesting
+        int getPendingCount() {
+            return pending.size();
+        }
+    }
+}
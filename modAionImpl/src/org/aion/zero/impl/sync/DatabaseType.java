@@ -8,5 +8,6 @@ package org.aion.zero.impl.sync;
 public enum DatabaseType {
     STATE,
     DETAILS,
-    STORAGE
+    STORAGE,
+    GRAPH
 }
@@ -0,0 +1,956 @@
+package org.aion.zero.impl.sync;
+
+import static org.aion.crypto.HashUtil.EMPTY_DATA_HASH;
+import static org.aion.crypto.HashUtil.h256;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.aion.base.AccountState;
+import org.aion.base.AionTransaction;
+import org.aion.base.ConstantUtil;
+import org.aion.base.TransactionTypes;
+import org.aion.base.TxUtil;
+import org.aion.mcf.blockchain.Block;
+import org.aion.mcf.db.InternalVmType;
+import org.aion.p2p.INode;
+import org.aion.p2p.IP2pMgr;
+import org.aion.precompiled.ContractInfo;
+import org.aion.rlp.RLP;
+import org.aion.rlp.RLPElement;
+import org.aion.rlp.RLPList;
+import org.aion.types.AionAddress;
+import org.aion.util.bytes.ByteUtil;
+import org.aion.util.types.ByteArrayWrapper;
+import org.aion.zero.impl.blockchain.AionBlockchainImpl;
+import org.aion.zero.impl.core.ImportResult;
+import org.aion.zero.impl.db.AionContractDetailsImpl;
+import org.aion.zero.impl.db.AionRepositoryImpl;
+import org.aion.zero.impl.sync.msg.RequestBlocks;
+import org.aion.zero.impl.sync.msg.RequestTrieData;
+import org.aion.zero.impl.sync.msg.ResponseBlocks;
+import org.aion.zero.impl.trie.TrieImpl;
+import org.slf4j.Logger;
+
+/**
+ * Synchronizes a new node by downloading the world state of a recent block, the pivot, instead of
+ * executing all the blocks before it.
+ *
+ * <p>The pivot is a block agreed on by several peers, {@link #PIVOT_DISTANCE} blocks below their
+ * best block. The blocks up to the pivot are imported without execution (see {@link
+ * AionBlockchainImpl#tryImportWithoutExecution(Block)}), while the trie nodes of the pivot state
+ * are requested from the peers with {@link RequestTrieData} messages, validated against their
+ * hashes and written to the databases in batches. The import of the blocks after the pivot waits
+ * until the state is complete and then proceeds with regular execution.
+ *
+ * <p>The world state is keyed by the hashes of the addresses, so the contracts whose details and
+ * storage must also be downloaded are discovered from the deployments in the imported blocks, the
+ * addresses derived from the nonces of contracts and the precompiled contracts. The root of the
+ * world state is written last, so an interrupted download is resumed on restart and is never
+ * mistaken for a complete state.
+ *
+ * <p>When the peers do not provide the state of the pivot, a new pivot is agreed on. After {@link
+ * #MAX_PIVOTS} failed pivots, the blocks imported without execution are reverted and the import
+ * falls back to block execution. The same revert happens when fast sync is not needed, but the
+ * best block was imported without execution before a restart.
+ */
+public final class FastSyncManager implements Runnable {
+
+    /** The distance of the pivot from the best block of the peers, within the TOP pruning range. */
+    static final int PIVOT_DISTANCE = 128;
+    /** The number of peers that must agree on the pivot. */
+    private static final int PIVOT_PEERS = 2;
+    /** The number of peers asked for the pivot. */
+    private static final int PIVOT_REQUESTS = 3;
+    private static final int REQUESTS_PER_PEER = 16;
+    private static final long REQUEST_TIMEOUT_MS = 5_000L;
+    private static final long PEER_BACKOFF_MS = 10_000L;
+    /** The number of times a node is requested before giving up on the pivot. */
+    private static final int MAX_ATTEMPTS = 8;
+    /** The number of pivots tried before giving up on fast sync. */
+    private static final int MAX_PIVOTS = 3;
+    private static final int WRITE_BATCH_SIZE = 10_000;
+    private static final int RECEIVED_CAPACITY = 4096;
+    private static final long POLL_MS = 100L;
+    private static final long STATUS_INTERVAL_MS = 10_000L;
+
+    enum Phase {
+        /** Agreeing on the pivot block with the peers. */
+        PIVOT,
+        /** Downloading the world state trie. */
+        STATE,
+        /** Downloading the details and storage of the contracts. */
+        CONTRACTS,
+        /** Fast sync is over, blocks are imported with execution. */
+        COMPLETE
+    }
+
+    /** The kinds of nodes downloaded, with the database where each is stored. */
+    private enum NodeKind {
+        STATE(DatabaseType.STATE),
+        DETAILS(DatabaseType.DETAILS),
+        STORAGE(DatabaseType.STORAGE),
+        GRAPH_ROOTS(DatabaseType.GRAPH),
+        GRAPH(DatabaseType.GRAPH);
+
+        private final DatabaseType dbType;
+
+        NodeKind(DatabaseType dbType) {
+            this.dbType = dbType;
+        }
+    }
+
+    private final AionBlockchainImpl chain;
+    private final AionRepositoryImpl repository;
+    private final IP2pMgr p2pMgr;
+    private final AtomicBoolean start;
+    private final Logger log;
+    private final int pivotDistance;
+
+    // state shared with the import and the p2p threads
+    private final BlockingQueue<TrieNodeWrapper> received =
+            new LinkedBlockingQueue<>(RECEIVED_CAPACITY);
+    private final Queue<Deployment> deployments = new ConcurrentLinkedQueue<>();
+    private final Map<ByteArrayWrapper, Set<Integer>> votes = new HashMap<>();
+    private Phase phase = Phase.PIVOT;
+    private volatile Block pivot = null;
+    private volatile Block lastImported = null;
+    private long pivotNumber = -1;
+    private int pivotAsked = 0;
+
+    // state used only by the fast sync thread
+    private Block downloading = null;
+    private byte[] rootNode = null;
+    private final Map<ByteArrayWrapper, Target> missing = new LinkedHashMap<>();
+    private final Map<ByteArrayWrapper, Request> inFlight = new HashMap<>();
+    private final Deque<Target> local = new ArrayDeque<>();
+    private final Map<DatabaseType, Map<ByteArrayWrapper, byte[]>> batches =
+            new EnumMap<>(DatabaseType.class);
+    private int batchSize = 0;
+    private final Map<Integer, Integer> peerLoad = new HashMap<>();
+    private final Map<Integer, Long> backoff = new HashMap<>();
+    private final Map<ByteArrayWrapper, AccountState> contractAccounts = new HashMap<>();
+    private final List<Deployment> known = new ArrayList<>();
+    private final Deque<Deployment> candidates = new ArrayDeque<>();
+    private final Set<AionAddress> examined = new HashSet<>();
+    private final List<Contract> contracts = new ArrayList<>();
+    private long pivotRequested = 0;
+    private int failedPivots = 0;
+    private long downloaded = 0;
+    private long lastStatus = 0;
+
+    public FastSyncManager(
+            final AionBlockchainImpl chain,
+            final IP2pMgr p2pMgr,
+            final AtomicBoolean start,
+            final Logger log) {
+        this(chain, p2pMgr, start, log, PIVOT_DISTANCE);
+    }
+
+    @VisibleForTesting
+    FastSyncManager(
+            final AionBlockchainImpl chain,
+            final IP2pMgr p2pMgr,
+            final AtomicBoolean start,
+            final Logger log,
+            final int pivotDistance) {
+        this.chain = chain;
+        this.repository = chain.getRepository();
+        this.p2pMgr = p2pMgr;
+        this.start = start;
+        this.log = log;
+        this.pivotDistance = pivotDistance;
+        for (DatabaseType dbType : DatabaseType.values()) {
+            batches.put(dbType, new HashMap<>());
+        }
+    }
+
+    /** Returns the queue receiving the trie data responses from the network. */
+    public BlockingQueue<TrieNodeWrapper> getReceivedTrieData() {
+        return received;
+    }
+
+    /** Returns {@code true} while the blocks are imported through fast sync. */
+    public synchronized boolean isActive() {
+        return phase != Phase.COMPLETE;
+    }
+
+    @VisibleForTesting
+    synchronized Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * Collects the pivot candidates received from the peers. The pivot is chosen once enough
+     * peers agree on the block at the requested height.
+     *
+     * @param peerId the hash id of the peer who sent the response
+     * @param displayId the display id of the peer who sent the response
+     * @param response the blocks received from the peer
+     */
+    public synchronized void validateAndAddBlocks(
+            int peerId, String displayId, ResponseBlocks response) {
+        if (phase != Phase.PIVOT) {
+            return;
+        }
+
+        for (Block block : response.getBlocks()) {
+            if (block.getNumber() != pivotNumber || !chain.preValidate(block)) {
+                log.debug("<fast-sync ignored pivot candidate from peer={}>", displayId);
+                continue;
+            }
+
+            Set<Integer> peers =
+                    votes.computeIfAbsent(
+                            ByteArrayWrapper.wrap(block.getHash()), k -> new HashSet<>());
+            peers.add(peerId);
+            if (peers.size() >= Math.min(PIVOT_PEERS, pivotAsked)) {
+                log.info(
+                        "<fast-sync pivot number={} hash={}>",
+                        block.getNumber(),
+                        block.getShortHash());
+                setPivot(block);
+                return;
+            }
+        }
+    }
+
+    private synchronized void setPivot(Block block) {
+        pivot = block;
+        phase = Phase.STATE;
+        notifyAll();
+    }
+
+    private synchronized void setPhase(Phase next) {
+        phase = next;
+        notifyAll();
+    }
+
+    /**
+     * Imports the given block. The blocks up to the pivot are stored without execution and the
+     * following blocks are executed once the world state of the pivot is complete.
+     *
+     * @param block the block to be imported
+     * @return a result describing the status of the attempted import
+     */
+    public ImportResult importBlock(Block block) {
+        try {
+            Block target = awaitPivot();
+            if (target == null || block.getNumber() > target.getNumber()) {
+                awaitCompletion();
+                return chain.tryToConnect(block);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ImportResult.INVALID_BLOCK;
+        }
+
+        ImportResult result;
+        synchronized (chain) {
+            // fast sync may have handed the import over to execution in the meantime
+            if (!isActive()) {
+                return chain.tryToConnect(block);
+            }
+            result = chain.tryImportWithoutExecution(block);
+        }
+        if (result.isStored()) {
+            for (AionTransaction tx : block.getTransactionsList()) {
+                if (tx.isContractCreationTransaction()) {
+                    deployments.add(
+                            new Deployment(
+                                    TxUtil.calculateContractAddress(tx),
+                                    tx.getType() == TransactionTypes.AVM_CREATE_CODE
+                                            ? InternalVmType.AVM
+                                            : InternalVmType.FVM,
+                                    ByteArrayWrapper.wrap(block.getHash())));
+                }
+            }
+
+            Block target = pivot;
+            if (block.getNumber() == target.getNumber()
+                    && !Arrays.equals(block.getHash(), target.getHash())) {
+                // the chain moved away from the agreed pivot, download the imported block instead
+                log.info(
+                        "<fast-sync pivot changed number={} hash={}>",
+                        block.getNumber(),
+                        block.getShortHash());
+                setPivot(block);
+            }
+            lastImported = block;
+        }
+        return result;
+    }
+
+    /** Returns the pivot, or {@code null} when fast sync is over. */
+    private synchronized Block awaitPivot() throws InterruptedException {
+        while (phase == Phase.PIVOT) {
+            if (!start.get()) {
+                throw new InterruptedException();
+            }
+            wait(POLL_MS);
+        }
+        return phase == Phase.COMPLETE ? null : pivot;
+    }
+
+    private synchronized void awaitCompletion() throws InterruptedException {
+        while (phase != Phase.COMPLETE) {
+            if (!start.get()) {
+                throw new InterruptedException();
+            }
+            wait(POLL_MS);
+        }
+    }
+
+    @Override
+    public void run() {
+        log.info("<fast-sync started>");
+        try {
+            while (start.get() && isActive()) {
+                if (getPhase() == Phase.PIVOT) {
+                    requestPivot();
+                    Thread.sleep(POLL_MS);
+                } else {
+                    download();
+                }
+            }
+        } catch (InterruptedException e) {
+            if (start.get()) {
+                log.error("<fast-sync interrupted>", e);
+            }
+        } catch (Exception e) {
+            abandon(e.getMessage());
+        }
+        log.info("<fast-sync shutdown>");
+    }
+
+    /** Requests the block at the pivot height from the peers with the highest difficulty. */
+    private void requestPivot() {
+        long now = System.currentTimeMillis();
+        if (now - pivotRequested < REQUEST_TIMEOUT_MS) {
+            return;
+        }
+        pivotRequested = now;
+
+        List<INode> peers = new ArrayList<>();
+        long networkBest = 0;
+        for (INode node : p2pMgr.getActiveNodes().values()) {
+            if (node.getBestBlockNumber() > 0) {
+                peers.add(node);
+                networkBest = Math.max(networkBest, node.getBestBlockNumber());
+            }
+        }
+        if (peers.isEmpty()) {
+            return;
+        }
+
+        long number = networkBest - pivotDistance;
+        if (number <= chain.getBestBlock().getNumber()) {
+            log.info("<fast-sync not needed network-best={}>", networkBest);
+            // blocks imported without execution before a restart have no world state
+            handOver();
+            return;
+        }
+
+        peers.removeIf(node -> node.getBestBlockNumber() < number);
+        peers.sort(Comparator.comparing(INode::getTotalDifficulty).reversed());
+        List<INode> asked = peers.subList(0, Math.min(PIVOT_REQUESTS, peers.size()));
+        synchronized (this) {
+            if (pivotNumber != number) {
+                votes.clear();
+            }
+            pivotNumber = number;
+            pivotAsked = asked.size();
+        }
+        for (INode node : asked) {
+            p2pMgr.send(
+                    node.getIdHash(), node.getIdShort(), new RequestBlocks(number, 1, false));
+        }
+    }
+
+    /** Runs one round of requests and responses for the trie nodes of the pivot. */
+    private void download() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        Block target = pivot;
+        if (downloading != target) {
+            restart(target);
+        }
+
+        TrieNodeWrapper response = received.poll(POLL_MS, TimeUnit.MILLISECONDS);
+        while (response != null) {
+            process(response);
+            response = received.poll();
+        }
+        while (!local.isEmpty()) {
+            Target t = local.poll();
+            expand(t, stored(t));
+        }
+
+        Target exhausted = expire(now);
+        if (exhausted != null) {
+            fail("no peer provided the " + exhausted.kind + " node " + exhausted.key);
+            return;
+        }
+        collectDeployments();
+        if (missing.isEmpty() && inFlight.isEmpty()) {
+            advance();
+        } else {
+            sendRequests(now);
+        }
+        if (batchSize >= WRITE_BATCH_SIZE) {
+            flushBatches();
+        }
+
+        if (now - lastStatus >= STATUS_INTERVAL_MS) {
+            lastStatus = now;
+            log.info(
+                    "<fast-sync pivot={} phase={} downloaded={} pending={} in-flight={} contracts={}>",
+                    downloading.getNumber(),
+                    getPhase(),
+                    downloaded,
+                    missing.size(),
+                    inFlight.size(),
+                    contracts.size());
+        }
+    }
+
+    /** Starts downloading the state of the given pivot, keeping the nodes already written. */
+    private void restart(Block target) {
+        flushBatches();
+        missing.clear();
+        inFlight.clear();
+        local.clear();
+        peerLoad.clear();
+        contractAccounts.clear();
+        candidates.clear();
+        examined.clear();
+        contracts.clear();
+        rootNode = null;
+        downloading = target;
+        setPhase(Phase.STATE);
+
+        need(new Target(NodeKind.STATE, target.getStateRoot(), null, new byte[0], null));
+    }
+
+    /** Moves to the next phase once the current one has no nodes left to download. */
+    private void advance() {
+        Phase current = getPhase();
+        if (current == Phase.STATE) {
+            Block imported = lastImported;
+            if (imported == null || !Arrays.equals(imported.getHash(), downloading.getHash())) {
+                // the state is checked after the blocks up to the pivot are stored
+                return;
+            }
+            setPhase(Phase.CONTRACTS);
+            for (ContractInfo info : ContractInfo.values()) {
+                candidates.add(new Deployment(info.contractAddress, InternalVmType.FVM, null));
+            }
+            candidates.addAll(known);
+        }
+
+        while (!candidates.isEmpty() && missing.isEmpty()) {
+            examine(candidates.poll());
+        }
+        if (missing.isEmpty() && local.isEmpty() && candidates.isEmpty()) {
+            finish();
+        }
+    }
+
+    /** Queues the details of a contract, together with the contracts it may have deployed. */
+    private void examine(Deployment candidate) {
+        if (!examined.add(candidate.address)) {
+            return;
+        }
+        AccountState account =
+                contractAccounts.remove(ByteArrayWrapper.wrap(h256(candidate.address.toByteArray())));
+        if (account == null) {
+            return;
+        }
+
+        Contract contract = new Contract(candidate, account);
+        contracts.add(contract);
+        byte[] address = candidate.address.toByteArray();
+        need(new Target(NodeKind.DETAILS, address, null, null, contract));
+
+        // contracts deployed by contracts take addresses derived from the deployer nonce
+        long nonce = account.getNonce().longValue();
+        for (long i = 0; i < nonce; i++) {
+            candidates.add(
+                    new Deployment(
+                            TxUtil.calculateContractAddress(
+                                    address, BigInteger.valueOf(i)),
+                            candidate.vm,
+                            candidate.inception));
+        }
+    }
+
+    private void finish() {
+        if (!contractAccounts.isEmpty()) {
+            fail(contractAccounts.size() + " contracts were not found");
+            return;
+        }
+
+        flushBatches();
+        repository.importTrieNodes(
+                Map.of(ByteArrayWrapper.wrap(downloading.getStateRoot()), rootNode),
+                DatabaseType.STATE);
+        ByteArrayWrapper pivotHash = ByteArrayWrapper.wrap(downloading.getHash());
+        for (Contract contract : contracts) {
+            byte[] codeHash = contract.account.getCodeHash();
+            if (!ContractInfo.isPrecompiledContract(contract.address)
+                    && !Arrays.equals(codeHash, EMPTY_DATA_HASH)) {
+                repository.saveIndexedContractInformation(
+                        contract.address,
+                        ByteArrayWrapper.wrap(codeHash),
+                        contract.inception == null ? pivotHash : contract.inception,
+                        contract.vm,
+                        true);
+            }
+        }
+
+        if (chain.completeFastSync(downloading)) {
+            setPhase(Phase.COMPLETE);
+        } else {
+            fail("the world state of the pivot is not valid");
+        }
+    }
+
+    /**
+     * Gives up on the current pivot and agrees on a new one with the peers, unless too many pivots
+     * failed already.
+     */
+    private void fail(String reason) {
+        if (++failedPivots >= MAX_PIVOTS) {
+            abandon(reason);
+            return;
+        }
+
+        log.warn("<fast-sync pivot failed: {}, choosing a new pivot>", reason);
+        flushBatches();
+        synchronized (this) {
+            votes.clear();
+            pivotNumber = -1;
+        }
+        pivotRequested = 0;
+        setPhase(Phase.PIVOT);
+    }
+
+    /** Gives up on fast sync, the import then recovers the missing state by execution. */
+    private void abandon(String reason) {
+        log.error("<fast-sync failed: {}, falling back to block execution>", reason);
+        handOver();
+    }
+
+    /**
+     * Hands the import over to block execution. The blocks imported without execution are
+     * reverted first, since the execution needs the world state of the best block.
+     */
+    private void handOver() {
+        synchronized (chain) {
+            chain.revertToLastExecutedBlock();
+            setPhase(Phase.COMPLETE);
+        }
+    }
+
+    private void collectDeployments() {
+        Deployment deployment = deployments.poll();
+        while (deployment != null) {
+            known.add(deployment);
+            if (getPhase() == Phase.CONTRACTS) {
+                candidates.add(deployment);
+            }
+            deployment = deployments.poll();
+        }
+    }
+
+    /** Queues the given node for download, unless it is already available locally. */
+    private void need(Target t) {
+        if (missing.containsKey(t.key) || inFlight.containsKey(t.key)) {
+            return;
+        }
+        if (stored(t) != null) {
+            if (t.isRoot()) {
+                rootNode = stored(t);
+            }
+            local.add(t);
+        } else {
+            missing.put(t.key, t);
+        }
+    }
+
+    private byte[] stored(Target t) {
+        if (t.isRoot() && rootNode != null) {
+            return rootNode;
+        }
+        byte[] value = batches.get(t.kind.dbType).get(t.key);
+        return value != null ? value : repository.getTrieNode(t.key.toBytes(), t.kind.dbType);
+    }
+
+    private void process(TrieNodeWrapper response) {
+        ByteArrayWrapper key = response.getNodeKey();
+        Request request = inFlight.remove(key);
+        Target t = request != null ? request.target : missing.get(key);
+        if (request != null) {
+            release(request.peerId);
+        }
+        if (t == null || t.kind.dbType != response.getDbType()) {
+            // unsolicited or already received
+            return;
+        }
+
+        if (!accept(t, response.getNodeValue())) {
+            log.debug("<fast-sync invalid node from peer={}>", response.getDisplayId());
+            missing.put(key, t);
+            backoff.put(response.getPeerId(), System.currentTimeMillis() + PEER_BACKOFF_MS);
+            return;
+        }
+        missing.remove(key);
+
+        // the nodes below a world state node are sent along with it
+        Map<ByteArrayWrapper, byte[]> referenced = new HashMap<>(response.getReferencedNodes());
+        boolean progress = t.kind == NodeKind.STATE;
+        while (progress && !referenced.isEmpty()) {
+            progress = false;
+            Iterator<Map.Entry<ByteArrayWrapper, byte[]>> it = referenced.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<ByteArrayWrapper, byte[]> node = it.next();
+                Target child = missing.get(node.getKey());
+                if (child != null && child.kind == NodeKind.STATE) {
+                    it.remove();
+                    if (accept(child, node.getValue())) {
+                        missing.remove(node.getKey());
+                        progress = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /** Validates, stores and expands a downloaded node. */
+    private boolean accept(Target t, byte[] value) {
+        if (value == null || !isValid(t, value)) {
+            return false;
+        }
+        if (t.isRoot()) {
+            rootNode = value;
+        } else {
+            batches.get(t.kind.dbType).put(t.key, value);
+            batchSize++;
+        }
+        downloaded++;
+        expand(t, value);
+        return true;
+    }
+
+    private static boolean isValid(Target t, byte[] value) {
+        try {
+            switch (t.kind) {
+                case DETAILS:
+                    return isValidDetails(t.contract, value);
+                case GRAPH_ROOTS:
+                    RLPList pair = (RLPList) RLP.decode2(value).get(0);
+                    return pair.size() == 2
+                            && Arrays.equals(
+                                    h256(
+                                            ByteUtil.merge(
+                                                    pair.get(0).getRLPData(),
+                                                    pair.get(1).getRLPData())),
+                                    t.hash);
+                default:
+                    return Arrays.equals(h256(value), t.hash);
+            }
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /** The details carry the contract address and the code matching the account state. */
+    private static boolean isValidDetails(Contract contract, byte[] value) {
+        RLPList details = (RLPList) RLP.decode2(value).get(0);
+        if (details.size() != 5
+                || !Arrays.equals(details.get(0).getRLPData(), contract.address.toByteArray())) {
+            return false;
+        }
+
+        byte[] codeHash = contract.account.getCodeHash();
+        if (Arrays.equals(codeHash, EMPTY_DATA_HASH)) {
+            return true;
+        }
+        RLPElement code = details.get(4);
+        if (code instanceof RLPList) {
+            for (RLPElement element : (RLPList) code) {
+                if (Arrays.equals(h256(element.getRLPData()), codeHash)) {
+                    return true;
+                }
+            }
+            return false;
+        } else {
+            return Arrays.equals(h256(code.getRLPData()), codeHash);
+        }
+    }
+
+    /** Queues the nodes referenced by the given node. */
+    private void expand(Target t, byte[] value) {
+        Contract contract = t.contract;
+        switch (t.kind) {
+            case STATE:
+                TrieImpl.decodeNode(
+                        value,
+                        (path, hash) ->
+                                need(
+                                        new Target(
+                                                NodeKind.STATE,
+                                                hash,
+                                                null,
+                                                ByteUtil.merge(t.path, path),
+                                                null)),
+                        (path, account) -> addAccount(ByteUtil.merge(t.path, path), account));
+                break;
+            case STORAGE:
+                TrieImpl.decodeNode(
+                        value,
+                        (path, hash) ->
+                                need(
+                                        new Target(
+                                                NodeKind.STORAGE,
+                                                hash,
+                                                contract.storageSubKey,
+                                                null,
+                                                contract)),
+                        (path, storage) -> {});
+                break;
+            case DETAILS:
+                RLPList details = (RLPList) RLP.decode2(value).get(0);
+                byte[] external = details.get(1).getRLPData();
+                contract.external = external != null && external.length > 0;
+
+                byte[] root = contract.account.getStateRoot();
+                if (contract.vm == InternalVmType.AVM) {
+                    need(
+                            new Target(
+                                    NodeKind.GRAPH_ROOTS,
+                                    root,
+                                    contract.graphSubKey,
+                                    null,
+                                    contract));
+                } else if (contract.external
+                        && !Arrays.equals(root, ConstantUtil.EMPTY_TRIE_HASH)) {
+                    needStorage(root, contract);
+                }
+                break;
+            case GRAPH_ROOTS:
+                RLPList pair = (RLPList) RLP.decode2(value).get(0);
+                byte[] graphHash = pair.get(1).getRLPData();
+                if (!Arrays.equals(graphHash, EMPTY_DATA_HASH)) {
+                    need(
+                            new Target(
+                                    NodeKind.GRAPH,
+                                    graphHash,
+                                    contract.graphSubKey,
+                                    null,
+                                    contract));
+                }
+                byte[] storageRoot = pair.get(0).getRLPData();
+                if (contract.external
+                        && !Arrays.equals(storageRoot, ConstantUtil.EMPTY_TRIE_HASH)) {
+                    needStorage(storageRoot, contract);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void needStorage(byte[] root, Contract contract) {
+        need(new Target(NodeKind.STORAGE, root, contract.storageSubKey, null, contract));
+    }
+
+    /** Remembers the accounts with code or storage, to be matched with their addresses later. */
+    private void addAccount(byte[] path, byte[] encoding) {
+        int length = path.length;
+        if (length > 0 && path[length - 1] == 16) {
+            // the terminator of the leaf key
+            length--;
+        }
+        if (length != 2 * 32) {
+            return;
+        }
+        byte[] hashedAddress = new byte[32];
+        for (int i = 0; i < hashedAddress.length; i++) {
+            hashedAddress[i] = (byte) ((path[2 * i] << 4) | path[2 * i + 1]);
+        }
+
+        AccountState account = new AccountState(encoding);
+        if (!Arrays.equals(account.getCodeHash(), EMPTY_DATA_HASH)
+                || !Arrays.equals(account.getStateRoot(), ConstantUtil.EMPTY_TRIE_HASH)) {
+            contractAccounts.put(ByteArrayWrapper.wrap(hashedAddress), account);
+        }
+    }
+
+    /**
+     * Requeues the requests that were not answered in time.
+     *
+     * @return a node that was requested too many times, or {@code null} if none
+     */
+    private Target expire(long now) {
+        Iterator<Request> it = inFlight.values().iterator();
+        while (it.hasNext()) {
+            Request request = it.next();
+            if (now - request.sentAt > REQUEST_TIMEOUT_MS) {
+                it.remove();
+                release(request.peerId);
+                backoff.put(request.peerId, now + PEER_BACKOFF_MS);
+
+                Target t = request.target;
+                if (++t.attempts > MAX_ATTEMPTS) {
+                    return t;
+                }
+                missing.put(t.key, t);
+            }
+        }
+        return null;
+    }
+
+    /** Distributes the missing nodes to the peers in turns, up to a window per peer. */
+    private void sendRequests(long now) {
+        if (missing.isEmpty()) {
+            return;
+        }
+        List<INode> peers = new ArrayList<>();
+        for (INode node : p2pMgr.getActiveNodes().values()) {
+            Long until = backoff.get(node.getIdHash());
+            if (node.getBestBlockNumber() >= downloading.getNumber()
+                    && (until == null || until <= now)) {
+                peers.add(node);
+            }
+        }
+
+        Iterator<Target> it = missing.values().iterator();
+        boolean sent = true;
+        while (sent && it.hasNext()) {
+            sent = false;
+            for (INode node : peers) {
+                if (!it.hasNext()) {
+                    break;
+                }
+                int id = node.getIdHash();
+                if (peerLoad.getOrDefault(id, 0) >= REQUESTS_PER_PEER) {
+                    continue;
+                }
+                Target t = it.next();
+                it.remove();
+
+                // the peers return the world state nodes below the requested one, but the other
+                // tries are stored under modified keys so their nodes are requested one by one
+                int limit = t.kind == NodeKind.STATE ? 0 : 1;
+                p2pMgr.send(
+                        id,
+                        node.getIdShort(),
+                        new RequestTrieData(t.key.toBytes(), t.kind.dbType, limit));
+                inFlight.put(t.key, new Request(t, id, now));
+                peerLoad.merge(id, 1, Integer::sum);
+                sent = true;
+            }
+        }
+    }
+
+    private void release(int peerId) {
+        peerLoad.computeIfPresent(peerId, (id, load) -> load > 1 ? load - 1 : null);
+    }
+
+    private void flushBatches() {
+        for (Map.Entry<DatabaseType, Map<ByteArrayWrapper, byte[]>> batch : batches.entrySet()) {
+            if (!batch.getValue().isEmpty()) {
+                repository.importTrieNodes(batch.getValue(), batch.getKey());
+                batch.getValue().clear();
+            }
+        }
+        batchSize = 0;
+    }
+
+    /** A node to be downloaded. */
+    private static final class Target {
+        private final NodeKind kind;
+        private final byte[] hash;
+        private final ByteArrayWrapper key;
+        /** The path of a world state node from the root, as nibbles. */
+        private final byte[] path;
+        private final Contract contract;
+        private int attempts = 0;
+
+        private Target(NodeKind kind, byte[] hash, byte[] subKey, byte[] path, Contract contract) {
+            this.kind = kind;
+            this.hash = hash;
+            this.key =
+                    ByteArrayWrapper.wrap(
+                            subKey == null ? hash : ByteUtil.xorAlignRight(hash, subKey));
+            this.path = path;
+            this.contract = contract;
+        }
+
+        private boolean isRoot() {
+            return kind == NodeKind.STATE && path.length == 0;
+        }
+    }
+
+    private static final class Request {
+        private final Target target;
+        private final int peerId;
+        private final long sentAt;
+
+        private Request(Target target, int peerId, long sentAt) {
+            this.target = target;
+            this.peerId = peerId;
+            this.sentAt = sentAt;
+        }
+    }
+
+    /** A contract that may have been deployed, with the block where it was deployed if known. */
+    private static final class Deployment {
+        private final AionAddress address;
+        private final InternalVmType vm;
+        private final ByteArrayWrapper inception;
+
+        private Deployment(AionAddress address, InternalVmType vm, ByteArrayWrapper inception) {
+            this.address = address;
+            this.vm = vm;
+            this.inception = inception;
+        }
+    }
+
+    private static final class Contract {
+        private final AionAddress address;
+        private final InternalVmType vm;
+        private final ByteArrayWrapper inception;
+        private final AccountState account;
+        private final byte[] storageSubKey;
+        private final byte[] graphSubKey;
+        private boolean external = false;
+
+        private Contract(Deployment deployment, AccountState account) {
+            this.address = deployment.address;
+            this.vm = deployment.vm;
+            this.inception = deployment.inception;
+            this.account = account;
+            this.storageSubKey = AionContractDetailsImpl.getStorageSubKey(address);
+            this.graphSubKey = AionContractDetailsImpl.getObjectGraphSubKey(address);
+        }
+    }
+}
@@ -74,8 +74,11 @@ public final class SyncMgr {
     private Thread syncFilter;
     private Thread syncGs;
     private Thread syncSs = null;
+    private Thread syncFs = null;
 
     private BlockHeaderValidator blockHeaderValidator;
+    private final BlockPreValidator preValidator;
+    private final FastSyncManager fastSyncMgr;
     private volatile long timeUpdated = 0;
 
     public SyncMgr(final AionBlockchainImpl _chain,
@@ -83,7 +86,8 @@ public final class SyncMgr {
         final IEventMgr _evtMgr,
         final boolean _showStatus,
         final Set<StatsType> showStatistics,
-        final int maxActivePeers) {
+        final int maxActivePeers,
+        final boolean fastSync) {
 
         p2pMgr = _p2pMgr;
         chain = _chain;
@@ -119,6 +123,18 @@ public final class SyncMgr {
                     sortedBlocks),
                 "sync-filter");
         syncFilter.start();
+        // validates blocks ahead of their import
+        int validationThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        preValidator =
+            new BlockPreValidator(chain, validationThreads, 4 * validationThreads, log);
+        // fast sync is only used to bootstrap an empty database
+        if (fastSync && chain.getBestBlock().getNumber() == 0) {
+            fastSyncMgr = new FastSyncManager(chain, p2pMgr, start, log);
+            syncFs = new Thread(fastSyncMgr, "sync-fs");
+            syncFs.start();
+        } else {
+            fastSyncMgr = null;
+        }
         syncIb =
             new Thread(
                 new TaskImportBlocks(
@@ -129,7 +145,9 @@ public final class SyncMgr {
                     stats,
                     sortedBlocks,
                     importedBlockHashes,
-                    syncHeaderRequestManager),
+                    syncHeaderRequestManager,
+                    preValidator,
+                    fastSyncMgr),
                 "sync-ib");
         syncIb.start();
         syncGs = new Thread(new TaskGetStatus(start, p2pMgr, stats, log), "sync-gs");
@@ -364,6 +382,8 @@ public final class SyncMgr {
         interruptAndWait(syncGb, 10000);
         interruptAndWait(syncFilter, 10000);
         interruptAndWait(syncIb, 10000);
+        interruptAndWait(syncFs, 10000);
+        preValidator.shutdown();
         interruptAndWait(syncGs, 10000);
         interruptAndWait(syncSs, 10000);
     }
@@ -383,4 +403,9 @@ public final class SyncMgr {
     public SyncStats getSyncStats() {
         return this.stats;
     }
+
+    /** Returns the fast sync manager, or {@code null} when fast sync is not in use. */
+    public FastSyncManager getFastSyncManager() {
+        return fastSyncMgr;
+    }
 }
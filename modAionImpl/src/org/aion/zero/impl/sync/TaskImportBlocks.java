@@ -43,6 +43,11 @@ final class TaskImportBlocks implements Runnable {
 
     private final SyncHeaderRequestManager syncHeaderRequestManager;
 
+    private final BlockPreValidator preValidator;
+
+    /** Imports the blocks while fast sync is in progress, {@code null} when not enabled. */
+    private final FastSyncManager fastSyncMgr;
+
     private final Logger log;
     private final Logger surveyLog;
 
@@ -62,7 +67,9 @@ final class TaskImportBlocks implements Runnable {
             final SyncStats _syncStats,
             final PriorityBlockingQueue<BlocksWrapper> sortedBlocks,
             final Map<ByteArrayWrapper, Object> _importedBlockHashes,
-            final SyncHeaderRequestManager syncHeaderRequestManager) {
+            final SyncHeaderRequestManager syncHeaderRequestManager,
+            final BlockPreValidator preValidator,
+            final FastSyncManager fastSyncMgr) {
         this.log = syncLog;
         this.surveyLog = surveyLog;
         this.chain = _chain;
@@ -71,6 +78,8 @@ final class TaskImportBlocks implements Runnable {
         this.sortedBlocks = sortedBlocks;
         this.importedBlockHashes = _importedBlockHashes;
         this.syncHeaderRequestManager = syncHeaderRequestManager;
+        this.preValidator = preValidator;
+        this.fastSyncMgr = fastSyncMgr;
     }
 
     @Override
@@ -213,50 +222,53 @@ final class TaskImportBlocks implements Runnable {
         SyncMode returnMode = syncMode;
 
         startTime = System.nanoTime();
-        for (Block b : batch) {
-            try {
-                importResult = importBlock(b, displayId, syncMode);
-
-                if (importResult.isStored()) {
-                    importedBlockHashes.put(ByteArrayWrapper.wrap(b.getHash()), true);
-                    this.syncStats.updatePeerBlocks(displayId, 1, BlockType.IMPORTED);
-
-                    if (last <= b.getNumber()) {
-                        last = b.getNumber() + 1;
+        try (BlockPreValidator.Batch validation = preValidator.validate(batch)) {
+            for (Block b : batch) {
+                validation.awaitNext();
+                try {
+                    importResult = importBlock(b, displayId, syncMode);
+
+                    if (importResult.isStored()) {
+                        importedBlockHashes.put(ByteArrayWrapper.wrap(b.getHash()), true);
+                        this.syncStats.updatePeerBlocks(displayId, 1, BlockType.IMPORTED);
+
+                        if (last <= b.getNumber()) {
+                            last = b.getNumber() + 1;
+                        }
                     }
-                }
-            } catch (Exception e) {
-                log.error("<import-block throw> ", e);
+                } catch (Exception e) {
+                    log.error("<import-block throw> ", e);
 
-                if (e.getMessage() != null && e.getMessage().contains("No space left on device")) {
-                    log.error("Shutdown due to lack of disk space.", e);
-                    System.exit(SystemExitCodes.OUT_OF_DISK_SPACE);
+                    if (e.getMessage() != null && e.getMessage().contains("No space left on device")) {
+                        log.error("Shutdown due to lack of disk space.", e);
+                        System.exit(SystemExitCodes.OUT_OF_DISK_SPACE);
+                    }
+                    break;
                 }
-                break;
-            }
 
-            // decide whether to change mode based on the first
-            if (b == batch.get(0)) {
-                first = b.getNumber();
+                // decide whether to change mode based on the first
+                if (b == batch.get(0)) {
+                    first = b.getNumber();
 
-                // if any block results in NO_PARENT, all subsequent blocks will too
-                if (importResult == ImportResult.NO_PARENT) {
-                    storePendingBlocks(batch, displayId);
+                    // if any block results in NO_PARENT, all subsequent blocks will too
+                    if (importResult == ImportResult.NO_PARENT) {
+                        storePendingBlocks(batch, displayId);
 
-                    // check if it is below the current importable blocks
-                    if (b.getNumber() <= getBestBlockNumber() + 1) {
+                        // check if it is below the current importable blocks
+                        if (b.getNumber() <= getBestBlockNumber() + 1) {
+                            duration = System.nanoTime() - startTime;
+                            surveyLog.info("Import Stage 4.A: import received batch, duration = {} ns.", duration);
+                            return BACKWARD;
+                        }
                         duration = System.nanoTime() - startTime;
                         surveyLog.info("Import Stage 4.A: import received batch, duration = {} ns.", duration);
-                        return BACKWARD;
-                    }
-                    duration = System.nanoTime() - startTime;
-                    surveyLog.info("Import Stage 4.A: import received batch, duration = {} ns.", duration);
-                    return returnMode;
-                } else if (importResult.isStored()) {
-                    if (syncMode == BACKWARD) {
-                        returnMode = FORWARD;
-                    } else if (syncMode == FORWARD && importResult.isBest()) {
-                        returnMode = NORMAL;
+                        return returnMode;
+                    } else if (importResult.isStored()) {
+                        if (syncMode == BACKWARD) {
+                            returnMode = FORWARD;
+                        } else if (syncMode == FORWARD && importResult.isBest()) {
+                            returnMode = NORMAL;
+                        }
                     }
                 }
             }
@@ -292,7 +304,11 @@ final class TaskImportBlocks implements Runnable {
     private ImportResult importBlock(Block b, String displayId, SyncMode mode) {
         ImportResult importResult;
         long t1 = System.nanoTime();
-        importResult = this.chain.tryToConnect(b);
+        if (fastSyncMgr != null && fastSyncMgr.isActive()) {
+            importResult = fastSyncMgr.importBlock(b);
+        } else {
+            importResult = this.chain.tryToConnect(b);
+        }
         long import_time = (System.nanoTime() - t1);
         long ONE_SECOND = 1_000L * DIVISOR_MS;
         if (log.isDebugEnabled()) {
@@ -411,31 +427,35 @@ final class TaskImportBlocks implements Runnable {
                 }
 
                 startTime = System.nanoTime();
-                for (Block b : batchFromDisk) {
-                    try {
-                        importResult = importBlock(b, "STORAGE", givenMode);
-
-                        if (importResult.isStored()) {
-                            importedBlockHashes.put(ByteArrayWrapper.wrap(b.getHash()), true);
-
-                            batch++;
-
-                            if (last == b.getNumber()) {
-                                // can try importing more
-                                last = b.getNumber() + 1;
+                try (BlockPreValidator.Batch validation =
+                        preValidator.validate(batchFromDisk)) {
+                    for (Block b : batchFromDisk) {
+                        validation.awaitNext();
+                        try {
+                            importResult = importBlock(b, "STORAGE", givenMode);
+
+                            if (importResult.isStored()) {
+                                importedBlockHashes.put(ByteArrayWrapper.wrap(b.getHash()), true);
+
+                                batch++;
+
+                                if (last == b.getNumber()) {
+                                    // can try importing more
+                                    last = b.getNumber() + 1;
+                                }
+                            } else {
+                                // do not delete queue from storage
+                                importedQueues.remove(entry.getKey());
+                                // stop importing this queue
+                                break;
+                            }
+                        } catch (Exception e) {
+                            log.error("<import-block throw> ", e);
+                            if (e.getMessage() != null
+                                    && e.getMessage().contains("No space left on device")) {
+                                log.error("Shutdown due to lack of disk space.", e);
+                                System.exit(SystemExitCodes.OUT_OF_DISK_SPACE);
                             }
-                        } else {
-                            // do not delete queue from storage
-                            importedQueues.remove(entry.getKey());
-                            // stop importing this queue
-                            break;
-                        }
-                    } catch (Exception e) {
-                        log.error("<import-block throw> ", e);
-                        if (e.getMessage() != null
-                                && e.getMessage().contains("No space left on device")) {
-                            log.error("Shutdown due to lack of disk space.", e);
-                            System.exit(SystemExitCodes.OUT_OF_DISK_SPACE);
                         }
                     }
                 }
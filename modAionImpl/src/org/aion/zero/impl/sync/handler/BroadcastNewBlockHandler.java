@@ -32,6 +32,11 @@ public final class BroadcastNewBlockHandler extends Handler {
         this.p2pMgr = _p2pMgr;
     }
 
+    @Override
+    public Priority getPriority() {
+        return Priority.HIGH;
+    }
+
     @Override
     public void receive(int _nodeIdHashcode, String _displayId, final byte[] _msgBytes) {
         // for runtime survey information
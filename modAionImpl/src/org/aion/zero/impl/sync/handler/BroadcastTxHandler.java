@@ -75,6 +75,11 @@ public final class BroadcastTxHandler extends Handler {
         }
     }
 
+    @Override
+    public Priority getPriority() {
+        return Priority.LOW;
+    }
+
     @Override
     public final void receive(int _nodeIdHashcode, String _displayId, final byte[] _msgBytes) {
         if (isSyncOnlyNode) return;
@@ -2,10 +2,10 @@ package org.aion.zero.impl.sync.handler;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.aion.mcf.blockchain.Block;
 import org.aion.p2p.Ctrl;
 import org.aion.p2p.Handler;
 import org.aion.p2p.IP2pMgr;
@@ -70,7 +70,21 @@ public final class ReqBlocksBodiesHandler extends Handler {
             // results
             List<byte[]> blockBodies = new ArrayList<>();
 
-            // read from cache, then block store
+            // read from cache, then load the missing blocks from the block store in one batch
+            List<byte[]> missing = new ArrayList<>();
+            for (byte[] hash : hashes) {
+                if (!cache.containsKey(ByteArrayWrapper.wrap(hash))) {
+                    missing.add(hash);
+                }
+            }
+            Map<ByteArrayWrapper, byte[]> loaded = new HashMap<>();
+            if (!missing.isEmpty()) {
+                List<byte[]> bodies = blockchain.getEncodedBodiesByHashes(missing);
+                for (int i = 0; i < missing.size(); i++) {
+                    loaded.put(ByteArrayWrapper.wrap(missing.get(i)), bodies.get(i));
+                }
+            }
+
             int out = 0;
             for (byte[] hash : hashes) {
 
@@ -83,11 +97,11 @@ public final class ReqBlocksBodiesHandler extends Handler {
                 if (blockBytes != null) {
                     blockBytesForadd = blockBytes;
                 } else {
-                    Block block = blockchain.getBlockByHash(hash);
+                    byte[] body = loaded.get(ByteArrayWrapper.wrap(hash));
 
-                    if (block != null) {
-                        blockBytesForadd = block.getEncodedBody();
-                        cache.put(ByteArrayWrapper.wrap(hash), block.getEncodedBody());
+                    if (body != null) {
+                        blockBytesForadd = body;
+                        cache.put(ByteArrayWrapper.wrap(hash), body);
                     } else {
                         // not found
                         break;
@@ -32,6 +32,11 @@ public final class ResStatusHandler extends Handler {
         this.syncMgr = _syncMgr;
     }
 
+    @Override
+    public Priority getPriority() {
+        return Priority.HIGH;
+    }
+
     @Override
     public void receive(int _nodeIdHashcode, String _displayId, final byte[] _msgBytes) {
         // for runtime survey information
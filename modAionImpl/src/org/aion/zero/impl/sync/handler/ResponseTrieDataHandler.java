@@ -33,6 +33,11 @@ public final class ResponseTrieDataHandler extends Handler {
         this.states = states;
     }
 
+    @Override
+    public Priority getPriority() {
+        return Priority.HIGH;
+    }
+
     @Override
     public void receive(int peerId, String displayId, final byte[] message) {
         if (message == null || message.length == 0) {
@@ -47,7 +52,10 @@ public final class ResponseTrieDataHandler extends Handler {
                 this.log.debug("<res-trie response={} peer={}>", response, displayId);
             }
 
-            states.add(new TrieNodeWrapper(peerId, displayId, response));
+            // the queue is bounded to limit the memory used by unsolicited responses
+            if (!states.offer(new TrieNodeWrapper(peerId, displayId, response))) {
+                this.log.debug("<res-trie queue full, dropped response from peer={}>", displayId);
+            }
         } else {
             this.log.error(
                     "<res-trie decode-error msg-bytes={} peer={}>", message.length, displayId);
@@ -10,6 +10,7 @@ import org.aion.p2p.Ver;
 import org.aion.rlp.RLP;
 import org.aion.rlp.RLPElement;
 import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPWriter;
 import org.aion.zero.impl.sync.Act;
 
 /** @author chris */
@@ -27,12 +28,11 @@ public final class BroadcastTx extends Msg {
      */
     @Override
     public byte[] encode() {
-        List<byte[]> encodedTx = new ArrayList<>();
+        RLPWriter writer = new RLPWriter(txl.size() + 1).beginList();
         for (AionTransaction tx : txl) {
-            encodedTx.add(tx.getEncoded());
+            writer.addEncoded(tx.getEncoded());
         }
-
-        return RLP.encodeList(encodedTx.toArray(new byte[encodedTx.size()][]));
+        return writer.endList().toByteArray();
     }
 
     /* return the encodedData of the Transaction list, the caller function need to cast the return byte[] array
@@ -11,6 +11,7 @@ import org.aion.p2p.V1Constants;
 import org.aion.p2p.Ver;
 import org.aion.rlp.RLP;
 import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPWriter;
 import org.aion.zero.impl.sync.Act;
 
 /**
@@ -147,13 +148,17 @@ public final class RequestBlocks extends Msg {
 
     @Override
     public byte[] encode() {
-        return RLP.encodeList(
-                RLP.encodeByte(isNumber ? (byte) 1 : (byte) 0),
-                isNumber
-                        ? RLP.encode(startHeight) //  encodeLong has non-standard encoding
-                        : RLP.encodeElement(startHash),
-                RLP.encodeInt(count),
-                RLP.encodeByte(isDescending ? (byte) 1 : (byte) 0));
+        RLPWriter writer = new RLPWriter().beginList().addByte(isNumber ? (byte) 1 : (byte) 0);
+        if (isNumber) {
+            //  encodeLong has non-standard encoding
+            writer.addEncoded(RLP.encode(startHeight));
+        } else {
+            writer.addElement(startHash);
+        }
+        return writer.addInt(count)
+                .addByte(isDescending ? (byte) 1 : (byte) 0)
+                .endList()
+                .toByteArray();
     }
 
     public boolean isNumber() {
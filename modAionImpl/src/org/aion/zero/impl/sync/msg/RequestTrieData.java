@@ -11,6 +11,7 @@ import org.aion.p2p.V1Constants;
 import org.aion.p2p.Ver;
 import org.aion.rlp.RLP;
 import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPWriter;
 import org.aion.util.conversions.Hex;
 import org.aion.zero.impl.sync.Act;
 import org.aion.zero.impl.sync.DatabaseType;
@@ -109,10 +110,13 @@ public final class RequestTrieData extends Msg {
 
     @Override
     public byte[] encode() {
-        return RLP.encodeList(
-                RLP.encodeElement(nodeKey),
-                RLP.encodeString(dbType.toString()),
-                RLP.encodeInt(limit));
+        return new RLPWriter()
+                .beginList()
+                .addElement(nodeKey)
+                .addString(dbType.toString())
+                .addInt(limit)
+                .endList()
+                .toByteArray();
     }
 
     /**
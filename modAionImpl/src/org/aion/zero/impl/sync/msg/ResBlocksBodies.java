@@ -5,9 +5,8 @@ import java.util.List;
 import org.aion.p2p.Ctrl;
 import org.aion.p2p.Msg;
 import org.aion.p2p.Ver;
-import org.aion.rlp.RLP;
-import org.aion.rlp.RLPElement;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
+import org.aion.rlp.RLPWriter;
 import org.aion.zero.impl.sync.Act;
 
 /**
@@ -24,11 +23,13 @@ public final class ResBlocksBodies extends Msg {
     }
 
     public static ResBlocksBodies decode(final byte[] _msgBytes) {
-        RLPList paramsList = (RLPList) RLP.decode2(_msgBytes).get(0);
+        // the bodies are forwarded encoded, so they are only located and copied
         List<byte[]> blocksBodies = new ArrayList<>();
-        for (RLPElement aParamsList : paramsList) {
-            RLPList rlpData = ((RLPList) aParamsList);
-            blocksBodies.add(rlpData.getRLPData());
+        for (RLPView body : RLPView.wrap(_msgBytes)) {
+            if (!body.isList()) {
+                throw new IllegalArgumentException("The block body is not a list.");
+            }
+            blocksBodies.add(body.getEncoded());
         }
         return new ResBlocksBodies(blocksBodies);
     }
@@ -39,6 +40,10 @@ public final class ResBlocksBodies extends Msg {
 
     @Override
     public byte[] encode() {
-        return RLP.encodeList(this.blocksBodies.toArray(new byte[this.blocksBodies.size()][]));
+        RLPWriter writer = new RLPWriter(blocksBodies.size() + 1).beginList();
+        for (byte[] body : this.blocksBodies) {
+            writer.addEncoded(body);
+        }
+        return writer.endList().toByteArray();
     }
 }
@@ -9,6 +9,7 @@ import org.aion.p2p.Ver;
 import org.aion.rlp.RLP;
 import org.aion.rlp.RLPElement;
 import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPWriter;
 import org.aion.zero.impl.sync.Act;
 import org.aion.zero.impl.types.BlockUtil;
 import org.slf4j.Logger;
@@ -48,11 +49,10 @@ public final class ResBlocksHeaders extends Msg {
 
     @Override
     public byte[] encode() {
-        List<byte[]> tempList = new ArrayList<>();
+        RLPWriter writer = new RLPWriter(blockHeaders.size() + 1).beginList();
         for (BlockHeader blockHeader : this.blockHeaders) {
-            tempList.add(blockHeader.getEncoded());
+            writer.addEncoded(blockHeader.getEncoded());
         }
-        byte[][] bytesArray = tempList.toArray(new byte[tempList.size()][]);
-        return RLP.encodeList(bytesArray);
+        return writer.endList().toByteArray();
     }
 }
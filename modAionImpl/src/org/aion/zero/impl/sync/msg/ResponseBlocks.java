@@ -10,6 +10,7 @@ import org.aion.p2p.Ver;
 import org.aion.rlp.RLP;
 import org.aion.rlp.RLPElement;
 import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPWriter;
 import org.aion.zero.impl.sync.Act;
 import org.aion.zero.impl.types.BlockUtil;
 
@@ -74,15 +75,11 @@ public final class ResponseBlocks extends Msg {
 
     @Override
     public byte[] encode() {
-        byte[][] toEncode = new byte[this.blocks.size()][];
-
-        int i = 0;
+        RLPWriter writer = new RLPWriter(blocks.size() + 1).beginList();
         for (Block block : blocks) {
-            toEncode[i] = block.getEncoded();
-            i++;
+            writer.addEncoded(block.getEncoded());
         }
-
-        return RLP.encodeList(toEncode);
+        return writer.endList().toByteArray();
     }
 
     /**
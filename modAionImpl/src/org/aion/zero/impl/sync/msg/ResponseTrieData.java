@@ -15,6 +15,7 @@ import org.aion.p2p.Ver;
 import org.aion.rlp.RLP;
 import org.aion.rlp.RLPElement;
 import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPWriter;
 import org.aion.util.types.ByteArrayWrapper;
 import org.aion.zero.impl.sync.Act;
 import org.aion.zero.impl.sync.DatabaseType;
@@ -183,11 +184,16 @@ public final class ResponseTrieData extends Msg {
 
     @Override
     public byte[] encode() {
-        return RLP.encodeList(
-                RLP.encodeElement(nodeKey.toBytes()),
-                RLP.encodeElement(nodeValue),
-                RLP.encodeList(encodeReferencedNodes(referencedNodes)),
-                RLP.encodeString(dbType.toString()));
+        RLPWriter writer =
+                new RLPWriter(referencedNodes.size() * 3 + 5)
+                        .beginList()
+                        .addElement(nodeKey.toBytes())
+                        .addElement(nodeValue)
+                        .beginList();
+        for (Map.Entry<ByteArrayWrapper, byte[]> e : referencedNodes.entrySet()) {
+            writer.beginList().addElement(e.getKey().toBytes()).addElement(e.getValue()).endList();
+        }
+        return writer.endList().addString(dbType.toString()).endList().toByteArray();
     }
 
     /**
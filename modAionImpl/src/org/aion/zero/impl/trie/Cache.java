@@ -4,7 +4,6 @@ import static org.aion.rlp.Value.fromRlpEncoded;
 import static org.aion.util.types.ByteArrayWrapper.wrap;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -14,6 +13,10 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.aion.crypto.HashUtil;
 import org.aion.db.impl.ByteArrayKeyValueStore;
 import org.aion.log.AionLoggerFactory;
@@ -22,24 +25,77 @@ import org.aion.rlp.Value;
 import org.aion.util.types.ByteArrayWrapper;
 import org.slf4j.Logger;
 
-/** Cache class */
+/**
+ * Node cache in front of the trie database.
+ *
+ * <p>Dirty nodes are pinned in memory until they are written out by {@link #commit(boolean)}, as is
+ * every node of a cache without a database. Clean nodes, which can always be read back from the
+ * database, are kept in a bounded cache
+ * weighted by their encoded size and evicted in least recently used order. The clean cache is
+ * split into independently locked segments so that concurrent readers do not serialize on a
+ * single monitor.
+ *
+ * <p>The {@link TrieImpl} objects sharing this cache coordinate through {@link #getLock()}: reads
+ * hold the read lock and may run in parallel, modifications hold the write lock.
+ */
 public class Cache {
 
     private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
 
+    /** Default upper bound for the encoded size of the clean nodes held by one cache. */
+    public static final long DEFAULT_CLEAN_CACHE_BYTES = 32L * 1024 * 1024;
+
+    // approximate per entry overhead of the map entry, wrapper and node objects
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final int SEGMENTS = 16;
+
     private ByteArrayKeyValueStore dataSource;
-    private Map<ByteArrayWrapper, Node> nodes = new LinkedHashMap<>();
+    private final long maxCleanBytes;
+    private final Map<ByteArrayWrapper, Node> pinnedNodes = new ConcurrentHashMap<>();
+    private final Segment[] cleanNodes = new Segment[SEGMENTS];
     private Set<ByteArrayWrapper> removedNodes = new HashSet<>();
-    private boolean isDirty;
+    private volatile boolean isDirty;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /** Lookups which had to go to the database, counted per thread over all the caches. */
+    private static final ThreadLocal<long[]> threadMisses =
+            ThreadLocal.withInitial(() -> new long[1]);
 
     public Cache(ByteArrayKeyValueStore dataSource) {
+        this(dataSource, DEFAULT_CLEAN_CACHE_BYTES);
+    }
+
+    /**
+     * @param dataSource the database backing the trie, may be {@code null}
+     * @param maxCleanBytes upper bound for the weight of clean nodes held in memory
+     */
+    public Cache(ByteArrayKeyValueStore dataSource, long maxCleanBytes) {
+        if (maxCleanBytes < 0) {
+            throw new IllegalArgumentException("The cache size must not be negative.");
+        }
         this.dataSource = dataSource;
+        this.maxCleanBytes = maxCleanBytes;
+        long segmentBytes = maxCleanBytes / SEGMENTS;
+        for (int i = 0; i < SEGMENTS; i++) {
+            cleanNodes[i] = new Segment(segmentBytes);
+        }
+    }
+
+    /** The lock shared by all tries operating on this cache. */
+    public ReadWriteLock getLock() {
+        return lock;
     }
 
     public synchronized void markRemoved(byte[] key) {
         ByteArrayWrapper keyW = ByteArrayWrapper.wrap(key);
         removedNodes.add(keyW);
-        nodes.remove(keyW);
+        pinnedNodes.remove(keyW);
+        segmentFor(keyW).remove(keyW);
     }
 
     /**
@@ -49,12 +105,14 @@ public class Cache {
      * @return keccak hash of RLP encoded node if length &gt; 32 otherwise return node itself
      */
     public synchronized Object put(Object o) {
-        Value value = new Value(o);
+        // reuse the given value so that an encoding computed by the caller is not repeated
+        Value value = o instanceof Value ? (Value) o : new Value(o);
         byte[] enc = value.encode();
         if (enc.length >= 32) {
-            byte[] sha = HashUtil.h256(value.encode());
+            byte[] sha = HashUtil.h256(enc);
             ByteArrayWrapper key = wrap(sha);
-            this.nodes.put(key, new Node(value, true));
+            this.pinnedNodes.put(key, new Node(value, true));
+            segmentFor(key).remove(key);
             this.removedNodes.remove(key);
             this.isDirty = true;
 
@@ -63,66 +121,156 @@ public class Cache {
         return value;
     }
 
-    public synchronized Value get(byte[] key) {
+    /**
+     * Adds the node to the cache as-is. Dirty nodes are pinned until the next commit, clean nodes
+     * are subject to eviction.
+     */
+    synchronized void putNode(ByteArrayWrapper key, Node node) {
+        if (node.isDirty() || dataSource == null) {
+            pinnedNodes.put(key, node);
+            segmentFor(key).remove(key);
+            isDirty |= node.isDirty();
+        } else {
+            pinnedNodes.remove(key);
+            segmentFor(key).put(key, node, node.getValue().encode().length);
+        }
+    }
+
+    /**
+     * Retrieves the node with the given hash from memory or the database. Does not lock the whole
+     * cache and may be called by concurrent readers.
+     */
+    public Value get(byte[] key) {
+        Node node = getNode(key);
+        return node == null ? null : node.getValue();
+    }
+
+    /**
+     * Retrieves the decoded node with the given hash, see {@link #get(byte[])}.
+     *
+     * @return the node or {@code null} if it is missing or not a short or branch node
+     */
+    TrieNode getTrieNode(byte[] key) {
+        Node node = getNode(key);
+        return node == null ? null : node.decode(key);
+    }
+
+    /**
+     * Checks if the node with the given hash is waiting to be committed or is present in the
+     * database. Clean nodes held in memory are not consulted, since they may have been removed from
+     * the database after being loaded, e.g. by pruning.
+     */
+    public boolean isStored(byte[] key) {
+        if (pinnedNodes.containsKey(wrap(key))) {
+            return true;
+        }
+        ByteArrayKeyValueStore db = this.dataSource;
+        return db != null && db.get(key).isPresent();
+    }
 
+    private Node getNode(byte[] key) {
         ByteArrayWrapper wrappedKey = wrap(key);
-        Node node = nodes.get(wrappedKey);
+        Node node = pinnedNodes.get(wrappedKey);
+        if (node == null) {
+            node = segmentFor(wrappedKey).get(wrappedKey);
+        }
         if (node != null) {
-            // cachehits++;
-            return node.getValue();
+            hits.increment();
+            return node;
         }
-        if (this.dataSource != null) {
-            Optional<byte[]> data = this.dataSource.get(key);
+
+        misses.increment();
+        threadMisses.get()[0]++;
+        ByteArrayKeyValueStore db = this.dataSource;
+        if (db != null) {
+            Optional<byte[]> data = db.get(key);
             if (data.isPresent()) {
-                // dbhits++;
-                Value val = fromRlpEncoded(data.get());
-                nodes.put(wrappedKey, new Node(val, false));
-                return val;
+                node = new Node(fromRlpEncoded(data.get()), false);
+                segmentFor(wrappedKey).put(wrappedKey, node, data.get().length);
+                return node;
             }
         }
 
         return null;
     }
 
+    /**
+     * Retrieves the nodes with the given hashes, see {@link #get(byte[])}. The nodes that are not
+     * held in memory are read from the database with a single batch request.
+     *
+     * @return the nodes in the order of the given keys, with {@code null} for missing nodes
+     */
+    public List<Value> getBatch(List<byte[]> keys) {
+        List<Value> result = new ArrayList<>(keys.size());
+        List<byte[]> missing = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (byte[] key : keys) {
+            ByteArrayWrapper wrappedKey = wrap(key);
+            Node node = pinnedNodes.get(wrappedKey);
+            if (node == null) {
+                node = segmentFor(wrappedKey).get(wrappedKey);
+            }
+            if (node != null) {
+                hits.increment();
+                result.add(node.getValue());
+            } else {
+                misses.increment();
+                missing.add(key);
+                positions.add(result.size());
+                result.add(null);
+            }
+        }
+
+        threadMisses.get()[0] += missing.size();
+        ByteArrayKeyValueStore db = this.dataSource;
+        if (db != null && !missing.isEmpty()) {
+            List<byte[]> data = db.getBatch(missing);
+            for (int i = 0; i < missing.size(); i++) {
+                byte[] encoded = data.get(i);
+                if (encoded != null) {
+                    ByteArrayWrapper wrappedKey = wrap(missing.get(i));
+                    Node node = new Node(fromRlpEncoded(encoded), false);
+                    segmentFor(wrappedKey).put(wrappedKey, node, encoded.length);
+                    result.set(positions.get(i), node.getValue());
+                }
+            }
+        }
+        return result;
+    }
+
     public synchronized void delete(byte[] key) {
         ByteArrayWrapper wrappedKey = wrap(key);
-        this.nodes.remove(wrappedKey);
+        this.pinnedNodes.remove(wrappedKey);
+        segmentFor(wrappedKey).remove(wrappedKey);
 
         if (dataSource != null) {
             this.dataSource.delete(key);
         }
     }
 
+    /**
+     * Writes the dirty nodes and the removals to the database. The committed nodes become clean
+     * and stay cached within the size bound.
+     *
+     * @param flushCache when {@code true} all cached nodes are dropped after the commit
+     */
     public synchronized void commit(boolean flushCache) {
         // Don't try to commit if it isn't dirty
         if ((dataSource == null) || !this.isDirty) {
             // clear cache when flush requested
             if (flushCache) {
-                this.nodes.clear();
+                this.pinnedNodes.clear();
+                clearClean();
             }
             return;
         }
 
-        // long start = System.nanoTime();
-        // int batchMemorySize = 0;
         Map<byte[], byte[]> batch = new HashMap<>();
         List<byte[]> deleteBatch = new ArrayList<>();
-        for (ByteArrayWrapper nodeKey : this.nodes.keySet()) {
-            Node node = this.nodes.get(nodeKey);
-
-            if (node == null || node.isDirty()) {
-                byte[] value;
-                if (node != null) {
-                    node.setDirty(false);
-                    value = node.getValue().encode();
-                } else {
-                    value = null;
-                }
-
-                byte[] key = nodeKey.toBytes();
-
-                batch.put(key, value);
-                // batchMemorySize += length(key, value);
+        for (Entry<ByteArrayWrapper, Node> entry : this.pinnedNodes.entrySet()) {
+            Node node = entry.getValue();
+            if (node.isDirty()) {
+                batch.put(entry.getKey().toBytes(), node.getValue().encode());
             }
         }
         for (ByteArrayWrapper removedNode : removedNodes) {
@@ -132,8 +280,21 @@ public class Cache {
         this.dataSource.putBatch(batch);
         this.dataSource.deleteBatch(deleteBatch);
         this.isDirty = false;
+
         if (flushCache) {
-            this.nodes.clear();
+            this.pinnedNodes.clear();
+            clearClean();
+        } else {
+            // the nodes are now in the database, move them to the evictable part of the cache
+            Iterator<Entry<ByteArrayWrapper, Node>> it = pinnedNodes.entrySet().iterator();
+            while (it.hasNext()) {
+                Entry<ByteArrayWrapper, Node> entry = it.next();
+                Node node = entry.getValue();
+                node.setDirty(false);
+                int size = node.getValue().encode().length;
+                segmentFor(entry.getKey()).put(entry.getKey(), node, size);
+                it.remove();
+            }
         }
         this.removedNodes.clear();
     }
@@ -144,11 +305,20 @@ public class Cache {
     //        this.isDirty = false;
     //    }
 
-    public synchronized boolean isDirty() {
+    public boolean isDirty() {
         return isDirty;
     }
 
+    /**
+     * Returns a snapshot of the nodes currently held in memory. Changes to the returned map are not
+     * reflected in the cache, use {@link #putNode(ByteArrayWrapper, Node)} to add nodes.
+     */
     public synchronized Map<ByteArrayWrapper, Node> getNodes() {
+        Map<ByteArrayWrapper, Node> nodes = new LinkedHashMap<>();
+        for (Segment segment : cleanNodes) {
+            segment.copyInto(nodes, false);
+        }
+        nodes.putAll(pinnedNodes);
         return nodes;
     }
 
@@ -181,12 +351,9 @@ public class Cache {
 
         Map<byte[], byte[]> rows = new HashMap<>();
         if (this.dataSource == null) {
-            for (ByteArrayWrapper key : nodes.keySet()) {
-                Node node = nodes.get(key);
-                if (node == null) {
-                    rows.put(key.toBytes(), null);
-                } else if (!node.isDirty()) {
-                    rows.put(key.toBytes(), node.getValue().encode());
+            for (Entry<ByteArrayWrapper, Node> entry : getNodes().entrySet()) {
+                if (!entry.getValue().isDirty()) {
+                    rows.put(entry.getKey().toBytes(), entry.getValue().getValue().encode());
                 }
             }
         } else {
@@ -207,8 +374,49 @@ public class Cache {
         this.dataSource = kvds;
     }
 
+    /** @return the number of nodes held in memory, pinned and clean */
     public int getSize() {
-        return nodes.size();
+        int size = pinnedNodes.size();
+        for (Segment segment : cleanNodes) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /** @return the approximate memory used by the clean nodes in bytes */
+    public long getCleanBytes() {
+        long bytes = 0;
+        for (Segment segment : cleanNodes) {
+            bytes += segment.weight();
+        }
+        return bytes;
+    }
+
+    public long getMaxCleanBytes() {
+        return maxCleanBytes;
+    }
+
+    /** @return the number of lookups answered from memory */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /** @return the number of lookups which had to go to the database */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of lookups made by the calling thread, on any cache, which had to go to
+     *     the database
+     */
+    public static long getThreadMissCount() {
+        return threadMisses.get()[0];
+    }
+
+    /** @return the number of clean nodes dropped to stay within the size bound */
+    public long getEvictionCount() {
+        return evictions.sum();
     }
 
     /**
@@ -220,37 +428,110 @@ public class Cache {
      *
      * @return A copy of this cache.
      */
-    public Cache copy() {
-        Cache cacheCopy = new Cache(this.dataSource);
+    public synchronized Cache copy() {
+        Cache cacheCopy = new Cache(this.dataSource, this.maxCleanBytes);
         cacheCopy.isDirty = this.isDirty;
-        cacheCopy.nodes = copyOfNodes();
-        cacheCopy.removedNodes = copyOfRemovedNodes();
+        for (int i = 0; i < SEGMENTS; i++) {
+            cleanNodes[i].copyInto(cacheCopy.cleanNodes[i]);
+        }
+        for (Entry<ByteArrayWrapper, Node> entry : pinnedNodes.entrySet()) {
+            cacheCopy.pinnedNodes.put(entry.getKey(), entry.getValue().copy());
+        }
+        cacheCopy.removedNodes = new HashSet<>(this.removedNodes);
         return cacheCopy;
     }
 
-    private Map<ByteArrayWrapper, Node> copyOfNodes() {
-        if (this.nodes == null) {
-            return null;
+    private void clearClean() {
+        for (Segment segment : cleanNodes) {
+            segment.clear();
         }
+    }
 
-        Map<ByteArrayWrapper, Node> nodesCopy = new HashMap<>();
-        for (Entry<ByteArrayWrapper, Node> nodesEntry : this.nodes.entrySet()) {
-            nodesCopy.put(
-                    nodesEntry.getKey(),
-                    (nodesEntry.getValue() == null) ? null : nodesEntry.getValue().copy());
+    private Segment segmentFor(ByteArrayWrapper key) {
+        int h = key.hashCode();
+        return cleanNodes[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private static final class Weighted {
+        final Node node;
+        final int weight;
+
+        Weighted(Node node, int weight) {
+            this.node = node;
+            this.weight = weight;
         }
-        return nodesCopy;
     }
 
-    private Set<ByteArrayWrapper> copyOfRemovedNodes() {
-        if (this.removedNodes == null) {
-            return null;
+    /** One lock striped part of the clean cache, kept in access order. */
+    private final class Segment {
+        private final long capacity;
+        private final LinkedHashMap<ByteArrayWrapper, Weighted> map =
+                new LinkedHashMap<>(16, 0.75f, true);
+        private long weight;
+
+        Segment(long capacity) {
+            this.capacity = capacity;
         }
 
-        Set<ByteArrayWrapper> removedNodesCopy = new HashSet<>();
-        for (ByteArrayWrapper removedNode : this.removedNodes) {
-            removedNodesCopy.add(removedNode);
+        synchronized Node get(ByteArrayWrapper key) {
+            Weighted entry = map.get(key);
+            return entry == null ? null : entry.node;
+        }
+
+        synchronized void put(ByteArrayWrapper key, Node node, int encodedSize) {
+            int entryWeight = key.length() + encodedSize + ENTRY_OVERHEAD;
+            if (entryWeight > capacity) {
+                remove(key);
+                return;
+            }
+
+            Weighted previous = map.put(key, new Weighted(node, entryWeight));
+            if (previous != null) {
+                weight -= previous.weight;
+            }
+            weight += entryWeight;
+
+            Iterator<Weighted> eldest = map.values().iterator();
+            while (weight > capacity) {
+                weight -= eldest.next().weight;
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+
+        synchronized void remove(ByteArrayWrapper key) {
+            Weighted previous = map.remove(key);
+            if (previous != null) {
+                weight -= previous.weight;
+            }
+        }
+
+        synchronized void clear() {
+            map.clear();
+            weight = 0;
+        }
+
+        synchronized int size() {
+            return map.size();
+        }
+
+        synchronized long weight() {
+            return weight;
+        }
+
+        synchronized void copyInto(Map<ByteArrayWrapper, Node> target, boolean copyNodes) {
+            for (Entry<ByteArrayWrapper, Weighted> entry : map.entrySet()) {
+                Node node = entry.getValue().node;
+                target.put(entry.getKey(), copyNodes ? node.copy() : node);
+            }
+        }
+
+        synchronized void copyInto(Segment target) {
+            for (Entry<ByteArrayWrapper, Weighted> entry : map.entrySet()) {
+                Weighted w = entry.getValue();
+                target.map.put(entry.getKey(), new Weighted(w.node.copy(), w.weight));
+            }
+            target.weight = weight;
         }
-        return removedNodesCopy;
     }
 }
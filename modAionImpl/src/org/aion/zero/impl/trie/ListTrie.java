@@ -0,0 +1,138 @@
+package org.aion.zero.impl.trie;
+
+import static org.aion.rlp.CompactEncoder.binToNibbles;
+import static org.aion.rlp.CompactEncoder.packNibbles;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.aion.base.ConstantUtil;
+import org.aion.crypto.HashUtil;
+import org.aion.rlp.RLP;
+
+/**
+ * Computes the root of the trie mapping {@code RLP.encodeInt(i)} to the i-th element of a list, as
+ * used for the transaction and receipt roots of a block.
+ *
+ * <p>The result is identical to inserting every element into a {@link TrieImpl} and calling {@link
+ * TrieImpl#getRootHash()}, but the nodes are encoded bottom-up from the sorted keys without
+ * building the intermediate tries or going through a node cache. The subtrees of large branches
+ * are encoded in parallel.
+ */
+public final class ListTrie {
+
+    /** Ranges with at least this many entries encode the children of their branch in parallel. */
+    private static final int PARALLEL_THRESHOLD = 256;
+
+    private static final int BRANCH_SIZE = 17;
+    private static final int TERMINATOR = 16;
+    private static final byte[] EMPTY_ELEMENT = RLP.encodeElement(new byte[0]);
+
+    private final byte[][] keys;
+    private final byte[][] values;
+
+    private ListTrie(byte[][] keys, byte[][] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * @param values the list elements, which must not be {@code null} or empty
+     * @return the root hash of the trie holding the elements under their RLP encoded index
+     */
+    public static byte[] computeRoot(List<byte[]> values) {
+        int size = values.size();
+        if (size == 0) {
+            return ConstantUtil.EMPTY_TRIE_HASH;
+        }
+
+        // sort the entries by the nibbles of their keys, which is the order of the leaves
+        Integer[] order = new Integer[size];
+        byte[][] nibbles = new byte[size][];
+        for (int i = 0; i < size; i++) {
+            byte[] value = values.get(i);
+            if (value == null) {
+                throw new NullPointerException("The value should not be null.");
+            }
+            if (value.length == 0) {
+                throw new IllegalArgumentException("The value should not be empty.");
+            }
+            order[i] = i;
+            nibbles[i] = binToNibbles(RLP.encodeInt(i));
+        }
+        Arrays.sort(order, (a, b) -> Arrays.compare(nibbles[a], nibbles[b]));
+
+        byte[][] sortedKeys = new byte[size][];
+        byte[][] sortedValues = new byte[size][];
+        for (int i = 0; i < size; i++) {
+            sortedKeys[i] = nibbles[order[i]];
+            sortedValues[i] = values.get(order[i]);
+        }
+
+        byte[] root = new ListTrie(sortedKeys, sortedValues).encode(0, size, 0);
+        return HashUtil.h256(root);
+    }
+
+    /** Encodes the node holding the entries {@code [from, to)} below the given key depth. */
+    private byte[] encode(int from, int to, int depth) {
+        if (to - from == 1) {
+            byte[] key = keys[from];
+            return RLP.encodeList(
+                    RLP.encodeElement(packNibbles(Arrays.copyOfRange(key, depth, key.length))),
+                    RLP.encodeElement(values[from]));
+        }
+
+        // the keys are sorted, so the first and last share the prefix of the whole range
+        byte[] first = keys[from];
+        byte[] last = keys[to - 1];
+        int common = 0;
+        while (first[depth + common] == last[depth + common]) {
+            common++;
+        }
+        if (common > 0) {
+            byte[] path = Arrays.copyOfRange(first, depth, depth + common);
+            return RLP.encodeList(
+                    RLP.encodeElement(packNibbles(path)), reference(from, to, depth + common));
+        }
+
+        // split the range by the nibble at the current depth
+        int[] bounds = new int[BRANCH_SIZE + 1];
+        int position = from;
+        for (int nibble = 0; nibble < BRANCH_SIZE; nibble++) {
+            bounds[nibble] = position;
+            while (position < to && keys[position][depth] == nibble) {
+                position++;
+            }
+        }
+        bounds[BRANCH_SIZE] = to;
+
+        byte[][] children = new byte[BRANCH_SIZE][];
+        IntStream slots = IntStream.range(0, BRANCH_SIZE);
+        if (to - from >= PARALLEL_THRESHOLD) {
+            slots = slots.parallel();
+        }
+        slots.forEach(
+                nibble -> {
+                    int start = bounds[nibble];
+                    int end = bounds[nibble + 1];
+                    if (start == end) {
+                        children[nibble] = EMPTY_ELEMENT;
+                    } else if (nibble == TERMINATOR) {
+                        // a key ending here, its value is stored in the branch itself
+                        children[nibble] = RLP.encodeElement(values[start]);
+                    } else {
+                        children[nibble] = reference(start, end, depth + 1);
+                    }
+                });
+        return RLP.encodeList(children);
+    }
+
+    /**
+     * Returns the encoded reference to a child node: its hash, or the node itself when its
+     * encoding is shorter than a hash.
+     */
+    private byte[] reference(int from, int to, int depth) {
+        byte[] encoded = encode(from, to, depth);
+        return encoded.length < 32 ? encoded : RLP.encodeElement(HashUtil.h256(encoded));
+    }
+}
@@ -37,6 +37,8 @@ public class Node {
     /* RLP encoded value of the Trie-node */
     private final Value value;
     private boolean dirty;
+    // decoded on first traversal, see TrieNode
+    private volatile TrieNode decoded;
 
     public Node(Value val) {
         this(val, false);
@@ -48,7 +50,9 @@ public class Node {
     }
 
     public Node copy() {
-        return new Node(this.value, this.dirty);
+        Node copy = new Node(this.value, this.dirty);
+        copy.decoded = this.decoded;
+        return copy;
     }
 
     public boolean isDirty() {
@@ -63,6 +67,19 @@ public class Node {
         return value;
     }
 
+    /**
+     * @param hash the key the node is stored under
+     * @return the decoded node, or {@code null} if the value is not a short or branch node
+     */
+    TrieNode decode(byte[] hash) {
+        TrieNode node = decoded;
+        if (node == null) {
+            node = TrieNode.of(value, hash);
+            decoded = node;
+        }
+        return node;
+    }
+
     @Override
     public String toString() {
         return "[" + dirty + ", " + value + "]";
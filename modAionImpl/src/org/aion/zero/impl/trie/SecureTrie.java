@@ -3,6 +3,7 @@ package org.aion.zero.impl.trie;
 import static org.aion.crypto.HashUtil.h256;
 
 import java.util.Arrays;
+import java.util.concurrent.locks.Lock;
 import org.aion.db.impl.ByteArrayKeyValueStore;
 
 public class SecureTrie extends TrieImpl implements Trie {
@@ -49,7 +50,9 @@ public class SecureTrie extends TrieImpl implements Trie {
      * @return A copy of this trie.
      */
     public SecureTrie copy() {
-        synchronized (super.getCache()) {
+        Lock lock = super.getCache().getLock().readLock();
+        lock.lock();
+        try {
             // Object originalPreviousRoot = super.getPrevRoot();
             Object originalRoot = super.getRoot();
 
@@ -78,6 +81,8 @@ public class SecureTrie extends TrieImpl implements Trie {
             // secureTrieCopy.setPrevRoot(previousRootCopy);
             secureTrieCopy.setPruningEnabled(super.isPruningEnabled());
             return secureTrieCopy;
+        } finally {
+            lock.unlock();
         }
     }
 }
@@ -20,7 +20,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
 import org.aion.base.ConstantUtil;
 import org.aion.crypto.HashUtil;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
@@ -67,7 +73,6 @@ import org.aion.zero.impl.trie.scan.TraceAllNodes;
 public class TrieImpl implements Trie {
     private static final byte PAIR_SIZE = 2;
     private static final byte LIST_SIZE = 17;
-    private static final int MAX_SIZE = 20;
 
     // private Object prevRoot;
     private Object root;
@@ -121,7 +126,9 @@ public class TrieImpl implements Trie {
     }
 
     private void deserializeRoot(byte[] data) {
-        synchronized (cache) {
+        Lock lock = cache.getLock().writeLock();
+        lock.lock();
+        try {
             try {
                 ByteArrayInputStream b = new ByteArrayInputStream(data);
                 ObjectInputStream o = new ObjectInputStream(b);
@@ -129,6 +136,8 @@ public class TrieImpl implements Trie {
             } catch (IOException | ClassNotFoundException e) {
                 e.printStackTrace();
             }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -152,11 +161,15 @@ public class TrieImpl implements Trie {
 
     @Override
     public byte[] get(byte[] key) {
-        synchronized (cache) {
+        Lock lock = cache.getLock().readLock();
+        lock.lock();
+        try {
             byte[] k = binToNibbles(key);
             Value c = new Value(this.get(this.root, k));
 
             return c.asBytes();
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -182,18 +195,33 @@ public class TrieImpl implements Trie {
 
         byte[] k = binToNibbles(key);
 
-        synchronized (cache) {
+        Lock lock = cache.getLock().writeLock();
+        lock.lock();
+        try {
             if (isEmptyNode(root)) {
                 cache.markRemoved(getRootHash());
             }
 
             this.root = this.insert(this.root, k, value);
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
-    public synchronized boolean isValidRoot(byte[] root) {
-        return !(this.getNode(root) == null);
+    public boolean isValidRoot(byte[] root) {
+        // roots shorter than a hash are not stored separately
+        if (root.length < 32) {
+            return true;
+        }
+
+        Lock lock = cache.getLock().readLock();
+        lock.lock();
+        try {
+            return cache.isStored(root);
+        } finally {
+            lock.unlock();
+        }
     }
 
     /** Delete a key/value pair from the trie. */
@@ -204,7 +232,9 @@ public class TrieImpl implements Trie {
 
     @Override
     public void delete(byte[] key) {
-        synchronized (cache) {
+        Lock lock = cache.getLock().writeLock();
+        lock.lock();
+        try {
             byte[] k = binToNibbles(key);
 
             if (isEmptyNode(root)) {
@@ -212,12 +242,16 @@ public class TrieImpl implements Trie {
             }
 
             this.root = this.delete(this.root, k);
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
     public byte[] getRootHash() {
-        synchronized (cache) {
+        Lock lock = cache.getLock().readLock();
+        lock.lock();
+        try {
             if (root == null
                     || (root instanceof byte[] && ((byte[]) root).length == 0)
                     || (root instanceof String && "".equals(root))) {
@@ -228,36 +262,41 @@ public class TrieImpl implements Trie {
                 Value rootValue = new Value(this.getRoot());
                 return HashUtil.h256(rootValue.encode());
             }
+        } finally {
+            lock.unlock();
         }
     }
 
     private Object get(Object node, byte[] key) {
-        synchronized (cache) {
+        Lock lock = cache.getLock().readLock();
+        lock.lock();
+        try {
             int keypos = 0;
             while (key.length - keypos != 0 && !isEmptyNode(node)) {
-                Value currentNode = this.getNode(node);
+                TrieNode currentNode = this.getTrieNode(node);
                 if (currentNode == null) {
                     return null;
                 }
 
-                if (currentNode.length() == PAIR_SIZE) {
+                if (currentNode.isShort()) {
                     // Decode the key
-                    byte[] k = unpackToNibbles(currentNode.get(0).asBytes());
-                    Object v = currentNode.get(1).asObj();
+                    byte[] k = currentNode.path();
 
                     if (key.length - keypos >= k.length
-                            && Arrays.equals(k, copyOfRange(key, keypos, k.length + keypos))) {
-                        node = v;
+                            && Arrays.equals(k, 0, k.length, key, keypos, keypos + k.length)) {
+                        node = currentNode.child(1);
                         keypos += k.length;
                     } else {
                         return "";
                     }
                 } else {
-                    node = currentNode.get(key[keypos]).asObj();
+                    node = currentNode.child(key[keypos]);
                     keypos++;
                 }
             }
             return node;
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -277,17 +316,17 @@ public class TrieImpl implements Trie {
             return this.putToCache(newNode);
         }
 
-        Value currentNode = this.getNode(node);
+        TrieNode currentNode = this.getTrieNode(node);
 
         if (currentNode == null) {
             throw new RuntimeException("Invalid Trie state, missing node " + new Value(node));
         }
 
         // Check for "special" 2 slice type node
-        if (currentNode.length() == PAIR_SIZE) {
+        if (currentNode.isShort()) {
             // Decode the key
-            byte[] k = unpackToNibbles(currentNode.get(0).asBytes());
-            Object v = currentNode.get(1).asObj();
+            byte[] k = currentNode.path();
+            Object v = currentNode.child(1);
 
             // Matching key pair (ie. there's already an object with this key)
             if (Arrays.equals(k, key)) {
@@ -319,7 +358,7 @@ public class TrieImpl implements Trie {
                 newHash = this.putToCache(scaledSlice);
             }
 
-            markRemoved(HashUtil.h256(currentNode.encode()));
+            markRemoved(currentNode.hash());
 
             if (matchingLength == 0) {
                 // End of the chain, return
@@ -333,24 +372,20 @@ public class TrieImpl implements Trie {
 
             // Copy the current node over to the new node
             Object[] newNode = copyNode(currentNode);
+            Object oldChild = currentNode.child(key[0]);
 
             // Replace the first nibble in the key
-            newNode[key[0]] =
-                    this.insert(
-                            currentNode.get(key[0]).asObj(),
-                            copyOfRange(key, 1, key.length),
-                            value);
-
-            if (!Arrays.equals(
-                    HashUtil.h256(getNode(newNode).encode()),
-                    HashUtil.h256(currentNode.encode()))) {
-                markRemoved(HashUtil.h256(currentNode.encode()));
-                if (!isEmptyNode(currentNode.get(key[0]))) {
-                    markRemoved(currentNode.get(key[0]).asBytes());
+            newNode[key[0]] = this.insert(oldChild, copyOfRange(key, 1, key.length), value);
+
+            Value newValue = new Value(newNode);
+            if (!Arrays.equals(HashUtil.h256(newValue.encode()), currentNode.hash())) {
+                markRemoved(currentNode.hash());
+                if (!isEmptyNode(oldChild)) {
+                    markRemoved(TrieNode.bytes(oldChild));
                 }
             }
 
-            return this.putToCache(newNode);
+            return this.putToCache(newValue);
         }
     }
 
@@ -361,32 +396,32 @@ public class TrieImpl implements Trie {
         }
 
         // New node
-        Value currentNode = this.getNode(node);
+        TrieNode currentNode = this.getTrieNode(node);
         if (currentNode == null) {
             throw new RuntimeException("Invalid Trie state, missing node " + new Value(node));
         }
 
         // Check for "special" 2 slice type node
-        if (currentNode.length() == PAIR_SIZE) {
+        if (currentNode.isShort()) {
             // Decode the key
-            byte[] k = unpackToNibbles(currentNode.get(0).asBytes());
-            Object v = currentNode.get(1).asObj();
+            byte[] k = currentNode.path();
+            Object v = currentNode.child(1);
 
             // Matching key pair (ie. there's already an object with this key)
             if (Arrays.equals(k, key)) {
                 return "";
             } else if (Arrays.equals(copyOfRange(key, 0, k.length), k)) {
                 Object hash = this.delete(v, copyOfRange(key, k.length, key.length));
-                Value child = this.getNode(hash);
+                TrieNode child = this.getTrieNode(hash);
 
                 Object newNode;
-                if (child.length() == PAIR_SIZE) {
-                    byte[] newKey = concatenate(k, unpackToNibbles(child.get(0).asBytes()));
-                    newNode = new Object[] {packNibbles(newKey), child.get(1).asObj()};
+                if (child != null && child.isShort()) {
+                    byte[] newKey = concatenate(k, child.path());
+                    newNode = new Object[] {packNibbles(newKey), child.child(1)};
                 } else {
-                    newNode = new Object[] {currentNode.get(0), hash};
+                    newNode = new Object[] {currentNode.child(0), hash};
                 }
-                markRemoved(HashUtil.h256(currentNode.encode()));
+                markRemoved(currentNode.hash());
                 return this.putToCache(newNode);
             } else {
                 return node;
@@ -413,24 +448,23 @@ public class TrieImpl implements Trie {
             if (amount == 16) {
                 newNode = new Object[] {packNibbles(new byte[] {16}), itemList[amount]};
             } else if (amount >= 0) {
-                Value child = this.getNode(itemList[amount]);
-                if (child.length() == PAIR_SIZE) {
-                    key = concatenate(new byte[] {amount}, unpackToNibbles(child.get(0).asBytes()));
-                    newNode = new Object[] {packNibbles(key), child.get(1).asObj()};
-                } else if (child.length() == LIST_SIZE) {
+                TrieNode child = this.getTrieNode(itemList[amount]);
+                if (child != null && child.isShort()) {
+                    key = concatenate(new byte[] {amount}, child.path());
+                    newNode = new Object[] {packNibbles(key), child.child(1)};
+                } else if (child != null && child.size() == LIST_SIZE) {
                     newNode = new Object[] {packNibbles(new byte[] {amount}), itemList[amount]};
                 }
             } else {
                 newNode = itemList;
             }
 
-            if (!Arrays.equals(
-                    HashUtil.h256(getNode(newNode).encode()),
-                    HashUtil.h256(currentNode.encode()))) {
-                markRemoved(HashUtil.h256(currentNode.encode()));
+            Value newValue = new Value(newNode);
+            if (!Arrays.equals(HashUtil.h256(newValue.encode()), currentNode.hash())) {
+                markRemoved(currentNode.hash());
             }
 
-            return this.putToCache(newNode);
+            return this.putToCache(newValue);
         }
     }
 
@@ -463,6 +497,21 @@ public class TrieImpl implements Trie {
         return this.cache.get(keyBytes);
     }
 
+    /**
+     * Resolves a node reference, which is either the hash of a stored node or an embedded node, to
+     * the decoded node. Nodes stored in the cache are decoded only once.
+     *
+     * @return the decoded node or {@code null} if it is missing or the reference is not a node
+     */
+    private TrieNode getTrieNode(Object node) {
+        Object obj = TrieNode.unwrap(node);
+        if (obj instanceof byte[]) {
+            byte[] keyBytes = (byte[]) obj;
+            return keyBytes.length < 32 ? null : this.cache.getTrieNode(keyBytes);
+        }
+        return TrieNode.of(node instanceof Value ? (Value) node : new Value(obj), null);
+    }
+
     private Object putToCache(Object node) {
         return this.cache.put(node);
     }
@@ -474,10 +523,10 @@ public class TrieImpl implements Trie {
                 || n.length() == 0);
     }
 
-    private static Object[] copyNode(Value currentNode) {
+    private static Object[] copyNode(TrieNode currentNode) {
         Object[] itemList = emptyStringSlice(LIST_SIZE);
         for (int i = 0; i < LIST_SIZE; i++) {
-            Object cpy = currentNode.get(i).asObj();
+            Object cpy = currentNode.child(i);
             if (cpy != null) {
                 itemList[i] = cpy;
             }
@@ -493,19 +542,24 @@ public class TrieImpl implements Trie {
                         && Arrays.equals(this.getRootHash(), ((Trie) trie).getRootHash());
     }
 
+    /**
+     * Commits the trie without dropping the cached nodes. The clean part of the cache is bounded,
+     * so the committed nodes are kept around for later reads.
+     */
     @Override
     public void sync() {
-        synchronized (cache) {
-            boolean flushCache = !cache.isDirty() || cache.getSize() > MAX_SIZE;
-            sync(flushCache);
-        }
+        sync(false);
     }
 
     @Override
     public void sync(boolean flushCache) {
-        synchronized (cache) {
+        Lock lock = cache.getLock().writeLock();
+        lock.lock();
+        try {
             this.cache.commit(flushCache);
             // this.prevRoot = this.root;
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -520,13 +574,16 @@ public class TrieImpl implements Trie {
 
     // Returns a copy of this trie
     public TrieImpl copy() {
-        synchronized (cache) {
+        Lock lock = cache.getLock().readLock();
+        lock.lock();
+        try {
             TrieImpl trie = new TrieImpl(this.cache.getDb(), this.root);
-            for (ByteArrayWrapper key : this.cache.getNodes().keySet()) {
-                Node node = this.cache.getNodes().get(key);
-                trie.cache.getNodes().put(key, node.copy());
+            for (Map.Entry<ByteArrayWrapper, Node> entry : this.cache.getNodes().entrySet()) {
+                trie.cache.putNode(entry.getKey(), entry.getValue().copy());
             }
             return trie;
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -573,29 +630,33 @@ public class TrieImpl implements Trie {
     //    }
 
     private void scanTree(byte[] hash, ScanAction scanAction) {
-        synchronized (cache) {
+        Lock lock = cache.getLock().readLock();
+        lock.lock();
+        try {
             Value node = this.getCache().get(hash);
             if (node == null) {
                 throw new RuntimeException("Not found: " + Hex.toHexString(hash));
             }
 
             if (node.isList()) {
-                List<Object> siblings = node.asList();
-                if (siblings.size() == PAIR_SIZE) {
-                    Value val = new Value(siblings.get(1));
-                    if (val.isHashCode() && !hasTerminator((byte[]) siblings.get(0))) {
-                        scanTree(val.asBytes(), scanAction);
+                Object[] siblings = (Object[]) node.asObj();
+                if (siblings.length == PAIR_SIZE) {
+                    byte[] val = TrieNode.bytes(siblings[1]);
+                    if (val.length == 32 && !hasTerminator((byte[]) siblings[0])) {
+                        scanTree(val, scanAction);
                     }
                 } else {
                     for (int j = 0; j < LIST_SIZE; ++j) {
-                        Value val = new Value(siblings.get(j));
-                        if (val.isHashCode()) {
-                            scanTree(val.asBytes(), scanAction);
+                        byte[] val = TrieNode.bytes(siblings[j]);
+                        if (val.length == 32) {
+                            scanTree(val, scanAction);
                         }
                     }
                 }
                 scanAction.doOnNode(hash, node);
             }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -605,7 +666,9 @@ public class TrieImpl implements Trie {
         hashes.add(hash);
 
         while (!hashes.isEmpty()) {
-            synchronized (cache) {
+            Lock lock = cache.getLock().readLock();
+            lock.lock();
+            try {
                 byte[] myHash = hashes.remove(0);
                 Value node = this.getCache().get(myHash);
                 if (node == null) {
@@ -613,24 +676,26 @@ public class TrieImpl implements Trie {
                 }
 
                 if (node.isList()) {
-                    List<Object> siblings = node.asList();
-                    if (siblings.size() == PAIR_SIZE) {
-                        Value val = new Value(siblings.get(1));
-                        if (val.isHashCode() && !hasTerminator((byte[]) siblings.get(0))) {
+                    Object[] siblings = (Object[]) node.asObj();
+                    if (siblings.length == PAIR_SIZE) {
+                        byte[] val = TrieNode.bytes(siblings[1]);
+                        if (val.length == 32 && !hasTerminator((byte[]) siblings[0])) {
                             // scanTree(val.asBytes(), scanAction);
-                            hashes.add(val.asBytes());
+                            hashes.add(val);
                         }
                     } else {
                         for (int j = 0; j < LIST_SIZE; ++j) {
-                            Value val = new Value(siblings.get(j));
-                            if (val.isHashCode()) {
+                            byte[] val = TrieNode.bytes(siblings[j]);
+                            if (val.length == 32) {
                                 // scanTree(val.asBytes(), scanAction);
-                                hashes.add(val.asBytes());
+                                hashes.add(val);
                             }
                         }
                     }
                     scanAction.doOnNode(myHash, node);
                 }
+            } finally {
+                lock.unlock();
             }
         }
     }
@@ -650,31 +715,31 @@ public class TrieImpl implements Trie {
         hashes.add(hash);
 
         while (!hashes.isEmpty()) {
-            synchronized (cache) {
+            Lock lock = cache.getLock().readLock();
+            lock.lock();
+            try {
                 byte[] myHash = hashes.remove(0);
                 Value node = this.getCache().get(myHash);
                 if (node == null) {
                     System.out.println("Skipped key. Not found: " + Hex.toHexString(myHash));
                 } else {
                     if (node.isList()) {
-                        List<Object> siblings = node.asList();
-                        if (siblings.size() == PAIR_SIZE) {
-                            Value val = new Value(siblings.get(1));
-                            if (val.isHashCode() && !hasTerminator((byte[]) siblings.get(0))) {
+                        Object[] siblings = (Object[]) node.asObj();
+                        if (siblings.length == PAIR_SIZE) {
+                            byte[] val = TrieNode.bytes(siblings[1]);
+                            if (val.length == 32 && !hasTerminator((byte[]) siblings[0])) {
                                 // scanTree(val.asBytes(), scanAction);
-                                byte[] valBytes = val.asBytes();
-                                if (!db.get(valBytes).isPresent()) {
-                                    hashes.add(valBytes);
+                                if (!db.get(val).isPresent()) {
+                                    hashes.add(val);
                                 }
                             }
                         } else {
                             for (int j = 0; j < LIST_SIZE; ++j) {
-                                Value val = new Value(siblings.get(j));
-                                if (val.isHashCode()) {
+                                byte[] val = TrieNode.bytes(siblings[j]);
+                                if (val.length == 32) {
                                     // scanTree(val.asBytes(), scanAction);
-                                    byte[] valBytes = val.asBytes();
-                                    if (!db.get(valBytes).isPresent()) {
-                                        hashes.add(valBytes);
+                                    if (!db.get(val).isPresent()) {
+                                        hashes.add(val);
                                     }
                                 }
                             }
@@ -682,12 +747,16 @@ public class TrieImpl implements Trie {
                         scanAction.doOnNode(myHash, node);
                     }
                 }
+            } finally {
+                lock.unlock();
             }
         }
     }
 
     public void deserialize(byte[] data) {
-        synchronized (cache) {
+        Lock lock = cache.getLock().writeLock();
+        lock.lock();
+        try {
             RLPList rlpList = (RLPList) RLP.decode2(data).get(0);
 
             RLPItem keysElement = (RLPItem) rlpList.get(0);
@@ -701,16 +770,20 @@ public class TrieImpl implements Trie {
 
                 Value value = Value.fromRlpEncoded(val);
                 System.arraycopy(keysElement.getRLPData(), i * 32, key, 0, 32);
-                cache.getNodes().put(wrap(key), new Node(value));
+                cache.putNode(wrap(key), new Node(value));
             }
 
             this.deserializeRoot(root.getRLPData());
+        } finally {
+            lock.unlock();
         }
     }
 
     public byte[] serialize() {
 
-        synchronized (cache) {
+        Lock lock = cache.getLock().readLock();
+        lock.lock();
+        try {
             Map<ByteArrayWrapper, Node> map = getCache().getNodes();
 
             int keysTotalSize = 0;
@@ -816,12 +889,16 @@ public class TrieImpl implements Trie {
             }
 
             return rlpData;
+        } finally {
+            lock.unlock();
         }
     }
 
     public String getTrieDump() {
 
-        synchronized (cache) {
+        Lock lock = cache.getLock().readLock();
+        lock.lock();
+        try {
             TraceAllNodes traceAction = new TraceAllNodes();
             Value value = new Value(root);
             if (value.isHashCode()) {
@@ -837,6 +914,8 @@ public class TrieImpl implements Trie {
                 root = "root: " + Hex.toHexString(getRootHash()) + "\n";
             }
             return root + traceAction.getOutput();
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -861,7 +940,9 @@ public class TrieImpl implements Trie {
     }
 
     private void traceTrie(byte[] stateRoot, ScanAction action) {
-        synchronized (cache) {
+        Lock lock = cache.getLock().readLock();
+        lock.lock();
+        try {
             Value value = new Value(stateRoot);
 
             if (value.isHashCode()) {
@@ -869,6 +950,8 @@ public class TrieImpl implements Trie {
             } else {
                 action.doOnNode(stateRoot, value);
             }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -890,7 +973,9 @@ public class TrieImpl implements Trie {
         ArrayList<byte[]> hashes = new ArrayList<>();
         Value node;
 
-        synchronized (cache) {
+        Lock lock = cache.getLock().readLock();
+        lock.lock();
+        try {
             appendHashes(keyOrValue, hashes);
 
             int items = hashes.size();
@@ -903,18 +988,18 @@ public class TrieImpl implements Trie {
                     scanAction.doOnNode(myHash, null);
                 } else {
                     if (node.isList()) {
-                        List<Object> siblings = node.asList();
-                        if (siblings.size() == PAIR_SIZE) {
-                            Value val = new Value(siblings.get(1));
-                            if (val.isHashCode() && !hasTerminator((byte[]) siblings.get(0))) {
-                                hashes.add(val.asBytes());
+                        Object[] siblings = (Object[]) node.asObj();
+                        if (siblings.length == PAIR_SIZE) {
+                            byte[] val = TrieNode.bytes(siblings[1]);
+                            if (val.length == 32 && !hasTerminator((byte[]) siblings[0])) {
+                                hashes.add(val);
                                 items++;
                             }
                         } else {
                             for (int j = 0; j < LIST_SIZE; ++j) {
-                                Value val = new Value(siblings.get(j));
-                                if (val.isHashCode()) {
-                                    hashes.add(val.asBytes());
+                                byte[] val = TrieNode.bytes(siblings[j]);
+                                if (val.length == 32) {
+                                    hashes.add(val);
                                     items++;
                                 }
                             }
@@ -922,6 +1007,8 @@ public class TrieImpl implements Trie {
                     }
                 }
             }
+        } finally {
+            lock.unlock();
         }
 
         return scanAction.getCollectedHashes();
@@ -933,40 +1020,198 @@ public class TrieImpl implements Trie {
         ArrayList<byte[]> hashes = new ArrayList<>();
         Value node;
 
-        synchronized (cache) {
+        Lock lock = cache.getLock().readLock();
+        lock.lock();
+        try {
             appendHashes(keyOrValue, hashes);
 
-            int items = hashes.size();
-            for (int i = 0; (i < items) && (collect.getSize() < limit); i++) {
-                byte[] myHash = hashes.get(i);
-                node = this.getCache().get(myHash);
-
-                if (node != null) {
-                    if (node.isList()) {
-                        List<Object> siblings = node.asList();
-                        if (siblings.size() == PAIR_SIZE) {
-                            Value val = new Value(siblings.get(1));
-                            if (val.isHashCode() && !hasTerminator((byte[]) siblings.get(0))) {
-                                hashes.add(val.asBytes());
-                                items++;
-                            }
-                        } else {
-                            for (int j = 0; j < LIST_SIZE; ++j) {
-                                Value val = new Value(siblings.get(j));
-                                if (val.isHashCode()) {
-                                    hashes.add(val.asBytes());
-                                    items++;
+            int i = 0;
+            while ((i < hashes.size()) && (collect.getSize() < limit)) {
+                // read the pending hashes, up to the remaining limit, with one database request
+                int end = Math.min(hashes.size(), i + limit - collect.getSize());
+                List<Value> nodes = this.getCache().getBatch(new ArrayList<>(hashes.subList(i, end)));
+
+                for (int n = 0; (n < nodes.size()) && (collect.getSize() < limit); n++, i++) {
+                    byte[] myHash = hashes.get(i);
+                    node = nodes.get(n);
+
+                    if (node != null) {
+                        if (node.isList()) {
+                            Object[] siblings = (Object[]) node.asObj();
+                            if (siblings.length == PAIR_SIZE) {
+                                byte[] val = TrieNode.bytes(siblings[1]);
+                                if (val.length == 32 && !hasTerminator((byte[]) siblings[0])) {
+                                    hashes.add(val);
+                                }
+                            } else {
+                                for (int j = 0; j < LIST_SIZE; ++j) {
+                                    byte[] val = TrieNode.bytes(siblings[j]);
+                                    if (val.length == 32) {
+                                        hashes.add(val);
+                                    }
                                 }
                             }
                         }
+                        collect.doOnNode(myHash, node);
                     }
-                    collect.doOnNode(myHash, node);
                 }
             }
+        } finally {
+            lock.unlock();
         }
         return collect.getNodes();
     }
 
+    /**
+     * Decodes a trie node given in its database encoding and reports its content: the hashes of
+     * the nodes it references, which are stored separately in the database, and the values of its
+     * leaves. Both are reported together with their path from the decoded node, as nibbles. Used
+     * to traverse tries whose nodes are not stored locally, e.g. during fast sync.
+     *
+     * @param encoded the RLP encoding of a trie node
+     * @param onChild receives the path and the hash of each referenced node
+     * @param onLeaf receives the path and the value of each leaf
+     */
+    public static void decodeNode(
+            byte[] encoded, BiConsumer<byte[], byte[]> onChild, BiConsumer<byte[], byte[]> onLeaf) {
+        TrieNode node = TrieNode.decode(encoded, null);
+        if (node != null) {
+            decodeNode(node, new byte[0], onChild, onLeaf);
+        }
+    }
+
+    private static void decodeNode(
+            TrieNode node,
+            byte[] path,
+            BiConsumer<byte[], byte[]> onChild,
+            BiConsumer<byte[], byte[]> onLeaf) {
+        if (node.isShort()) {
+            byte[] childPath = concatenate(path, node.path());
+            Object child = node.child(1);
+
+            if (hasTerminator(TrieNode.bytes(node.child(0)))) {
+                onLeaf.accept(childPath, TrieNode.bytes(child));
+            } else if (child instanceof Object[]) {
+                // nodes shorter than a hash are embedded in their parent
+                decodeEmbedded(child, childPath, onChild, onLeaf);
+            } else {
+                onChild.accept(childPath, TrieNode.bytes(child));
+            }
+        } else {
+            for (byte j = 0; j < LIST_SIZE - 1; ++j) {
+                byte[] childPath = concatenate(path, new byte[] {j});
+                Object child = node.child(j);
+
+                if (child instanceof Object[]) {
+                    decodeEmbedded(child, childPath, onChild, onLeaf);
+                } else {
+                    byte[] hash = TrieNode.bytes(child);
+                    if (hash.length == 32) {
+                        onChild.accept(childPath, hash);
+                    }
+                }
+            }
+            byte[] value = TrieNode.bytes(node.child(LIST_SIZE - 1));
+            if (value.length > 0) {
+                onLeaf.accept(path, value);
+            }
+        }
+    }
+
+    private static void decodeEmbedded(
+            Object child,
+            byte[] path,
+            BiConsumer<byte[], byte[]> onChild,
+            BiConsumer<byte[], byte[]> onLeaf) {
+        TrieNode node = TrieNode.of(new Value(child), null);
+        if (node != null) {
+            decodeNode(node, path, onChild, onLeaf);
+        }
+    }
+
+    /**
+     * Scans the trie with the given root reading its nodes directly from the database, without
+     * going through a trie cache, and applies the action to each node reached. The subtrees below
+     * the first {@link #PARALLEL_SCAN_DEPTH} levels are scanned as separate tasks of the given pool,
+     * therefore the action must be thread-safe.
+     *
+     * <p>The subtrees whose root is accepted by {@code skip} are not explored, which allows scanning
+     * several tries that share most of their nodes with little duplicate work. Nodes missing from
+     * the database are ignored.
+     *
+     * @param root the root hash of the trie to be scanned
+     * @param db the database containing the trie nodes
+     * @param action action to perform on each node, before its children are scanned
+     * @param skip identifies the nodes whose subtree need not be explored
+     * @param pool the pool executing the scan
+     */
+    public static void scanTreeParallel(
+            byte[] root,
+            ByteArrayKeyValueStore db,
+            ScanAction action,
+            Predicate<byte[]> skip,
+            ForkJoinPool pool) {
+        pool.invoke(new ScanTask(root, 0, db, action, skip));
+    }
+
+    private static final int PARALLEL_SCAN_DEPTH = 3;
+
+    private static final class ScanTask extends RecursiveAction {
+        private final byte[] hash;
+        private final int depth;
+        private final ByteArrayKeyValueStore db;
+        private final ScanAction action;
+        private final Predicate<byte[]> skip;
+
+        ScanTask(
+                byte[] hash,
+                int depth,
+                ByteArrayKeyValueStore db,
+                ScanAction action,
+                Predicate<byte[]> skip) {
+            this.hash = hash;
+            this.depth = depth;
+            this.db = db;
+            this.action = action;
+            this.skip = skip;
+        }
+
+        @Override
+        protected void compute() {
+            if (skip.test(hash)) {
+                return;
+            }
+            Optional<byte[]> encoded = db.get(hash);
+            if (!encoded.isPresent()) {
+                return;
+            }
+            TrieNode node = TrieNode.decode(encoded.get(), hash);
+            if (node == null) {
+                return;
+            }
+            action.doOnNode(hash, node.value());
+
+            List<byte[]> children = new ArrayList<>();
+            decodeNode(
+                    node,
+                    new byte[0],
+                    (path, child) -> children.add(child),
+                    (path, leaf) -> {});
+
+            if (depth < PARALLEL_SCAN_DEPTH) {
+                List<ScanTask> tasks = new ArrayList<>(children.size());
+                for (byte[] child : children) {
+                    tasks.add(new ScanTask(child, depth + 1, db, action, skip));
+                }
+                invokeAll(tasks);
+            } else {
+                for (byte[] child : children) {
+                    new ScanTask(child, depth + 1, db, action, skip).compute();
+                }
+            }
+        }
+    }
+
     private void appendHashes(byte[] bytes, ArrayList<byte[]> hashes) {
         Value node;
 
@@ -984,17 +1229,17 @@ public class TrieImpl implements Trie {
         if (node.isHashCode()) {
             hashes.add(node.asBytes());
         } else if (node.isList()) {
-            List<Object> siblings = node.asList();
-            if (siblings.size() == PAIR_SIZE) {
-                Value val = new Value(siblings.get(1));
-                if (val.isHashCode() && !hasTerminator((byte[]) siblings.get(0))) {
-                    hashes.add(val.asBytes());
+            Object[] siblings = (Object[]) node.asObj();
+            if (siblings.length == PAIR_SIZE) {
+                byte[] val = TrieNode.bytes(siblings[1]);
+                if (val.length == 32 && !hasTerminator((byte[]) siblings[0])) {
+                    hashes.add(val);
                 }
             } else {
                 for (int j = 0; j < LIST_SIZE; ++j) {
-                    Value val = new Value(siblings.get(j));
-                    if (val.isHashCode()) {
-                        hashes.add(val.asBytes());
+                    byte[] val = TrieNode.bytes(siblings[j]);
+                    if (val.length == 32) {
+                        hashes.add(val);
                     }
                 }
             }
@@ -1009,7 +1254,9 @@ public class TrieImpl implements Trie {
     }
 
     private void traceDiffTrie(byte[] stateRoot, ScanAction action, ByteArrayKeyValueDatabase db) {
-        synchronized (cache) {
+        Lock lock = cache.getLock().readLock();
+        lock.lock();
+        try {
             Value value = new Value(stateRoot);
 
             if (value.isHashCode() && !db.get(value.asBytes()).isPresent()) {
@@ -1017,6 +1264,8 @@ public class TrieImpl implements Trie {
             } else {
                 action.doOnNode(stateRoot, value);
             }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -0,0 +1,111 @@
+package org.aion.zero.impl.trie;
+
+import static org.aion.rlp.CompactEncoder.unpackToNibbles;
+
+import org.aion.crypto.HashUtil;
+import org.aion.rlp.Value;
+import org.aion.util.bytes.ByteUtil;
+
+/**
+ * Decoded form of a short (extension or leaf) or branch trie node.
+ *
+ * <p>The node is decoded once, when it is first traversed, and keeps direct references to its
+ * children, the unpacked path of a short node and its hash. Cached nodes hold on to their view
+ * so that repeated traversals do not wrap every child in a new {@link Value}.
+ *
+ * <p>Instances are immutable and may be shared between threads.
+ */
+final class TrieNode {
+
+    static final int SHORT_SIZE = 2;
+    static final int BRANCH_SIZE = 17;
+
+    private final Value value;
+    private final Object[] items;
+    private volatile byte[] path;
+    private volatile byte[] hash;
+
+    private TrieNode(Value value, Object[] items, byte[] hash) {
+        this.value = value;
+        this.items = items;
+        this.hash = hash;
+    }
+
+    /**
+     * @param value the node value
+     * @param hash the hash of the node encoding if already known, otherwise {@code null}
+     * @return the decoded node or {@code null} if the value is not a short or branch node
+     */
+    static TrieNode of(Value value, byte[] hash) {
+        if (value == null || !value.isList()) {
+            return null;
+        }
+        Object[] items = (Object[]) value.asObj();
+        if (items.length != SHORT_SIZE && items.length != BRANCH_SIZE) {
+            return null;
+        }
+        return new TrieNode(value, items, hash);
+    }
+
+    /**
+     * @param encoded the RLP encoding of a node, as stored in the database
+     * @param hash the hash of the encoding if already known, otherwise {@code null}
+     * @return the decoded node or {@code null} if the encoding is not a short or branch node
+     */
+    static TrieNode decode(byte[] encoded, byte[] hash) {
+        return of(Value.fromRlpEncoded(encoded), hash);
+    }
+
+    boolean isShort() {
+        return items.length == SHORT_SIZE;
+    }
+
+    /** @return the nibbles of a short node key including the terminator of leaves */
+    byte[] path() {
+        byte[] p = path;
+        if (p == null && isShort()) {
+            p = unpackToNibbles(bytes(items[0]));
+            path = p;
+        }
+        return p;
+    }
+
+    /** @return the child at the given index, unwrapped to the object held by a {@link Value} */
+    Object child(int index) {
+        return unwrap(items[index]);
+    }
+
+    /** @return the value the node was decoded from */
+    Value value() {
+        return value;
+    }
+
+    /** @return the number of children of the node */
+    int size() {
+        return items.length;
+    }
+
+    byte[] hash() {
+        byte[] h = hash;
+        if (h == null) {
+            h = HashUtil.h256(value.encode());
+            hash = h;
+        }
+        return h;
+    }
+
+    static Object unwrap(Object item) {
+        return item instanceof Value ? ((Value) item).asObj() : item;
+    }
+
+    /** Same conversion as {@link Value#asBytes()} without allocating the wrapper. */
+    static byte[] bytes(Object item) {
+        Object obj = unwrap(item);
+        if (obj instanceof byte[]) {
+            return (byte[]) obj;
+        } else if (obj instanceof String) {
+            return ((String) obj).getBytes();
+        }
+        return ByteUtil.EMPTY_BYTE_ARRAY;
+    }
+}
@@ -0,0 +1,36 @@
+package org.aion.zero.impl.trie.scan;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.aion.db.impl.ByteArrayKeyValueStore;
+import org.aion.rlp.Value;
+
+/**
+ * Marks the scanned nodes as reachable by storing their hashes in a database. Thread-safe when the
+ * database is, so that it can be used with parallel scans.
+ */
+public class MarkNodes implements ScanAction {
+
+    // only the keys are relevant so the value will be this constant
+    private static final byte[] DUMMY_VALUE = new byte[] {0};
+
+    private final ByteArrayKeyValueStore marks;
+    private final AtomicLong count = new AtomicLong();
+
+    public MarkNodes(ByteArrayKeyValueStore marks) {
+        this.marks = marks;
+    }
+
+    @Override
+    public void doOnNode(byte[] hash, Value node) {
+        marks.put(hash, DUMMY_VALUE);
+        count.incrementAndGet();
+    }
+
+    public boolean isMarked(byte[] hash) {
+        return marks.get(hash).isPresent();
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+}
@@ -1,13 +1,13 @@
 package org.aion.zero.impl.types;
 
 import java.math.BigInteger;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import org.aion.base.AionTransaction;
 import org.aion.mcf.blockchain.Block;
-import org.aion.rlp.RLP;
+import org.aion.rlp.RLPView;
+import org.aion.rlp.RLPWriter;
 import org.aion.util.types.ByteArrayWrapper;
 
 /** Abstract Block class. */
@@ -21,6 +21,9 @@ public abstract class AbstractBlock implements Block {
 
     List<AionTransaction> transactionsList = new CopyOnWriteArrayList<>();
 
+    // the encoded transactions of a block read from the database, decoded on first access
+    private volatile byte[] encodedTransactions;
+
     // used to reduce the number of times we create equal wrapper objects
     private ByteArrayWrapper hashWrapper;
     private ByteArrayWrapper parentHashWrapper;
@@ -51,27 +54,60 @@ public abstract class AbstractBlock implements Block {
 
     @Override
     public byte[] getEncodedBody() {
-        List<byte[]> body = getBodyElements();
-        byte[][] elements = body.toArray(new byte[body.size()][]);
-        return RLP.encodeList(elements);
-    }
-
-    List<byte[]> getBodyElements() {
-        byte[] transactions = getTransactionsEncoded();
-        List<byte[]> body = new ArrayList<>();
-        body.add(transactions);
-        return body;
+        return writeTransactions(new RLPWriter().beginList()).endList().toByteArray();
     }
 
-    private byte[] getTransactionsEncoded() {
+    /**
+     * Writes the encoded list of transactions, which follows the header in the block encoding and
+     * makes up the body.
+     */
+    RLPWriter writeTransactions(RLPWriter writer) {
+        byte[] encoded = encodedTransactions;
+        if (encoded != null) {
+            return writer.addEncoded(encoded);
+        }
 
-        byte[][] transactionsEncoded = new byte[transactionsList.size()][];
-        int i = 0;
+        writer.beginList();
         for (AionTransaction tx : transactionsList) {
-            transactionsEncoded[i] = tx.getEncoded();
-            ++i;
+            writer.addEncoded(tx.getEncoded());
+        }
+        return writer.endList();
+    }
+
+    /**
+     * Returns the transactions of the block, decoding them on the first call when the block was
+     * created with {@link #setEncodedTransactions(byte[])}.
+     */
+    List<AionTransaction> transactions() {
+        if (encodedTransactions != null) {
+            synchronized (this) {
+                byte[] encoded = encodedTransactions;
+                if (encoded != null) {
+                    transactionsList.addAll(BlockUtil.parseTransactions(RLPView.wrap(encoded)));
+                    encodedTransactions = null;
+                }
+            }
         }
-        return RLP.encodeList(transactionsEncoded);
+        return transactionsList;
+    }
+
+    /** Replaces the transactions of the block with the given ones. */
+    synchronized void setTransactions(List<AionTransaction> transactions) {
+        encodedTransactions = null;
+        transactionsList.clear();
+        transactionsList.addAll(transactions);
+    }
+
+    /**
+     * Replaces the transactions of the block with their RLP encoded list, which is only decoded
+     * when the transactions are accessed. Blocks read to look at their headers or to be sent to
+     * peers are never decoded.
+     *
+     * @implNote Assumes the data is from a safe (internal) source.
+     */
+    synchronized void setEncodedTransactions(byte[] encoded) {
+        transactionsList.clear();
+        encodedTransactions = encoded;
     }
 
     @Override
@@ -7,7 +7,7 @@ import java.util.Collections;
 import java.util.List;
 import org.aion.base.AionTransaction;
 import org.aion.mcf.blockchain.BlockHeader;
-import org.aion.rlp.RLP;
+import org.aion.rlp.RLPWriter;
 import org.aion.types.AionAddress;
 import org.aion.util.bytes.ByteUtil;
 import org.aion.util.conversions.Hex;
@@ -27,7 +27,7 @@ public class AionBlock extends AbstractBlock {
             throw  new NullPointerException("Block is null");
         }
         this.header = A0BlockHeader.Builder.newInstance().withHeader(block.getHeader()).build();
-        this.transactionsList.addAll(block.getTransactionsList());
+        setTransactions(block.getTransactionsList());
     }
 
     /**
@@ -68,8 +68,7 @@ public class AionBlock extends AbstractBlock {
         }
 
         this.header = header;
-        this.transactionsList.clear();
-        this.transactionsList.addAll(transactionsList);
+        setTransactions(transactionsList);
     }
 
     @VisibleForTesting
@@ -112,8 +111,7 @@ public class AionBlock extends AbstractBlock {
         }
 
         this.header = builder.build();
-        this.transactionsList.clear();
-        this.transactionsList.addAll(transactionsList);
+        setTransactions(transactionsList);
     }
 
     /**
@@ -260,7 +258,7 @@ public class AionBlock extends AbstractBlock {
 
     @Override
     public List<AionTransaction> getTransactionsList() {
-        return transactionsList;
+        return transactions();
     }
 
     /**
@@ -322,8 +320,7 @@ public class AionBlock extends AbstractBlock {
                         .withEnergyConsumed(energyUsed)
                         .build();
 
-        this.transactionsList.clear();
-        this.transactionsList.addAll(txs);
+        setTransactions(txs);
     }
 
     @Override
@@ -394,13 +391,8 @@ public class AionBlock extends AbstractBlock {
 
     @Override
     public byte[] getEncoded() {
-        byte[] header = this.header.getEncoded();
-
-        List<byte[]> block = getBodyElements();
-        block.add(0, header);
-        byte[][] elements = block.toArray(new byte[block.size()][]);
-
-        return RLP.encodeList(elements);
+        RLPWriter writer = new RLPWriter().beginList().addEncoded(header.getEncoded());
+        return writeTransactions(writer).endList().toByteArray();
     }
 
     @Override
@@ -2,6 +2,7 @@ package org.aion.zero.impl.types;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import org.aion.base.AionTransaction;
 import org.aion.base.TxUtil;
@@ -13,8 +14,8 @@ import org.aion.mcf.blockchain.BlockHeader.BlockSealType;
 import org.aion.rlp.RLP;
 import org.aion.rlp.RLPElement;
 import org.aion.rlp.RLPList;
-import org.aion.zero.impl.trie.Trie;
-import org.aion.zero.impl.trie.TrieImpl;
+import org.aion.rlp.RLPView;
+import org.aion.zero.impl.trie.ListTrie;
 import org.slf4j.Logger;
 
 /**
@@ -47,26 +48,97 @@ public final class BlockUtil {
 
         // attempt decoding, return null if it fails
         try {
-            RLPList params = RLP.decode2(rlp);
-            RLPList block = (RLPList) params.get(0);
-            RLPList header = (RLPList) block.get(0);
-            List<AionTransaction> txs = parseTransactions((RLPList) block.get(1));
-            byte[] sealType = header.get(0).getRLPData();
-            if (sealType[0] == BlockSealType.SEAL_POW_BLOCK.getSealId()) {
-                A0BlockHeader miningHeader = A0BlockHeader.Builder.newInstance().withRlpList(header).build();
-                return new AionBlock(miningHeader, txs);
-            } else if (sealType[0] == BlockSealType.SEAL_POS_BLOCK.getSealId()) {
-                StakingBlockHeader stakingHeader = StakingBlockHeader.Builder.newInstance().withRlpList(header).build();
-                return new StakingBlock(stakingHeader, txs);
-            } else {
-                return null;
-            }
+            RLPView.Cursor block = RLPView.wrap(rlp).cursor();
+            RLPView header = block.next();
+            RLPView transactions = block.next();
+            return newBlock(header.toRLPList(), transactions);
         } catch (Exception e) {
             genLog.warn("Unable to decode block bytes " + Arrays.toString(rlp), e);
             return null;
         }
     }
 
+    /**
+     * Decodes the separate encodings of a block header and body, as returned by {@link
+     * BlockHeader#getEncoded()} and {@link Block#getEncodedBody()}, into a new instance of a block
+     * or returns {@code null} if they do not describe a valid block.
+     *
+     * @param headerRlp RLP encoded block header
+     * @param bodyRlp RLP encoded block body
+     * @return a new instance of a block or {@code null} if the encodings do not describe a valid
+     *     block
+     * @implNote Assumes the data is from a safe (internal) source.
+     */
+    public static Block newBlockFromHeaderAndBody(byte[] headerRlp, byte[] bodyRlp) {
+        // return null when given empty bytes
+        if (headerRlp == null || headerRlp.length == 0 || bodyRlp == null) {
+            return null;
+        }
+
+        // attempt decoding, return null if it fails
+        try {
+            RLPList header = (RLPList) RLP.decode2(headerRlp).get(0);
+            RLPView transactions = RLPView.wrap(bodyRlp).get(0);
+            return newBlock(header, transactions);
+        } catch (Exception e) {
+            genLog.warn("Unable to decode block header bytes " + Arrays.toString(headerRlp), e);
+            return null;
+        }
+    }
+
+    /** Creates a block whose transactions are decoded on first access. */
+    private static Block newBlock(RLPList header, RLPView transactions) {
+        BlockHeader blockHeader = newHeader(header);
+        AbstractBlock block;
+        if (blockHeader instanceof A0BlockHeader) {
+            block = new AionBlock((A0BlockHeader) blockHeader, Collections.emptyList());
+        } else if (blockHeader instanceof StakingBlockHeader) {
+            block = new StakingBlock((StakingBlockHeader) blockHeader, Collections.emptyList());
+        } else {
+            return null;
+        }
+        if (!transactions.isList()) {
+            throw new IllegalArgumentException("The block transactions are not a list.");
+        }
+        block.setEncodedTransactions(transactions.getEncoded());
+        return block;
+    }
+
+    private static BlockHeader newHeader(RLPList header) {
+        byte[] sealType = header.get(0).getRLPData();
+        if (sealType[0] == BlockSealType.SEAL_POW_BLOCK.getSealId()) {
+            return A0BlockHeader.Builder.newInstance().withRlpList(header).build();
+        } else if (sealType[0] == BlockSealType.SEAL_POS_BLOCK.getSealId()) {
+            return StakingBlockHeader.Builder.newInstance().withRlpList(header).build();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Decodes the given encoding into a new instance of a block header or returns {@code null} if
+     * the RLP encoding does not describe a valid block header.
+     *
+     * @param rlp RLP encoded block header, as returned by {@link BlockHeader#getEncoded()}
+     * @return a new instance of a block header or {@code null} if the RLP encoding does not
+     *     describe a valid block header
+     * @implNote Assumes the data is from a safe (internal) source.
+     */
+    public static BlockHeader newHeaderFromRlp(byte[] rlp) {
+        // return null when given empty bytes
+        if (rlp == null || rlp.length == 0) {
+            return null;
+        }
+
+        // attempt decoding, return null if it fails
+        try {
+            return newHeader((RLPList) RLP.decode2(rlp).get(0));
+        } catch (Exception e) {
+            genLog.warn("Unable to decode block header bytes " + Arrays.toString(rlp), e);
+            return null;
+        }
+    }
+
     /**
      * Decodes the given encoding into a new instance of a block or returns {@code null} if the RLP
      * encoding does not describe a valid block.
@@ -184,14 +256,22 @@ public final class BlockUtil {
         return transactionsList;
     }
 
+    /** Decodes the give transactions, locating each of them without decoding the others. */
+    public static List<AionTransaction> parseTransactions(RLPView txTransactions) {
+        List<AionTransaction> transactionsList = new ArrayList<>();
+        for (RLPView transactionRaw : txTransactions) {
+            transactionsList.add(TxUtil.decode(transactionRaw.getEncoded()));
+        }
+        return transactionsList;
+    }
+
     /** Builds the transaction trie and checks for root equality. */
     public static boolean isValidRoot(byte[] expectedRoot, RLPList txTransactions) {
-        Trie txsState = new TrieImpl(null);
-        for (int i = 0; i < txTransactions.size(); i++) {
-            RLPElement transactionRaw = txTransactions.get(i);
-            txsState.update(RLP.encodeInt(i), transactionRaw.getRLPData());
+        List<byte[]> encodings = new ArrayList<>(txTransactions.size());
+        for (RLPElement transactionRaw : txTransactions) {
+            encodings.add(transactionRaw.getRLPData());
         }
-        byte[] txStateRoot = txsState.getRootHash();
+        byte[] txStateRoot = ListTrie.computeRoot(encodings);
         return Arrays.equals(expectedRoot, txStateRoot);
     }
 }
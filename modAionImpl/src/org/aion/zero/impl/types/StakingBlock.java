@@ -6,7 +6,7 @@ import java.util.Arrays;
 import java.util.List;
 import org.aion.base.AionTransaction;
 import org.aion.mcf.blockchain.BlockHeader;
-import org.aion.rlp.RLP;
+import org.aion.rlp.RLPWriter;
 import org.aion.types.AionAddress;
 import org.aion.util.bytes.ByteUtil;
 import org.aion.util.conversions.Hex;
@@ -26,7 +26,7 @@ public class StakingBlock extends AbstractBlock {
         }
 
         this.header = StakingBlockHeader.Builder.newInstance().withHeader(block.getHeader()).build();
-        this.transactionsList.addAll(block.getTransactionsList());
+        setTransactions(block.getTransactionsList());
     }
 
     /**
@@ -44,8 +44,7 @@ public class StakingBlock extends AbstractBlock {
         }
 
         this.header = header;
-        this.transactionsList.clear();
-        this.transactionsList.addAll(transactionsList);
+        setTransactions(transactionsList);
     }
 
     @VisibleForTesting
@@ -105,8 +104,7 @@ public class StakingBlock extends AbstractBlock {
         }
 
         this.header = builder.build();
-        this.transactionsList.clear();
-        this.transactionsList.addAll(transactionsList);
+        setTransactions(transactionsList);
     }
 
     /**
@@ -244,7 +242,7 @@ public class StakingBlock extends AbstractBlock {
 
     @Override
     public List<AionTransaction> getTransactionsList() {
-        return transactionsList;
+        return transactions();
     }
 
     /**
@@ -307,8 +305,7 @@ public class StakingBlock extends AbstractBlock {
                 .withEnergyConsumed(energyUsed)
                 .build();
 
-        this.transactionsList.clear();
-        this.transactionsList.addAll(txs);
+        setTransactions(txs);
     }
 
     @Override
@@ -370,13 +367,8 @@ public class StakingBlock extends AbstractBlock {
     }
 
     public byte[] getEncoded() {
-        byte[] headerRlpEncoded = header.getEncoded();
-
-        List<byte[]> block = getBodyElements();
-        block.add(0, headerRlpEncoded);
-        byte[][] elements = block.toArray(new byte[block.size()][]);
-
-        return RLP.encodeList(elements);
+        RLPWriter writer = new RLPWriter().beginList().addEncoded(header.getEncoded());
+        return writeTransactions(writer).endList().toByteArray();
     }
 
     @Override
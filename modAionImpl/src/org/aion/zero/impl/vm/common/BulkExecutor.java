@@ -30,6 +30,20 @@ import org.slf4j.Logger;
  */
 public final class BulkExecutor {
 
+    /** Batches smaller than this are not worth fanning out to other threads. */
+    private static final int MIN_SPECULATIVE_BATCH_SIZE = 4;
+
+    private static volatile boolean speculativeExecution = false;
+
+    /**
+     * Sets whether batches of fvm transactions imported as part of a block are executed
+     * speculatively in parallel. See {@link FvmTransactionExecutor#executeTransactionsSpeculatively}.
+     * The avm already executes its batches concurrently.
+     */
+    public static void setSpeculativeExecution(boolean enabled) {
+        speculativeExecution = enabled;
+    }
+
     /**
      * Executes all of the transactions in the specified block and returns a list of summaries such
      * that the i'th summary corresponds to the i'th transaction in the block. The transactions will
@@ -377,6 +391,25 @@ public final class BulkExecutor {
         AionTransaction[] fvmTransactions = new AionTransaction[fvmTransactionsToExecute.size()];
         fvmTransactionsToExecute.toArray(fvmTransactions);
 
+        if (speculativeExecution
+                && !isLocalCall
+                && !checkBlockEnergyLimit
+                && fvmTransactions.length >= MIN_SPECULATIVE_BATCH_SIZE) {
+            return FvmTransactionExecutor.executeTransactionsSpeculatively(
+                    repository,
+                    blockDifficulty,
+                    blockNumber,
+                    blockTimestamp,
+                    blockNrgLimit,
+                    blockCoinbase,
+                    fvmTransactions,
+                    postExecutionWork,
+                    logger,
+                    incrementSenderNonce,
+                    fork040enabled,
+                    unityForkEnabled);
+        }
+
         // Execute the fvm transactions.
         return FvmTransactionExecutor.executeTransactions(
                 repository,
@@ -3,7 +3,12 @@ package org.aion.zero.impl.vm.fvm;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.aion.zero.impl.vm.common.PostExecutionWork;
 import org.aion.zero.impl.vm.common.VmFatalException;
 import org.aion.base.AccountState;
@@ -19,6 +24,7 @@ import org.aion.types.Transaction;
 import org.aion.types.TransactionResult;
 import org.aion.types.TransactionStatus;
 import org.aion.util.bytes.ByteUtil;
+import org.aion.zero.impl.db.AionRepositoryCache;
 import org.aion.base.AionTxExecSummary;
 import org.aion.base.AionTxReceipt;
 import org.slf4j.Logger;
@@ -151,6 +157,206 @@ public final class FvmTransactionExecutor {
         return transactionSummaries;
     }
 
+    /**
+     * Executes the specified array of transactions like {@link #executeTransactions} but runs the
+     * virtual machine for all of them in parallel first, each one on its own cache layer over the
+     * given repository. The layers record every account they touch.
+     *
+     * <p>The results are then committed in order. A speculative result is only used when none of
+     * the accounts it touched were modified by the transactions committed before it. Otherwise,
+     * and for contract deployments whose new account is not visible to the recording layer, the
+     * transaction is re-executed on the current state. The summaries, receipts and the resulting
+     * state are therefore the same as those of a sequential run.
+     *
+     * <p>The block energy limit is not checked, since a transaction rejected for exceeding it is
+     * executed before being rejected and the sequential path carries its leftover state forward.
+     * Callers must fall back to {@link #executeTransactions} when they need that check.
+     *
+     * @param repository The current snapshot of the kernel's repository layer.
+     * @param blockDifficulty The current best block's difficulty.
+     * @param blockNumber The current best block number.
+     * @param blockTimestamp The current best block timestamp.
+     * @param blockNrgLimit The current best block energy limit.
+     * @param blockCoinbase The address of the miner.
+     * @param transactions The transactions to execute.
+     * @param postExecutionWork The post-execute work, if any, to be run immediately after each
+     *     transaction completes.
+     * @param logger A logger.
+     * @param allowNonceIncrement Whether to increment the sender nonce.
+     * @param fork040enabled Whether or not the 0.4.0 fork is enabled.
+     * @return a list of transaction summaries pertaining to the transactions.
+     */
+    public static List<AionTxExecSummary> executeTransactionsSpeculatively(
+            RepositoryCache<AccountState> repository,
+            byte[] blockDifficulty,
+            long blockNumber,
+            long blockTimestamp,
+            long blockNrgLimit,
+            AionAddress blockCoinbase,
+            AionTransaction[] transactions,
+            PostExecutionWork postExecutionWork,
+            Logger logger,
+            boolean allowNonceIncrement,
+            boolean fork040enabled,
+            boolean unityForkEnabled)
+            throws VmFatalException {
+
+        FvmDataWord difficulty = getDifficultyAsDataWord(blockDifficulty);
+
+        // Run every transaction against the state at the start of the batch.
+        List<Speculation> speculations =
+                IntStream.range(0, transactions.length)
+                        .parallel()
+                        .mapToObj(
+                                i -> {
+                                    if (transactions[i].isContractCreationTransaction()) {
+                                        return null;
+                                    }
+                                    try {
+                                        return speculate(
+                                                repository,
+                                                difficulty,
+                                                blockNumber,
+                                                blockTimestamp,
+                                                blockNrgLimit,
+                                                blockCoinbase,
+                                                transactions[i],
+                                                allowNonceIncrement,
+                                                fork040enabled,
+                                                unityForkEnabled);
+                                    } catch (RuntimeException e) {
+                                        // re-executed on the committing thread, which
+                                        // reports the error
+                                        return null;
+                                    }
+                                })
+                        .collect(Collectors.toList());
+
+        List<AionTxExecSummary> transactionSummaries = new ArrayList<>();
+        Set<AionAddress> modified = new HashSet<>();
+        int reExecuted = 0;
+
+        for (int i = 0; i < transactions.length; i++) {
+            AionTransaction transaction = transactions[i];
+            Speculation speculation = speculations.get(i);
+
+            if (speculation == null || !Collections.disjoint(speculation.accessed, modified)) {
+                speculation =
+                        speculate(
+                                repository,
+                                difficulty,
+                                blockNumber,
+                                blockTimestamp,
+                                blockNrgLimit,
+                                blockCoinbase,
+                                transaction,
+                                allowNonceIncrement,
+                                fork040enabled,
+                                unityForkEnabled);
+                reExecuted++;
+            }
+
+            TransactionResult result = speculation.wrappedResult.result;
+            List<AionAddress> deletedAddresses = speculation.wrappedResult.deletedAddresses;
+
+            if (result.transactionStatus.isFatal()) {
+                throw new VmFatalException(result.toString());
+            }
+
+            AionTxExecSummary summary =
+                    buildTransactionSummary(transaction, result, deletedAddresses);
+
+            if (!summary.isRejected()) {
+                speculation.externalState.commit();
+                modified.addAll(speculation.accessed);
+
+                RepositoryCache repositoryTracker = repository.startTracking();
+
+                refundSender(repositoryTracker, summary, transaction, result);
+                payMiner(repositoryTracker, blockCoinbase, summary);
+                deleteAccountsMarkedForDeletion(
+                        repositoryTracker, summary.getDeletedAccounts(), result);
+
+                repositoryTracker.flush();
+
+                modified.add(transaction.getSenderAddress());
+                modified.add(blockCoinbase);
+                modified.addAll(summary.getDeletedAccounts());
+            }
+
+            if (postExecutionWork != null) {
+                postExecutionWork.doWork(repository, summary, transaction);
+            }
+
+            if (logger.isDebugEnabled()) {
+                logger.debug("Transaction receipt: {}", summary.getReceipt());
+                logger.debug("Transaction logs: {}", summary.getLogs());
+            }
+
+            transactionSummaries.add(summary);
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug(
+                    "Speculative execution of {} transactions re-executed {}",
+                    transactions.length,
+                    reExecuted);
+        }
+
+        return transactionSummaries;
+    }
+
+    /** The outcome of running a transaction on its own recording layer. */
+    private static final class Speculation {
+        private final Set<AionAddress> accessed;
+        private final IExternalStateForFvm externalState;
+        private final FvmWrappedTransactionResult wrappedResult;
+
+        private Speculation(
+                Set<AionAddress> accessed,
+                IExternalStateForFvm externalState,
+                FvmWrappedTransactionResult wrappedResult) {
+            this.accessed = accessed;
+            this.externalState = externalState;
+            this.wrappedResult = wrappedResult;
+        }
+    }
+
+    private static Speculation speculate(
+            RepositoryCache<AccountState> repository,
+            FvmDataWord difficulty,
+            long blockNumber,
+            long blockTimestamp,
+            long blockNrgLimit,
+            AionAddress blockCoinbase,
+            AionTransaction transaction,
+            boolean allowNonceIncrement,
+            boolean fork040enabled,
+            boolean unityForkEnabled) {
+
+        Set<AionAddress> accessed = new HashSet<>();
+        IExternalStateForFvm externalState =
+                new ExternalStateForFvm(
+                        new AionRepositoryCache(repository, accessed),
+                        blockCoinbase,
+                        difficulty,
+                        false,
+                        allowNonceIncrement,
+                        fork040enabled,
+                        blockNumber,
+                        blockTimestamp,
+                        blockNrgLimit,
+                        unityForkEnabled);
+
+        FvmWrappedTransactionResult wrappedResult =
+                FastVirtualMachine.run(
+                        externalState,
+                        new ExternalCapabilitiesForFvm(),
+                        toAionTypesTransaction(transaction),
+                        fork040enabled);
+        return new Speculation(accessed, externalState, wrappedResult);
+    }
+
     private static AionTxExecSummary buildTransactionSummary(
             AionTransaction transaction,
             TransactionResult result,
@@ -0,0 +1,74 @@
+package org.aion.zero.impl.blockchain;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.util.List;
+import org.aion.base.AionTransaction;
+import org.aion.base.TransactionTypes;
+import org.aion.crypto.ECKey;
+import org.aion.types.AionAddress;
+import org.aion.zero.impl.core.ImportResult;
+import org.aion.zero.impl.db.AionRepositoryImpl;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.impl.vm.AvmTestConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StatePrefetcherTest {
+
+    @Before
+    public void setup() {
+        AvmTestConfig.supportOnlyAvmVersion1();
+    }
+
+    @After
+    public void tearDown() {
+        AvmTestConfig.clearConfigurations();
+    }
+
+    private static AionTransaction transfer(ECKey key, long nonce, AionAddress destination) {
+        return AionTransaction.create(
+                key,
+                BigInteger.valueOf(nonce).toByteArray(),
+                destination,
+                BigInteger.ONE.toByteArray(),
+                new byte[0],
+                21000,
+                1,
+                TransactionTypes.DEFAULT,
+                null);
+    }
+
+    @Test
+    public void testPrefetchReferencedAccounts() {
+        StandaloneBlockchain.Bundle bundle =
+                new StandaloneBlockchain.Builder()
+                        .withDefaultAccounts()
+                        .withValidatorConfiguration("simple")
+                        .build();
+        StandaloneBlockchain bc = bundle.bc;
+
+        ECKey sender = bundle.privateKeys.get(0);
+        AionAddress first = new AionAddress(bundle.privateKeys.get(1).getAddress());
+        AionAddress second = new AionAddress(bundle.privateKeys.get(2).getAddress());
+        List<AionTransaction> txs =
+                List.of(transfer(sender, 0, first), transfer(sender, 1, second));
+
+        AionBlock block = bc.createNewMiningBlock(bc.getBestBlock(), txs, true);
+        assertThat(StatePrefetcher.referencedAddresses(block))
+                .containsExactly(
+                        new AionAddress(sender.getAddress()), first, second, block.getCoinbase());
+
+        AionRepositoryImpl repository = bc.getRepository();
+        BigInteger balance = repository.getBalance(second);
+        StatePrefetcher prefetcher = new StatePrefetcher();
+        prefetcher.prefetch(repository, block);
+        assertThat(prefetcher.getPrefetchedAccountCount()).isEqualTo(4);
+
+        // the prefetched state is used by the import
+        assertThat(bc.tryToConnect(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+        assertThat(repository.getBalance(second)).isEqualTo(balance.add(BigInteger.ONE));
+    }
+}
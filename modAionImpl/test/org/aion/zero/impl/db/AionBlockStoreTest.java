@@ -15,9 +15,11 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
 import org.aion.db.impl.mockdb.MockDB;
 import org.aion.mcf.blockchain.Block;
+import org.aion.mcf.blockchain.BlockHeader;
 import org.aion.util.TestResources;
 import org.aion.util.types.AddressUtils;
 import org.aion.zero.impl.types.AionBlock;
@@ -278,6 +280,47 @@ public class AionBlockStoreTest {
         assertThat(storedBlk.getDifficulty().equals(BigInteger.TEN.toByteArray()));
     }
 
+    @Test
+    public void testHeadersReadWithoutBodies() {
+        ByteArrayKeyValueDatabase headers = new MockDB("headers", log);
+        headers.open();
+        AionBlockStore store = new AionBlockStore(index, blocks, headers, false, 0, null, 0);
+
+        BigInteger td = BigInteger.ZERO;
+        for (Block block : consecutiveBlocks) {
+            td = td.add(block.getDifficultyBI());
+            store.saveBlock(block, td, true);
+        }
+        store.flush();
+
+        // the walks over the chain only read the headers
+        for (Block block : consecutiveBlocks) {
+            blocks.delete(block.getHash());
+        }
+
+        Block first = consecutiveBlocks.get(0);
+        Block last = consecutiveBlocks.get(consecutiveBlocks.size() - 1);
+        List<BlockHeader> list = store.getListHeadersEndWith(last.getHash(), consecutiveBlocks.size());
+        assertThat(list).hasSize(consecutiveBlocks.size());
+        for (int i = 0; i < list.size(); i++) {
+            Block expected = consecutiveBlocks.get(consecutiveBlocks.size() - 1 - i);
+            assertThat(list.get(i).getEncoded()).isEqualTo(expected.getHeader().getEncoded());
+        }
+        assertThat(store.getListHashesEndWith(last.getHash(), 2))
+                .containsExactly(last.getHash(), last.getParentHash())
+                .inOrder();
+        assertThat(store.getBlockHashByNumber(first.getNumber(), last.getHash()))
+                .isEqualTo(first.getHash());
+        assertThat(store.getBlockByHash(last.getHash())).isNull();
+
+        // reverting removes the headers together with the blocks
+        store.rollback(first.getNumber());
+        assertThat(headers.get(last.getHash()).isPresent()).isFalse();
+        assertThat(headers.get(first.getHash()).isPresent()).isTrue();
+
+        headers.close();
+    }
+
     private static final int TIME_OUT = 100; // in seconds
 
     private void addThread_saveBlock(List<Runnable> threads, AionBlockStore store, Block block) {
@@ -327,8 +370,6 @@ public class AionBlockStoreTest {
 
     @Test
     public void testConcurrent() throws InterruptedException {
-        System.out.println("Note: If this test fails there may be a thread synchronization issue inside the AionBlockStore.");
-
         // set up block store with cache to replicate normal execution
         AionBlockStore store = new AionBlockStore(index, blocks, false, 10);
 
@@ -341,7 +382,8 @@ public class AionBlockStoreTest {
             addThread_getChainBlockByNumber(threads, store, blk);
         }
 
-        System.out.format("%nTest 1: Running the %d generated threads...%n", threads.size());
+        // if this fails there may be a thread synchronization issue inside the AionBlockStore
+        log.debug("Test 1: Running the {} generated threads...", threads.size());
         assertConcurrent("Testing concurrent use of AionBlockStore", threads, TIME_OUT);
 
         testBlocks = TestResources.blocks(20);
@@ -352,10 +394,89 @@ public class AionBlockStoreTest {
             addThread_getChainBlockByNumber(threads, store, blk);
         }
 
-        System.out.format("%nTest 2: Running the %d generated threads...%n", threads.size());
+        log.debug("Test 2: Running the {} generated threads...", threads.size());
         assertConcurrent("Testing concurrent use of AionBlockStore", threads, TIME_OUT);
     }
 
+    private static List<Block> chainOfBlocks(int size) {
+        List<Block> chain = new ArrayList<>(size);
+        byte[] parentHash = new byte[32];
+        for (int i = 0; i < size; i++) {
+            AionBlock block =
+                    new AionBlock(
+                            parentHash,
+                            AddressUtils.ZERO_ADDRESS,
+                            new byte[256],
+                            BigInteger.ONE.toByteArray(),
+                            i,
+                            i,
+                            new byte[32],
+                            new byte[32],
+                            new byte[32],
+                            new byte[32],
+                            new byte[32],
+                            new ArrayList<>(),
+                            new byte[1408],
+                            1,
+                            1);
+            chain.add(block);
+            parentHash = block.getHash();
+        }
+        return chain;
+    }
+
+    @Test
+    public void testConcurrentReadsDuringImport() throws InterruptedException {
+        AionBlockStore store = new AionBlockStore(index, blocks, false, 10);
+
+        List<Block> chain = chainOfBlocks(2_000);
+        store.saveBlock(chain.get(0), BigInteger.ONE, true);
+
+        AtomicBoolean importing = new AtomicBoolean(true);
+        List<Runnable> threads = new ArrayList<>();
+        threads.add(
+                () -> {
+                    try {
+                        for (int i = 1; i < chain.size(); i++) {
+                            store.saveBlock(chain.get(i), BigInteger.valueOf(i + 1), true);
+                        }
+                    } finally {
+                        importing.set(false);
+                    }
+                });
+        for (int t = 0; t < 4; t++) {
+            threads.add(
+                    () -> {
+                        while (importing.get()) {
+                            long best = store.getMaxNumber();
+                            long first = Math.max(1, best - 9);
+
+                            // the range must always be a complete segment of the main chain
+                            List<Block> range = store.getBlocksByRange(first, best);
+                            if (best > 0) {
+                                assertThat(range).hasSize((int) (best - first + 1));
+                                for (int i = 1; i < range.size(); i++) {
+                                    assertThat(range.get(i).getParentHash())
+                                            .isEqualTo(range.get(i - 1).getHash());
+                                }
+                            }
+
+                            long number = best / 2;
+                            assertThat(store.getBlockHashByNumber(number))
+                                    .isEqualTo(chain.get((int) number).getHash());
+                            assertThat(store.getChainBlockByNumber(number).getNumber())
+                                    .isEqualTo(number);
+                            assertThat(store.getBlockByHash(chain.get((int) number).getHash()))
+                                    .isNotNull();
+                        }
+                    });
+        }
+
+        assertConcurrent("Testing concurrent reads during import", threads, TIME_OUT);
+
+        assertThat(store.getMaxNumber()).isEqualTo(chain.size() - 1);
+    }
+
     /**
      * From <a
      * href="https://github.com/junit-team/junit4/wiki/multithreaded-code-and-concurrency">JUnit
@@ -9,6 +9,7 @@ import org.aion.crypto.HashUtil;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
 import org.aion.db.impl.DBVendor;
 import org.aion.db.impl.DatabaseFactory;
+import org.aion.zero.impl.config.CfgDb;
 import org.aion.zero.impl.config.CfgPrune;
 import org.aion.base.AccountState;
 import org.aion.mcf.db.InternalVmType;
@@ -374,6 +375,75 @@ public class AionRepositoryImplTest {
         assertThat(repository.getBalance(account3)).isLessThan(snapshot.getBalance(account3));
     }
 
+    @Test
+    public void testFlatStateReads() {
+        RepositoryConfig flatStateConfig =
+                new RepositoryConfig() {
+                    @Override
+                    public String getDbPath() {
+                        return "";
+                    }
+
+                    @Override
+                    public PruneConfig getPruneConfig() {
+                        return new CfgPrune(false);
+                    }
+
+                    @Override
+                    public Properties getDatabaseConfig(String db_name) {
+                        Properties props = new Properties();
+                        props.setProperty(DatabaseFactory.Props.DB_TYPE, DBVendor.MOCKDB.toValue());
+                        props.setProperty(CfgDb.Props.ENABLE_FLAT_STATE, "true");
+                        return props;
+                    }
+                };
+        AionRepositoryImpl repository = AionRepositoryImpl.createForTesting(flatStateConfig);
+        final AionAddress account = AddressUtils.wrapAddress(value1);
+        final AionAddress contract = AddressUtils.wrapAddress(value2);
+        final ByteArrayWrapper key = new DataWord(1).toWrapper();
+
+        // first block
+        RepositoryCache track = repository.startTracking();
+        track.addBalance(account, BigInteger.ONE);
+        track.addStorageRow(contract, key, new DataWord(10).toWrapper());
+        track.saveVmType(contract, InternalVmType.FVM);
+        track.flush();
+        repository.commitBlock(ByteArrayWrapper.wrap(new byte[32]), 1, repository.getRoot());
+        byte[] root1 = repository.getRoot();
+
+        // second block
+        track = repository.startTracking();
+        track.addBalance(account, BigInteger.TWO);
+        track.addStorageRow(contract, key, new DataWord(20).toWrapper());
+        track.flush();
+        repository.commitBlock(ByteArrayWrapper.wrap(new byte[32]), 2, repository.getRoot());
+
+        // the reads are answered by the flat state layers
+        long hits = repository.flatState.getHitCount();
+        assertThat(repository.getBalance(account)).isEqualTo(BigInteger.valueOf(3));
+        assertThat(repository.getStorageValue(contract, key))
+                .isEqualTo(new DataWord(20).toWrapper());
+        assertThat(repository.flatState.getHitCount()).isGreaterThan(hits);
+
+        // snapshots read the layer for their own root
+        Repository snapshot = repository.getSnapshotTo(root1);
+        assertThat(snapshot.getBalance(account)).isEqualTo(BigInteger.ONE);
+        assertThat(snapshot.getStorageValue(contract, key))
+                .isEqualTo(new DataWord(10).toWrapper());
+
+        // pending changes are read from the trie
+        track = repository.startTracking();
+        track.addBalance(account, BigInteger.TEN);
+        track.flush();
+        assertThat(repository.getBalance(account)).isEqualTo(BigInteger.valueOf(13));
+
+        // a reset to a previous root reads the flat state again
+        repository.syncToRoot(root1);
+        assertThat(repository.getBalance(account)).isEqualTo(BigInteger.ONE);
+        assertThat(repository.getStorageValue(contract, key))
+                .isEqualTo(new DataWord(10).toWrapper());
+    }
+
     @Test
     public void testImportTrieNode() {
         AionRepositoryImpl repository = AionRepositoryImpl.createForTesting(repoConfig);
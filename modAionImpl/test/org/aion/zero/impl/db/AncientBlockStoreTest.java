@@ -0,0 +1,200 @@
+package org.aion.zero.impl.db;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.aion.zero.impl.db.DatabaseUtils.deleteRecursively;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.mcf.blockchain.Block;
+import org.aion.zero.impl.types.A0BlockHeader;
+import org.aion.zero.impl.types.AionBlock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class AncientBlockStoreTest {
+    private static final Logger log = LoggerFactory.getLogger("DB");
+
+    // small enough to store only a few headers per segment
+    private static final long SEGMENT_SIZE = 4096;
+
+    private File dir;
+    private List<Block> chain;
+
+    @Before
+    public void setup() {
+        dir = new File(System.getProperty("user.dir"), "tmp-ancient-" + System.currentTimeMillis());
+        chain = chain(10);
+    }
+
+    @After
+    public void cleanup() {
+        deleteRecursively(dir);
+    }
+
+    private static List<Block> chain(int size) {
+        List<Block> chain = new ArrayList<>();
+        byte[] parentHash = new byte[32];
+        for (int i = 0; i < size; i++) {
+            A0BlockHeader header =
+                    A0BlockHeader.Builder.newInstance()
+                            .withNumber(i)
+                            .withParentHash(parentHash)
+                            .withTimestamp(1_000 + i)
+                            .withEnergyLimit(10_000_000L)
+                            .withDefaultCoinbase()
+                            .withDefaultStateRoot()
+                            .withDefaultTxTrieRoot()
+                            .withDefaultReceiptTrieRoot()
+                            .withDefaultLogsBloom()
+                            .withDefaultDifficulty()
+                            .withDefaultExtraData()
+                            .withDefaultNonce()
+                            .withDefaultSolution()
+                            .build();
+            Block block = new AionBlock(header, Collections.emptyList());
+            chain.add(block);
+            parentHash = block.getHash();
+        }
+        return chain;
+    }
+
+    @Test
+    public void testAppendAndRead() throws IOException {
+        AncientBlockStore store = new AncientBlockStore(dir, SEGMENT_SIZE);
+        for (Block block : chain) {
+            store.append(block);
+        }
+        store.force();
+
+        assertThat(store.size()).isEqualTo(chain.size());
+        for (Block block : chain) {
+            long number = block.getNumber();
+            assertThat(store.getHash(number)).isEqualTo(block.getHash());
+            assertThat(store.getEncodedBody(number)).isEqualTo(block.getEncodedBody());
+            assertThat(store.getBlock(number).getEncoded()).isEqualTo(block.getEncoded());
+            assertThat(store.getBlock(number, block.getHash())).isNotNull();
+            assertThat(store.getBlock(number, block.getParentHash())).isNull();
+        }
+        assertThat(store.getBlock(chain.size())).isNull();
+
+        // the headers span several segments
+        assertThat(new File(dir, "headers-00001.dat").exists()).isTrue();
+        store.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAppendOutOfOrder() throws IOException {
+        AncientBlockStore store = new AncientBlockStore(dir, SEGMENT_SIZE);
+        try {
+            store.append(chain.get(1));
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testReopenAndTruncate() throws IOException {
+        AncientBlockStore store = new AncientBlockStore(dir, SEGMENT_SIZE);
+        for (Block block : chain) {
+            store.append(block);
+        }
+        store.force();
+        store.close();
+
+        store = new AncientBlockStore(dir, SEGMENT_SIZE);
+        assertThat(store.size()).isEqualTo(chain.size());
+        assertThat(store.getBlock(7).getEncoded()).isEqualTo(chain.get(7).getEncoded());
+
+        store.truncate(3);
+        assertThat(store.size()).isEqualTo(3);
+        assertThat(store.getBlock(3)).isNull();
+
+        // the truncated blocks can be appended again
+        store.append(chain.get(3));
+        assertThat(store.getBlock(3).getEncoded()).isEqualTo(chain.get(3).getEncoded());
+        store.close();
+    }
+
+    @Test
+    public void testReopenDiscardsUnforcedBlocks() throws IOException {
+        AncientBlockStore store = new AncientBlockStore(dir, SEGMENT_SIZE);
+        for (Block block : chain.subList(0, 5)) {
+            store.append(block);
+        }
+        store.force();
+        for (Block block : chain.subList(5, chain.size())) {
+            store.append(block);
+        }
+        // the blocks are readable before they are durable
+        assertThat(store.getHash(7)).isEqualTo(chain.get(7).getHash());
+        assertThat(store.getBlock(7).getEncoded()).isEqualTo(chain.get(7).getEncoded());
+        store.close();
+
+        store = new AncientBlockStore(dir, SEGMENT_SIZE);
+        assertThat(store.size()).isEqualTo(5);
+        assertThat(store.getBlock(5)).isNull();
+
+        store.append(chain.get(5));
+        store.force();
+        assertThat(store.getBlock(5).getEncoded()).isEqualTo(chain.get(5).getEncoded());
+        store.close();
+    }
+
+    @Test
+    public void testPointer() {
+        assertThat(AncientBlockStore.pointedNumber(AncientBlockStore.pointer(42))).isEqualTo(42);
+        assertThat(AncientBlockStore.pointedNumber(chain.get(0).getEncoded())).isEqualTo(-1);
+    }
+
+    @Test
+    public void testBlockStoreMovesDeepBlocks() throws IOException {
+        MockDB index = new MockDB("index", log);
+        MockDB blocks = new MockDB("blocks", log);
+        index.open();
+        blocks.open();
+
+        AncientBlockStore ancient = new AncientBlockStore(dir, SEGMENT_SIZE);
+        AionBlockStore store = new AionBlockStore(index, blocks, false, 0, ancient, 4);
+
+        BigInteger td = BigInteger.ZERO;
+        for (Block block : chain) {
+            td = td.add(block.getDifficultyBI());
+            store.saveBlock(block, td, true);
+        }
+        store.flush();
+
+        // the topmost 4 levels remain in the database
+        assertThat(ancient.size()).isEqualTo(chain.size() - 4);
+        Block frozen = chain.get(2);
+        assertThat(AncientBlockStore.pointedNumber(blocks.get(frozen.getHash()).get())).isEqualTo(2);
+        assertThat(AncientBlockStore.pointedNumber(blocks.get(chain.get(8).getHash()).get()))
+                .isEqualTo(-1);
+
+        assertThat(store.getChainBlockByNumber(2).getEncoded()).isEqualTo(frozen.getEncoded());
+        assertThat(store.getBlockByHash(frozen.getHash()).getEncoded())
+                .isEqualTo(frozen.getEncoded());
+        assertThat(store.getBlocksByRange(1, 8)).hasSize(8);
+
+        List<byte[]> hashes = List.of(frozen.getHash(), chain.get(8).getHash(), new byte[32]);
+        List<byte[]> bodies = store.getEncodedBodiesByHashes(hashes);
+        assertThat(bodies.get(0)).isEqualTo(frozen.getEncodedBody());
+        assertThat(bodies.get(1)).isEqualTo(chain.get(8).getEncodedBody());
+        assertThat(bodies.get(2)).isNull();
+
+        // reverting below the ancient blocks truncates them
+        store.revert(3);
+        assertThat(ancient.size()).isEqualTo(4);
+        assertThat(store.getChainBlockByNumber(3).getEncoded())
+                .isEqualTo(chain.get(3).getEncoded());
+
+        store.close();
+    }
+}
@@ -0,0 +1,193 @@
+package org.aion.zero.impl.db;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Iterator;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.types.AionAddress;
+import org.aion.util.types.ByteArrayWrapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class FlatStateTest {
+    private static final Logger log = LoggerFactory.getLogger("TEST");
+
+    private static final ByteArrayWrapper root0 = root(0);
+    private static final ByteArrayWrapper root1 = root(1);
+    private static final ByteArrayWrapper root2 = root(2);
+    private static final ByteArrayWrapper root3 = root(3);
+    private static final ByteArrayWrapper side = root(9);
+
+    private static final AionAddress account = address(1);
+    private static final AionAddress contract = address(2);
+    private static final ByteArrayWrapper key = ByteArrayWrapper.wrap(new byte[] {1});
+
+    private static final byte[] v1 = "value1".getBytes();
+    private static final byte[] v2 = "value2".getBytes();
+
+    private MockDB db;
+    private FlatState flatState;
+
+    @Before
+    public void setup() {
+        db = new MockDB("flat-state-test", log);
+        db.open();
+        flatState = new FlatState(db, 2, log);
+        flatState.anchor(root0);
+    }
+
+    private static ByteArrayWrapper root(int value) {
+        byte[] root = new byte[32];
+        root[31] = (byte) value;
+        return ByteArrayWrapper.wrap(root);
+    }
+
+    private static AionAddress address(int value) {
+        byte[] address = new byte[32];
+        address[0] = (byte) 0xa0;
+        address[31] = (byte) value;
+        return new AionAddress(address);
+    }
+
+    private static FlatState.Diff accountDiff(byte[] encoding) {
+        FlatState.Diff diff = new FlatState.Diff();
+        diff.updateAccount(account, encoding);
+        return diff;
+    }
+
+    @Test
+    public void testUnknownRoots() {
+        assertThat(flatState.isKnown(root0)).isTrue();
+        assertThat(flatState.isKnown(root1)).isFalse();
+        assertThat(flatState.getAccount(root1, account)).isNull();
+
+        // the disk layer is filled lazily
+        assertThat(flatState.getAccount(root0, account)).isNull();
+        flatState.fillAccount(root0, account, v1);
+        assertThat(flatState.getAccount(root0, account)).isEqualTo(v1);
+        assertThat(flatState.getAccount(root1, account)).isNull();
+
+        // the changes of an unknown parent are dropped
+        assertThat(flatState.addLayer(side, root1, accountDiff(v2))).isFalse();
+        assertThat(flatState.isKnown(root1)).isFalse();
+    }
+
+    @Test
+    public void testLayersShadowTheDisk() {
+        flatState.fillAccount(root0, account, v1);
+        assertThat(flatState.addLayer(root0, root1, accountDiff(v2))).isTrue();
+
+        FlatState.Diff diff = new FlatState.Diff();
+        diff.deleteAccount(account);
+        assertThat(flatState.addLayer(root1, root2, diff)).isTrue();
+
+        assertThat(flatState.getAccount(root0, account)).isEqualTo(v1);
+        assertThat(flatState.getAccount(root1, account)).isEqualTo(v2);
+        assertThat(flatState.getAccount(root2, account)).isEqualTo(FlatState.ABSENT);
+
+        // values changed above the read root are not written to the disk layer
+        flatState.fillAccount(root2, contract, v1);
+        assertThat(flatState.getAccount(root2, contract)).isEqualTo(v1);
+        flatState.fillAccount(root2, account, v2);
+        assertThat(flatState.getAccount(root0, account)).isEqualTo(v1);
+    }
+
+    @Test
+    public void testDestructedStorage() {
+        FlatState.Diff diff = new FlatState.Diff();
+        diff.updateStorage(contract, key, v1);
+        flatState.addLayer(root0, root1, diff);
+
+        diff = new FlatState.Diff();
+        diff.deleteAccount(contract);
+        flatState.addLayer(root1, root2, diff);
+
+        assertThat(flatState.getStorage(root1, contract, key)).isEqualTo(v1);
+        assertThat(flatState.getStorage(root2, contract, key)).isEqualTo(FlatState.ABSENT);
+
+        // merging the layers discards the storage of the destructed account on disk
+        flatState.flatten(root2);
+        assertThat(flatState.getLayerCount()).isEqualTo(0);
+        assertThat(flatState.getStorage(root2, contract, key)).isNull();
+
+        FlatState.StorageView view = flatState.getStorageView(root2, contract);
+        view.fill(key, v2);
+        assertThat(view.get(key)).isEqualTo(v2);
+    }
+
+    @Test
+    public void testDeepLayersAreMerged() {
+        flatState.addLayer(root0, root1, accountDiff(v1));
+        flatState.addLayer(root0, side, accountDiff(v2));
+        flatState.addLayer(root1, root2, new FlatState.Diff());
+        assertThat(flatState.getLayerCount()).isEqualTo(3);
+
+        // the layer for root1 is merged into the disk, dropping the side chain
+        flatState.addLayer(root2, root3, new FlatState.Diff());
+        assertThat(flatState.getLayerCount()).isEqualTo(2);
+        assertThat(flatState.isKnown(root0)).isFalse();
+        assertThat(flatState.isKnown(side)).isFalse();
+        assertThat(flatState.getAccount(root1, account)).isEqualTo(v1);
+        assertThat(flatState.getAccount(root3, account)).isEqualTo(v1);
+    }
+
+    @Test
+    public void testFlattenSurvivesReopen() {
+        flatState.addLayer(root0, root1, accountDiff(v1));
+        flatState.flatten(root1);
+
+        FlatState reopened = new FlatState(db, 2, log);
+        assertThat(reopened.isKnown(root1)).isTrue();
+        assertThat(reopened.getAccount(root1, account)).isEqualTo(v1);
+
+        // an unknown head resets the disk layer
+        reopened.anchor(root3);
+        assertThat(reopened.isKnown(root1)).isFalse();
+        assertThat(reopened.getAccount(root3, account)).isNull();
+
+        // the reset is kept on disk and the previous entries are no longer read
+        reopened = new FlatState(db, 2, log);
+        assertThat(reopened.isKnown(root3)).isTrue();
+        assertThat(reopened.getAccount(root3, account)).isNull();
+    }
+
+    @Test
+    public void testResetDeletesPreviousEpochs() throws InterruptedException {
+        flatState.fillAccount(root0, account, v1);
+        FlatState.Diff diff = new FlatState.Diff();
+        diff.updateStorage(contract, key, v2);
+        flatState.addLayer(root0, root1, diff);
+        flatState.flatten(root1);
+        long entries = diskEntries();
+        assertThat(entries).isGreaterThan(0L);
+
+        flatState.anchor(root3);
+        flatState.awaitReclaim();
+        assertThat(diskEntries()).isEqualTo(0L);
+
+        // the entries of the current epoch are kept
+        flatState.fillAccount(root3, account, v2);
+        flatState.awaitReclaim();
+        assertThat(diskEntries()).isEqualTo(1L);
+
+        flatState.anchor(root2);
+        flatState.awaitReclaim();
+        assertThat(diskEntries()).isEqualTo(0L);
+        assertThat(flatState.getAccount(root2, account)).isNull();
+        flatState.close();
+    }
+
+    /** Counts the keys of the disk layer, the metadata keys are shorter than an epoch prefix. */
+    private long diskEntries() {
+        long count = 0;
+        Iterator<byte[]> keys = db.keys();
+        while (keys.hasNext()) {
+            if (keys.next().length > Long.BYTES) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
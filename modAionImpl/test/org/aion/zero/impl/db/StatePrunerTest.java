@@ -0,0 +1,119 @@
+package org.aion.zero.impl.db;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.db.store.MarkSweepDataSource;
+import org.aion.zero.impl.trie.TrieImpl;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class StatePrunerTest {
+    private static final Logger log = LoggerFactory.getLogger("TEST");
+
+    private MockDB stateDb;
+    private MockDB marksDb;
+    private MarkSweepDataSource state;
+    private StatePruner pruner;
+
+    @Before
+    public void setup() {
+        stateDb = open("state");
+        marksDb = open("marks");
+        state = new MarkSweepDataSource(stateDb);
+
+        AionBlockStore blockStore = new AionBlockStore(open("index"), open("block"), false);
+        pruner = new StatePruner(state, marksDb, blockStore, 128);
+    }
+
+    private static MockDB open(String name) {
+        MockDB db = new MockDB(name, log);
+        db.open();
+        return db;
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static int count(Iterator<byte[]> keys) {
+        int count = 0;
+        while (keys.hasNext()) {
+            keys.next();
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void testCycleRemovesUnreachableNodes() {
+        Random random = new Random(42);
+        Map<byte[], byte[]> values = new HashMap<>();
+        TrieImpl trie = new TrieImpl(state);
+
+        for (int i = 0; i < 500; i++) {
+            byte[] key = randomBytes(random, 32);
+            byte[] value = randomBytes(random, 40);
+            trie.update(key, value);
+            values.put(key, value);
+        }
+        trie.sync();
+        byte[] oldRoot = trie.getRootHash();
+
+        for (Map.Entry<byte[], byte[]> entry : values.entrySet()) {
+            if (random.nextInt(4) == 0) {
+                entry.setValue(randomBytes(random, 40));
+                trie.update(entry.getKey(), entry.getValue());
+            }
+        }
+        trie.sync();
+        byte[] root = trie.getRootHash();
+
+        // the deletes of the trie are left to the sweep
+        assertThat(stateDb.get(oldRoot).isPresent()).isTrue();
+        int before = count(stateDb.keys());
+
+        state.startTracking(100);
+        pruner.runCycle(0, Collections.singletonList(root));
+
+        assertThat(stateDb.get(oldRoot).isPresent()).isFalse();
+        assertThat(count(stateDb.keys())).isLessThan(before);
+        assertThat(marksDb.isEmpty()).isTrue();
+
+        // the retained state is complete
+        TrieImpl retained = new TrieImpl(stateDb, root);
+        for (Map.Entry<byte[], byte[]> entry : values.entrySet()) {
+            assertThat(retained.get(entry.getKey())).isEqualTo(entry.getValue());
+        }
+    }
+
+    @Test
+    public void testCycleKeepsNodesWrittenWhileRunning() {
+        Random random = new Random(7);
+        TrieImpl trie = new TrieImpl(state);
+        trie.update(randomBytes(random, 32), randomBytes(random, 40));
+        trie.sync();
+        byte[] root = trie.getRootHash();
+
+        state.startTracking(100);
+        // written after the roots were collected
+        byte[] key = randomBytes(random, 32);
+        byte[] value = randomBytes(random, 40);
+        trie.update(key, value);
+        trie.sync();
+        byte[] newRoot = trie.getRootHash();
+
+        pruner.runCycle(0, Collections.singletonList(root));
+
+        assertThat(new TrieImpl(stateDb, newRoot).get(key)).isEqualTo(value);
+    }
+}
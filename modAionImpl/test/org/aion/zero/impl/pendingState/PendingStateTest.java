@@ -5,6 +5,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import org.aion.avm.stub.IAvmResourceFactory;
@@ -19,6 +20,7 @@ import org.aion.zero.impl.blockchain.StandaloneBlockchain.Bundle;
 import org.aion.zero.impl.types.TxResponse;
 import org.aion.zero.impl.core.ImportResult;
 import org.aion.base.TransactionTypeRule;
+import org.aion.mcf.db.RepositoryCache;
 import org.aion.types.AionAddress;
 import org.aion.util.bytes.ByteUtil;
 import org.aion.util.time.TimeInstant;
@@ -303,6 +305,62 @@ public class PendingStateTest {
         assertEquals(pendingTransactions.get(0), tx);
     }
 
+    @Test
+    public void pendingNonceIsPublishedAfterAdd() {
+        AionAddress sender = new AionAddress(deployerKey.getAddress());
+        assertEquals(BigInteger.ZERO, pendingState.bestPendingStateNonce(sender));
+
+        AionTransaction tx = genTransaction(BigInteger.ZERO.toByteArray());
+        assertEquals(pendingState.addPendingTransaction(tx), TxResponse.SUCCESS);
+
+        assertEquals(BigInteger.ONE, pendingState.bestPendingStateNonce(sender));
+        assertEquals(BigInteger.ONE, pendingState.getRepository().getNonce(sender));
+        assertEquals(Collections.singletonList(tx), pendingState.getPendingTransactions());
+    }
+
+    @Test
+    public void repositoryViewDoesNotWriteToPendingState() {
+        AionAddress sender = new AionAddress(deployerKey.getAddress());
+        BigInteger balance = pendingState.getRepository().getBalance(sender);
+
+        RepositoryCache<?> view = pendingState.getRepository();
+        view.addBalance(sender, BigInteger.TEN);
+        view.incrementNonce(sender);
+
+        assertEquals(balance.add(BigInteger.TEN), view.getBalance(sender));
+        assertEquals(balance, pendingState.getRepository().getBalance(sender));
+        assertEquals(BigInteger.ZERO, pendingState.getRepository().getNonce(sender));
+    }
+
+    @Test
+    public void addBatchRejectsInvalidTx() {
+        List<AionTransaction> txs = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            txs.add(genTransaction(BigInteger.valueOf(i).toByteArray()));
+        }
+        // energy limit below the minimum, caught by the parallel validation
+        txs.set(
+                5,
+                AionTransaction.create(
+                        deployerKey,
+                        BigInteger.valueOf(5).toByteArray(),
+                        new AionAddress(new byte[32]),
+                        ByteUtils.fromHexString("1"),
+                        ByteUtils.fromHexString("1"),
+                        10L,
+                        10_000_000_000L,
+                        TransactionTypes.DEFAULT, null));
+
+        List<TxResponse> responses = pendingState.addPendingTransactions(txs);
+
+        assertEquals(txs.size(), responses.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(TxResponse.SUCCESS, responses.get(i));
+        }
+        assertEquals(TxResponse.INVALID_TX, responses.get(5));
+        assertEquals(5, pendingState.getPendingTxSize());
+    }
+
     @Test
     public void addLargeNonce() {
         AionTransaction tx =
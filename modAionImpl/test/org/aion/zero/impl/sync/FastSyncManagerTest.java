@@ -0,0 +1,242 @@
+package org.aion.zero.impl.sync;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.aion.mcf.blockchain.Block;
+import org.aion.mcf.db.RepositoryCache;
+import org.aion.p2p.INode;
+import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.Msg;
+import org.aion.precompiled.ContractInfo;
+import org.aion.types.AionAddress;
+import org.aion.util.types.ByteArrayWrapper;
+import org.aion.zero.impl.blockchain.StandaloneBlockchain;
+import org.aion.zero.impl.core.ImportResult;
+import org.aion.zero.impl.db.AionRepositoryImpl;
+import org.aion.zero.impl.sync.handler.RequestBlocksHandler;
+import org.aion.zero.impl.sync.handler.RequestTrieDataHandler;
+import org.aion.zero.impl.sync.handler.ResponseBlocksHandler;
+import org.aion.zero.impl.sync.handler.ResponseTrieDataHandler;
+import org.aion.zero.impl.sync.msg.RequestBlocks;
+import org.aion.zero.impl.sync.msg.RequestTrieData;
+import org.aion.zero.impl.sync.msg.ResponseBlocks;
+import org.aion.zero.impl.sync.msg.ResponseTrieData;
+import org.aion.zero.impl.types.AionBlock;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class FastSyncManagerTest {
+    private static final Logger log = LoggerFactory.getLogger("TEST");
+
+    private static final int PIVOT_DISTANCE = 4;
+    private static final AionAddress bridge = ContractInfo.TOKEN_BRIDGE.contractAddress;
+
+    private static StandaloneBlockchain.Bundle build() {
+        return new StandaloneBlockchain.Builder()
+                .withValidatorConfiguration("simple")
+                .withDefaultAccounts()
+                .build();
+    }
+
+    private static StandaloneBlockchain buildEmpty(StandaloneBlockchain.Bundle source) {
+        return new StandaloneBlockchain.Builder()
+                .withValidatorConfiguration("simple")
+                .withDefaultAccounts(source.privateKeys)
+                .build()
+                .bc;
+    }
+
+    private static List<Block> generateBlocks(StandaloneBlockchain chain, int count) {
+        List<Block> blocks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            AionBlock block =
+                    chain.createNewMiningBlock(chain.getBestBlock(), Collections.emptyList(), true);
+            assertThat(chain.tryToConnect(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+            blocks.add(block);
+        }
+        return blocks;
+    }
+
+    private static ByteArrayWrapper word(int value) {
+        byte[] word = new byte[16];
+        word[15] = (byte) value;
+        return ByteArrayWrapper.wrap(word);
+    }
+
+    private static INode peer(int id, StandaloneBlockchain chain) {
+        INode node = mock(INode.class);
+        when(node.getIdHash()).thenReturn(id);
+        when(node.getIdShort()).thenReturn("peer" + id);
+        when(node.getBestBlockNumber()).thenReturn(chain.getBestBlock().getNumber());
+        when(node.getTotalDifficulty()).thenReturn(chain.getTotalDifficulty());
+        return node;
+    }
+
+    /** Connects the fast sync manager to two peers serving the given chain. */
+    private static FastSyncManager connect(
+            StandaloneBlockchain source, StandaloneBlockchain destination, AtomicBoolean start) {
+        IP2pMgr sourceP2p = mock(IP2pMgr.class);
+        IP2pMgr destinationP2p = mock(IP2pMgr.class);
+        Map<Integer, INode> peers = new HashMap<>();
+        peers.put(1, peer(1, source));
+        peers.put(2, peer(2, source));
+        when(destinationP2p.getActiveNodes()).thenReturn(peers);
+
+        FastSyncManager fastSyncMgr =
+                new FastSyncManager(destination, destinationP2p, start, log, PIVOT_DISTANCE);
+
+        RequestTrieDataHandler requestTrieData =
+                new RequestTrieDataHandler(log, source, sourceP2p);
+        RequestBlocksHandler requestBlocks = new RequestBlocksHandler(log, source, sourceP2p);
+        ResponseTrieDataHandler responseTrieData =
+                new ResponseTrieDataHandler(log, fastSyncMgr.getReceivedTrieData());
+        ResponseBlocksHandler responseBlocks =
+                new ResponseBlocksHandler(log, fastSyncMgr, destinationP2p);
+
+        doAnswer(
+                        invocation -> {
+                            int id = invocation.getArgument(0);
+                            String displayId = invocation.getArgument(1);
+                            Msg msg = invocation.getArgument(2);
+                            if (msg instanceof RequestTrieData) {
+                                requestTrieData.receive(id, displayId, msg.encode());
+                            } else if (msg instanceof RequestBlocks) {
+                                requestBlocks.receive(id, displayId, msg.encode());
+                            }
+                            return null;
+                        })
+                .when(destinationP2p)
+                .send(anyInt(), anyString(), any(Msg.class));
+        doAnswer(
+                        invocation -> {
+                            int id = invocation.getArgument(0);
+                            String displayId = invocation.getArgument(1);
+                            Msg msg = invocation.getArgument(2);
+                            if (msg instanceof ResponseTrieData) {
+                                responseTrieData.receive(id, displayId, msg.encode());
+                            } else if (msg instanceof ResponseBlocks) {
+                                responseBlocks.receive(id, displayId, msg.encode());
+                            }
+                            return null;
+                        })
+                .when(sourceP2p)
+                .send(anyInt(), anyString(), any(Msg.class));
+
+        return fastSyncMgr;
+    }
+
+    @Test
+    public void testFastSync() throws InterruptedException {
+        StandaloneBlockchain.Bundle bundle = build();
+        StandaloneBlockchain source = bundle.bc;
+        StandaloneBlockchain destination = buildEmpty(bundle);
+
+        // the storage of a precompiled contract is discovered without a deployment
+        RepositoryCache track = source.getRepository().startTracking();
+        for (int i = 0; i < 10; i++) {
+            track.addStorageRow(bridge, word(i), word(i + 1));
+        }
+        track.flush();
+        List<Block> blocks = generateBlocks(source, 10);
+
+        AtomicBoolean start = new AtomicBoolean(true);
+        FastSyncManager fastSyncMgr = connect(source, destination, start);
+        Thread thread = new Thread(fastSyncMgr, "sync-fs");
+        thread.start();
+
+        try {
+            for (Block block : blocks) {
+                assertThat(fastSyncMgr.importBlock(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+            }
+        } finally {
+            start.set(false);
+            thread.join(10_000);
+        }
+
+        assertThat(fastSyncMgr.getPhase()).isEqualTo(FastSyncManager.Phase.COMPLETE);
+        assertThat(destination.getBestBlock().getHash())
+                .isEqualTo(source.getBestBlock().getHash());
+
+        // only the state of the pivot was downloaded, the following blocks were executed
+        AionRepositoryImpl repository = destination.getRepository();
+        assertThat(repository.isValidRoot(blocks.get(1).getStateRoot())).isFalse();
+        assertThat(repository.isValidRoot(blocks.get(5).getStateRoot())).isTrue();
+        assertThat(repository.getRoot()).isEqualTo(source.getRepository().getRoot());
+        for (int i = 0; i < 10; i++) {
+            assertThat(repository.getStorageValue(bridge, word(i))).isEqualTo(word(i + 1));
+        }
+        assertThat(destination.isPruneRestricted(blocks.get(5).getNumber())).isTrue();
+        assertThat(destination.isPruneRestricted(blocks.get(6).getNumber())).isFalse();
+
+        // the pivot is kept for the pruning restriction after a restart
+        assertThat(repository.getFastSyncPivotNumber()).isEqualTo(blocks.get(5).getNumber());
+    }
+
+    @Test
+    public void testNothingToFastSync() throws InterruptedException {
+        StandaloneBlockchain.Bundle bundle = build();
+        StandaloneBlockchain source = bundle.bc;
+        StandaloneBlockchain destination = buildEmpty(bundle);
+        List<Block> blocks = generateBlocks(source, PIVOT_DISTANCE);
+
+        AtomicBoolean start = new AtomicBoolean(true);
+        FastSyncManager fastSyncMgr = connect(source, destination, start);
+        Thread thread = new Thread(fastSyncMgr, "sync-fs");
+        thread.start();
+        thread.join(10_000);
+        start.set(false);
+
+        // the blocks close to the network best are executed
+        assertThat(fastSyncMgr.isActive()).isFalse();
+        for (Block block : blocks) {
+            assertThat(fastSyncMgr.importBlock(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+        }
+        assertThat(destination.getRepository().getRoot())
+                .isEqualTo(source.getRepository().getRoot());
+    }
+
+    @Test
+    public void testUnexecutedBlocksAreRevertedBeforeExecution() throws InterruptedException {
+        StandaloneBlockchain.Bundle bundle = build();
+        StandaloneBlockchain source = bundle.bc;
+        StandaloneBlockchain destination = buildEmpty(bundle);
+        List<Block> blocks = generateBlocks(source, PIVOT_DISTANCE + 2);
+
+        // blocks imported without execution before a restart
+        for (Block block : blocks.subList(0, 3)) {
+            assertThat(destination.tryImportWithoutExecution(block))
+                    .isEqualTo(ImportResult.IMPORTED_BEST);
+        }
+        assertThat(destination.getRepository().isValidRoot(blocks.get(2).getStateRoot()))
+                .isFalse();
+
+        AtomicBoolean start = new AtomicBoolean(true);
+        FastSyncManager fastSyncMgr = connect(source, destination, start);
+        Thread thread = new Thread(fastSyncMgr, "sync-fs");
+        thread.start();
+        thread.join(10_000);
+        start.set(false);
+
+        // the pivot would be below the best block, which is reverted to the genesis state
+        assertThat(fastSyncMgr.isActive()).isFalse();
+        assertThat(destination.getBestBlock().getNumber()).isEqualTo(0);
+        for (Block block : blocks) {
+            assertThat(fastSyncMgr.importBlock(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+        }
+        assertThat(destination.getRepository().getRoot())
+                .isEqualTo(source.getRepository().getRoot());
+    }
+}
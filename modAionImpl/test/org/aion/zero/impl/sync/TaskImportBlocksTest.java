@@ -5,11 +5,13 @@ import static org.aion.zero.impl.blockchain.BlockchainTestUtils.generateAccounts
 import static org.aion.zero.impl.blockchain.BlockchainTestUtils.generateNewBlock;
 import static org.aion.zero.impl.blockchain.BlockchainTestUtils.generateNextBlock;
 import static org.aion.zero.impl.blockchain.BlockchainTestUtils.generateRandomChain;
+import static org.aion.zero.impl.core.ImportResult.IMPORTED_BEST;
 import static org.aion.zero.impl.core.ImportResult.IMPORTED_NOT_BEST;
 import static org.aion.zero.impl.sync.TaskImportBlocks.filterBatch;
 import static org.aion.zero.impl.sync.TaskImportBlocks.isAlreadyStored;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +31,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.slf4j.LoggerFactory;
 
 /** @author Alexandra Roatis */
 @RunWith(JUnitParamsRunner.class)
@@ -79,6 +82,68 @@ public class TaskImportBlocksTest {
         assertThat(isAlreadyStored(chain.getBlockStore(), current)).isTrue();
     }
 
+    @Test
+    public void testPreValidatedImport() {
+        StandaloneBlockchain source =
+                builder.withValidatorConfiguration("simple").withDefaultAccounts(accounts).build().bc;
+        StandaloneBlockchain target =
+                new StandaloneBlockchain.Builder()
+                        .withValidatorConfiguration("simple")
+                        .withDefaultAccounts(accounts)
+                        .build()
+                        .bc;
+
+        List<Block> batch = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Block block =
+                    source.createNewMiningBlock(source.getBestBlock(), Collections.emptyList(), true);
+            assertThat(source.tryToConnect(block)).isEqualTo(IMPORTED_BEST);
+            batch.add(block);
+        }
+        assertThat(target.preValidate(batch.get(0))).isTrue();
+
+        // the blocks are validated ahead of the import
+        BlockPreValidator preValidator =
+                new BlockPreValidator(target, 2, 3, LoggerFactory.getLogger("SYNC"));
+        BlockPreValidator.Batch validation = preValidator.validate(batch);
+        for (Block block : batch) {
+            validation.awaitNext();
+            assertThat(target.tryToConnect(block)).isEqualTo(IMPORTED_BEST);
+        }
+        preValidator.shutdown();
+
+        assertThat(target.getBestBlock().getHash()).isEqualTo(source.getBestBlock().getHash());
+    }
+
+    @Test
+    public void testClosedValidationIsCancelled() {
+        StandaloneBlockchain source =
+                builder.withValidatorConfiguration("simple").withDefaultAccounts(accounts).build().bc;
+
+        List<Block> batch = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Block block =
+                    source.createNewMiningBlock(source.getBestBlock(), Collections.emptyList(), true);
+            assertThat(source.tryToConnect(block)).isEqualTo(IMPORTED_BEST);
+            batch.add(block);
+        }
+
+        BlockPreValidator preValidator =
+                new BlockPreValidator(source, 1, 3, LoggerFactory.getLogger("SYNC"));
+        BlockPreValidator.Batch validation = preValidator.validate(batch);
+        assertThat(validation.getPendingCount()).isEqualTo(3);
+
+        // the import stops after the first block
+        validation.awaitNext();
+        validation.close();
+        assertThat(validation.getPendingCount()).isEqualTo(0);
+
+        // no further blocks are validated
+        validation.awaitNext();
+        assertThat(validation.getPendingCount()).isEqualTo(0);
+        preValidator.shutdown();
+    }
+
     @Test
     public void testFilterBatch_woPruningRestrictions() {
         StandaloneBlockchain.Bundle bundle =
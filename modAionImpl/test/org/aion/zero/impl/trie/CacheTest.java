@@ -0,0 +1,221 @@
+package org.aion.zero.impl.trie;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.rlp.Value;
+import org.aion.util.types.ByteArrayWrapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class CacheTest {
+    private static final Logger log = LoggerFactory.getLogger("TEST");
+
+    private MockDB db;
+    private final Random random = new Random(7);
+
+    @Before
+    public void setup() {
+        db = new MockDB("cache-test", log);
+        db.open();
+    }
+
+    private byte[] randomValue() {
+        byte[] value = new byte[100];
+        random.nextBytes(value);
+        return value;
+    }
+
+    private int countKeys() {
+        int count = 0;
+        Iterator<byte[]> keys = db.keys();
+        while (keys.hasNext()) {
+            keys.next();
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void dirtyNodesArePinnedUntilCommit() {
+        Cache cache = new Cache(db, 16 * 1024);
+
+        List<byte[]> keys = new ArrayList<>();
+        List<byte[]> values = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            byte[] value = randomValue();
+            values.add(value);
+            keys.add((byte[]) cache.put(value));
+        }
+
+        // nothing may be dropped before it reached the database
+        assertTrue(cache.isDirty());
+        assertEquals(1_000, cache.getSize());
+        assertEquals(0, cache.getEvictionCount());
+        assertTrue(db.isEmpty());
+
+        cache.commit(false);
+        assertFalse(cache.isDirty());
+        assertEquals(1_000, countKeys());
+        assertTrue(cache.getCleanBytes() <= cache.getMaxCleanBytes());
+        assertTrue(cache.getSize() < 1_000);
+        assertTrue(cache.getEvictionCount() > 0);
+
+        // evicted nodes are read back from the database
+        for (int i = 0; i < keys.size(); i++) {
+            assertArrayEquals(values.get(i), cache.get(keys.get(i)).asBytes());
+        }
+        assertTrue(cache.getMissCount() > 0);
+        assertEquals(1_000, cache.getHitCount() + cache.getMissCount());
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        Cache writer = new Cache(db);
+        byte[] key = (byte[]) writer.put(randomValue());
+        writer.commit(true);
+        assertEquals(0, writer.getSize());
+
+        Cache cache = new Cache(db);
+        assertNull(cache.get(new byte[32]));
+        assertEquals(1, cache.getMissCount());
+
+        Value value = cache.get(key);
+        assertEquals(2, cache.getMissCount());
+        assertEquals(value, cache.get(key));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    public void countsMissesOfTheCallingThread() throws Exception {
+        Cache writer = new Cache(db);
+        byte[] key = (byte[]) writer.put(randomValue());
+        writer.commit(true);
+
+        Cache cache = new Cache(db);
+        long before = Cache.getThreadMissCount();
+
+        // misses of other threads are not attributed to this one
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            long other =
+                    executor.submit(
+                                    () -> {
+                                        long start = Cache.getThreadMissCount();
+                                        cache.get(key);
+                                        cache.getBatch(List.of(new byte[32]));
+                                        return Cache.getThreadMissCount() - start;
+                                    })
+                            .get();
+            assertEquals(2, other);
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(before, Cache.getThreadMissCount());
+
+        cache.get(key);
+        assertNull(cache.get(new byte[32]));
+        assertEquals(before + 1, Cache.getThreadMissCount());
+        assertEquals(3, cache.getMissCount());
+    }
+
+    @Test
+    public void getBatchReadsMissingNodesFromDatabase() {
+        Cache writer = new Cache(db);
+        byte[] stored = (byte[]) writer.put(randomValue());
+        writer.commit(true);
+
+        Cache cache = new Cache(db);
+        byte[] pinned = (byte[]) cache.put(randomValue());
+        List<Value> values = cache.getBatch(List.of(stored, new byte[32], pinned));
+
+        assertEquals(3, values.size());
+        assertArrayEquals(db.get(stored).get(), values.get(0).encode());
+        assertNull(values.get(1));
+        assertEquals(cache.get(pinned), values.get(2));
+        assertEquals(2, cache.getMissCount());
+
+        // the nodes read from the database are cached
+        assertEquals(values.get(0), cache.get(stored));
+        assertEquals(3, cache.getHitCount());
+    }
+
+    @Test
+    public void flushDropsCleanNodes() {
+        Cache cache = new Cache(db);
+        cache.put(randomValue());
+        cache.commit(false);
+        assertEquals(1, cache.getSize());
+        assertTrue(cache.getCleanBytes() > 0);
+
+        cache.commit(true);
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getCleanBytes());
+    }
+
+    @Test
+    public void nodesWithoutDatabaseAreNotEvicted() {
+        Cache cache = new Cache(null, 0);
+        byte[] key = (byte[]) cache.put(randomValue());
+        cache.commit(false);
+
+        assertEquals(1, cache.getSize());
+        Node node = cache.getNodes().get(ByteArrayWrapper.wrap(key));
+        assertArrayEquals(node.getValue().asBytes(), cache.get(key).asBytes());
+    }
+
+    @Test
+    public void concurrentReads() throws Exception {
+        TrieImpl trie = new TrieImpl(new Cache(db, 64 * 1024), "");
+        List<byte[]> keys = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            byte[] key = randomValue();
+            keys.add(key);
+            trie.update(key, key);
+        }
+        trie.sync();
+        byte[] root = trie.getRootHash();
+
+        TrieImpl reader = new TrieImpl(new Cache(db, 64 * 1024), root);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(
+                        executor.submit(
+                                () -> {
+                                    for (byte[] key : keys) {
+                                        if (!Arrays.equals(key, reader.get(key))) {
+                                            return false;
+                                        }
+                                    }
+                                    return true;
+                                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Cache cache = reader.getCache();
+        assertTrue(cache.getCleanBytes() <= cache.getMaxCleanBytes());
+        assertTrue(cache.getEvictionCount() > 0);
+    }
+}
@@ -0,0 +1,72 @@
+package org.aion.zero.impl.trie;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.aion.base.ConstantUtil;
+import org.aion.rlp.RLP;
+import org.junit.Test;
+
+public class ListTrieTest {
+
+    private final Random random = new Random(11);
+
+    private static byte[] expectedRoot(List<byte[]> values) {
+        TrieImpl trie = new TrieImpl(null);
+        for (int i = 0; i < values.size(); i++) {
+            trie.update(RLP.encodeInt(i), values.get(i));
+        }
+        return trie.getRootHash();
+    }
+
+    private List<byte[]> randomValues(int size, int maxLength) {
+        List<byte[]> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            byte[] value = new byte[1 + random.nextInt(maxLength)];
+            random.nextBytes(value);
+            values.add(value);
+        }
+        return values;
+    }
+
+    @Test
+    public void testEmptyList() {
+        assertArrayEquals(
+                ConstantUtil.EMPTY_TRIE_HASH, ListTrie.computeRoot(Collections.emptyList()));
+    }
+
+    @Test
+    public void testMatchesTrieImpl() {
+        for (int size = 1; size <= 300; size++) {
+            List<byte[]> values = randomValues(size, 200);
+            assertArrayEquals(expectedRoot(values), ListTrie.computeRoot(values));
+        }
+    }
+
+    @Test
+    public void testMatchesTrieImplWithEmbeddedNodes() {
+        // single byte values produce nodes shorter than a hash, which are embedded in their parent
+        for (int size = 1; size <= 300; size++) {
+            List<byte[]> values = randomValues(size, 1);
+            assertArrayEquals(expectedRoot(values), ListTrie.computeRoot(values));
+        }
+    }
+
+    @Test
+    public void testMatchesTrieImplForLargeLists() {
+        for (int size : new int[] {1_000, 4_096, 70_000}) {
+            List<byte[]> values = randomValues(size, 100);
+            assertArrayEquals(expectedRoot(values), ListTrie.computeRoot(values));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyValue() {
+        List<byte[]> values = randomValues(3, 10);
+        values.set(1, new byte[0]);
+        ListTrie.computeRoot(values);
+    }
+}
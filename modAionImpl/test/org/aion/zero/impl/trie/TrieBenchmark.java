@@ -0,0 +1,140 @@
+package org.aion.zero.impl.trie;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.rlp.RLP;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the throughput of the trie operations used during block import: inserting account
+ * sized entries, computing the root hash after every block and reading entries back through a warm
+ * and a cold cache. Also compares the transaction root computation through {@link TrieImpl} with
+ * {@link ListTrie}.
+ *
+ * <p>Runs as part of the benchmark tests only, since the timings are printed rather than asserted.
+ */
+public class TrieBenchmark {
+    private static final Logger log = LoggerFactory.getLogger("TEST");
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+    private static final int ENTRIES = 100_000;
+    private static final int ENTRIES_PER_BLOCK = 200;
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void benchmarkTrieOperations() {
+        List<byte[]> keys = new ArrayList<>(ENTRIES);
+        List<byte[]> values = new ArrayList<>(ENTRIES);
+        for (int i = 0; i < ENTRIES; i++) {
+            keys.add(randomBytes(32));
+            values.add(randomBytes(70));
+        }
+
+        for (int r = 0; r < WARMUP_ROUNDS; r++) {
+            run(keys, values, false);
+        }
+        for (int r = 0; r < ROUNDS; r++) {
+            run(keys, values, true);
+        }
+    }
+
+    @Test
+    public void benchmarkListRoot() {
+        for (int size : new int[] {100, 1_000, 10_000}) {
+            List<byte[]> values = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                values.add(randomBytes(200));
+            }
+
+            int iterations = 200_000 / size;
+            for (int r = 0; r < WARMUP_ROUNDS + ROUNDS; r++) {
+                long t = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    TrieImpl trie = new TrieImpl(null);
+                    for (int j = 0; j < size; j++) {
+                        trie.update(RLP.encodeInt(j), values.get(j));
+                    }
+                    trie.getRootHash();
+                }
+                long trieImpl = System.nanoTime() - t;
+
+                t = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    ListTrie.computeRoot(values);
+                }
+                long listTrie = System.nanoTime() - t;
+
+                if (r >= WARMUP_ROUNDS) {
+                    System.out.printf(
+                            "%,d elements: TrieImpl %,d roots/s, ListTrie %,d roots/s%n",
+                            size,
+                            opsPerSecond(iterations, trieImpl),
+                            opsPerSecond(iterations, listTrie));
+                }
+            }
+        }
+    }
+
+    private void run(List<byte[]> keys, List<byte[]> values, boolean print) {
+        MockDB db = new MockDB("trie-benchmark", log);
+        db.open();
+        SecureTrie trie = new SecureTrie(db);
+
+        long insert = 0;
+        long rootHash = 0;
+        for (int i = 0; i < ENTRIES; i++) {
+            long t = System.nanoTime();
+            trie.update(keys.get(i), values.get(i));
+            insert += System.nanoTime() - t;
+
+            if (i % ENTRIES_PER_BLOCK == ENTRIES_PER_BLOCK - 1) {
+                t = System.nanoTime();
+                trie.getRootHash();
+                rootHash += System.nanoTime() - t;
+            }
+        }
+        trie.sync();
+        byte[] root = trie.getRootHash();
+
+        long t = System.nanoTime();
+        for (int i = 0; i < ENTRIES; i++) {
+            trie.get(keys.get(i));
+        }
+        long warmGet = System.nanoTime() - t;
+
+        SecureTrie cold = new SecureTrie(db, root);
+        t = System.nanoTime();
+        for (int i = 0; i < ENTRIES; i++) {
+            assertArrayEquals(values.get(i), cold.get(keys.get(i)));
+        }
+        long coldGet = System.nanoTime() - t;
+
+        if (print) {
+            System.out.printf(
+                    "insert %,d ops/s, getRootHash %,d ops/s, get (warm) %,d ops/s, get (cold) %,d ops/s%n",
+                    opsPerSecond(ENTRIES, insert),
+                    opsPerSecond(ENTRIES / ENTRIES_PER_BLOCK, rootHash),
+                    opsPerSecond(ENTRIES, warmGet),
+                    opsPerSecond(ENTRIES, coldGet));
+        }
+        db.close();
+    }
+
+    private static long opsPerSecond(long ops, long nanos) {
+        return nanos == 0 ? 0 : ops * 1_000_000_000L / nanos;
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -110,7 +110,8 @@ public class BlockEncodeTest {
         assertThat(actual.getLogsBloom()).isEqualTo(expected.getLogsBloom());
         assertThat(actual.getEncoded()).isEqualTo(expected.getEncoded());
 
-        // verify body
+        // verify body, first encoded as read without decoding the transactions
+        assertThat(decodedBlock.getEncodedBody()).isEqualTo(stakingBlock.getEncodedBody());
         assertThat(decodedBlock.getTransactionsList()).isEqualTo(stakingBlock.getTransactionsList());
     }
 
@@ -164,7 +165,8 @@ public class BlockEncodeTest {
         assertThat(actual.getLogsBloom()).isEqualTo(expected.getLogsBloom());
         assertThat(actual.getEncoded()).isEqualTo(expected.getEncoded());
 
-        // verify body
+        // verify body, first encoded as read without decoding the transactions
+        assertThat(decodedBlock.getEncodedBody()).isEqualTo(miningBlock.getEncodedBody());
         assertThat(decodedBlock.getTransactionsList()).isEqualTo(miningBlock.getTransactionsList());
     }
 }
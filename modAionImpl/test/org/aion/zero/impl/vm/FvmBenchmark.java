@@ -1,12 +1,29 @@
 package org.aion.zero.impl.vm;
 
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import org.aion.base.AionTransaction;
+import org.aion.base.TransactionTypes;
+import org.aion.base.TxUtil;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
 import org.aion.fastvm.FvmDataWord;
 import org.aion.base.AccountState;
+import org.aion.mcf.blockchain.Block;
 import org.aion.mcf.db.RepositoryCache;
 import org.aion.types.AionAddress;
 import org.aion.util.bytes.ByteUtil;
+import org.aion.util.conversions.Hex;
 import org.aion.util.types.ByteArrayWrapper;
+import org.aion.zero.impl.blockchain.StandaloneBlockchain;
+import org.aion.zero.impl.core.ImportResult;
 import org.aion.zero.impl.db.AionRepositoryImpl;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.impl.vm.common.BulkExecutor;
+import org.aion.zero.impl.vm.contracts.ContractUtils;
 import org.apache.commons.lang3.RandomUtils;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -87,4 +104,102 @@ public class FvmBenchmark {
                 totalRead / (r * blocks * transactions));
         }
     }
+
+    /**
+     * Compares the import time of blocks of independent fvm contract calls with sequential and
+     * speculative execution. Every sender calls its own ticker contract, so the speculative run
+     * should not need to re-execute anything.
+     */
+    @Test
+    @Ignore
+    public void testSpeculativeExecution() throws Exception {
+        int senders = 256;
+        int repeat = 20;
+
+        List<ECKey> keys = new ArrayList<>();
+        for (int i = 0; i < senders; i++) {
+            keys.add(ECKeyFac.inst().create());
+        }
+        StandaloneBlockchain sequential = newBlockchain(keys);
+        StandaloneBlockchain speculative = newBlockchain(keys);
+
+        byte[] deployer = ContractUtils.getContractDeployer("Ticker.sol", "Ticker");
+        List<AionTransaction> creates = new ArrayList<>();
+        for (ECKey key : keys) {
+            creates.add(
+                    AionTransaction.create(
+                            key,
+                            BigInteger.ZERO.toByteArray(),
+                            null,
+                            new byte[0],
+                            deployer,
+                            5_000_000,
+                            1,
+                            TransactionTypes.DEFAULT,
+                            null));
+        }
+        // keep the deployments well within the block energy limit
+        for (int i = 0; i < senders; i += 32) {
+            importBlock(sequential, speculative, creates.subList(i, i + 32));
+        }
+
+        long totalSequential = 0;
+        long totalSpeculative = 0;
+        for (int r = 1; r <= repeat; r++) {
+            List<AionTransaction> calls = new ArrayList<>();
+            for (int i = 0; i < senders; i++) {
+                calls.add(
+                        AionTransaction.create(
+                                keys.get(i),
+                                BigInteger.valueOf(r).toByteArray(),
+                                TxUtil.calculateContractAddress(creates.get(i)),
+                                new byte[0],
+                                Hex.decode("dae29f29"),
+                                2_000_000,
+                                1,
+                                TransactionTypes.DEFAULT,
+                                null));
+            }
+            long[] times = importBlock(sequential, speculative, calls);
+
+            totalSequential += times[0];
+            totalSpeculative += times[1];
+            System.out.printf(
+                    "sequential = %7d,  speculative = %7d,  avg. sequential = %7d,  avg. speculative = %7d\n",
+                    times[0] / senders,
+                    times[1] / senders,
+                    totalSequential / (r * senders),
+                    totalSpeculative / (r * senders));
+        }
+    }
+
+    private static StandaloneBlockchain newBlockchain(List<ECKey> keys) {
+        return new StandaloneBlockchain.Builder()
+                .withValidatorConfiguration("simple")
+                .withDefaultAccounts(keys)
+                .build()
+                .bc;
+    }
+
+    /** @return the import time in nanoseconds on the sequential and the speculative chain */
+    private static long[] importBlock(
+            StandaloneBlockchain sequential,
+            StandaloneBlockchain speculative,
+            List<AionTransaction> transactions) {
+        BulkExecutor.setSpeculativeExecution(false);
+        Block parent = sequential.getBestBlock();
+        AionBlock block = sequential.createBlock(parent, transactions, false, parent.getTimestamp());
+
+        long t1 = System.nanoTime();
+        assertEquals(ImportResult.IMPORTED_BEST, sequential.tryToConnect(block));
+        long t2 = System.nanoTime();
+
+        BulkExecutor.setSpeculativeExecution(true);
+        long t3 = System.nanoTime();
+        assertEquals(ImportResult.IMPORTED_BEST, speculative.tryToConnect(block));
+        long t4 = System.nanoTime();
+        BulkExecutor.setSpeculativeExecution(false);
+
+        return new long[] {t2 - t1, t4 - t3};
+    }
 }
@@ -0,0 +1,193 @@
+package org.aion.zero.impl.vm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import org.aion.base.AionTransaction;
+import org.aion.base.AionTxReceipt;
+import org.aion.base.TransactionTypes;
+import org.aion.base.TxUtil;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.mcf.blockchain.Block;
+import org.aion.types.AionAddress;
+import org.aion.util.conversions.Hex;
+import org.aion.zero.impl.blockchain.StandaloneBlockchain;
+import org.aion.zero.impl.core.ImportResult;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.impl.types.AionBlockSummary;
+import org.aion.zero.impl.vm.common.BulkExecutor;
+import org.aion.zero.impl.vm.contracts.ContractUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Imports the same blocks into a chain executing sequentially and a chain executing
+ * speculatively. The block headers commit to the state and receipt roots of the sequential run,
+ * so the speculative import only succeeds when its results are identical.
+ */
+public class FvmSpeculativeExecutionTest {
+    private StandaloneBlockchain sequential;
+    private StandaloneBlockchain speculative;
+    private List<ECKey> keys;
+
+    @Before
+    public void setup() {
+        keys = new ArrayList<>();
+        for (int i = 0; i < StandaloneBlockchain.Builder.INITIAL_ACC_LEN; i++) {
+            keys.add(ECKeyFac.inst().create());
+        }
+
+        sequential = newBlockchain(keys);
+        speculative = newBlockchain(keys);
+    }
+
+    @After
+    public void tearDown() {
+        BulkExecutor.setSpeculativeExecution(false);
+        sequential = null;
+        speculative = null;
+    }
+
+    @Test
+    public void speculativeImportMatchesSequentialImport() throws IOException {
+        // every sender deploys its own ticker, creates are always executed in order
+        List<AionTransaction> creates = new ArrayList<>();
+        for (ECKey key : keys) {
+            creates.add(makeCreateTransaction(key, BigInteger.ZERO));
+        }
+        importIntoBoth(creates);
+
+        // independent calls, followed by a second call from each sender which conflicts on the
+        // sender nonce and a call from everyone into the first ticker which conflicts on storage
+        AionAddress shared = TxUtil.calculateContractAddress(creates.get(0));
+        List<AionTransaction> calls = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            AionAddress own = TxUtil.calculateContractAddress(creates.get(i));
+            calls.add(makeCallTransaction(keys.get(i), BigInteger.ONE, own));
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            AionAddress own = TxUtil.calculateContractAddress(creates.get(i));
+            calls.add(makeCallTransaction(keys.get(i), BigInteger.TWO, own));
+            calls.add(makeCallTransaction(keys.get(i), BigInteger.valueOf(3), shared));
+        }
+        Pair<AionBlockSummary, AionBlockSummary> summaries = importIntoBoth(calls);
+
+        List<AionTxReceipt> expected = summaries.getLeft().getReceipts();
+        List<AionTxReceipt> actual = summaries.getRight().getReceipts();
+        assertEquals(calls.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertTrue(actual.get(i).isSuccessful());
+            assertArrayEquals(expected.get(i).getReceiptTrieEncoded(), actual.get(i).getReceiptTrieEncoded());
+        }
+        assertArrayEquals(
+                sequential.getRepository().getRoot(), speculative.getRepository().getRoot());
+    }
+
+    @Test
+    public void speculativeCallsMatchSequentialCallsOnConflicts() throws IOException {
+        List<AionTransaction> creates = new ArrayList<>();
+        for (ECKey key : keys) {
+            creates.add(makeCreateTransaction(key, BigInteger.ZERO));
+        }
+        importIntoBoth(creates);
+
+        // every sender calls the ticker of the next sender twice, so each call conflicts with
+        // the previous call of the same sender, with the calls of the previous sender into the
+        // same contract and with every other call on the coinbase
+        long nonce = 1;
+        for (int round = 0; round < 4; round++) {
+            List<AionTransaction> calls = new ArrayList<>();
+            for (int call = 0; call < 2; call++) {
+                for (int i = 0; i < keys.size(); i++) {
+                    AionAddress next =
+                            TxUtil.calculateContractAddress(creates.get((i + 1) % keys.size()));
+                    BigInteger txNonce = BigInteger.valueOf(nonce + call);
+                    calls.add(makeCallTransaction(keys.get(i), txNonce, next));
+                }
+            }
+            nonce += 2;
+            importIntoBoth(calls);
+        }
+
+        for (ECKey key : keys) {
+            AionAddress address = new AionAddress(key.getAddress());
+            assertEquals(
+                    sequential.getRepository().getBalance(address),
+                    speculative.getRepository().getBalance(address));
+            assertEquals(
+                    sequential.getRepository().getNonce(address),
+                    speculative.getRepository().getNonce(address));
+        }
+        AionAddress coinbase = sequential.getBestBlock().getCoinbase();
+        assertEquals(
+                sequential.getRepository().getBalance(coinbase),
+                speculative.getRepository().getBalance(coinbase));
+        assertArrayEquals(
+                sequential.getRepository().getRoot(), speculative.getRepository().getRoot());
+    }
+
+    private static StandaloneBlockchain newBlockchain(List<ECKey> keys) {
+        return new StandaloneBlockchain.Builder()
+                .withValidatorConfiguration("simple")
+                .withDefaultAccounts(keys)
+                .build()
+                .bc;
+    }
+
+    /** Builds the block on the sequential chain, then imports it into both. */
+    private Pair<AionBlockSummary, AionBlockSummary> importIntoBoth(
+            List<AionTransaction> transactions) {
+        BulkExecutor.setSpeculativeExecution(false);
+        Block parent = sequential.getBestBlock();
+        AionBlock block = sequential.createBlock(parent, transactions, false, parent.getTimestamp());
+
+        Pair<ImportResult, AionBlockSummary> sequentialResult =
+                sequential.tryToConnectAndFetchSummary(block);
+        assertEquals(ImportResult.IMPORTED_BEST, sequentialResult.getLeft());
+
+        BulkExecutor.setSpeculativeExecution(true);
+        Pair<ImportResult, AionBlockSummary> speculativeResult =
+                speculative.tryToConnectAndFetchSummary(block);
+        assertEquals(ImportResult.IMPORTED_BEST, speculativeResult.getLeft());
+
+        return Pair.of(sequentialResult.getRight(), speculativeResult.getRight());
+    }
+
+    // Deploys the Ticker.sol contract.
+    private static AionTransaction makeCreateTransaction(ECKey sender, BigInteger nonce)
+            throws IOException {
+        byte[] contractBytes = ContractUtils.getContractDeployer("Ticker.sol", "Ticker");
+
+        return AionTransaction.create(
+                sender,
+                nonce.toByteArray(),
+                null,
+                new byte[0],
+                contractBytes,
+                5_000_000,
+                1,
+                TransactionTypes.DEFAULT, null);
+    }
+
+    // Calls the 'ticking' function of the Ticker.sol contract.
+    private static AionTransaction makeCallTransaction(
+            ECKey sender, BigInteger nonce, AionAddress contract) {
+        return AionTransaction.create(
+                sender,
+                nonce.toByteArray(),
+                contract,
+                new byte[0],
+                Hex.decode("dae29f29"),
+                2_000_000,
+                1,
+                TransactionTypes.DEFAULT, null);
+    }
+}
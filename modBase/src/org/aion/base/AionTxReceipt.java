@@ -11,6 +11,7 @@ import org.aion.rlp.RLP;
 import org.aion.rlp.RLPElement;
 import org.aion.rlp.RLPItem;
 import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPWriter;
 import org.aion.types.Log;
 import org.aion.util.bytes.ByteUtil;
 import org.aion.util.conversions.Hex;
@@ -183,33 +184,25 @@ public class AionTxReceipt {
      * @return {@code rlpEncoded} byte array representing the receipt
      */
     private byte[] getEncoded(boolean receiptTrie) {
-
-        byte[] postTxStateRLP = RLP.encodeElement(this.postTxState);
-        byte[] bloomRLP = RLP.encodeElement(this.bloomFilter.data);
-
-        final byte[] logInfoListRLP;
+        RLPWriter writer =
+                new RLPWriter()
+                        .beginList()
+                        .addElement(this.postTxState)
+                        .addElement(this.bloomFilter.data)
+                        .beginList();
         if (logInfoList != null) {
-            byte[][] logInfoListE = new byte[logInfoList.size()][];
-
-            int i = 0;
             for (Log logInfo : logInfoList) {
-                logInfoListE[i] = LogUtility.encodeLog(logInfo);
-                ++i;
+                LogUtility.writeLog(writer, logInfo);
             }
-            logInfoListRLP = RLP.encodeList(logInfoListE);
-        } else {
-            logInfoListRLP = RLP.encodeList();
         }
+        writer.endList();
 
-        return receiptTrie
-                ? RLP.encodeList(postTxStateRLP, bloomRLP, logInfoListRLP)
-                : RLP.encodeList(
-                        postTxStateRLP,
-                        bloomRLP,
-                        logInfoListRLP,
-                        RLP.encodeElement(executionResult),
-                        RLP.encodeLong(energyUsed),
-                        RLP.encodeElement(error.getBytes(StandardCharsets.UTF_8)));
+        if (!receiptTrie) {
+            writer.addElement(executionResult)
+                    .addLong(energyUsed)
+                    .addElement(error.getBytes(StandardCharsets.UTF_8));
+        }
+        return writer.endList().toByteArray();
     }
 
     /** TODO: check that this is valid, should null == valid? */
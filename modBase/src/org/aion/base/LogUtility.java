@@ -7,6 +7,7 @@ import org.aion.rlp.RLP;
 import org.aion.rlp.RLPElement;
 import org.aion.rlp.RLPItem;
 import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPWriter;
 import org.aion.types.Log;
 
 public class LogUtility {
@@ -20,16 +21,16 @@ public class LogUtility {
     }
 
     public static byte[] encodeLog(Log log) {
-        byte[] addressEncoded = RLP.encodeElement(log.copyOfAddress());
+        return writeLog(new RLPWriter(), log).toByteArray();
+    }
 
-        List<byte[]> topics = log.copyOfTopics();
-        byte[][] topicsEncoded = new byte[topics.size()][];
-        for (int i = 0; i < topics.size(); i++) {
-            topicsEncoded[i] = RLP.encodeElement(topics.get(i));
+    /** Writes the encoding of the given log, as returned by {@link #encodeLog(Log)}. */
+    public static RLPWriter writeLog(RLPWriter writer, Log log) {
+        writer.beginList().addElement(log.copyOfAddress()).beginList();
+        for (byte[] topic : log.copyOfTopics()) {
+            writer.addElement(topic);
         }
-
-        byte[] dataEncoded = RLP.encodeElement(log.copyOfData());
-        return RLP.encodeList(addressEncoded, RLP.encodeList(topicsEncoded), dataEncoded);
+        return writer.endList().addElement(log.copyOfData()).endList();
     }
 
     public static Log decodeLog(byte[] rlp) {
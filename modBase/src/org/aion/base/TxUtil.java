@@ -2,6 +2,7 @@ package org.aion.base;
 
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
+import java.util.List;
 import org.aion.crypto.AddressSpecs;
 import org.aion.crypto.HashUtil;
 import org.aion.crypto.ISignature;
@@ -10,7 +11,8 @@ import org.aion.fastvm.FvmConstants;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.aion.rlp.RLP;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
+import org.aion.rlp.RLPWriter;
 import org.aion.types.AionAddress;
 import org.aion.types.InternalTransaction;
 import org.aion.types.Transaction;
@@ -124,14 +126,14 @@ public final class TxUtil {
      */
     public static AionTransaction decode(byte[] rlpEncoding) {
 
-        RLPList decodedTxList;
+        // the fields are located in one pass and only copied when read
+        List<RLPView> tx;
         try {
-            decodedTxList = RLP.decode2(rlpEncoding);
+            tx = RLPView.wrap(rlpEncoding).elements();
         } catch (Exception e) {
             LOG.error("tx -> unable to decode rlpEncoding");
             return null;
         }
-        RLPList tx = (RLPList) decodedTxList.get(0);
 
         byte[] nonce = tx.get(RLP_TX_NONCE).getRLPData();
         byte[] value = tx.get(RLP_TX_VALUE).getRLPData();
@@ -226,44 +228,17 @@ public final class TxUtil {
         // see https://aionnetwork.atlassian.net/wiki/spaces/TE/pages/292389035/Transaction+RLP+Encoding
         // for decoding/encoding rules
 
-        byte[] nonceEncoded = RLP.encodeElement(nonce);
-        byte[] destinationEncoded = RLP.encodeElement(destination == null ? null : destination.toByteArray());
-        byte[] valueEncoded = RLP.encodeElement(value);
-        byte[] dataEncoded = RLP.encodeElement(data);
-        byte[] timeStampEncoded = RLP.encodeElement(timeStamp);
-        byte[] energyLimitEncoded = RLP.encodeLong(energyLimit);
-        byte[] energyPriceEncoded = RLP.encodeLong(energyPrice);
-        byte[] typeEncoded = RLP.encodeByte(type);
-
-        if(beaconHash == null) {
-            return RLP.encodeList(
-                    nonceEncoded,
-                    destinationEncoded,
-                    valueEncoded,
-                    dataEncoded,
-                    timeStampEncoded,
-                    energyLimitEncoded,
-                    energyPriceEncoded,
-                    typeEncoded);
-        } else {
-            // may use different extensions in the future, but
-            // today, the only extension is beacon hash, which
-            // is represented by 0x01.
-            byte[] extensionsEncoded = RLP.encodeByte(BEACON_HASH_EXTENSION);
-
-            byte[] beaconHashEncoded = RLP.encodeElement(beaconHash);
-            return RLP.encodeList(
-                    nonceEncoded,
-                    destinationEncoded,
-                    valueEncoded,
-                    dataEncoded,
-                    timeStampEncoded,
-                    energyLimitEncoded,
-                    energyPriceEncoded,
-                    typeEncoded,
-                    extensionsEncoded,
-                    beaconHashEncoded);
-        }
+        RLPWriter writer =
+                writeCommonFields(
+                        nonce,
+                        destination,
+                        value,
+                        data,
+                        timeStamp,
+                        energyLimit,
+                        energyPrice,
+                        type);
+        return writeExtensions(writer, beaconHash).endList().toByteArray();
     }
 
     /**
@@ -286,45 +261,49 @@ public final class TxUtil {
         // see https://aionnetwork.atlassian.net/wiki/spaces/TE/pages/292389035/Transaction+RLP+Encoding
         // for decoding/encoding rules
 
-        byte[] nonceEncoded = RLP.encodeElement(nonce);
-        byte[] destinationEncoded = RLP.encodeElement(destination == null ? null : destination.toByteArray());
-        byte[] valueEncoded = RLP.encodeElement(value);
-        byte[] dataEncoded = RLP.encodeElement(data);
-        byte[] timeStampEncoded = RLP.encodeElement(timeStamp);
-        byte[] energyLimitEncoded = RLP.encodeLong(energyLimit);
-        byte[] energyPriceEncoded = RLP.encodeLong(energyPrice);
-        byte[] typeEncoded = RLP.encodeByte(type);
-        byte[] signatureEncoded = RLP.encodeElement(signature.toBytes());
-
-        if(beaconHash == null) {
-            return RLP.encodeList(
-                    nonceEncoded,
-                    destinationEncoded,
-                    valueEncoded,
-                    dataEncoded,
-                    timeStampEncoded,
-                    energyLimitEncoded,
-                    energyPriceEncoded,
-                    typeEncoded,
-                    signatureEncoded);
-        } else {
+        RLPWriter writer =
+                writeCommonFields(
+                        nonce,
+                        destination,
+                        value,
+                        data,
+                        timeStamp,
+                        energyLimit,
+                        energyPrice,
+                        type);
+        writer.addElement(signature.toBytes());
+        return writeExtensions(writer, beaconHash).endList().toByteArray();
+    }
+
+    /** Opens the transaction list and writes the fields preceding the signature. */
+    private static RLPWriter writeCommonFields(
+            byte[] nonce,
+            AionAddress destination,
+            byte[] value,
+            byte[] data,
+            byte[] timeStamp,
+            long energyLimit,
+            long energyPrice,
+            byte type) {
+        return new RLPWriter(12)
+                .beginList()
+                .addElement(nonce)
+                .addElement(destination == null ? null : destination.toByteArray())
+                .addElement(value)
+                .addElement(data)
+                .addElement(timeStamp)
+                .addLong(energyLimit)
+                .addLong(energyPrice)
+                .addByte(type);
+    }
+
+    private static RLPWriter writeExtensions(RLPWriter writer, byte[] beaconHash) {
+        if (beaconHash != null) {
             // may use different extensions in the future, but
             // today, the only extension is beacon hash, which
             // is represented by 0x01.
-            byte[] extensionsEncoded = RLP.encodeByte(BEACON_HASH_EXTENSION);
-            byte[] beaconHashEncoded = RLP.encodeElement(beaconHash);
-            return RLP.encodeList(
-                    nonceEncoded,
-                    destinationEncoded,
-                    valueEncoded,
-                    dataEncoded,
-                    timeStampEncoded,
-                    energyLimitEncoded,
-                    energyPriceEncoded,
-                    typeEncoded,
-                    signatureEncoded,
-                    extensionsEncoded,
-                    beaconHashEncoded);
+            writer.addByte(BEACON_HASH_EXTENSION).addElement(beaconHash);
         }
+        return writer;
     }
 }
@@ -2,6 +2,7 @@ package org.aion.db.generic;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
@@ -177,6 +178,22 @@ public class TimedDatabase implements ByteArrayKeyValueDatabase {
         return value;
     }
 
+    @Override
+    public List<byte[]> getBatch(Collection<byte[]> keys) {
+        long t1 = System.nanoTime();
+        List<byte[]> values = database.getBatch(keys);
+        long t2 = System.nanoTime();
+
+        LOG.debug(
+                database.toString()
+                        + " getBatch("
+                        + (keys != null ? keys.size() : "null")
+                        + ") in "
+                        + (t2 - t1)
+                        + " ns.");
+        return values;
+    }
+
     @Override
     public void put(byte[] key, byte[] value) {
         long t1 = System.nanoTime();
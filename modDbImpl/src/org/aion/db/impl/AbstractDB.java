@@ -3,7 +3,9 @@ package org.aion.db.impl;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -118,8 +120,9 @@ public abstract class AbstractDB implements ByteArrayKeyValueDatabase {
      * NullPointerException} if a null key is present.
      */
     public static void check(Collection<byte[]> keysOrValues) {
-        if (keysOrValues.contains(null)) {
-            throw new NullPointerException("The database does not accept null keys or values.");
+        // iterating because immutable collections throw on contains(null)
+        for (byte[] keyOrValue : keysOrValues) {
+            check(keyOrValue);
         }
     }
 
@@ -172,6 +175,32 @@ public abstract class AbstractDB implements ByteArrayKeyValueDatabase {
      */
     protected abstract byte[] getInternal(byte[] key);
 
+    @Override
+    public List<byte[]> getBatch(Collection<byte[]> keys) {
+        check(keys);
+        check();
+
+        return getBatchInternal(keys);
+    }
+
+    /**
+     * Database specific batch get functionality, without locking or integrity checks required.
+     * Locking and checks are applied in {@link #getBatch(Collection)}.
+     *
+     * <p>Reads the keys one at a time. Databases able to answer several keys in one request
+     * should override this method.
+     *
+     * @param keys the keys for which the method must return the associated values
+     * @return the values stored in the database for the given keys, in the order of the keys
+     */
+    protected List<byte[]> getBatchInternal(Collection<byte[]> keys) {
+        List<byte[]> values = new ArrayList<>(keys.size());
+        for (byte[] key : keys) {
+            values.add(getInternal(key));
+        }
+        return values;
+    }
+
     @Override
     public void put(byte[] key, byte[] value) {
         check(key);
@@ -2,6 +2,7 @@ package org.aion.db.impl;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -46,6 +47,20 @@ public interface KeyValueStore<KeyT, ValueT> extends AutoCloseable {
      */
     Optional<ValueT> get(KeyT key);
 
+    /**
+     * Retrieves the values stored for the given keys with a single request to the data store, when
+     * supported by the implementation. The returned list holds the value of each key in the
+     * iteration order of the given collection, or {@code null} for keys that are not stored.
+     *
+     * @param keys a {@link Collection} of keys to be retrieved from storage
+     * @return the values stored for the given keys, in the order of the keys
+     * @throws RuntimeException if the data store is closed
+     * @throws NullPointerException if the collection contains a {@code null} key
+     * @apiNote Prefer this method over repeated calls to {@link #get(Object)} when many known keys
+     *     are read together, since the underlying database may answer them in one native call.
+     */
+    List<ValueT> getBatch(Collection<KeyT> keys);
+
     /**
      * Stores or updates a value at the corresponding key. Makes no guarantees about when the value
      * is actually inserted into the underlying data store.
@@ -1,6 +1,7 @@
 package org.aion.db.impl.mongodb;
 
 import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.in;
 
 import com.mongodb.ClientSessionOptions;
 import com.mongodb.ReadConcern;
@@ -352,6 +353,26 @@ public class MongoDB extends AbstractDB {
         }
     }
 
+    @Override
+    protected List<byte[]> getBatchInternal(Collection<byte[]> keys) {
+        List<BsonBinary> ids = keys.stream().map(BsonBinary::new).collect(Collectors.toList());
+
+        // a single query for all the keys, the results are matched back to the requested order
+        Map<ByteArrayWrapper, byte[]> found = new HashMap<>();
+        for (BsonDocument document :
+                this.collection.find(this.clientSession, in(MongoConstants.ID_FIELD_NAME, ids))) {
+            found.put(
+                    ByteArrayWrapper.wrap(document.getBinary(MongoConstants.ID_FIELD_NAME).getData()),
+                    document.getBinary(MongoConstants.VALUE_FIELD_NAME).getData());
+        }
+
+        List<byte[]> values = new ArrayList<>(keys.size());
+        for (byte[] key : keys) {
+            values.add(found.get(ByteArrayWrapper.wrap(key)));
+        }
+        return values;
+    }
+
     @Override
     public void putInternal(byte[] key, byte[] value) {
         // Write this single edit in as a batch
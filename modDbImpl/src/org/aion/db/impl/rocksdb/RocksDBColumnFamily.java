@@ -0,0 +1,420 @@
+package org.aion.db.impl.rocksdb;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.aion.db.impl.AbstractDB;
+import org.aion.util.types.ByteArrayWrapper;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ReadOptions;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteBatchWithIndex;
+import org.rocksdb.WriteOptions;
+import org.slf4j.Logger;
+
+/**
+ * A database stored in a column family of a {@link SharedRocksDB} instance.
+ *
+ * <p>When auto-commit is disabled all writes, including the batch operations, are buffered in the
+ * batch shared with the other column families of the instance and only reach the disk on {@link
+ * #commit()}, which applies the writes of every column family at once. Reads see the buffered
+ * writes, including the commits still pending in write-behind mode. When auto-commit is enabled
+ * the column family behaves like a {@link RocksDBWrapper}.
+ *
+ * <p>Instances are created through {@link SharedRocksDB#getColumnFamily(String, boolean)}.
+ */
+public class RocksDBColumnFamily extends AbstractDB {
+
+    private final SharedRocksDB shared;
+    private final boolean autoCommit;
+    private ColumnFamilyHandle handle;
+
+    RocksDBColumnFamily(
+            String name, String path, Logger log, SharedRocksDB shared, boolean autoCommit) {
+        super(name, path, log, false, false);
+        this.shared = shared;
+        this.autoCommit = autoCommit;
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName()
+                + ":<name="
+                + name
+                + ",autocommit="
+                + (autoCommit ? "ON" : "OFF")
+                + ",shared="
+                + shared.getPath()
+                + ">";
+    }
+
+    // IDatabase Functionality
+    @Override
+    public boolean open() {
+        if (isOpen()) {
+            return true;
+        }
+
+        LOG.debug("Initialising column family {}", this.toString());
+        handle = shared.acquire(name);
+        return isOpen();
+    }
+
+    @Override
+    public void close() {
+        // do nothing if already closed
+        if (handle == null) {
+            return;
+        }
+
+        LOG.info("Closing database " + this.toString());
+        handle = null;
+        shared.release();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return handle != null && shared.isOpen();
+    }
+
+    @Override
+    public boolean isCreatedOnDisk() {
+        // working heuristic for Ubuntu: both the LOCK and LOG files should get created on creation
+        return new File(shared.getPath(), "LOCK").exists()
+                && new File(shared.getPath(), "LOG").exists();
+    }
+
+    @Override
+    public boolean isAutoCommitEnabled() {
+        return autoCommit;
+    }
+
+    /**
+     * Atomically applies the buffered writes of all the column families of the shared instance.
+     */
+    @Override
+    public boolean commit() {
+        return autoCommit || shared.commit();
+    }
+
+    @Override
+    public void drop() {
+        check();
+
+        LOG.info("Dropping column family " + this.toString() + ".");
+        shared.clear(handle, autoCommit);
+    }
+
+    @Override
+    public void compact() {
+        LOG.info("Compacting " + this.toString() + ".");
+        try {
+            db().compactRange(handle);
+        } catch (RocksDBException e) {
+            LOG.error("Cannot compact data.", e);
+        }
+    }
+
+    @Override
+    public long approximateSize() {
+        check();
+
+        try {
+            return db().getLongProperty(handle, "rocksdb.total-sst-files-size");
+        } catch (RocksDBException e) {
+            LOG.error("Unable to get the size of " + this.toString() + ".", e);
+            return -1L;
+        }
+    }
+
+    private RocksDB db() {
+        return shared.getDb();
+    }
+
+    // IKeyValueStore functionality
+
+    @Override
+    public boolean isEmpty() {
+        check();
+
+        // the iterator sees the current batch, but not the commits pending in write-behind mode
+        shared.awaitPendingCommits();
+        shared.getLock().readLock().lock();
+        try (ReadOptions readOptions = new ReadOptions();
+                RocksIterator itr = newIterator(readOptions)) {
+            if (!autoCommit && shared.isCleared(handle)) {
+                // the committed data is removed by the next commit
+                return !shared.hasBufferedPuts(handle);
+            }
+
+            itr.seekToFirst();
+
+            // check if there is at least one valid item
+            return !itr.isValid();
+        } catch (Exception e) {
+            LOG.error("Unable to extract information from database " + this.toString() + ".", e);
+        } finally {
+            shared.getLock().readLock().unlock();
+        }
+
+        return true;
+    }
+
+    private RocksIterator newIterator(ReadOptions readOptions) {
+        RocksIterator base = db().newIterator(handle, readOptions);
+        return autoCommit ? base : shared.getBatch().newIteratorWithBase(handle, base);
+    }
+
+    /**
+     * @implNote The keys are read from a snapshot of the committed data. Writes still buffered in
+     *     the shared batch are not included, since the batch may be committed while the keys are
+     *     iterated.
+     */
+    @Override
+    public Iterator<byte[]> keys() {
+        check();
+
+        try {
+            ReadOptions readOptions = new ReadOptions();
+            readOptions.setSnapshot(db().getSnapshot());
+            return new ColumnFamilyIterator(readOptions, db().newIterator(handle, readOptions));
+        } catch (Exception e) {
+            LOG.error("Unable to extract keys from database " + this.toString() + ".", e);
+        }
+
+        // empty when retrieval failed
+        return Collections.emptyIterator();
+    }
+
+    /** A wrapper for the {@link RocksIterator} conforming to the {@link Iterator} interface. */
+    private static class ColumnFamilyIterator implements Iterator<byte[]> {
+        private final RocksIterator iterator;
+        private final ReadOptions readOptions;
+        private boolean closed;
+
+        ColumnFamilyIterator(final ReadOptions readOptions, final RocksIterator iterator) {
+            this.readOptions = readOptions;
+            this.iterator = iterator;
+            iterator.seekToFirst();
+            closed = false;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!closed) {
+                boolean isValid = iterator.isValid();
+
+                // close iterator after last entry
+                if (!isValid) {
+                    iterator.close();
+                    readOptions.close();
+                    closed = true;
+                }
+
+                return isValid;
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public byte[] next() {
+            byte[] key = iterator.key();
+            iterator.next();
+            return key;
+        }
+    }
+
+    @Override
+    protected byte[] getInternal(byte[] key) {
+        if (autoCommit) {
+            try {
+                return db().get(handle, key);
+            } catch (RocksDBException e) {
+                LOG.error("Unable to get key " + Arrays.toString(key) + ". " + e);
+            }
+            return null;
+        }
+
+        shared.getLock().readLock().lock();
+        try {
+            return shared.read(handle, key);
+        } catch (RocksDBException e) {
+            LOG.error("Unable to get key " + Arrays.toString(key) + ". " + e);
+        } finally {
+            shared.getLock().readLock().unlock();
+        }
+
+        return null;
+    }
+
+    @Override
+    protected List<byte[]> getBatchInternal(Collection<byte[]> keys) {
+        shared.getLock().readLock().lock();
+        try {
+            // buffered writes must be read through the batch one key at a time
+            if (autoCommit || !shared.hasBufferedWrites()) {
+                List<ColumnFamilyHandle> handles = Collections.nCopies(keys.size(), handle);
+                return db().multiGetAsList(handles, new ArrayList<>(keys));
+            }
+        } catch (RocksDBException e) {
+            LOG.error("Unable to get batch of " + keys.size() + " keys. " + e);
+        } finally {
+            shared.getLock().readLock().unlock();
+        }
+
+        return super.getBatchInternal(keys);
+    }
+
+    @Override
+    public void putInternal(byte[] key, byte[] value) {
+        try {
+            if (autoCommit) {
+                db().put(handle, key, value);
+            } else {
+                write(batch -> batch.put(handle, key, value));
+            }
+        } catch (RocksDBException e) {
+            LOG.error("Unable to put / update key " + Arrays.toString(key) + ". " + e);
+        }
+    }
+
+    @Override
+    public void deleteInternal(byte[] key) {
+        try {
+            if (autoCommit) {
+                db().delete(handle, key);
+            } else {
+                write(batch -> batch.delete(handle, key));
+            }
+        } catch (RocksDBException e) {
+            LOG.error("Unable to delete key " + Arrays.toString(key) + ". " + e);
+        }
+    }
+
+    @Override
+    public void putToBatchInternal(byte[] key, byte[] value) {
+        // the writes are batched by the shared instance or applied directly
+        putInternal(key, value);
+    }
+
+    @Override
+    public void deleteInBatchInternal(byte[] key) {
+        // the writes are batched by the shared instance or applied directly
+        deleteInternal(key);
+    }
+
+    @Override
+    public void commitBatch() {
+        // nothing to do, the writes are committed together with the other column families
+    }
+
+    @Override
+    public void putBatchInternal(Map<byte[], byte[]> input) {
+        try {
+            if (autoCommit) {
+                try (WriteBatch batch = new WriteBatch();
+                        WriteOptions options = new WriteOptions()) {
+                    for (Map.Entry<byte[], byte[]> e : input.entrySet()) {
+                        batch.put(handle, e.getKey(), e.getValue());
+                    }
+                    db().write(options, batch);
+                }
+            } else {
+                write(
+                        batch -> {
+                            for (Map.Entry<byte[], byte[]> e : input.entrySet()) {
+                                batch.put(handle, e.getKey(), e.getValue());
+                            }
+                        });
+            }
+        } catch (RocksDBException e) {
+            LOG.error(
+                    "Unable to execute batch put/update operation on " + this.toString() + ".", e);
+        }
+    }
+
+    @Override
+    public void deleteBatchInternal(Collection<byte[]> keys) {
+        try {
+            if (autoCommit) {
+                try (WriteBatch batch = new WriteBatch();
+                        WriteOptions options = new WriteOptions()) {
+                    for (byte[] key : keys) {
+                        batch.delete(handle, key);
+                    }
+                    db().write(options, batch);
+                }
+            } else {
+                write(
+                        batch -> {
+                            for (byte[] key : keys) {
+                                batch.delete(handle, key);
+                            }
+                        });
+            }
+        } catch (RocksDBException e) {
+            LOG.error("Unable to execute batch delete operation on " + this.toString() + ".", e);
+        }
+    }
+
+    @Override
+    public boolean commitCache(Map<ByteArrayWrapper, byte[]> cache) {
+        check();
+
+        try {
+            if (autoCommit) {
+                try (WriteBatch batch = new WriteBatch();
+                        WriteOptions options = new WriteOptions()) {
+                    for (Map.Entry<ByteArrayWrapper, byte[]> e : cache.entrySet()) {
+                        if (e.getValue() == null) {
+                            batch.delete(handle, e.getKey().toBytes());
+                        } else {
+                            batch.put(handle, e.getKey().toBytes(), e.getValue());
+                        }
+                    }
+                    db().write(options, batch);
+                }
+            } else {
+                write(
+                        batch -> {
+                            for (Map.Entry<ByteArrayWrapper, byte[]> e : cache.entrySet()) {
+                                if (e.getValue() == null) {
+                                    batch.delete(handle, e.getKey().toBytes());
+                                } else {
+                                    batch.put(handle, e.getKey().toBytes(), e.getValue());
+                                }
+                            }
+                        });
+            }
+            return true;
+        } catch (RocksDBException e) {
+            LOG.error("Unable to commit heap cache to " + this.toString() + ".", e);
+        }
+
+        return false;
+    }
+
+    /** Adds writes to the shared batch while holding its lock. */
+    private void write(BatchWrite writes) throws RocksDBException {
+        shared.getLock().writeLock().lock();
+        try {
+            writes.apply(shared.getBatch());
+        } finally {
+            shared.getLock().writeLock().unlock();
+        }
+    }
+
+    @FunctionalInterface
+    private interface BatchWrite {
+        void apply(WriteBatchWithIndex batch) throws RocksDBException;
+    }
+}
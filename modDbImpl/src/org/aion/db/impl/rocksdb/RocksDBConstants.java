@@ -7,6 +7,12 @@ public class RocksDBConstants {
     public static int READ_BUFFER_SIZE = 8 * 1024 * 1024;
     public static int CACHE_SIZE = 16 * 1024 * 1024;
 
+    // used by the shared instance holding all the column families
+    public static long SHARED_CACHE_SIZE = 256 * 1024 * 1024;
+    public static long SHARED_WRITE_BUFFER_SIZE = 128 * 1024 * 1024;
+    // the number of flushes the shared instance may write in the background in write-behind mode
+    public static int MAX_PENDING_COMMITS = 2;
+
     static int BYTES_PER_SYNC = 1024 * 1024;
     static int OPTIMIZE_LEVEL_STYLE_COMPACTION = 128 * 1024 * 1024;
     static int MAX_BACKGROUND_COMPACTIONS = 4;
@@ -12,10 +12,12 @@ import static org.aion.db.impl.rocksdb.RocksDBConstants.MIN_WRITE_BUFFER_NUMBER_
 import static org.aion.db.impl.rocksdb.RocksDBConstants.OPTIMIZE_LEVEL_STYLE_COMPACTION;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import org.aion.db.impl.AbstractDB;
 import org.aion.util.types.ByteArrayWrapper;
@@ -305,6 +307,19 @@ public class RocksDBWrapper extends AbstractDB {
         return null;
     }
 
+    @Override
+    protected List<byte[]> getBatchInternal(Collection<byte[]> keys) {
+        try {
+            // a single native call for all the keys
+            return db.multiGetAsList(new ArrayList<>(keys));
+        } catch (RocksDBException e) {
+            LOG.error("Unable to get batch of " + keys.size() + " keys. " + e);
+        }
+
+        // fall back to reading the keys one at a time
+        return super.getBatchInternal(keys);
+    }
+
     @Override
     public void putInternal(byte[] key, byte[] value) {
         try {
@@ -0,0 +1,759 @@
+package org.aion.db.impl.rocksdb;
+
+import static java.lang.Math.max;
+import static org.aion.db.impl.rocksdb.RocksDBConstants.BLOOMFILTER_BITS_PER_KEY;
+import static org.aion.db.impl.rocksdb.RocksDBConstants.BYTES_PER_SYNC;
+import static org.aion.db.impl.rocksdb.RocksDBConstants.LEVEL0_SLOWDOWN_WRITES_TRIGGER;
+import static org.aion.db.impl.rocksdb.RocksDBConstants.LEVEL0_STOP_WRITES_TRIGGER;
+import static org.aion.db.impl.rocksdb.RocksDBConstants.MAX_BACKGROUND_COMPACTIONS;
+import static org.aion.db.impl.rocksdb.RocksDBConstants.MAX_BACKGROUND_FLUSHES;
+import static org.aion.db.impl.rocksdb.RocksDBConstants.MIN_WRITE_BUFFER_NUMBER_TOMERGE;
+import static org.aion.db.impl.rocksdb.RocksDBConstants.OPTIMIZE_LEVEL_STYLE_COMPACTION;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.CompactionPriority;
+import org.rocksdb.CompressionType;
+import org.rocksdb.DBOptions;
+import org.rocksdb.LRUCache;
+import org.rocksdb.Options;
+import org.rocksdb.ReadOptions;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.WBWIRocksIterator;
+import org.rocksdb.WBWIRocksIterator.WriteType;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteBatchWithIndex;
+import org.rocksdb.WriteBufferManager;
+import org.rocksdb.WriteOptions;
+import org.slf4j.Logger;
+
+/**
+ * A single RocksDB instance holding several logical databases, each stored in its own column
+ * family.
+ *
+ * <p>All column families share one block cache and one write buffer budget, so the memory used by
+ * the instance is bounded regardless of the number of stores, and one write-ahead log. Writes to
+ * the buffered column families are collected in a shared batch and applied atomically by {@link
+ * #commit()}, which keeps the stores consistent with each other after a crash.
+ *
+ * <p>In write-behind mode {@link #commit()} does not wait for the disk. The batch is frozen into
+ * an immutable layer that reads still see and a background thread applies the layers in order,
+ * while new writes go to a fresh batch. Commits block when too many layers are pending, so the
+ * memory held by the layers stays bounded. A layer that cannot be written after {@link
+ * #MAX_WRITE_ATTEMPTS} attempts stops the writer, and the failure is thrown by the following calls
+ * to {@link #commit()} and by the closing of the instance.
+ *
+ * <p>The instance is opened by the first column family that is opened and closed, after
+ * committing any buffered writes, when the last one is closed.
+ *
+ * @implNote The shared batch and the pending layers are guarded by a read-write lock owned by
+ *     this class, since the column families are used by stores with independent locks.
+ */
+public class SharedRocksDB {
+
+    private static final long WRITE_RETRY_MS = 1_000L;
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+
+    private final String path;
+    private final Logger LOG;
+    private final boolean enableDbCompression;
+    private final long cacheSize;
+    private final long writeBufferBudget;
+    private final int maxPendingCommits;
+
+    private final Map<String, RocksDBColumnFamily> columnFamilies = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private RocksDB db;
+    private DBOptions dbOptions;
+    private ColumnFamilyOptions cfOptions;
+    private LRUCache cache;
+    private WriteBufferManager writeBufferManager;
+    private WriteBatchWithIndex batch;
+    private final Map<String, ColumnFamilyHandle> handles = new HashMap<>();
+    private int openCount = 0;
+
+    // layers frozen by commit and not yet written, oldest first
+    private final Deque<WriteBatchWithIndex> pending = new ArrayDeque<>();
+    // the column families cleared by the current batch or a pending layer, see clear
+    private final Map<WriteBatchWithIndex, Set<ColumnFamilyHandle>> clears =
+            new IdentityHashMap<>();
+    private final Object pendingMonitor = new Object();
+    private Thread writer;
+    // the error that stopped the background writer, null while the writes succeed
+    private volatile RocksDBException writeFailure = null;
+
+    /**
+     * @param name the name of the directory holding the instance
+     * @param path the parent directory of the instance
+     * @param log the logger used by the instance and its column families
+     * @param enableDbCompression enables LZ4 compression for all column families
+     * @param cacheSize the size in bytes of the block cache shared by all column families
+     * @param writeBufferBudget the total size in bytes of the memtables of all column families
+     */
+    public SharedRocksDB(
+            String name,
+            String path,
+            Logger log,
+            boolean enableDbCompression,
+            long cacheSize,
+            long writeBufferBudget) {
+        this(name, path, log, enableDbCompression, cacheSize, writeBufferBudget, 0);
+    }
+
+    /**
+     * @param name the name of the directory holding the instance
+     * @param path the parent directory of the instance
+     * @param log the logger used by the instance and its column families
+     * @param enableDbCompression enables LZ4 compression for all column families
+     * @param cacheSize the size in bytes of the block cache shared by all column families
+     * @param writeBufferBudget the total size in bytes of the memtables of all column families
+     * @param maxPendingCommits the number of commits that may wait to be written in the
+     *     background, or {@code 0} to write each commit before returning
+     */
+    public SharedRocksDB(
+            String name,
+            String path,
+            Logger log,
+            boolean enableDbCompression,
+            long cacheSize,
+            long writeBufferBudget,
+            int maxPendingCommits) {
+        if (maxPendingCommits < 0) {
+            throw new IllegalArgumentException("The number of pending commits must not be negative.");
+        }
+        this.path = new File(path, name).getAbsolutePath();
+        this.LOG = log;
+        this.enableDbCompression = enableDbCompression;
+        this.cacheSize = cacheSize;
+        this.writeBufferBudget = writeBufferBudget;
+        this.maxPendingCommits = maxPendingCommits;
+
+        LOG.info(
+                "Shared RocksDb Options: EnableCompression:{} CacheSize:{} WriteBufferBudget:{} MaxPendingCommits:{}",
+                enableDbCompression,
+                cacheSize,
+                writeBufferBudget,
+                maxPendingCommits);
+
+        RocksDB.loadLibrary();
+    }
+
+    /**
+     * Returns the database stored in the column family with the given name, creating the column
+     * family when the database is first opened.
+     *
+     * @param name the name of the column family
+     * @param autoCommit {@code true} if writes are applied immediately, {@code false} if they are
+     *     buffered in the shared batch until {@link #commit()}
+     * @return the database for the given column family
+     */
+    public synchronized RocksDBColumnFamily getColumnFamily(String name, boolean autoCommit) {
+        RocksDBColumnFamily database = columnFamilies.get(name);
+        if (database == null) {
+            database = new RocksDBColumnFamily(name, path, LOG, this, autoCommit);
+            columnFamilies.put(name, database);
+        } else if (database.isAutoCommitEnabled() != autoCommit) {
+            throw new IllegalArgumentException(
+                    "The column family " + name + " was already requested with a different commit mode.");
+        }
+        return database;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public synchronized boolean isOpen() {
+        return db != null;
+    }
+
+    /** Opens the instance if needed and returns the handle of the given column family. */
+    synchronized ColumnFamilyHandle acquire(String name) {
+        if (db == null && !open()) {
+            return null;
+        }
+
+        ColumnFamilyHandle handle = handles.get(name);
+        if (handle == null) {
+            try {
+                handle = db.createColumnFamily(descriptor(name));
+                handles.put(name, handle);
+            } catch (RocksDBException e) {
+                LOG.error("Failed to create the column family " + name + " in " + this + ".", e);
+                return null;
+            }
+        }
+        openCount++;
+        return handle;
+    }
+
+    /** Closes the instance once all the column families that acquired it have been released. */
+    synchronized void release() {
+        openCount--;
+        if (openCount <= 0) {
+            openCount = 0;
+            close();
+        }
+    }
+
+    private boolean open() {
+        LOG.debug("Initialising shared RockDB {}", this);
+
+        File f = new File(path);
+        if (!f.exists() && !f.mkdirs()) {
+            LOG.error("Failed to initialize the database storage for " + this + ".");
+            return false;
+        }
+
+        cache = new LRUCache(cacheSize);
+        writeBufferManager = new WriteBufferManager(writeBufferBudget, cache);
+        dbOptions = setupDbOptions();
+        cfOptions = setupColumnFamilyOptions();
+
+        // all the existing column families must be opened
+        Set<String> names = new LinkedHashSet<>();
+        names.add(new String(RocksDB.DEFAULT_COLUMN_FAMILY, StandardCharsets.UTF_8));
+        try (Options options = new Options()) {
+            for (byte[] existing : RocksDB.listColumnFamilies(options, path)) {
+                names.add(new String(existing, StandardCharsets.UTF_8));
+            }
+        } catch (RocksDBException e) {
+            // thrown when the database does not exist yet
+            LOG.debug("No column families found for {}.", this);
+        }
+
+        List<ColumnFamilyDescriptor> descriptors = new ArrayList<>();
+        List<String> order = new ArrayList<>(names);
+        for (String name : order) {
+            descriptors.add(descriptor(name));
+        }
+
+        List<ColumnFamilyHandle> opened = new ArrayList<>();
+        try {
+            db = RocksDB.open(dbOptions, path, descriptors, opened);
+        } catch (RocksDBException e) {
+            if (e.getMessage() != null && e.getMessage().contains("lock")) {
+                LOG.error(
+                        "Failed to open the database "
+                                + this
+                                + "\nCheck if you have two instances running on the same database."
+                                + "\nFailure due to: ",
+                        e);
+            } else {
+                LOG.error("Failed to open the database " + this + " due to: ", e);
+            }
+
+            close();
+            return false;
+        }
+
+        for (int i = 0; i < order.size(); i++) {
+            handles.put(order.get(i), opened.get(i));
+        }
+        batch = new WriteBatchWithIndex(true);
+
+        if (maxPendingCommits > 0) {
+            writeFailure = null;
+            writer = new Thread(this::writePending, "db-write-behind");
+            writer.setDaemon(true);
+            writer.start();
+        }
+        return true;
+    }
+
+    private ColumnFamilyDescriptor descriptor(String name) {
+        return new ColumnFamilyDescriptor(name.getBytes(StandardCharsets.UTF_8), cfOptions);
+    }
+
+    private DBOptions setupDbOptions() {
+        DBOptions options = new DBOptions();
+
+        options.setCreateIfMissing(true);
+        options.setCreateMissingColumnFamilies(true);
+        options.setUseFsync(false);
+        options.setParanoidChecks(true);
+        options.setMaxOpenFiles(RocksDBConstants.MAX_OPEN_FILES);
+        options.setRandomAccessMaxBufferSize(RocksDBConstants.READ_BUFFER_SIZE);
+        options.setIncreaseParallelism(max(1, Runtime.getRuntime().availableProcessors() / 2));
+        options.setMaxBackgroundCompactions(MAX_BACKGROUND_COMPACTIONS);
+        options.setMaxBackgroundFlushes(MAX_BACKGROUND_FLUSHES);
+        options.setBytesPerSync(BYTES_PER_SYNC);
+
+        // memtables of all column families are charged to the shared cache
+        options.setWriteBufferManager(writeBufferManager);
+
+        return options;
+    }
+
+    private ColumnFamilyOptions setupColumnFamilyOptions() {
+        ColumnFamilyOptions options = new ColumnFamilyOptions();
+
+        options.setCompressionType(
+                enableDbCompression
+                        ? CompressionType.LZ4_COMPRESSION
+                        : CompressionType.NO_COMPRESSION);
+        options.setBottommostCompressionType(CompressionType.LZ4_COMPRESSION);
+        options.setMinWriteBufferNumberToMerge(MIN_WRITE_BUFFER_NUMBER_TOMERGE);
+        options.setLevel0StopWritesTrigger(LEVEL0_STOP_WRITES_TRIGGER);
+        options.setLevel0SlowdownWritesTrigger(LEVEL0_SLOWDOWN_WRITES_TRIGGER);
+        options.setWriteBufferSize(RocksDBConstants.WRITE_BUFFER_SIZE);
+        options.setDisableAutoCompactions(false);
+        options.setLevelCompactionDynamicLevelBytes(true);
+        options.setCompactionPriority(CompactionPriority.MinOverlappingRatio);
+        options.optimizeLevelStyleCompaction(OPTIMIZE_LEVEL_STYLE_COMPACTION);
+
+        BlockBasedTableConfig bbtc = new BlockBasedTableConfig();
+        bbtc.setBlockSize(RocksDBConstants.BLOCK_SIZE);
+        bbtc.setBlockCache(cache);
+        bbtc.setCacheIndexAndFilterBlocks(true);
+        bbtc.setPinL0FilterAndIndexBlocksInCache(true);
+        bbtc.setFilterPolicy(new BloomFilter(BLOOMFILTER_BITS_PER_KEY, false));
+        options.setTableFormatConfig(bbtc);
+
+        return options;
+    }
+
+    private synchronized void close() {
+        // the pending layers are written before the instance is closed
+        awaitPendingCommits();
+        stopWriter();
+
+        lock.writeLock().lock();
+        try {
+            closeInternal();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        checkWriteFailure();
+    }
+
+    private void closeInternal() {
+        if (db != null) {
+            LOG.info("Closing database " + this);
+
+            // buffered writes are not lost when the node is shut down between flushes
+            writeRemainingLayers();
+            if (writeFailure == null) {
+                // newer writes must not be applied without the layers before them
+                commitNow();
+            }
+
+            for (ColumnFamilyHandle handle : handles.values()) {
+                handle.close();
+            }
+            db.close();
+            db = null;
+        }
+        handles.clear();
+        clears.clear();
+
+        if (batch != null) {
+            batch.close();
+            batch = null;
+        }
+        if (cfOptions != null) {
+            cfOptions.close();
+            cfOptions = null;
+        }
+        if (dbOptions != null) {
+            dbOptions.close();
+            dbOptions = null;
+        }
+        if (writeBufferManager != null) {
+            writeBufferManager.close();
+            writeBufferManager = null;
+        }
+        if (cache != null) {
+            cache.close();
+            cache = null;
+        }
+    }
+
+    /**
+     * Atomically applies all the writes buffered by the column families since the previous
+     * commit. In write-behind mode the writes are handed to the background writer instead, and
+     * the call only blocks while too many commits are pending.
+     *
+     * @return {@code true} if the writes were applied, handed to the writer or there were none,
+     *     {@code false} if they could not be applied
+     * @throws IllegalStateException if a previous write-behind commit could not be applied
+     */
+    public boolean commit() {
+        if (maxPendingCommits == 0) {
+            return commitNow();
+        }
+        checkWriteFailure();
+
+        lock.writeLock().lock();
+        try {
+            if (db == null || batch == null) {
+                return true;
+            }
+            if (batch.count() > 0) {
+                pending.addLast(batch);
+                batch = new WriteBatchWithIndex(true);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        synchronized (pendingMonitor) {
+            pendingMonitor.notifyAll();
+            try {
+                while (pendingCount() > maxPendingCommits && writeFailure == null) {
+                    pendingMonitor.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        checkWriteFailure();
+        return true;
+    }
+
+    private void checkWriteFailure() {
+        RocksDBException failure = writeFailure;
+        if (failure != null) {
+            throw new IllegalStateException(
+                    "Unable to write a pending commit to " + this + ".", failure);
+        }
+    }
+
+    private boolean commitNow() {
+        lock.writeLock().lock();
+        try {
+            if (db == null || batch == null || batch.count() == 0) {
+                return true;
+            }
+
+            try (WriteOptions options = new WriteOptions()) {
+                db.write(options, batch);
+                batch.clear();
+                clears.remove(batch);
+                return true;
+            } catch (RocksDBException e) {
+                LOG.error("Unable to commit the shared batch to " + this + ".", e);
+                return false;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Waits until the commits handed to the background writer have been applied. */
+    public void awaitPendingCommits() {
+        synchronized (pendingMonitor) {
+            try {
+                while (pendingCount() > 0
+                        && writer != null
+                        && writer.isAlive()
+                        && writeFailure == null) {
+                    pendingMonitor.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private int pendingCount() {
+        lock.readLock().lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Applies the pending layers in commit order. A layer stays visible to reads until it has
+     * been written. A failed write is retried, and the writer stops when the retries are exhausted
+     * so that later layers are never applied before it.
+     */
+    private void writePending() {
+        int attempts = 0;
+        try {
+            while (true) {
+                WriteBatchWithIndex layer;
+                synchronized (pendingMonitor) {
+                    while ((layer = oldestPending()) == null) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            return;
+                        }
+                        pendingMonitor.wait();
+                    }
+                }
+
+                try (WriteOptions options = new WriteOptions()) {
+                    db.write(options, layer);
+                    attempts = 0;
+                } catch (RocksDBException e) {
+                    if (++attempts >= MAX_WRITE_ATTEMPTS) {
+                        LOG.error("Unable to write a pending commit to " + this + ", stopping.", e);
+                        synchronized (pendingMonitor) {
+                            writeFailure = e;
+                            pendingMonitor.notifyAll();
+                        }
+                        return;
+                    }
+                    LOG.error("Unable to write a pending commit to " + this + ", retrying.", e);
+                    Thread.sleep(WRITE_RETRY_MS);
+                    continue;
+                }
+
+                lock.writeLock().lock();
+                try {
+                    pending.pollFirst();
+                    clears.remove(layer);
+                    layer.close();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                synchronized (pendingMonitor) {
+                    pendingMonitor.notifyAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            // stopped by close after the pending layers were written
+        }
+    }
+
+    /**
+     * Writes the layers left by a writer that was stopped before applying them. The layers after
+     * one that cannot be written are discarded, to keep the commits in order.
+     */
+    private void writeRemainingLayers() {
+        WriteBatchWithIndex layer = pending.pollFirst();
+        while (layer != null) {
+            if (writeFailure == null) {
+                try (WriteOptions options = new WriteOptions()) {
+                    db.write(options, layer);
+                } catch (RocksDBException e) {
+                    LOG.error("Unable to write a pending commit to " + this + ".", e);
+                    writeFailure = e;
+                }
+            }
+            clears.remove(layer);
+            layer.close();
+            layer = pending.pollFirst();
+        }
+    }
+
+    private WriteBatchWithIndex oldestPending() {
+        lock.readLock().lock();
+        try {
+            return pending.peekFirst();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void stopWriter() {
+        if (writer != null) {
+            writer.interrupt();
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writer = null;
+        }
+    }
+
+    /**
+     * Reads the given key through the buffered writes: the current batch, then the pending layers
+     * from the newest to the oldest and finally the committed data. The search stops at a layer
+     * that cleared the column family.
+     *
+     * @implNote The caller must hold the read lock.
+     */
+    byte[] read(ColumnFamilyHandle handle, byte[] key) throws RocksDBException {
+        if (pending.isEmpty() && clears.isEmpty()) {
+            try (ReadOptions readOptions = new ReadOptions()) {
+                return batch.getFromBatchAndDB(db, handle, readOptions, key);
+            }
+        }
+
+        Iterator<WriteBatchWithIndex> layers = pending.descendingIterator();
+        WriteBatchWithIndex layer = batch;
+        while (layer != null) {
+            try (WBWIRocksIterator it = layer.newIterator(handle)) {
+                it.seek(key);
+                if (it.isValid()) {
+                    WBWIRocksIterator.WriteEntry entry = it.entry();
+                    if (Arrays.equals(entry.getKey().data(), key)) {
+                        return entry.getType() == WriteType.PUT ? entry.getValue().data() : null;
+                    }
+                }
+            }
+            if (isCleared(layer, handle)) {
+                return null;
+            }
+            layer = layers.hasNext() ? layers.next() : null;
+        }
+        return db.get(handle, key);
+    }
+
+    /** @implNote The caller must hold the read lock. */
+    boolean hasBufferedWrites() {
+        return batch.count() > 0 || !pending.isEmpty();
+    }
+
+    /**
+     * Checks if the current batch cleared the given column family, in which case the committed
+     * data of the column family is no longer visible.
+     *
+     * @implNote The caller must hold the read lock.
+     */
+    boolean isCleared(ColumnFamilyHandle handle) {
+        return isCleared(batch, handle);
+    }
+
+    private boolean isCleared(WriteBatchWithIndex layer, ColumnFamilyHandle handle) {
+        Set<ColumnFamilyHandle> cleared = clears.get(layer);
+        return cleared != null && cleared.contains(handle);
+    }
+
+    /**
+     * Checks if the current batch puts any key in the given column family.
+     *
+     * @implNote The caller must hold the read lock.
+     */
+    boolean hasBufferedPuts(ColumnFamilyHandle handle) {
+        try (WBWIRocksIterator it = batch.newIterator(handle)) {
+            for (it.seekToFirst(); it.isValid(); it.next()) {
+                if (it.entry().getType() == WriteType.PUT) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes all the data in the given column family without committing the writes buffered by
+     * the other column families. The committed data is removed with a range deletion, which for a
+     * buffered column family is added to the shared batch together with a deletion of each key
+     * buffered by the pending layers and the batch, so that the removal is applied atomically by
+     * the next commit.
+     *
+     * @implNote The index of the shared batch does not support range deletions. The range is
+     *     therefore appended to the underlying write batch, which applies its records in order,
+     *     and the batch is marked as clearing the column family so that reads do not go past it.
+     */
+    void clear(ColumnFamilyHandle handle, boolean autoCommit) {
+        if (autoCommit) {
+            clearCommitted(handle);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            List<byte[]> keys = new ArrayList<>();
+            for (WriteBatchWithIndex layer : pending) {
+                addBufferedKeys(layer, handle, keys);
+            }
+            addBufferedKeys(batch, handle, keys);
+            for (byte[] key : keys) {
+                batch.delete(handle, key);
+            }
+
+            byte[][] range = committedRange(handle);
+            if (range != null) {
+                // the end of the range is excluded
+                batch.getWriteBatch().deleteRange(handle, range[0], range[1]);
+                batch.delete(handle, range[1]);
+            }
+
+            if (range != null || !keys.isEmpty()) {
+                clears.computeIfAbsent(batch, b -> new HashSet<>()).add(handle);
+            }
+        } catch (RocksDBException e) {
+            LOG.error("Unable to clear a column family of " + this + ".", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void addBufferedKeys(
+            WriteBatchWithIndex layer, ColumnFamilyHandle handle, List<byte[]> keys) {
+        try (WBWIRocksIterator it = layer.newIterator(handle)) {
+            for (it.seekToFirst(); it.isValid(); it.next()) {
+                keys.add(it.entry().getKey().data());
+            }
+        }
+    }
+
+    private void clearCommitted(ColumnFamilyHandle handle) {
+        try (WriteBatch deletes = new WriteBatch();
+                WriteOptions options = new WriteOptions()) {
+            byte[][] range = committedRange(handle);
+            if (range == null) {
+                return;
+            }
+
+            // the end of the range is excluded
+            deletes.deleteRange(handle, range[0], range[1]);
+            deletes.delete(handle, range[1]);
+            db.write(options, deletes);
+        } catch (RocksDBException e) {
+            LOG.error("Unable to clear a column family of " + this + ".", e);
+        }
+    }
+
+    /**
+     * @return the first and the last committed keys of the given column family, or {@code null}
+     *     if it holds no committed data
+     */
+    private byte[][] committedRange(ColumnFamilyHandle handle) {
+        try (ReadOptions readOptions = new ReadOptions();
+                RocksIterator it = db.newIterator(handle, readOptions)) {
+            it.seekToFirst();
+            if (!it.isValid()) {
+                return null;
+            }
+            byte[] first = it.key();
+            it.seekToLast();
+            return new byte[][] {first, it.key()};
+        }
+    }
+
+    RocksDB getDb() {
+        return db;
+    }
+
+    WriteBatchWithIndex getBatch() {
+        return batch;
+    }
+
+    ReadWriteLock getLock() {
+        return lock;
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + ":<path=" + path + ">";
+    }
+}
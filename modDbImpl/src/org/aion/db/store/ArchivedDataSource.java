@@ -2,6 +2,7 @@ package org.aion.db.store;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
@@ -36,6 +37,11 @@ public class ArchivedDataSource implements ByteArrayKeyValueStore {
         return data.get(key);
     }
 
+    @Override
+    public List<byte[]> getBatch(Collection<byte[]> keys) {
+        return data.getBatch(keys);
+    }
+
     @Override
     public void put(byte[] key, byte[] value) {
         // the data store will check for nulls
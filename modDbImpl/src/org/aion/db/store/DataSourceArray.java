@@ -18,7 +18,7 @@ class DataSourceArray<V> implements ArrayStore<V> {
     private final ByteArrayKeyValueDatabase db;
     @VisibleForTesting
     static final byte[] sizeKey = Hex.decode("FFFFFFFFFFFFFFFF");
-    private long size = -1L;
+    private volatile long size = -1L;
 
     DataSourceArray(ByteArrayKeyValueDatabase database, Serializer<V> serializer) {
         this.db = database;
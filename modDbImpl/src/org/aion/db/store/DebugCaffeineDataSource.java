@@ -2,6 +2,8 @@ package org.aion.db.store;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
 import org.aion.util.types.ByteArrayWrapper;
@@ -78,6 +80,11 @@ class DebugCaffeineDataSource<V> extends ObjectDataSource<V> {
         return cache.get(ByteArrayWrapper.wrap(key));
     }
 
+    public List<V> getBatch(Collection<byte[]> keys) {
+        // missing entries are not cached, same as for the loader used by get
+        return getBatchThroughCache(keys, cache::getIfPresent, cache::put);
+    }
+
     @Override
     public void close() {
         super.close();
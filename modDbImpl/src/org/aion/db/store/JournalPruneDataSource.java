@@ -313,6 +313,20 @@ public class JournalPruneDataSource implements ByteArrayKeyValueStore {
         }
     }
 
+    public List<byte[]> getBatch(Collection<byte[]> keys) {
+        checkNotNull(keys);
+
+        lock.readLock().lock();
+        try {
+            return src.getBatch(keys);
+        } catch (Exception e) {
+            LOG.error("Could not get batch due to ", e);
+            throw e;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     public Iterator<byte[]> keys() {
         lock.readLock().lock();
         try {
@@ -431,8 +445,9 @@ public class JournalPruneDataSource implements ByteArrayKeyValueStore {
      * NullPointerException} if a null key is present.
      */
     public static void checkNotNull(Collection<byte[]> keys) {
-        if (keys.contains(null)) {
-            throw new NullPointerException("The data store does not accept null keys.");
+        // iterating because immutable collections throw on contains(null)
+        for (byte[] key : keys) {
+            checkNotNull(key);
         }
     }
 }
@@ -1,6 +1,8 @@
 package org.aion.db.store;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -95,6 +97,17 @@ class LockedObjectStore<V> implements ObjectStore<V> {
         }
     }
 
+    @Override
+    public List<V> getBatch(Collection<byte[]> keys) {
+        lock.lock();
+
+        try {
+            return source.getBatch(keys);
+        } finally {
+            lock.unlock();
+        }
+    }
+
     @Override
     public boolean isOpen() {
         lock.lock();
@@ -1,5 +1,8 @@
 package org.aion.db.store;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
 import org.aion.util.types.ByteArrayWrapper;
 import org.apache.commons.collections4.map.LRUMap;
@@ -49,4 +52,30 @@ class LruDataSource<V> extends ObjectDataSource<V> {
             return val;
         }
     }
+
+    public List<V> getBatch(Collection<byte[]> keys) {
+        List<V> result = new ArrayList<>(keys.size());
+        List<byte[]> missing = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (byte[] key : keys) {
+            ByteArrayWrapper wrappedKey = ByteArrayWrapper.wrap(key);
+            if (cache.containsKey(wrappedKey)) {
+                result.add(cache.get(wrappedKey));
+            } else {
+                missing.add(key);
+                positions.add(result.size());
+                result.add(null);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            List<V> loaded = getFromDatabase(missing);
+            for (int i = 0; i < missing.size(); i++) {
+                V val = loaded.get(i);
+                cache.put(ByteArrayWrapper.wrap(missing.get(i)), val);
+                result.set(positions.get(i), val);
+            }
+        }
+        return result;
+    }
 }
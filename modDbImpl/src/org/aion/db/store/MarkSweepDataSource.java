@@ -0,0 +1,192 @@
+package org.aion.db.store;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.aion.db.impl.ByteArrayKeyValueStore;
+
+/**
+ * The DataSource used by mark-and-sweep pruning. Inserts are forwarded to the underlying
+ * DataSource, while deletes are ignored: the nodes no longer referenced by the retained states are
+ * found and removed by a periodic sweep instead of being tracked per block.
+ *
+ * <p>A sweep removes the keys that were not marked as reachable from the retained states. The keys
+ * inserted after the marking started are not marked, so they are recorded in a bloom filter for
+ * the duration of the sweep and {@link #sweep(Collection)} keeps them. The filter has a fixed size
+ * and its false positives only delay the removal of a key to the next sweep.
+ */
+public class MarkSweepDataSource implements ByteArrayKeyValueStore {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final ByteArrayKeyValueStore src;
+
+    // makes the check for recent inserts and the delete atomic with respect to new inserts
+    private final Lock lock = new ReentrantLock();
+    private BloomFilter<byte[]> inserted = null;
+
+    public MarkSweepDataSource(ByteArrayKeyValueStore src) {
+        this.src = src;
+    }
+
+    /**
+     * Starts recording the inserted keys, to be called before the reachable keys are marked.
+     *
+     * @param expectedInserts the number of inserts expected until {@link #stopTracking()}
+     */
+    public void startTracking(long expectedInserts) {
+        lock.lock();
+        try {
+            inserted =
+                    BloomFilter.create(
+                            Funnels.byteArrayFunnel(), expectedInserts, FALSE_POSITIVE_RATE);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Stops recording the inserted keys once the sweep is complete. */
+    public void stopTracking() {
+        lock.lock();
+        try {
+            inserted = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the given unmarked keys, except the ones inserted since {@link
+     * #startTracking(long)}.
+     *
+     * @param keys keys that were not reachable from the retained states when they were marked
+     * @return the number of deleted keys
+     */
+    public int sweep(Collection<byte[]> keys) {
+        lock.lock();
+        try {
+            List<byte[]> unused = new ArrayList<>(keys.size());
+            for (byte[] key : keys) {
+                if (inserted == null || !inserted.mightContain(key)) {
+                    unused.add(key);
+                }
+            }
+            src.deleteBatch(unused);
+            return unused.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(byte[] key, byte[] value) {
+        JournalPruneDataSource.checkNotNull(key);
+        if (value == null) {
+            // deletes are left to the sweep
+            check();
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (inserted != null) {
+                inserted.put(key);
+            }
+            src.put(key, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void putBatch(Map<byte[], byte[]> input) {
+        JournalPruneDataSource.checkNotNull(input.keySet());
+
+        lock.lock();
+        try {
+            Map<byte[], byte[]> insertsOnly = new HashMap<>();
+            for (Map.Entry<byte[], byte[]> entry : input.entrySet()) {
+                if (entry.getValue() != null) {
+                    if (inserted != null) {
+                        inserted.put(entry.getKey());
+                    }
+                    insertsOnly.put(entry.getKey(), entry.getValue());
+                }
+            }
+            src.putBatch(insertsOnly);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void delete(byte[] key) {
+        JournalPruneDataSource.checkNotNull(key);
+        // deletes are left to the sweep
+        check();
+    }
+
+    @Override
+    public void deleteBatch(Collection<byte[]> keys) {
+        JournalPruneDataSource.checkNotNull(keys);
+        // deletes are left to the sweep
+        check();
+    }
+
+    @Override
+    public Optional<byte[]> get(byte[] key) {
+        return src.get(key);
+    }
+
+    @Override
+    public List<byte[]> getBatch(Collection<byte[]> keys) {
+        return src.getBatch(keys);
+    }
+
+    @Override
+    public Iterator<byte[]> keys() {
+        return src.keys();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return src.isEmpty();
+    }
+
+    @Override
+    public void putToBatch(byte[] key, byte[] value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteInBatch(byte[] key) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void commitBatch() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void check() {
+        src.check();
+    }
+
+    @Override
+    public void close() throws Exception {
+        src.close();
+    }
+
+    public ByteArrayKeyValueStore getSrc() {
+        return src;
+    }
+}
@@ -1,7 +1,13 @@
 package org.aion.db.store;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
+import org.aion.util.types.ByteArrayWrapper;
 
 /**
  * Object Datasource.
@@ -58,6 +64,54 @@ class ObjectDataSource<V> implements ObjectStore<V> {
         return val.map(serializer::deserialize).orElse(null);
     }
 
+    public List<V> getBatch(Collection<byte[]> keys) {
+        return getFromDatabase(keys);
+    }
+
+    // used by inheriting classes to load all the entries missing from the cache with one request
+    protected List<V> getFromDatabase(Collection<byte[]> keys) {
+        List<byte[]> values = src.getBatch(keys);
+        List<V> objects = new ArrayList<>(values.size());
+        for (byte[] value : values) {
+            objects.add(value == null ? null : serializer.deserialize(value));
+        }
+        return objects;
+    }
+
+    /**
+     * Used by inheriting classes to read a batch through their cache. The values returned by
+     * {@code cached} are used as they are, all the other keys are loaded from the database with one
+     * request. Loaded values are passed to {@code cache}, missing entries are not cached.
+     */
+    protected List<V> getBatchThroughCache(
+            Collection<byte[]> keys,
+            Function<ByteArrayWrapper, V> cached,
+            BiConsumer<ByteArrayWrapper, V> cache) {
+        List<V> result = new ArrayList<>(keys.size());
+        List<byte[]> missing = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (byte[] key : keys) {
+            V value = cached.apply(ByteArrayWrapper.wrap(key));
+            if (value == null) {
+                missing.add(key);
+                positions.add(result.size());
+            }
+            result.add(value);
+        }
+
+        if (!missing.isEmpty()) {
+            List<V> loaded = getFromDatabase(missing);
+            for (int i = 0; i < missing.size(); i++) {
+                V value = loaded.get(i);
+                if (value != null) {
+                    cache.accept(ByteArrayWrapper.wrap(missing.get(i)), value);
+                    result.set(positions.get(i), value);
+                }
+            }
+        }
+        return result;
+    }
+
     /** Returns the underlying cache source. */
     protected ByteArrayKeyValueDatabase getSrc() {
         return src;
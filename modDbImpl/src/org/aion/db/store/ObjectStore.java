@@ -1,6 +1,8 @@
 package org.aion.db.store;
 
 import java.io.Closeable;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * A key value store that interacts with objects that are serialized to byte arrays and deserialized
@@ -32,6 +34,13 @@ public interface ObjectStore<V> extends Closeable {
     /** Retrieves the object stored at the given key. */
     V get(byte[] key);
 
+    /**
+     * Retrieves the objects stored at the given keys, reading the ones that are not cached with a
+     * single request to the database. The returned list holds the objects in the iteration order
+     * of the keys, with {@code null} for keys that are not stored.
+     */
+    List<V> getBatch(Collection<byte[]> keys);
+
     /** Returns {@code true} to indicate that the database is open, {@code false} otherwise. */
     boolean isOpen();
 }
@@ -1,8 +1,10 @@
 package org.aion.db.store;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.aion.db.impl.ByteArrayKeyValueStore;
@@ -27,6 +29,15 @@ public class XorDataSource implements ByteArrayKeyValueStore {
         return source.get(convertKey(key));
     }
 
+    @Override
+    public List<byte[]> getBatch(Collection<byte[]> keys) {
+        List<byte[]> converted = new ArrayList<>(keys.size());
+        for (byte[] key : keys) {
+            converted.add(convertKey(key));
+        }
+        return source.getBatch(converted);
+    }
+
     @Override
     public void put(byte[] key, byte[] value) {
         source.put(convertKey(key), value);
@@ -551,6 +551,32 @@ public class DriverBaseTest {
         assertThat(db.isLocked()).isFalse();
     }
 
+    @Test
+    public void testGetBatch() {
+        db.put(k1, v1);
+        db.put(k3, v3);
+
+        List<byte[]> values = db.getBatch(List.of(k3, k2, k1));
+
+        assertThat(values).hasSize(3);
+        assertThat(values.get(0)).isEqualTo(v3);
+        assertThat(values.get(1)).isNull();
+        assertThat(values.get(2)).isEqualTo(v1);
+
+        assertThat(db.getBatch(List.of())).isEmpty();
+
+        // ensure unlocked
+        assertThat(db.isLocked()).isFalse();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testGetBatchWithNullKey() {
+        List<byte[]> keys = new ArrayList<>();
+        keys.add(k1);
+        keys.add(null);
+        db.getBatch(keys);
+    }
+
     @Test
     public void testUpdate() {
         // ensure existence
@@ -0,0 +1,277 @@
+package org.aion.db.impl.rocksdb;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.aion.db.impl.ByteArrayKeyValueDatabase;
+import org.aion.db.utils.FileUtils;
+import org.aion.util.bytes.ByteUtil;
+import org.aion.util.types.ByteArrayWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class SharedRocksDBTest {
+
+    private static final File testDir = new File(System.getProperty("user.dir"), "tmp");
+    private static final Logger log = LoggerFactory.getLogger("DB");
+
+    private static final byte[] k1 = "key1".getBytes();
+    private static final byte[] k2 = "key2".getBytes();
+    private static final byte[] v1 = "value1".getBytes();
+    private static final byte[] v2 = "value2".getBytes();
+
+    private SharedRocksDB shared;
+
+    @Before
+    public void setup() {
+        FileUtils.deleteRecursively(testDir);
+        shared = newShared();
+    }
+
+    @After
+    public void teardown() {
+        FileUtils.deleteRecursively(testDir);
+    }
+
+    private static SharedRocksDB newShared() {
+        return new SharedRocksDB(
+                "shared",
+                testDir.getAbsolutePath(),
+                log,
+                false,
+                RocksDBConstants.CACHE_SIZE,
+                RocksDBConstants.WRITE_BUFFER_SIZE);
+    }
+
+    private static List<ByteArrayWrapper> keys(ByteArrayKeyValueDatabase db) {
+        List<ByteArrayWrapper> keys = new ArrayList<>();
+        Iterator<byte[]> iterator = db.keys();
+        while (iterator.hasNext()) {
+            keys.add(ByteArrayWrapper.wrap(iterator.next()));
+        }
+        return keys;
+    }
+
+    @Test
+    public void testBufferedWritesAreCommittedTogether() {
+        ByteArrayKeyValueDatabase state = shared.getColumnFamily("state", false);
+        ByteArrayKeyValueDatabase block = shared.getColumnFamily("block", false);
+        assertThat(state.open()).isTrue();
+        assertThat(block.open()).isTrue();
+        assertThat(state.isAutoCommitEnabled()).isFalse();
+
+        state.put(k1, v1);
+        block.putBatch(Map.of(k2, v2));
+
+        // buffered writes are visible to reads, but not committed
+        assertThat(state.get(k1).get()).isEqualTo(v1);
+        assertThat(block.get(k2).get()).isEqualTo(v2);
+        assertThat(state.get(k2).isPresent()).isFalse();
+        assertThat(state.isEmpty()).isFalse();
+        assertThat(keys(state)).isEmpty();
+        assertThat(keys(block)).isEmpty();
+
+        // committing one column family applies the writes of all of them
+        assertThat(state.commit()).isTrue();
+        assertThat(keys(state)).containsExactly(ByteArrayWrapper.wrap(k1));
+        assertThat(keys(block)).containsExactly(ByteArrayWrapper.wrap(k2));
+
+        state.delete(k1);
+        assertThat(state.get(k1).isPresent()).isFalse();
+        List<byte[]> values = block.getBatch(List.of(k1, k2));
+        assertThat(values.get(0)).isNull();
+        assertThat(values.get(1)).isEqualTo(v2);
+        shared.commit();
+        assertThat(state.isEmpty()).isTrue();
+
+        state.close();
+        block.close();
+    }
+
+    @Test
+    public void testAutoCommitWritesAreImmediate() {
+        ByteArrayKeyValueDatabase pool = shared.getColumnFamily("pool", true);
+        assertThat(pool.open()).isTrue();
+        assertThat(pool.isAutoCommitEnabled()).isTrue();
+
+        pool.put(k1, v1);
+        assertThat(keys(pool)).containsExactly(ByteArrayWrapper.wrap(k1));
+
+        pool.close();
+    }
+
+    @Test
+    public void testReopenAfterClose() {
+        ByteArrayKeyValueDatabase state = shared.getColumnFamily("state", false);
+        ByteArrayKeyValueDatabase index = shared.getColumnFamily("index", false);
+        state.open();
+        index.open();
+
+        state.put(k1, v1);
+        index.put(k2, v2);
+
+        // the instance stays open until every column family is closed
+        state.close();
+        assertThat(shared.isOpen()).isTrue();
+        index.close();
+        assertThat(shared.isOpen()).isFalse();
+
+        // buffered writes are committed on close
+        shared = newShared();
+        state = shared.getColumnFamily("state", false);
+        index = shared.getColumnFamily("index", false);
+        state.open();
+        index.open();
+        assertThat(state.get(k1).get()).isEqualTo(v1);
+        assertThat(index.get(k2).get()).isEqualTo(v2);
+        assertThat(state.get(k2).isPresent()).isFalse();
+
+        state.close();
+        index.close();
+    }
+
+    @Test
+    public void testDropClearsOnlyOneColumnFamily() {
+        ByteArrayKeyValueDatabase state = shared.getColumnFamily("state", false);
+        ByteArrayKeyValueDatabase block = shared.getColumnFamily("block", false);
+        state.open();
+        block.open();
+
+        state.put(k1, v1);
+        block.put(k2, v2);
+        state.drop();
+
+        assertThat(state.isOpen()).isTrue();
+        assertThat(state.isEmpty()).isTrue();
+        assertThat(block.get(k2).get()).isEqualTo(v2);
+        // the writes buffered by the other column families are not committed by the drop
+        assertThat(keys(block)).isEmpty();
+
+        state.close();
+        block.close();
+    }
+
+    @Test
+    public void testDropLargeColumnFamily() {
+        ByteArrayKeyValueDatabase marks = shared.getColumnFamily("marks", false);
+        ByteArrayKeyValueDatabase block = shared.getColumnFamily("block", false);
+        marks.open();
+        block.open();
+
+        int count = 200_000;
+        for (int i = 0; i < count; i++) {
+            marks.put(ByteUtil.intToBytes(i), v1);
+        }
+        assertThat(marks.commit()).isTrue();
+
+        marks.put(k1, v1);
+        block.put(k2, v2);
+        marks.drop();
+
+        // the committed keys are removed by a range instead of one deletion each
+        assertThat(shared.getBatch().count()).isLessThan(10);
+
+        marks.put(k2, v2);
+        assertThat(marks.get(ByteUtil.intToBytes(0)).isPresent()).isFalse();
+        assertThat(marks.get(ByteUtil.intToBytes(count - 1)).isPresent()).isFalse();
+        assertThat(marks.get(k1).isPresent()).isFalse();
+        assertThat(marks.get(k2).get()).isEqualTo(v2);
+        assertThat(marks.isEmpty()).isFalse();
+        // nothing is written before the commit
+        assertThat(keys(marks)).hasSize(count);
+        assertThat(keys(block)).isEmpty();
+
+        assertThat(marks.commit()).isTrue();
+        assertThat(keys(marks)).containsExactly(ByteArrayWrapper.wrap(k2));
+        assertThat(block.get(k2).get()).isEqualTo(v2);
+
+        marks.close();
+        block.close();
+    }
+
+    @Test
+    public void testDropAutoCommitColumnFamily() {
+        ByteArrayKeyValueDatabase marks = shared.getColumnFamily("marks", true);
+        ByteArrayKeyValueDatabase block = shared.getColumnFamily("block", false);
+        marks.open();
+        block.open();
+
+        marks.put(k1, v1);
+        marks.put(k2, v2);
+        block.put(k2, v2);
+        marks.drop();
+
+        assertThat(marks.isEmpty()).isTrue();
+        assertThat(keys(marks)).isEmpty();
+        assertThat(keys(block)).isEmpty();
+
+        marks.put(k1, v2);
+        assertThat(marks.get(k1).get()).isEqualTo(v2);
+
+        marks.close();
+        block.close();
+    }
+
+    @Test
+    public void testWriteBehindCommits() {
+        shared =
+                new SharedRocksDB(
+                        "shared",
+                        testDir.getAbsolutePath(),
+                        log,
+                        false,
+                        RocksDBConstants.CACHE_SIZE,
+                        RocksDBConstants.WRITE_BUFFER_SIZE,
+                        1);
+        ByteArrayKeyValueDatabase state = shared.getColumnFamily("state", false);
+        ByteArrayKeyValueDatabase block = shared.getColumnFamily("block", false);
+        state.open();
+        block.open();
+
+        state.put(k1, v1);
+        block.put(k2, v2);
+        assertThat(state.commit()).isTrue();
+
+        // writes after the commit go to a new batch while the previous ones remain visible
+        state.delete(k1);
+        block.put(k1, v1);
+        assertThat(state.get(k1).isPresent()).isFalse();
+        assertThat(block.get(k1).get()).isEqualTo(v1);
+        assertThat(block.get(k2).get()).isEqualTo(v2);
+        List<byte[]> values = block.getBatch(List.of(k1, k2));
+        assertThat(values.get(0)).isEqualTo(v1);
+        assertThat(values.get(1)).isEqualTo(v2);
+
+        assertThat(shared.commit()).isTrue();
+        shared.awaitPendingCommits();
+        assertThat(keys(state)).isEmpty();
+        assertThat(keys(block))
+                .containsExactly(ByteArrayWrapper.wrap(k1), ByteArrayWrapper.wrap(k2));
+
+        // the pending commits are written before the instance is closed
+        state.put(k2, v2);
+        shared.commit();
+        state.close();
+        block.close();
+
+        shared = newShared();
+        state = shared.getColumnFamily("state", false);
+        state.open();
+        assertThat(state.get(k2).get()).isEqualTo(v2);
+        assertThat(state.get(k1).isPresent()).isFalse();
+        state.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDifferentCommitMode() {
+        shared.getColumnFamily("state", false);
+        shared.getColumnFamily("state", true);
+    }
+}
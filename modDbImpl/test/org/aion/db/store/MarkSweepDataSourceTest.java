@@ -0,0 +1,96 @@
+package org.aion.db.store;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.aion.db.impl.mockdb.MockDB;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class MarkSweepDataSourceTest {
+    private static final Logger log = LoggerFactory.getLogger("DB");
+
+    private static final byte[] k1 = "key1".getBytes();
+    private static final byte[] v1 = "value1".getBytes();
+
+    private static final byte[] k2 = "key2".getBytes();
+    private static final byte[] v2 = "value2".getBytes();
+
+    private static final byte[] k3 = "key3".getBytes();
+    private static final byte[] v3 = "value3".getBytes();
+
+    private MockDB source;
+    private MarkSweepDataSource db;
+
+    @Before
+    public void setup() {
+        source = new MockDB("mark-sweep-test", log);
+        source.open();
+        db = new MarkSweepDataSource(source);
+    }
+
+    @Test
+    public void testInsertsAreForwarded() {
+        db.put(k1, v1);
+
+        Map<byte[], byte[]> batch = new HashMap<>();
+        batch.put(k2, v2);
+        batch.put(k3, null);
+        db.putBatch(batch);
+
+        assertThat(source.get(k1).get()).isEqualTo(v1);
+        assertThat(source.get(k2).get()).isEqualTo(v2);
+        assertThat(source.get(k3).isPresent()).isFalse();
+        assertThat(db.get(k2).get()).isEqualTo(v2);
+    }
+
+    @Test
+    public void testDeletesAreIgnored() {
+        db.put(k1, v1);
+        db.put(k2, v2);
+
+        db.delete(k1);
+        db.put(k2, null);
+        db.deleteBatch(Arrays.asList(k1, k2));
+
+        assertThat(source.get(k1).get()).isEqualTo(v1);
+        assertThat(source.get(k2).get()).isEqualTo(v2);
+    }
+
+    @Test
+    public void testSweep() {
+        db.put(k1, v1);
+        db.put(k2, v2);
+
+        assertThat(db.sweep(Arrays.asList(k1, k2))).isEqualTo(2);
+        assertThat(source.get(k1).isPresent()).isFalse();
+        assertThat(source.get(k2).isPresent()).isFalse();
+    }
+
+    @Test
+    public void testSweepKeepsTrackedInserts() {
+        db.put(k1, v1);
+        db.put(k2, v2);
+
+        db.startTracking(100);
+        // re-inserted after the marking started, e.g. by a new block
+        db.put(k2, v2);
+        db.put(k3, v3);
+
+        List<byte[]> unmarked = Arrays.asList(k1, k2, k3);
+        assertThat(db.sweep(unmarked)).isEqualTo(1);
+        assertThat(source.get(k1).isPresent()).isFalse();
+        assertThat(source.get(k2).get()).isEqualTo(v2);
+        assertThat(source.get(k3).get()).isEqualTo(v3);
+
+        db.stopTracking();
+        assertThat(db.sweep(unmarked)).isEqualTo(3);
+        assertThat(source.get(k2).isPresent()).isFalse();
+        assertThat(source.get(k3).isPresent()).isFalse();
+    }
+}
@@ -3,6 +3,19 @@ package org.aion.p2p;
 /** @author chris */
 public abstract class Handler {
 
+    /**
+     * The class of service of the handled messages, which determines the receive lane they are
+     * queued in. Messages of higher priority are dispatched first and the low priority ones are
+     * the first to be dropped when the node is overloaded.
+     */
+    public enum Priority {
+        /** Messages on the critical path of syncing and block propagation. */
+        HIGH,
+        NORMAL,
+        /** Messages that can be dropped under load, e.g. gossiped transactions. */
+        LOW
+    }
+
     private Header header;
 
     /**
@@ -26,5 +39,10 @@ public abstract class Handler {
      */
     public abstract void receive(int _id, String _displayId, final byte[] _msg);
 
+    /** @return the priority of the handled messages, {@link Priority#NORMAL} by default */
+    public Priority getPriority() {
+        return Priority.NORMAL;
+    }
+
     public void shutDown() {}
 }
@@ -11,6 +11,7 @@ import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -24,6 +25,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.aion.p2p.Ctrl;
 import org.aion.p2p.Handler;
+import org.aion.p2p.Handler.Priority;
 import org.aion.p2p.Header;
 import org.aion.p2p.INode;
 import org.aion.p2p.INodeMgr;
@@ -37,8 +39,9 @@ import org.aion.p2p.impl.comm.Node;
 import org.aion.p2p.impl.comm.NodeMgr;
 import org.aion.p2p.impl.zero.msg.ReqHandshake1;
 import org.aion.p2p.impl.zero.msg.ResHandshake1;
-import org.aion.p2p.impl1.tasks.MsgIn;
+import org.aion.p2p.impl1.tasks.BufferPool;
 import org.aion.p2p.impl1.tasks.MsgOut;
+import org.aion.p2p.impl1.tasks.ReceiveQueue;
 import org.aion.p2p.impl1.tasks.TaskClear;
 import org.aion.p2p.impl1.tasks.TaskConnectPeers;
 import org.aion.p2p.impl1.tasks.TaskInbound;
@@ -86,13 +89,14 @@ public final class P2pMgr implements IP2pMgr {
      */
     private BlockingQueue<MsgOut> sendMsgQue = new LinkedBlockingQueue<>(10_000);
     /*
-     * The size limit was chosen taking into account that:
-     * - in a 2G OOM heap dump the size of this queue reached close to 700_000;
-     * - in normal execution heap dumps the size is close to 0.
-     * The size should be increased if we notice many warning logs that
+     * The lane sizes should be increased if we notice many warning logs that
      * the queue has reached capacity during execution.
      */
-    private BlockingQueue<MsgIn> receiveMsgQue = new LinkedBlockingQueue<>(50_000);
+    private ReceiveQueue receiveMsgQue = new ReceiveQueue();
+    // the direct buffers used for the socket writes
+    private final BufferPool bufferPool = new BufferPool();
+    // the number of workers serving each receive lane
+    private final Map<Priority, Integer> receiveWorkers = new EnumMap<>(Priority.class);
 
     private static ReqHandshake1 cachedReqHandshake1;
     private static ResHandshake1 cachedResHandshake1;
@@ -128,6 +132,42 @@ public final class P2pMgr implements IP2pMgr {
             final int _maxActiveNodes,
             final boolean _bootlistSyncOnly,
             final int _errorTolerance) {
+        this(
+                _p2pLog,
+                surveyLog,
+                chainId,
+                _revision,
+                _nodeId,
+                _ip,
+                _port,
+                _bootNodes,
+                _upnpEnable,
+                _maxTempNodes,
+                _maxActiveNodes,
+                _bootlistSyncOnly,
+                _errorTolerance,
+                Collections.emptyMap());
+    }
+
+    /**
+     * @param _receiveWorkers the number of workers serving the receive lane of each priority, where
+     *     the missing or non-positive entries are replaced by a share of the available processors
+     */
+    public P2pMgr(
+            final Logger _p2pLog,
+            final Logger surveyLog,
+            final int chainId,
+            final String _revision,
+            final String _nodeId,
+            final String _ip,
+            final int _port,
+            final String[] _bootNodes,
+            final boolean _upnpEnable,
+            final int _maxTempNodes,
+            final int _maxActiveNodes,
+            final boolean _bootlistSyncOnly,
+            final int _errorTolerance,
+            final Map<Priority, Integer> _receiveWorkers) {
 
         if (_p2pLog == null) {
             throw new NullPointerException("A non-null logger must be provided in the constructor.");
@@ -146,6 +186,7 @@ public final class P2pMgr implements IP2pMgr {
         this.maxActiveNodes = _maxActiveNodes;
         this.syncSeedsOnly = _bootlistSyncOnly;
         this.errTolerance = _errorTolerance;
+        allocateReceiveWorkers(_receiveWorkers);
 
         INode myNode = new Node(false, selfNodeId, selfIp, selfPort);
         myNode.setBinaryVersion(selfRevision);
@@ -166,6 +207,26 @@ public final class P2pMgr implements IP2pMgr {
         cachedResHandshake1 = new ResHandshake1(p2pLOG, true, this.selfRevision);
     }
 
+    /**
+     * Dedicates a quarter of the workers to the high priority lane, which must never wait behind
+     * other messages, and an eighth to the low priority lane, which is also served by the others
+     * when idle. The remaining ones serve the normal and high priority lanes.
+     */
+    private void allocateReceiveWorkers(Map<Priority, Integer> configured) {
+        receiveWorkers.put(Priority.HIGH, Math.max(1, WORKER / 4));
+        receiveWorkers.put(Priority.LOW, Math.max(1, WORKER / 8));
+        receiveWorkers.put(
+                Priority.NORMAL,
+                Math.max(1, WORKER - receiveWorkers.get(Priority.HIGH) - receiveWorkers.get(Priority.LOW)));
+
+        configured.forEach(
+                (priority, count) -> {
+                    if (count != null && count > 0) {
+                        receiveWorkers.put(priority, count);
+                    }
+                });
+    }
+
     @Override
     public void run() {
         try {
@@ -218,15 +279,19 @@ public final class P2pMgr implements IP2pMgr {
                         });
             }
 
-            Thread thrdOut = new Thread(new TaskSend(p2pLOG, surveyLog, this, sendMsgQue, start, nodeMgr, selector), "p2p-out");
+            Thread thrdOut = new Thread(new TaskSend(p2pLOG, surveyLog, this, sendMsgQue, start, nodeMgr, selector, bufferPool), "p2p-out");
             thrdOut.setPriority(Thread.MAX_PRIORITY);
             thrdOut.start();
 
-            for (int i = 0; i < WORKER; i++) {
-                Thread t = new Thread(getReceiveInstance(), "p2p-worker-" + i);
-                t.setPriority(Thread.NORM_PRIORITY);
-                t.start();
+            int workerId = 0;
+            for (Map.Entry<Priority, Integer> lane : receiveWorkers.entrySet()) {
+                for (int i = 0; i < lane.getValue(); i++) {
+                    Thread t = new Thread(getReceiveInstance(lane.getKey()), "p2p-worker-" + workerId++);
+                    t.setPriority(Thread.NORM_PRIORITY);
+                    t.start();
+                }
             }
+            p2pLOG.info("p2p receive workers per priority {}", receiveWorkers);
 
             if (upnpEnable) {
                 scheduledWorkers.scheduleWithFixedDelay(
@@ -480,11 +545,12 @@ public final class P2pMgr implements IP2pMgr {
                 this.handlers,
                 this.sendMsgQue,
                 cachedResHandshake1,
-                this.receiveMsgQue);
+                this.receiveMsgQue,
+                this.bufferPool);
     }
 
-    private TaskReceive getReceiveInstance() {
-        return new TaskReceive(p2pLOG, surveyLog, start, receiveMsgQue, handlers);
+    private TaskReceive getReceiveInstance(Priority home) {
+        return new TaskReceive(p2pLOG, surveyLog, start, receiveMsgQue, home, handlers);
     }
 
     private TaskStatus getStatusInstance() {
@@ -0,0 +1,71 @@
+package org.aion.p2p.impl1.tasks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of direct buffers of one size, used for the socket reads and writes so that the direct
+ * memory is allocated once instead of for every message. The socket channels copy the heap buffers
+ * into a temporary direct buffer on every call, which the pooled buffers avoid.
+ *
+ * <p>The number of buffers kept by the pool is bounded. When the pool is empty new buffers are
+ * allocated, and the ones released beyond the bound are left to the garbage collector.
+ */
+public final class BufferPool {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    public static final int DEFAULT_MAX_POOLED = 256;
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    public BufferPool() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED);
+    }
+
+    public BufferPool(int bufferSize, int maxPooled) {
+        if (bufferSize <= 0 || maxPooled < 0) {
+            throw new IllegalArgumentException("Invalid pool size.");
+        }
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    /** @return the capacity of the pooled buffers */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /** @return a cleared direct buffer with the capacity of the pool */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        pooled.decrementAndGet();
+        return buffer.clear();
+    }
+
+    /**
+     * Returns a buffer obtained from {@link #acquire()} to the pool. The buffer must not be used
+     * afterwards. Buffers that do not belong to the pool are ignored.
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect() || buffer.capacity() != bufferSize) {
+            return;
+        }
+        if (pooled.incrementAndGet() <= maxPooled) {
+            free.offer(buffer);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+
+    /** @return the number of buffers available for reuse */
+    public int available() {
+        return pooled.get();
+    }
+}
@@ -1,30 +1,44 @@
 package org.aion.p2p.impl1.tasks;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import org.aion.p2p.Header;
 import org.slf4j.Logger;
 
 /** @author chris */
 class ChannelBuffer {
 
+    // larger bodies grow from this size as their bytes arrive, so that a peer cannot cause the
+    // allocation of the maximum body size by sending only a header
+    private static final int INITIAL_BODY_SIZE = 1024 * 1024;
+
     byte[] body = null;
-    Lock lock = new ReentrantLock();
     private Header header = null;
-    // buffer for buffer remaining after NIO select read.
-    private byte[] remainBuffer;
-    private int buffRemain = 0;
     private int nodeIdHash;
     private String displayId;
     private byte[] bsHead = new byte[Header.LEN];
+
+    // the frame being decoded, only accessed by the inbound task: the header bytes received so far
+    // and the body being collected
+    private int headPos = 0;
+    private byte[] partialBody = null;
+    private int bodyPos = 0;
     private AtomicBoolean closed = new AtomicBoolean(false);
 
     private Map<Integer, RouteStatus> routes = new HashMap<>();
 
+    // the encoded messages waiting to be written, only accessed by the send task: the frames
+    // ready for writing and the pooled buffer collecting the next small frames
+    final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+    ByteBuffer outboundTail = null;
+    long outboundBytes = 0;
+    // set while the send task waits for the socket to become writable
+    boolean awaitingWrite = false;
+
     private final Logger p2pLOG;
 
     ChannelBuffer(final Logger p2pLOG) {
@@ -56,14 +70,6 @@ class ChannelBuffer {
         this.closed.set(true);
     }
 
-    int getBuffRemain() {
-        return buffRemain;
-    }
-
-    void setBuffRemain(int buffRemain) {
-        this.buffRemain = buffRemain;
-    }
-
     /**
      * @param _route int
      * @param _maxReqsPerSec int requests within 1 s
@@ -101,41 +107,47 @@ class ChannelBuffer {
         return routes.get(_route);
     }
 
-    void readHead(ByteBuffer buf) {
-        if (buf.array().length < bsHead.length) {
-            if (p2pLOG.isDebugEnabled()) {
-                p2pLOG.debug("ChannelBuffer readHead short buffer size");
+    /**
+     * Decodes the next frame from the bytes remaining in the given buffer, consuming at most one
+     * frame. A frame split across several reads is collected over several calls, so the buffer can
+     * be reused for every read of the channel.
+     *
+     * @return {@code true} if a frame was completed, which is then available from {@link
+     *     #getHeader()} and {@link #body} until refreshed
+     * @throws IndexOutOfBoundsException if the header announces a body over the maximum size
+     */
+    boolean readFrame(ByteBuffer buf) {
+        if (header == null) {
+            int n = Math.min(Header.LEN - headPos, buf.remaining());
+            buf.get(bsHead, headPos, n);
+            headPos += n;
+            if (headPos < Header.LEN) {
+                return false;
             }
-            return;
-        }
-
-        buf.get(bsHead);
-        try {
+            headPos = 0;
             header = Header.decode(bsHead);
-        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
-            if (p2pLOG.isDebugEnabled()) {
-                p2pLOG.debug("ChannelBuffer readHead exception.", e);
-            }
+            partialBody = new byte[Math.min(header.getLen(), INITIAL_BODY_SIZE)];
+            bodyPos = 0;
         }
-    }
 
-    void readBody(ByteBuffer buf) {
-        if (isHeaderNotCompleted()) {
-            if (p2pLOG.isDebugEnabled()) {
-                p2pLOG.debug("ChannelBuffer readBody no header.");
-            }
-            return;
+        int len = header.getLen();
+        int n = Math.min(len - bodyPos, buf.remaining());
+        if (bodyPos + n > partialBody.length) {
+            partialBody =
+                    Arrays.copyOf(
+                            partialBody,
+                            Math.min(len, Math.max(bodyPos + n, partialBody.length << 1)));
         }
-
-        if (buf.array().length < header.getLen()) {
-            if (p2pLOG.isDebugEnabled()) {
-                p2pLOG.debug("ChannelBuffer readBody short buffer size.");
-            }
-            return;
+        buf.get(partialBody, bodyPos, n);
+        bodyPos += n;
+        if (bodyPos < len) {
+            return false;
         }
 
-        body = new byte[header.getLen()];
-        buf.get(body);
+        body = partialBody;
+        partialBody = null;
+        bodyPos = 0;
+        return true;
     }
 
     void refreshHeader() {
@@ -156,14 +168,6 @@ class ChannelBuffer {
         return header == null || body == null || body.length != header.getLen();
     }
 
-    byte[] getRemainBuffer() {
-        return remainBuffer;
-    }
-
-    void setRemainBuffer(byte[] remainBuffer) {
-        this.remainBuffer = remainBuffer;
-    }
-
     public Header getHeader() {
         return header;
     }
@@ -7,6 +7,9 @@ public class MsgIn {
     private final int route;
     private final byte[] msg;
 
+    // the time the message was added to the receive queue, in nanoseconds
+    private long queuedAt;
+
     /**
      * Constructs an incoming message.
      *
@@ -37,4 +40,12 @@ public class MsgIn {
     public byte[] getMsg() {
         return this.msg;
     }
+
+    long getQueuedAt() {
+        return this.queuedAt;
+    }
+
+    void setQueuedAt(final long queuedAt) {
+        this.queuedAt = queuedAt;
+    }
 }
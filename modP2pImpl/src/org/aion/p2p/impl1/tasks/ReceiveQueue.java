@@ -0,0 +1,299 @@
+package org.aion.p2p.impl1.tasks;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.aion.p2p.Handler.Priority;
+
+/**
+ * Queues the received messages for processing in one bounded lane per {@link Priority}, so that a
+ * flood of low priority messages, e.g. transaction broadcasts, does not delay the sync responses
+ * and new blocks.
+ *
+ * <p>Each worker polls with a home priority and serves the lanes from {@link Priority#HIGH} down to
+ * its home lane, highest first. The workers of the high lane therefore only ever process high
+ * priority messages, while the lower lanes are only served when the higher ones are empty.
+ *
+ * <p>Within a lane the peers are served round-robin, one message at a time, and a single peer may
+ * only fill a fraction of the lane, so that one peer cannot delay the messages of the others.
+ * Messages beyond the limit of a peer are rejected immediately. When a lane is full the {@link
+ * DropPolicy} of the lane decides whether the message is dropped immediately or only after waiting
+ * for space.
+ */
+public final class ReceiveQueue {
+
+    /** What happens to a message offered to a full lane. */
+    public enum DropPolicy {
+        /** Waits for space up to the given timeout before dropping the message. */
+        WAIT,
+        /** Drops the message immediately. */
+        DROP
+    }
+
+    /*
+     * The capacities add up to the limit of the previous single receive queue, which was chosen
+     * taking into account that in a 2G OOM heap dump its size reached close to 700_000, while in
+     * normal execution heap dumps the size is close to 0.
+     */
+    public static final int DEFAULT_CAPACITY_HIGH = 10_000;
+    public static final int DEFAULT_CAPACITY_NORMAL = 20_000;
+    public static final int DEFAULT_CAPACITY_LOW = 20_000;
+
+    // the share of a lane that can be filled by the messages of a single peer
+    private static final int PEER_SHARE = 8;
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Lane[] lanes = new Lane[PRIORITIES.length];
+
+    // the workers waiting for messages, indexed by their home priority
+    private final Condition[] notEmpty = new Condition[PRIORITIES.length];
+    private final int[] waiting = new int[PRIORITIES.length];
+
+    public ReceiveQueue() {
+        this(DEFAULT_CAPACITY_HIGH, DEFAULT_CAPACITY_NORMAL, DEFAULT_CAPACITY_LOW);
+    }
+
+    public ReceiveQueue(int capacityHigh, int capacityNormal, int capacityLow) {
+        lanes[Priority.HIGH.ordinal()] = new Lane(capacityHigh, DropPolicy.WAIT);
+        lanes[Priority.NORMAL.ordinal()] = new Lane(capacityNormal, DropPolicy.WAIT);
+        lanes[Priority.LOW.ordinal()] = new Lane(capacityLow, DropPolicy.DROP);
+        for (int i = 0; i < notEmpty.length; i++) {
+            notEmpty[i] = lock.newCondition();
+        }
+    }
+
+    /**
+     * Adds the message to the lane of the given priority.
+     *
+     * @return {@code false} if the message was dropped because the lane or the share of the peer
+     *     is full
+     */
+    public boolean offer(MsgIn msg, Priority priority, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        Lane lane = lanes[priority.ordinal()];
+        long nanos = unit.toNanos(timeout);
+
+        lock.lockInterruptibly();
+        try {
+            ArrayDeque<MsgIn> peerQueue = lane.byPeer.get(msg.getNodeId());
+            if (peerQueue != null && peerQueue.size() >= lane.peerLimit) {
+                lane.dropped++;
+                lane.droppedTotal++;
+                return false;
+            }
+
+            while (lane.size == lane.capacity) {
+                if (lane.policy == DropPolicy.DROP || nanos <= 0) {
+                    lane.dropped++;
+                    lane.droppedTotal++;
+                    return false;
+                }
+                nanos = lane.notFull.awaitNanos(nanos);
+            }
+
+            msg.setQueuedAt(System.nanoTime());
+            lane.add(msg);
+            signalWorker(priority.ordinal());
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves the next message of the highest priority lane served by a worker with the given
+     * home priority, waiting up to the given timeout for one to arrive.
+     *
+     * @return the message or {@code null} if the timeout elapsed
+     */
+    public MsgIn poll(Priority home, long timeout, TimeUnit unit) throws InterruptedException {
+        int homeLane = home.ordinal();
+        long nanos = unit.toNanos(timeout);
+
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                for (int l = 0; l <= homeLane; l++) {
+                    Lane lane = lanes[l];
+                    if (lane.size > 0) {
+                        MsgIn msg = lane.take();
+                        if (lane.size > 0) {
+                            // another worker may have missed the signal for this message
+                            signalWorker(l);
+                        }
+                        return msg;
+                    }
+                }
+
+                if (nanos <= 0) {
+                    return null;
+                }
+                waiting[homeLane]++;
+                try {
+                    nanos = notEmpty[homeLane].awaitNanos(nanos);
+                } finally {
+                    waiting[homeLane]--;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Wakes up one of the waiting workers that serve the given lane, preferring its own. */
+    private void signalWorker(int lane) {
+        for (int home = lane; home < PRIORITIES.length; home++) {
+            if (waiting[home] > 0) {
+                notEmpty[home].signal();
+                return;
+            }
+        }
+    }
+
+    /** @return the number of queued messages of all priorities */
+    public int size() {
+        lock.lock();
+        try {
+            int size = 0;
+            for (Lane lane : lanes) {
+                size += lane.size;
+            }
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return the number of queued messages of the given priority */
+    public int size(Priority priority) {
+        lock.lock();
+        try {
+            return lanes[priority.ordinal()].size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return the number of messages of the given priority dropped since the queue was created */
+    public long dropped(Priority priority) {
+        lock.lock();
+        try {
+            return lanes[priority.ordinal()].droppedTotal;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Describes the depth, traffic and waiting time of each lane since the previous call, and
+     * starts a new measurement interval.
+     */
+    public String status() {
+        StringBuilder sb = new StringBuilder("recv lanes");
+        lock.lock();
+        try {
+            for (Priority priority : PRIORITIES) {
+                Lane lane = lanes[priority.ordinal()];
+                sb.append(' ')
+                        .append(priority)
+                        .append("[size=")
+                        .append(lane.size)
+                        .append(" max=")
+                        .append(lane.maxSize)
+                        .append(" in=")
+                        .append(lane.enqueued)
+                        .append(" out=")
+                        .append(lane.dequeued)
+                        .append(" dropped=")
+                        .append(lane.dropped)
+                        .append(" wait avg=")
+                        .append(
+                                lane.dequeued == 0
+                                        ? 0
+                                        : TimeUnit.NANOSECONDS.toMicros(
+                                                lane.waitTime / lane.dequeued))
+                        .append("us max=")
+                        .append(TimeUnit.NANOSECONDS.toMicros(lane.maxWaitTime))
+                        .append("us]");
+                lane.resetInterval();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return sb.toString();
+    }
+
+    /** The messages of one priority, guarded by the lock of the queue. */
+    private final class Lane {
+        private final int capacity;
+        private final int peerLimit;
+        private final DropPolicy policy;
+        private final Condition notFull = lock.newCondition();
+
+        // the queued messages of each peer and the peers with queued messages in serving order
+        private final Map<Integer, ArrayDeque<MsgIn>> byPeer = new HashMap<>();
+        private final ArrayDeque<Integer> rotation = new ArrayDeque<>();
+        private int size;
+
+        // measured since the last status, except for the total of dropped messages
+        private int maxSize;
+        private long enqueued, dequeued, dropped, droppedTotal;
+        private long waitTime, maxWaitTime;
+
+        private Lane(int capacity, DropPolicy policy) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("The capacity must be positive.");
+            }
+            this.capacity = capacity;
+            this.peerLimit = Math.max(1, capacity / PEER_SHARE);
+            this.policy = policy;
+        }
+
+        private void add(MsgIn msg) {
+            ArrayDeque<MsgIn> peerQueue = byPeer.get(msg.getNodeId());
+            if (peerQueue == null) {
+                peerQueue = new ArrayDeque<>();
+                byPeer.put(msg.getNodeId(), peerQueue);
+                rotation.add(msg.getNodeId());
+            }
+            peerQueue.add(msg);
+
+            size++;
+            enqueued++;
+            maxSize = Math.max(maxSize, size);
+        }
+
+        private MsgIn take() {
+            Integer peer = rotation.poll();
+            ArrayDeque<MsgIn> peerQueue = byPeer.get(peer);
+            MsgIn msg = peerQueue.poll();
+            if (peerQueue.isEmpty()) {
+                byPeer.remove(peer);
+            } else {
+                rotation.add(peer);
+            }
+
+            size--;
+            dequeued++;
+            long wait = System.nanoTime() - msg.getQueuedAt();
+            waitTime += wait;
+            maxWaitTime = Math.max(maxWaitTime, wait);
+            notFull.signal();
+            return msg;
+        }
+
+        private void resetInterval() {
+            maxSize = size;
+            enqueued = 0;
+            dequeued = 0;
+            dropped = 0;
+            waitTime = 0;
+            maxWaitTime = 0;
+        }
+    }
+}
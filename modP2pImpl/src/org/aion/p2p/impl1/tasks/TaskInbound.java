@@ -17,6 +17,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.aion.p2p.Ctrl;
 import org.aion.p2p.Handler;
+import org.aion.p2p.Handler.Priority;
 import org.aion.p2p.Header;
 import org.aion.p2p.INode;
 import org.aion.p2p.INodeMgr;
@@ -29,7 +30,6 @@ import org.aion.p2p.impl.zero.msg.ReqHandshake1;
 import org.aion.p2p.impl.zero.msg.ResActiveNodes;
 import org.aion.p2p.impl.zero.msg.ResHandshake;
 import org.aion.p2p.impl.zero.msg.ResHandshake1;
-import org.aion.p2p.impl1.P2pException;
 import org.aion.p2p.impl1.P2pMgr.Dest;
 import org.slf4j.Logger;
 
@@ -43,7 +43,8 @@ public class TaskInbound implements Runnable {
     private final AtomicBoolean start;
     private final BlockingQueue<MsgOut> sendMsgQue;
     private final ResHandshake1 cachedResHandshake1;
-    private final BlockingQueue<MsgIn> receiveMsgQue;
+    private final ReceiveQueue receiveMsgQue;
+    private final BufferPool bufferPool;
 
     // used to impose a low limit to this type of messages
     private static final int ACT_BROADCAST_BLOCK = 7;
@@ -65,7 +66,8 @@ public class TaskInbound implements Runnable {
             final Map<Integer, List<Handler>> _handlers,
             final BlockingQueue<MsgOut> _sendMsgQue,
             final ResHandshake1 _cachedResHandshake1,
-            final BlockingQueue<MsgIn> _receiveMsgQue) {
+            final ReceiveQueue _receiveMsgQue,
+            final BufferPool _bufferPool) {
 
         this.p2pLOG = p2pLOG;
         this.surveyLog = surveyLog;
@@ -77,6 +79,7 @@ public class TaskInbound implements Runnable {
         this.sendMsgQue = _sendMsgQue;
         this.cachedResHandshake1 = _cachedResHandshake1;
         this.receiveMsgQue = _receiveMsgQue;
+        this.bufferPool = _bufferPool;
     }
 
     @Override
@@ -84,8 +87,8 @@ public class TaskInbound implements Runnable {
         // for runtime survey information
         long startTime, duration;
 
-        // readBuffer buffer pre-alloc. @ max_body_size
-        ByteBuffer readBuf = ByteBuffer.allocate(P2pConstant.MAX_BODY_SIZE);
+        // the channels are read one at a time, keeping their partial frames in the channel buffers
+        ByteBuffer readBuf = bufferPool.acquire();
 
         while (start.get()) {
 
@@ -159,6 +162,7 @@ public class TaskInbound implements Runnable {
         surveyLog.info("TaskInbound: find selectors, duration = {} ns.", waitTime);
         surveyLog.info("TaskInbound: process incoming msg, duration = {} ns.", processTime);
 
+        bufferPool.release(readBuf);
         p2pLOG.info("p2p-pi shutdown");
     }
 
@@ -202,119 +206,25 @@ public class TaskInbound implements Runnable {
         }
     }
 
-    private int readHeader(final ChannelBuffer _cb, final ByteBuffer _readBuf, int cnt) {
-
-        if (cnt < Header.LEN) {
-            return cnt;
-        }
-
-        int origPos = _readBuf.position();
-
-        int startP = origPos - cnt;
-
-        _readBuf.position(startP);
-
-        _cb.readHead(_readBuf);
-
-        _readBuf.position(origPos);
-
-        return cnt - Header.LEN;
-    }
-
-    private int readBody(final ChannelBuffer _cb, ByteBuffer _readBuf, int _cnt) {
-
-        int bodyLen = _cb.getHeader().getLen();
-
-        // some msg have nobody.
-        if (bodyLen == 0) {
-            _cb.body = new byte[0];
-            return _cnt;
-        }
-
-        if (_cnt < bodyLen) {
-            return _cnt;
-        }
-
-        int origPos = _readBuf.position();
-        int startP = origPos - _cnt;
-        _readBuf.position(startP);
-        _cb.readBody(_readBuf);
-        _readBuf.position(origPos);
-        return _cnt - bodyLen;
-    }
-
+    /**
+     * Reads the available bytes of the channel and handles the completed frames. The frames are
+     * decoded incrementally as the bytes arrive, so they may span any number of reads.
+     */
     private void readBuffer(
             final SelectionKey _sk, final ChannelBuffer _cb, final ByteBuffer _readBuf)
-            throws Exception {
-
-        _readBuf.rewind();
+            throws IOException {
 
         SocketChannel sc = (SocketChannel) _sk.channel();
 
         int r;
-        int cnt = 0;
         do {
+            _readBuf.clear();
             r = sc.read(_readBuf);
-            cnt += r;
-        } while (r > 0);
-
-        if (cnt < 1) {
-            return;
-        }
-
-        int remainBufAll = _cb.getBuffRemain() + cnt;
-        ByteBuffer bufferAll = calBuffer(_cb, _readBuf, cnt);
-
-        do {
-            r = readMsg(_sk, bufferAll, remainBufAll);
-            if (remainBufAll == r) {
-                break;
-            } else {
-                remainBufAll = r;
+            _readBuf.flip();
+            while (_cb.readFrame(_readBuf)) {
+                handleMsg(_sk, _cb);
             }
         } while (r > 0);
-
-        _cb.setBuffRemain(r);
-
-        if (r != 0) {
-            // there are no perfect cycling buffer in jdk
-            // yet.
-            // simply just buff move for now.
-            // @TODO: looking for more efficient way.
-
-            int currPos = bufferAll.position();
-            _cb.setRemainBuffer(new byte[r]);
-            bufferAll.position(currPos - r);
-            bufferAll.get(_cb.getRemainBuffer());
-        }
-
-        _readBuf.rewind();
-    }
-
-    private int readMsg(SelectionKey _sk, ByteBuffer _readBuf, int _cnt) throws IOException {
-        ChannelBuffer cb = (ChannelBuffer) _sk.attachment();
-        if (cb == null) {
-            throw new P2pException("attachment is null");
-        }
-
-        int readCnt;
-        if (cb.isHeaderNotCompleted()) {
-            readCnt = readHeader(cb, _readBuf, _cnt);
-        } else {
-            readCnt = _cnt;
-        }
-
-        if (cb.isBodyNotCompleted()) {
-            readCnt = readBody(cb, _readBuf, readCnt);
-        }
-
-        if (cb.isBodyNotCompleted()) {
-            return readCnt;
-        }
-
-        handleMsg(_sk, cb);
-
-        return readCnt;
     }
 
     private void handleMsg(SelectionKey _sk, ChannelBuffer _cb) {
@@ -397,22 +307,6 @@ public class TaskInbound implements Runnable {
         }
     }
 
-    private ByteBuffer calBuffer(ChannelBuffer _cb, ByteBuffer _readBuf, int _cnt) {
-        ByteBuffer r;
-        if (_cb.getBuffRemain() != 0) {
-            byte[] alreadyRead = new byte[_cnt];
-            _readBuf.position(0);
-            _readBuf.get(alreadyRead);
-            r = ByteBuffer.allocate(_cb.getBuffRemain() + _cnt);
-            r.put(_cb.getRemainBuffer());
-            r.put(alreadyRead);
-        } else {
-            r = _readBuf;
-        }
-
-        return r;
-    }
-
     /**
      * @param _sk SelectionKey
      * @param _act ACT
@@ -572,9 +466,15 @@ public class TaskInbound implements Runnable {
             String nodeDisplayId = node.getIdShort();
             node.refreshTimestamp();
             try {
-                boolean added = receiveMsgQue.offer(new MsgIn(nodeIdHash, nodeDisplayId, _route, _msgBytes), OFFER_TIMEOUT, TimeUnit.MILLISECONDS);
+                Priority priority = getPriority(_route);
+                boolean added = receiveMsgQue.offer(new MsgIn(nodeIdHash, nodeDisplayId, _route, _msgBytes), priority, OFFER_TIMEOUT, TimeUnit.MILLISECONDS);
                 if (!added) {
-                    p2pLOG.warn("Message not added to the receive queue due to exceeded capacity: msg={} from node={}", _msgBytes, node.getIdShort());
+                    // low priority messages are dropped by design when the node is overloaded
+                    if (priority == Priority.LOW) {
+                        p2pLOG.debug("Low priority message dropped due to exceeded capacity: route={} from node={}", _route, node.getIdShort());
+                    } else {
+                        p2pLOG.warn("Message not added to the receive queue due to exceeded capacity: msg={} from node={}", _msgBytes, node.getIdShort());
+                    }
                 }
             } catch (InterruptedException e) {
                 p2pLOG.error("Interrupted while attempting to add the received message to the processing queue:", e);
@@ -584,6 +484,15 @@ public class TaskInbound implements Runnable {
         }
     }
 
+    /** @return the priority of the handlers registered for the route */
+    private Priority getPriority(int _route) {
+        List<Handler> hs = handlers.get(_route);
+        if (hs == null || hs.isEmpty() || hs.get(0) == null) {
+            return Priority.NORMAL;
+        }
+        return hs.get(0).getPriority();
+    }
+
     //    private String getReadOverflowMsg(int prevCnt, int cnt) {
     //        return "IO readBuffer overflow!  suppose readBuffer:" + prevCnt + " real left:" + cnt;
     //    }
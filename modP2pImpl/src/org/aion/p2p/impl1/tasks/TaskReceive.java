@@ -2,28 +2,35 @@ package org.aion.p2p.impl1.tasks;
 
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.aion.p2p.Handler;
+import org.aion.p2p.Handler.Priority;
 import org.slf4j.Logger;
 
 public class TaskReceive implements Runnable {
 
     private final Logger p2pLOG, surveyLog;
     private final AtomicBoolean start;
-    private final BlockingQueue<MsgIn> receiveMsgQue;
+    private final ReceiveQueue receiveMsgQue;
+    private final Priority home;
     private final Map<Integer, List<Handler>> handlers;
 
+    // bounds the wait for messages so that the worker notices the shutdown
+    private static final int POLL_TIMEOUT = 100; // in milliseconds
+
     public TaskReceive(
             final Logger p2pLOG,
             final Logger surveyLog,
             final AtomicBoolean _start,
-            final BlockingQueue<MsgIn> _receiveMsgQue,
+            final ReceiveQueue _receiveMsgQue,
+            final Priority _home,
             final Map<Integer, List<Handler>> _handlers) {
         this.p2pLOG = p2pLOG;
         this.surveyLog = surveyLog;
         this.start = _start;
         this.receiveMsgQue = _receiveMsgQue;
+        this.home = _home;
         this.handlers = _handlers;
     }
 
@@ -35,7 +42,10 @@ public class TaskReceive implements Runnable {
         while (this.start.get()) {
             try {
                 startTime = System.nanoTime();
-                MsgIn mi = this.receiveMsgQue.take();
+                MsgIn mi = this.receiveMsgQue.poll(home, POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+                if (mi == null) {
+                    continue;
+                }
                 duration = System.nanoTime() - startTime;
                 surveyLog.info("TaskReceive: retrieve message, duration = {} ns.", duration);
 
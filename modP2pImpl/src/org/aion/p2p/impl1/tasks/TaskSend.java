@@ -2,12 +2,19 @@ package org.aion.p2p.impl1.tasks;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.aion.p2p.Header;
 import org.aion.p2p.INode;
@@ -17,6 +24,15 @@ import org.aion.p2p.Msg;
 import org.aion.p2p.P2pConstant;
 import org.slf4j.Logger;
 
+/**
+ * Writes the outgoing messages to the sockets of the peers.
+ *
+ * <p>The messages are encoded into the outbound queue of their channel and each batch of messages
+ * taken from the send queue is written with one gathering write per channel. Small messages are
+ * coalesced into pooled direct buffers, while large ones are written from their encoded arrays
+ * without a copy. When the socket buffer of a peer is full, its remaining messages are kept until
+ * the socket becomes writable again, so that a slow peer does not delay the writes to the others.
+ */
 public class TaskSend implements Runnable {
 
     private final Logger p2pLOG, surveyLog;
@@ -25,6 +41,24 @@ public class TaskSend implements Runnable {
     private final BlockingQueue<MsgOut> sendMsgQue;
     private final INodeMgr nodeMgr;
     private final Selector selector;
+    private final BufferPool bufferPool;
+
+    private static final int POLL_TIMEOUT = 100; // in milliseconds
+    // bounds the delay of the new messages while waiting for slow peers
+    private static final int SELECT_TIMEOUT = 1; // in milliseconds
+    // the number of messages taken from the send queue before writing them
+    private static final int MAX_BATCH = 64;
+    // the number of buffers written by one gathering write
+    private static final int MAX_GATHER = 16;
+    // the messages for a peer are dropped while this many bytes are waiting to be written to it
+    private static final long MAX_OUTBOUND_BYTES = 16 * 1024 * 1024;
+
+    // the channels with messages added by the current batch
+    private final Map<SocketChannel, ChannelBuffer> pending = new LinkedHashMap<>();
+    // the channels waiting to become writable, registered with the write selector
+    private final Map<SocketChannel, ChannelBuffer> awaiting = new HashMap<>();
+    private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+    private Selector writeSelector;
 
     // used when survey logging
     private static final long MIN_DURATION = 60_000_000_000L; // 60 seconds
@@ -34,8 +68,7 @@ public class TaskSend implements Runnable {
             timeoutTime = 0,
             closedCheckTime = 0,
             setupWriteTime = 0,
-            writeTime = 0,
-            tryTime = 0;
+            writeTime = 0;
 
     public TaskSend(
             final Logger p2pLOG,
@@ -44,7 +77,8 @@ public class TaskSend implements Runnable {
             final BlockingQueue<MsgOut> _sendMsgQue,
             final AtomicBoolean _start,
             final INodeMgr _nodeMgr,
-            final Selector _selector) {
+            final Selector _selector,
+            final BufferPool _bufferPool) {
 
         this.p2pLOG = p2pLOG;
         this.surveyLog = surveyLog;
@@ -53,17 +87,36 @@ public class TaskSend implements Runnable {
         this.start = _start;
         this.nodeMgr = _nodeMgr;
         this.selector = _selector;
+        this.bufferPool = _bufferPool;
     }
 
     @Override
     public void run() {
+        try {
+            writeSelector = Selector.open();
+        } catch (IOException e) {
+            p2pLOG.error("TaskSend unable to open the write selector.", e);
+            return;
+        }
+
         // for runtime survey information
         long startTime, duration;
 
         while (start.get()) {
             try {
                 startTime = System.nanoTime();
-                MsgOut mo = sendMsgQue.take();
+                MsgOut mo;
+                if (awaiting.isEmpty()) {
+                    mo = sendMsgQue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+                } else {
+                    if (sendMsgQue.isEmpty()) {
+                        writeSelector.select(SELECT_TIMEOUT);
+                    } else {
+                        writeSelector.selectNow();
+                    }
+                    flushWritable();
+                    mo = sendMsgQue.poll();
+                }
                 duration = System.nanoTime() - startTime;
                 waitTime += duration;
                 if (waitTime > MIN_DURATION) { // print and reset total time so far
@@ -72,7 +125,11 @@ public class TaskSend implements Runnable {
                 }
 
                 startTime = System.nanoTime();
-                process(mo);
+                for (int count = 0; mo != null; ) {
+                    process(mo);
+                    mo = ++count < MAX_BATCH ? sendMsgQue.poll() : null;
+                }
+                flushPending();
                 duration = System.nanoTime() - startTime;
                 fullProcessTime += duration;
                 if (fullProcessTime > MIN_DURATION) { // print and reset total time so far
@@ -81,7 +138,7 @@ public class TaskSend implements Runnable {
                 }
             } catch (InterruptedException e) {
                 p2pLOG.error("task-send-interrupted", e);
-                return;
+                break;
             } catch (RejectedExecutionException e) {
                 p2pLOG.warn("task-send-reached thread queue limit", e);
             } catch (Exception e) {
@@ -89,6 +146,15 @@ public class TaskSend implements Runnable {
             }
         }
 
+        pending.forEach((sc, cb) -> discard(sc, cb));
+        pending.clear();
+        new HashMap<>(awaiting).forEach((sc, cb) -> discard(sc, cb));
+        try {
+            writeSelector.close();
+        } catch (IOException e) {
+            p2pLOG.debug("TaskSend unable to close the write selector.", e);
+        }
+
         // print remaining total times
         surveyLog.info("TaskSend: wait for message, duration = {} ns.", waitTime);
         surveyLog.info("TaskSend: full process message, duration = {} ns.", fullProcessTime);
@@ -97,7 +163,6 @@ public class TaskSend implements Runnable {
         surveyLog.info("TaskSend: check for closed channel, duration = {} ns.", closedCheckTime);
         surveyLog.info("TaskSend: setup for write, duration = {} ns.", setupWriteTime);
         surveyLog.info("TaskSend: write message, duration = {} ns.", writeTime);
-        surveyLog.info("TaskSend: start to end of write try, duration = {} ns.", tryTime);
     }
 
     /**
@@ -143,7 +208,7 @@ public class TaskSend implements Runnable {
             SelectionKey sk = node.getChannel().keyFor(selector);
             if (sk != null && sk.attachment() != null) {
                 ChannelBuffer attachment = (ChannelBuffer) sk.attachment();
-                write(node.getIdShort(), node.getChannel(), mo.getMsg(), attachment);
+                enqueue(node.getIdShort(), node.getChannel(), mo.getMsg(), attachment);
             }
         } else {
             p2pLOG.debug("msg-{} ->{} node-not-exist", mo.getDest().name(), mo.getDisplayId());
@@ -157,10 +222,8 @@ public class TaskSend implements Runnable {
         return true;
     }
 
-    private static final long MAX_BUFFER_WRITE_TIME = 1_000_000_000L;
-    private static final long MIN_TRACE_BUFFER_WRITE_TIME = 10_000_000L;
-
-    private void write(
+    /** Encodes the message into the outbound queue of the channel. */
+    private void enqueue(
             final String nodeShortId,
             final SocketChannel sc,
             final Msg msg,
@@ -173,6 +236,7 @@ public class TaskSend implements Runnable {
         if (channelBuffer.isClosed()) {
             channelBuffer.refreshHeader();
             channelBuffer.refreshBody();
+            discard(sc, channelBuffer);
             mgr.dropActive(channelBuffer.getNodeIdHash(), "close-already");
             duration = System.nanoTime() - startTime;
             closedCheckTime += duration;
@@ -185,10 +249,17 @@ public class TaskSend implements Runnable {
             closedCheckTime = 0;
         }
 
-        long startTime2 = System.nanoTime();
+        if (channelBuffer.outboundBytes >= MAX_OUTBOUND_BYTES) {
+            p2pLOG.debug(
+                    "slow-peer node={} pending={} dropped route={}",
+                    nodeShortId,
+                    channelBuffer.outboundBytes,
+                    msg.getHeader().getRoute());
+            return;
+        }
+
         try {
             startTime = System.nanoTime();
-            channelBuffer.lock.lock();
 
             /*
              * @warning header set len (body len) before header encode
@@ -197,85 +268,186 @@ public class TaskSend implements Runnable {
             int bodyLen = bodyBytes == null ? 0 : bodyBytes.length;
             Header h = msg.getHeader();
             h.setLen(bodyLen);
-            byte[] headerBytes = h.encode();
 
             p2pLOG.trace("write id:{} {}-{}-{}", nodeShortId, h.getVer(), h.getCtrl(), h.getAction());
 
-            ByteBuffer buf = ByteBuffer.allocate(headerBytes.length + bodyLen);
-            buf.put(headerBytes);
-            if (bodyBytes != null) {
-                buf.put(bodyBytes);
+            int frameLen = Header.LEN + bodyLen;
+            if (frameLen <= bufferPool.getBufferSize()) {
+                // small messages are coalesced into pooled buffers
+                ByteBuffer tail = channelBuffer.outboundTail;
+                if (tail != null && tail.remaining() < frameLen) {
+                    closeTail(channelBuffer);
+                    tail = null;
+                }
+                if (tail == null) {
+                    tail = bufferPool.acquire();
+                    channelBuffer.outboundTail = tail;
+                }
+                // same layout as Header.encode()
+                tail.putInt(h.getRoute()).putInt(bodyLen);
+                if (bodyBytes != null) {
+                    tail.put(bodyBytes);
+                }
+            } else {
+                // large messages are written from the encoded array by a gathering write
+                closeTail(channelBuffer);
+                channelBuffer.outbound.add(ByteBuffer.wrap(h.encode()));
+                channelBuffer.outbound.add(ByteBuffer.wrap(bodyBytes));
             }
-            buf.flip();
+            channelBuffer.outboundBytes += frameLen;
+            pending.put(sc, channelBuffer);
+
             duration = System.nanoTime() - startTime;
             setupWriteTime += duration;
             if (setupWriteTime > MIN_DURATION) { // print and reset total time so far
                 surveyLog.info("TaskSend: setup for write, duration = {} ns.", setupWriteTime);
                 setupWriteTime = 0;
             }
+        } catch (Exception e) {
+            p2pLOG.error("TaskSend exception.", e);
+        }
+    }
 
-            long t1 = System.nanoTime(), t2;
-            int wrote = 0;
-            try {
-                startTime = System.nanoTime();
-                do {
-                    int result = sc.write(buf);
-                    wrote += result;
-
-                    if (result == 0) {
-                        // @Attention:  very important sleep , otherwise when NIO write buffer full,
-                        // without sleep will hangup this thread.
-                        Thread.sleep(0, 1);
+    /** Moves the pooled buffer collecting small messages to the frames ready for writing. */
+    private void closeTail(final ChannelBuffer channelBuffer) {
+        ByteBuffer tail = channelBuffer.outboundTail;
+        if (tail != null) {
+            channelBuffer.outboundTail = null;
+            if (tail.position() > 0) {
+                channelBuffer.outbound.add(tail.flip());
+            } else {
+                bufferPool.release(tail);
+            }
+        }
+    }
+
+    /** Writes the messages added by the current batch, except to the peers already waiting. */
+    private void flushPending() {
+        for (Map.Entry<SocketChannel, ChannelBuffer> entry : pending.entrySet()) {
+            if (!entry.getValue().awaitingWrite) {
+                flush(entry.getKey(), entry.getValue());
+            }
+        }
+        pending.clear();
+    }
+
+    /** Writes to the peers whose sockets became writable and cleans up the closed ones. */
+    private void flushWritable() {
+        Iterator<SelectionKey> keys = writeSelector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            if (key.isValid() && key.isWritable()) {
+                flush((SocketChannel) key.channel(), (ChannelBuffer) key.attachment());
+            }
+        }
+
+        if (!awaiting.isEmpty()) {
+            Iterator<Map.Entry<SocketChannel, ChannelBuffer>> it = awaiting.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<SocketChannel, ChannelBuffer> entry = it.next();
+                if (!entry.getKey().isOpen()) {
+                    it.remove();
+                    discard(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the outbound queue of the channel until it is empty or the socket buffer is full, in
+     * which case the channel waits until it becomes writable.
+     */
+    private void flush(final SocketChannel sc, final ChannelBuffer channelBuffer) {
+        // for runtime survey information
+        long startTime = System.nanoTime();
+
+        closeTail(channelBuffer);
+        try {
+            while (!channelBuffer.outbound.isEmpty()) {
+                int count = 0;
+                long requested = 0;
+                for (ByteBuffer buffer : channelBuffer.outbound) {
+                    gather[count++] = buffer;
+                    requested += buffer.remaining();
+                    if (count == MAX_GATHER) {
+                        break;
                     }
+                }
 
-                    t2 = System.nanoTime() - t1;
-                } while (buf.hasRemaining() && (t2 < MAX_BUFFER_WRITE_TIME));
-                duration = System.nanoTime() - startTime;
-                writeTime += duration;
-                if (writeTime > MIN_DURATION) { // print and reset total time so far
-                    surveyLog.info("TaskSend: write message, duration = {} ns.", writeTime);
-                    writeTime = 0;
+                long wrote = sc.write(gather, 0, count);
+                channelBuffer.outboundBytes -= wrote;
+                while (!channelBuffer.outbound.isEmpty()
+                        && !channelBuffer.outbound.peek().hasRemaining()) {
+                    bufferPool.release(channelBuffer.outbound.poll());
                 }
 
-                if (t2 > MIN_TRACE_BUFFER_WRITE_TIME) {
-                    p2pLOG.trace(
-                        "msg write: id {} size {} time {} ms length {}",
-                        nodeShortId,
-                        wrote,
-                        t2,
-                        buf.array().length);
+                if (wrote < requested) {
+                    // the socket buffer is full
+                    awaitWritable(sc, channelBuffer);
+                    return;
                 }
+            }
 
-            } catch (ClosedChannelException ex1) {
-                p2pLOG.debug("closed-channel-exception node=" + nodeShortId, ex1);
-                channelBuffer.setClosed();
-            } catch (IOException ex2) {
-                p2pLOG.debug(
-                        "write-msg-io-exception node="
-                            + nodeShortId
-                            + " headerBytes="
-                            + headerBytes.length
-                            + " bodyLen="
-                            + bodyLen
-                            + " time="
-                            + (System.nanoTime() - t1)
-                            + "ns",
-                        ex2);
-
-                if (ex2.getMessage().equals("Broken pipe")) {
-                    channelBuffer.setClosed();
+            if (channelBuffer.awaitingWrite) {
+                channelBuffer.awaitingWrite = false;
+                awaiting.remove(sc);
+                SelectionKey key = sc.keyFor(writeSelector);
+                if (key != null) {
+                    key.interestOps(0);
                 }
             }
-        } catch (Exception e) {
-            p2pLOG.error("TaskSend exception.", e);
+        } catch (ClosedChannelException | CancelledKeyException ex1) {
+            p2pLOG.debug("closed-channel-exception node=" + channelBuffer.getDisplayId(), ex1);
+            channelBuffer.setClosed();
+            discard(sc, channelBuffer);
+        } catch (IOException ex2) {
+            p2pLOG.debug(
+                    "write-msg-io-exception node="
+                            + channelBuffer.getDisplayId()
+                            + " pending="
+                            + channelBuffer.outboundBytes,
+                    ex2);
+            // the stream ends with a partial message after a failed write
+            channelBuffer.setClosed();
+            discard(sc, channelBuffer);
         } finally {
-            duration = System.nanoTime() - startTime2;
-            tryTime += duration;
-            if (tryTime > MIN_DURATION) { // print and reset total time so far
-                surveyLog.info("TaskSend: start to end of write try, duration = {} ns.", tryTime);
-                tryTime = 0;
+            Arrays.fill(gather, null);
+            long duration = System.nanoTime() - startTime;
+            writeTime += duration;
+            if (writeTime > MIN_DURATION) { // print and reset total time so far
+                surveyLog.info("TaskSend: write message, duration = {} ns.", writeTime);
+                writeTime = 0;
             }
-            channelBuffer.lock.unlock();
+        }
+    }
+
+    private void awaitWritable(final SocketChannel sc, final ChannelBuffer channelBuffer)
+            throws ClosedChannelException {
+        if (!channelBuffer.awaitingWrite) {
+            SelectionKey key = sc.keyFor(writeSelector);
+            if (key == null) {
+                sc.register(writeSelector, SelectionKey.OP_WRITE, channelBuffer);
+            } else {
+                key.interestOps(SelectionKey.OP_WRITE);
+            }
+            channelBuffer.awaitingWrite = true;
+            awaiting.put(sc, channelBuffer);
+        }
+    }
+
+    /** Drops the outbound messages of the channel and returns their buffers to the pool. */
+    private void discard(final SocketChannel sc, final ChannelBuffer channelBuffer) {
+        bufferPool.release(channelBuffer.outboundTail);
+        channelBuffer.outboundTail = null;
+        for (ByteBuffer buffer : channelBuffer.outbound) {
+            bufferPool.release(buffer);
+        }
+        channelBuffer.outbound.clear();
+        channelBuffer.outboundBytes = 0;
+        if (channelBuffer.awaitingWrite) {
+            channelBuffer.awaitingWrite = false;
+            awaiting.remove(sc);
         }
     }
 }
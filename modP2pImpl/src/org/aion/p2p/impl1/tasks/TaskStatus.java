@@ -11,7 +11,7 @@ public class TaskStatus implements Runnable {
     private final INodeMgr nodeMgr;
     private final String selfShortId;
     private final BlockingQueue<MsgOut> sendMsgQue;
-    private final BlockingQueue<MsgIn> receiveMsgQue;
+    private final ReceiveQueue receiveMsgQue;
 
     private static final int PERIOD_STATUS = 10000;
     private final AtomicBoolean start;
@@ -23,7 +23,7 @@ public class TaskStatus implements Runnable {
             final INodeMgr _nodeMgr,
             final String _selfShortId,
             final BlockingQueue<MsgOut> _sendMsgQue,
-            final BlockingQueue<MsgIn> _receiveMsgQue) {
+            final ReceiveQueue _receiveMsgQue) {
         this.p2pLOG = p2pLOG;
         this.surveyLog = surveyLog;
         this.nodeMgr = _nodeMgr;
@@ -50,6 +50,7 @@ public class TaskStatus implements Runnable {
                             "recv queue[{}] send queue[{}]",
                             receiveMsgQue.size(),
                             sendMsgQue.size());
+                    p2pLOG.debug(receiveMsgQue.status());
                 } else if (p2pLOG.isInfoEnabled()) {
                     p2pLOG.info(status);
                 }
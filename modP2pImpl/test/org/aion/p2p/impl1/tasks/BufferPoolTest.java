@@ -0,0 +1,51 @@
+package org.aion.p2p.impl1.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import org.junit.Test;
+
+public class BufferPoolTest {
+
+    @Test
+    public void testReuse() {
+        BufferPool pool = new BufferPool(1024, 2);
+        ByteBuffer buffer = pool.acquire();
+        assertTrue(buffer.isDirect());
+        assertEquals(1024, buffer.capacity());
+
+        buffer.putInt(1).flip();
+        pool.release(buffer);
+        assertEquals(1, pool.available());
+
+        // the reused buffer is cleared
+        ByteBuffer reused = pool.acquire();
+        assertSame(buffer, reused);
+        assertEquals(0, reused.position());
+        assertEquals(1024, reused.limit());
+        assertEquals(0, pool.available());
+    }
+
+    @Test
+    public void testBounded() {
+        BufferPool pool = new BufferPool(1024, 2);
+        ByteBuffer[] buffers = {pool.acquire(), pool.acquire(), pool.acquire()};
+        for (ByteBuffer buffer : buffers) {
+            pool.release(buffer);
+        }
+        assertEquals(2, pool.available());
+    }
+
+    @Test
+    public void testIgnoresForeignBuffers() {
+        BufferPool pool = new BufferPool(1024, 2);
+        pool.release(ByteBuffer.allocate(1024));
+        pool.release(ByteBuffer.allocateDirect(512));
+        pool.release(null);
+        assertEquals(0, pool.available());
+        assertNotNull(pool.acquire());
+    }
+}
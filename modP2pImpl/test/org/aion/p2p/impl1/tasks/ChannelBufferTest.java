@@ -10,9 +10,11 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Random;
 import java.util.UUID;
 import org.aion.p2p.Header;
+import org.aion.p2p.P2pConstant;
 import org.aion.p2p.impl1.tasks.ChannelBuffer.RouteStatus;
 import org.junit.Before;
 import org.junit.Test;
@@ -29,8 +31,6 @@ public class ChannelBufferTest {
 
     @Mock private Header header;
 
-    private Header expectHeader;
-
     @Before
     public void setup() {
         MockitoAnnotations.initMocks(this);
@@ -39,19 +39,10 @@ public class ChannelBufferTest {
         r = new Random();
     }
 
-    private ByteBuffer genBuffer() {
-        ByteBuffer buffer = ByteBuffer.allocate(r.nextInt(LEN << 1));
-        int len = buffer.remaining() - LEN;
-        expectHeader = Header.decode(genHeader(len < 0 ? 0 : len));
-        // expectHeader.setLen(r.nextInt(P2pConstant.MAX_BODY_SIZE));
-
-        buffer.put(expectHeader.encode(), 0, len < 0 ? buffer.remaining() : LEN);
-        byte[] rByte = new byte[expectHeader.getLen()];
-        r.nextBytes(rByte);
-        buffer.put(rByte, 0, buffer.remaining() >= rByte.length ? rByte.length : buffer.remaining())
-                .flip();
-
-        return buffer;
+    private byte[] genFrame(int len) {
+        byte[] body = new byte[len];
+        r.nextBytes(body);
+        return ByteBuffer.allocate(LEN + len).put(genHeader(len)).put(body).array();
     }
 
     private byte[] genHeader(int len) {
@@ -88,17 +79,80 @@ public class ChannelBufferTest {
     }
 
     @Test
-    public void testReadHead() {
-        for (int i = 0; i < 100; i++) {
+    public void testReadFrame() {
+        byte[] frame = genFrame(r.nextInt(1024));
+        ByteBuffer bb = ByteBuffer.wrap(frame);
+
+        assertTrue(cb.readFrame(bb));
+        assertFalse(bb.hasRemaining());
+        assertArrayEquals(
+                Header.decode(Arrays.copyOf(frame, LEN)).encode(), cb.getHeader().encode());
+        assertArrayEquals(Arrays.copyOfRange(frame, LEN, frame.length), cb.body);
+    }
+
+    @Test
+    public void testReadFrameWithoutBody() {
+        assertTrue(cb.readFrame(ByteBuffer.wrap(genFrame(0))));
+        assertEquals(0, cb.getHeader().getLen());
+        assertNotNull(cb.body);
+        assertEquals(0, cb.body.length);
+    }
+
+    @Test
+    public void testReadFrameAcrossReads() {
+        // larger than the initial body allocation
+        byte[] frame = genFrame(3 * 1024 * 1024);
+        ByteBuffer bb = ByteBuffer.allocate(1 + r.nextInt(4096));
+
+        int pos = 0;
+        boolean completed = false;
+        while (pos < frame.length) {
+            assertFalse(completed);
+            bb.clear();
+            int n = Math.min(bb.remaining(), frame.length - pos);
+            bb.put(frame, pos, n).flip();
+            pos += n;
+            completed = cb.readFrame(bb);
+            assertFalse(bb.hasRemaining());
+        }
+
+        assertTrue(completed);
+        assertArrayEquals(
+                Header.decode(Arrays.copyOf(frame, LEN)).encode(), cb.getHeader().encode());
+        assertArrayEquals(Arrays.copyOfRange(frame, LEN, frame.length), cb.body);
+    }
+
+    @Test
+    public void testReadFramesFromOneRead() {
+        byte[] first = genFrame(r.nextInt(1024));
+        byte[] second = genFrame(r.nextInt(1024));
+        byte[] third = genFrame(r.nextInt(1024));
+        ByteBuffer bb =
+                ByteBuffer.allocate(first.length + second.length + third.length / 2)
+                        .put(first)
+                        .put(second)
+                        .put(third, 0, third.length / 2);
+        bb.flip();
+
+        // one frame is decoded per call
+        for (byte[] frame : new byte[][] {first, second}) {
+            assertTrue(cb.readFrame(bb));
+            assertArrayEquals(Arrays.copyOfRange(frame, LEN, frame.length), cb.body);
             cb.refreshHeader();
-            ByteBuffer bb = genBuffer();
-            cb.readHead(bb);
-            if (bb.array().length >= LEN) {
-                assertArrayEquals(expectHeader.encode(), cb.getHeader().encode());
-            } else {
-                assertNull(cb.getHeader());
-            }
+            cb.refreshBody();
         }
+        assertFalse(cb.readFrame(bb));
+        assertFalse(bb.hasRemaining());
+
+        bb.clear();
+        bb.put(third, third.length / 2, third.length - third.length / 2).flip();
+        assertTrue(cb.readFrame(bb));
+        assertArrayEquals(Arrays.copyOfRange(third, LEN, third.length), cb.body);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testReadFrameOverMaxBodySize() {
+        cb.readFrame(ByteBuffer.wrap(genHeader(P2pConstant.MAX_BODY_SIZE + 1)));
     }
 
     @Test
@@ -118,31 +172,6 @@ public class ChannelBufferTest {
         assertFalse(cb.isBodyNotCompleted());
     }
 
-    @Test
-    public void testReadBody() {
-        for (int i = 0; i < 100; i++) {
-            cb.refreshHeader();
-            cb.refreshBody();
-            ByteBuffer bb = genBuffer();
-            cb.readHead(bb);
-            if (bb.array().length >= LEN) {
-                assertArrayEquals(expectHeader.encode(), cb.getHeader().encode());
-                cb.readBody(bb);
-                assertNotNull(cb.body);
-                assertEquals(cb.getHeader().getLen(), cb.body.length);
-            } else {
-                assertNull(cb.getHeader());
-            }
-        }
-    }
-
-    @Test
-    public void testReadBodyNotCompleted() {
-        ByteBuffer bb = genBuffer();
-        cb.readBody(bb);
-        assertNull(cb.body);
-    }
-
     @Test
     public void testShouldRoute() throws InterruptedException {
         assertTrue(cb.shouldRoute(1, 1));
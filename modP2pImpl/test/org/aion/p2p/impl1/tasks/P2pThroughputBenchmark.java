@@ -0,0 +1,260 @@
+package org.aion.p2p.impl1.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Handler;
+import org.aion.p2p.Handler.Priority;
+import org.aion.p2p.INode;
+import org.aion.p2p.INodeMgr;
+import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.Msg;
+import org.aion.p2p.Ver;
+import org.aion.p2p.impl.comm.Node;
+import org.aion.p2p.impl1.P2pMgr.Dest;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.helpers.NOPLogger;
+
+/**
+ * Measures the throughput of the message transport over a loopback connection: the messages are
+ * written by a {@link TaskSend}, read and decoded by a {@link TaskInbound} and delivered to a
+ * handler by a {@link TaskReceive}. Next to the messages per second it prints the bytes allocated
+ * per message by each task and the garbage collections during the measurement.
+ *
+ * <p>The route limits of the receiving channel are lifted, since they would otherwise cap the
+ * throughput at a few messages per second. The node manager is a plain stub rather than a mock,
+ * because the mocks record every call and would add to the measured allocations.
+ *
+ * <p>Runs as part of the benchmark tests only, since the timings are printed rather than asserted.
+ */
+public class P2pThroughputBenchmark {
+
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int ROUNDS = 3;
+
+    // the messages in flight are limited to stay below the per peer limit of the receive queue
+    private static final int MAX_IN_FLIGHT = 2_000;
+    private static final int MAX_BYTES_IN_FLIGHT = 8 * 1024 * 1024;
+
+    private static final byte ACT = 100;
+
+    private final Logger log = NOPLogger.NOP_LOGGER;
+
+    @Test
+    public void benchmarkSmallMessages() throws Exception {
+        // the size of transaction broadcasts and status messages
+        benchmark("small", 100, 200_000);
+    }
+
+    @Test
+    public void benchmarkLargeMessages() throws Exception {
+        // the size of block and header responses
+        benchmark("large", 256 * 1024, 2_000);
+    }
+
+    private void benchmark(String name, int bodySize, int messages) throws Exception {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("127.0.0.1", 0));
+        SocketChannel out = SocketChannel.open(server.getLocalAddress());
+        SocketChannel in = server.accept();
+        out.configureBlocking(false);
+        in.configureBlocking(false);
+
+        Node node = new Node(false, new byte[36], new byte[] {127, 0, 0, 1}, 30303);
+        node.setChannel(out);
+        INodeMgr nodeMgr = stub(INodeMgr.class, node);
+        IP2pMgr mgr = stub(IP2pMgr.class, null);
+
+        Selector outSelector = Selector.open();
+        out.register(outSelector, SelectionKey.OP_READ, new ChannelBuffer(log));
+        Selector inSelector = Selector.open();
+        ChannelBuffer inBuffer = new UnlimitedChannelBuffer(log);
+        inBuffer.setNodeIdHash(node.getIdHash());
+        in.register(inSelector, SelectionKey.OP_READ, inBuffer);
+
+        int window = Math.max(1, Math.min(MAX_IN_FLIGHT, MAX_BYTES_IN_FLIGHT / bodySize));
+        Semaphore inFlight = new Semaphore(window);
+        Handler handler =
+                new Handler(Ver.V0, Ctrl.SYNC, ACT) {
+                    @Override
+                    public void receive(int _id, String _displayId, byte[] _msg) {
+                        inFlight.release();
+                    }
+                };
+        Map<Integer, List<Handler>> handlers =
+                Map.of(handler.getHeader().getRoute(), List.of(handler));
+
+        byte[] body = new byte[bodySize];
+        new Random(42).nextBytes(body);
+        Msg msg =
+                new Msg(Ver.V0, Ctrl.SYNC, ACT) {
+                    @Override
+                    public byte[] encode() {
+                        return body;
+                    }
+                };
+
+        AtomicBoolean start = new AtomicBoolean(true);
+        BlockingQueue<MsgOut> sendQueue = new LinkedBlockingQueue<>();
+        ReceiveQueue receiveQueue = new ReceiveQueue();
+        BufferPool bufferPool = new BufferPool();
+        Thread send =
+                new Thread(
+                        new TaskSend(
+                                log, log, mgr, sendQueue, start, nodeMgr, outSelector, bufferPool),
+                        "p2p-out");
+        Thread inbound =
+                new Thread(
+                        new TaskInbound(
+                                log,
+                                log,
+                                mgr,
+                                inSelector,
+                                start,
+                                nodeMgr,
+                                handlers,
+                                sendQueue,
+                                null,
+                                receiveQueue,
+                                bufferPool),
+                        "p2p-in");
+        Thread receive =
+                new Thread(
+                        new TaskReceive(log, log, start, receiveQueue, Priority.LOW, handlers),
+                        "p2p-worker");
+        send.start();
+        inbound.start();
+        receive.start();
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] ids = {send.getId(), inbound.getId(), receive.getId()};
+
+        try {
+            for (int r = 0; r < WARMUP_ROUNDS + ROUNDS; r++) {
+                long[] allocated = threads.getThreadAllocatedBytes(ids);
+                long gcCount = gcCount(), gcTime = gcTime();
+                long t = System.nanoTime();
+
+                for (int i = 0; i < messages; i++) {
+                    inFlight.acquire();
+                    sendQueue.put(new MsgOut(node.getIdHash(), node.getIdShort(), msg, Dest.ACTIVE));
+                }
+                assertTrue(inFlight.tryAcquire(window, 60, TimeUnit.SECONDS));
+                inFlight.release(window);
+
+                long elapsed = System.nanoTime() - t;
+                long[] allocatedAfter = threads.getThreadAllocatedBytes(ids);
+                if (r >= WARMUP_ROUNDS) {
+                    System.out.printf(
+                            "%s messages of %,d bytes: %,d msg/s, %,d MB/s; allocated per message: "
+                                    + "send %,d B, inbound %,d B, receive %,d B; "
+                                    + "gc %d collections, %d ms%n",
+                            name,
+                            bodySize,
+                            perSecond(messages, elapsed),
+                            perSecond((long) messages * bodySize, elapsed) >> 20,
+                            (allocatedAfter[0] - allocated[0]) / messages,
+                            (allocatedAfter[1] - allocated[1]) / messages,
+                            (allocatedAfter[2] - allocated[2]) / messages,
+                            gcCount() - gcCount,
+                            gcTime() - gcTime);
+                }
+            }
+            assertEquals(0, receiveQueue.dropped(Priority.NORMAL));
+        } finally {
+            start.set(false);
+            send.join();
+            inbound.join();
+            receive.join();
+            close(out, in, server);
+            outSelector.close();
+            inSelector.close();
+        }
+    }
+
+    private static long perSecond(long count, long nanos) {
+        return count * TimeUnit.SECONDS.toNanos(1) / Math.max(1, nanos);
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+
+    private static void close(Closeable... closeables) throws IOException {
+        for (Closeable c : closeables) {
+            c.close();
+        }
+    }
+
+    /**
+     * Creates a stub returning the given node for every node lookup and the default value from
+     * every other method.
+     */
+    private static <T> T stub(Class<T> type, INode node) {
+        return type.cast(
+                Proxy.newProxyInstance(
+                        type.getClassLoader(),
+                        new Class<?>[] {type},
+                        (proxy, method, args) -> {
+                            Class<?> result = method.getReturnType();
+                            if (result == INode.class) {
+                                return node;
+                            } else if (result.isPrimitive() && result != void.class) {
+                                return Array.get(Array.newInstance(result, 1), 0);
+                            } else if (result == List.class) {
+                                return Collections.emptyList();
+                            } else if (result == Map.class) {
+                                return Collections.emptyMap();
+                            }
+                            return null;
+                        }));
+    }
+
+    /** Routes every message regardless of the rate of its route. */
+    private static class UnlimitedChannelBuffer extends ChannelBuffer {
+
+        UnlimitedChannelBuffer(Logger p2pLOG) {
+            super(p2pLOG);
+        }
+
+        @Override
+        boolean shouldRoute(int _route, int _maxReqsPerSec) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package org.aion.p2p.impl1.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.aion.p2p.Handler.Priority;
+import org.junit.Test;
+
+public class ReceiveQueueTest {
+
+    private static MsgIn msg(int nodeId, int route) {
+        return new MsgIn(nodeId, String.valueOf(nodeId), route, new byte[0]);
+    }
+
+    @Test
+    public void testHigherPriorityFirst() throws InterruptedException {
+        ReceiveQueue queue = new ReceiveQueue();
+        MsgIn low = msg(1, 6);
+        MsgIn normal = msg(1, 2);
+        MsgIn high = msg(1, 3);
+
+        assertTrue(queue.offer(low, Priority.LOW, 0, TimeUnit.MILLISECONDS));
+        assertTrue(queue.offer(normal, Priority.NORMAL, 0, TimeUnit.MILLISECONDS));
+        assertTrue(queue.offer(high, Priority.HIGH, 0, TimeUnit.MILLISECONDS));
+        assertEquals(3, queue.size());
+
+        assertSame(high, queue.poll(Priority.LOW, 0, TimeUnit.MILLISECONDS));
+        assertSame(normal, queue.poll(Priority.LOW, 0, TimeUnit.MILLISECONDS));
+        assertSame(low, queue.poll(Priority.LOW, 0, TimeUnit.MILLISECONDS));
+        assertNull(queue.poll(Priority.LOW, 0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testWorkersServeOnlyTheirLaneAndAbove() throws InterruptedException {
+        ReceiveQueue queue = new ReceiveQueue();
+        MsgIn low = msg(1, 6);
+        MsgIn normal = msg(1, 2);
+        queue.offer(low, Priority.LOW, 0, TimeUnit.MILLISECONDS);
+        queue.offer(normal, Priority.NORMAL, 0, TimeUnit.MILLISECONDS);
+
+        assertNull(queue.poll(Priority.HIGH, 0, TimeUnit.MILLISECONDS));
+        assertSame(normal, queue.poll(Priority.NORMAL, 0, TimeUnit.MILLISECONDS));
+        assertNull(queue.poll(Priority.NORMAL, 0, TimeUnit.MILLISECONDS));
+        assertSame(low, queue.poll(Priority.LOW, 0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testRoundRobinBetweenPeers() throws InterruptedException {
+        ReceiveQueue queue = new ReceiveQueue();
+        for (int i = 0; i < 3; i++) {
+            queue.offer(msg(1, 5), Priority.HIGH, 0, TimeUnit.MILLISECONDS);
+        }
+        queue.offer(msg(2, 5), Priority.HIGH, 0, TimeUnit.MILLISECONDS);
+
+        assertEquals(1, queue.poll(Priority.HIGH, 0, TimeUnit.MILLISECONDS).getNodeId());
+        assertEquals(2, queue.poll(Priority.HIGH, 0, TimeUnit.MILLISECONDS).getNodeId());
+        assertEquals(1, queue.poll(Priority.HIGH, 0, TimeUnit.MILLISECONDS).getNodeId());
+        assertEquals(1, queue.poll(Priority.HIGH, 0, TimeUnit.MILLISECONDS).getNodeId());
+    }
+
+    @Test
+    public void testPeerShareLimit() throws InterruptedException {
+        // each peer may fill an eighth of the lane
+        ReceiveQueue queue = new ReceiveQueue(16, 16, 16);
+
+        assertTrue(queue.offer(msg(1, 2), Priority.NORMAL, 0, TimeUnit.MILLISECONDS));
+        assertTrue(queue.offer(msg(1, 2), Priority.NORMAL, 0, TimeUnit.MILLISECONDS));
+        assertFalse(queue.offer(msg(1, 2), Priority.NORMAL, 100, TimeUnit.MILLISECONDS));
+        assertTrue(queue.offer(msg(2, 2), Priority.NORMAL, 0, TimeUnit.MILLISECONDS));
+
+        assertEquals(3, queue.size(Priority.NORMAL));
+        assertEquals(1, queue.dropped(Priority.NORMAL));
+    }
+
+    @Test
+    public void testLowPriorityDroppedWhenFull() throws InterruptedException {
+        ReceiveQueue queue = new ReceiveQueue(1, 1, 1);
+
+        assertTrue(queue.offer(msg(1, 6), Priority.LOW, 0, TimeUnit.MILLISECONDS));
+        long start = System.nanoTime();
+        assertFalse(queue.offer(msg(2, 6), Priority.LOW, 10, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(1, queue.dropped(Priority.LOW));
+
+        // the other lanes are not affected
+        assertTrue(queue.offer(msg(2, 3), Priority.HIGH, 0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test(timeout = 10_000)
+    public void testWaitForSpace() throws InterruptedException {
+        ReceiveQueue queue = new ReceiveQueue(1, 1, 1);
+        queue.offer(msg(1, 3), Priority.HIGH, 0, TimeUnit.MILLISECONDS);
+
+        Thread worker =
+                new Thread(
+                        () -> {
+                            try {
+                                Thread.sleep(50);
+                                queue.poll(Priority.HIGH, 0, TimeUnit.MILLISECONDS);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        });
+        worker.start();
+
+        assertTrue(queue.offer(msg(2, 3), Priority.HIGH, 5, TimeUnit.SECONDS));
+        assertEquals(0, queue.dropped(Priority.HIGH));
+        worker.join();
+    }
+
+    @Test(timeout = 10_000)
+    public void testWaitingWorkerIsWoken() throws InterruptedException {
+        ReceiveQueue queue = new ReceiveQueue();
+        AtomicReference<MsgIn> received = new AtomicReference<>();
+        CountDownLatch polled = new CountDownLatch(1);
+
+        // a low lane worker also serves the high priority messages
+        Thread worker =
+                new Thread(
+                        () -> {
+                            try {
+                                received.set(queue.poll(Priority.LOW, 5, TimeUnit.SECONDS));
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            polled.countDown();
+                        });
+        worker.start();
+        Thread.sleep(50);
+
+        MsgIn high = msg(1, 3);
+        queue.offer(high, Priority.HIGH, 0, TimeUnit.MILLISECONDS);
+        assertTrue(polled.await(5, TimeUnit.SECONDS));
+        assertSame(high, received.get());
+    }
+
+    @Test
+    public void testStatus() throws InterruptedException {
+        ReceiveQueue queue = new ReceiveQueue(1, 1, 1);
+        queue.offer(msg(1, 6), Priority.LOW, 0, TimeUnit.MILLISECONDS);
+        queue.offer(msg(2, 6), Priority.LOW, 0, TimeUnit.MILLISECONDS);
+        assertNotNull(queue.poll(Priority.LOW, 0, TimeUnit.MILLISECONDS));
+
+        String status = queue.status();
+        assertTrue(status.contains("LOW[size=0 max=1 in=1 out=1 dropped=1"));
+        assertTrue(status.contains("HIGH[size=0 max=0 in=0 out=0 dropped=0"));
+
+        // the measurements restart after each status
+        assertTrue(queue.status().contains("LOW[size=0 max=0 in=0 out=0 dropped=0"));
+        assertEquals(1, queue.dropped(Priority.LOW));
+    }
+}
@@ -50,7 +50,7 @@ public class TaskInboundTest {
 
     @Mock private BlockingQueue<MsgOut> msgOutQue;
 
-    @Mock private BlockingQueue<MsgIn> msgInQue;
+    @Mock private ReceiveQueue msgInQue;
 
     @Mock private ResHandshake1 rhs1;
 
@@ -137,7 +137,7 @@ public class TaskInboundTest {
     public void testRun() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
         TaskInbound ti =
-                new TaskInbound(p2pLOG, surveyLog, p2pMgr, selector, atb, nodeMgr, hldrMap, msgOutQue, rhs1, msgInQue);
+                new TaskInbound(p2pLOG, surveyLog, p2pMgr, selector, atb, nodeMgr, hldrMap, msgOutQue, rhs1, msgInQue, new BufferPool());
         assertNotNull(ti);
 
         when(selector.selectNow()).thenReturn(0);
@@ -156,7 +156,7 @@ public class TaskInboundTest {
     public void testRunException() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
         TaskInbound ti =
-                new TaskInbound(p2pLOG, surveyLog, p2pMgr, selector, atb, nodeMgr, hldrMap, msgOutQue, rhs1, msgInQue);
+                new TaskInbound(p2pLOG, surveyLog, p2pMgr, selector, atb, nodeMgr, hldrMap, msgOutQue, rhs1, msgInQue, new BufferPool());
         assertNotNull(ti);
 
         doThrow(ClosedSelectorException.class).when(selector).selectNow();
@@ -176,7 +176,7 @@ public class TaskInboundTest {
     public void testRunClosedSelectorException() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
         TaskInbound ti =
-                new TaskInbound(p2pLOG, surveyLog, p2pMgr, selector, atb, nodeMgr, hldrMap, msgOutQue, rhs1, msgInQue);
+                new TaskInbound(p2pLOG, surveyLog, p2pMgr, selector, atb, nodeMgr, hldrMap, msgOutQue, rhs1, msgInQue, new BufferPool());
         assertNotNull(ti);
 
         when(selector.selectNow()).thenReturn(1);
@@ -196,7 +196,7 @@ public class TaskInboundTest {
     public void testRun2() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
         TaskInbound ti =
-                new TaskInbound(p2pLOG, surveyLog, p2pMgr, selector, atb, nodeMgr, hldrMap, msgOutQue, rhs1, msgInQue);
+                new TaskInbound(p2pLOG, surveyLog, p2pMgr, selector, atb, nodeMgr, hldrMap, msgOutQue, rhs1, msgInQue, new BufferPool());
         assertNotNull(ti);
 
         when(sk.isValid()).thenReturn(false);
@@ -235,7 +235,7 @@ public class TaskInboundTest {
     public void testAccept() throws InterruptedException, IOException {
         AtomicBoolean atb = new AtomicBoolean(true);
         TaskInbound ti =
-                new TaskInbound(p2pLOG, surveyLog, p2pMgr, selector, atb, nodeMgr, hldrMap, msgOutQue, rhs1, msgInQue);
+                new TaskInbound(p2pLOG, surveyLog, p2pMgr, selector, atb, nodeMgr, hldrMap, msgOutQue, rhs1, msgInQue, new BufferPool());
         assertNotNull(ti);
 
         when(sk2.isValid()).thenReturn(true);
@@ -269,7 +269,7 @@ public class TaskInboundTest {
     public void testAccept2() throws InterruptedException, IOException {
         AtomicBoolean atb = new AtomicBoolean(true);
         TaskInbound ti =
-                new TaskInbound(p2pLOG, surveyLog, p2pMgr, selector, atb, nodeMgr, hldrMap, msgOutQue, rhs1, msgInQue);
+                new TaskInbound(p2pLOG, surveyLog, p2pMgr, selector, atb, nodeMgr, hldrMap, msgOutQue, rhs1, msgInQue, new BufferPool());
         assertNotNull(ti);
 
         when(sk2.isValid()).thenReturn(true);
@@ -303,7 +303,7 @@ public class TaskInboundTest {
     public void testAccept3() throws InterruptedException, IOException {
         AtomicBoolean atb = new AtomicBoolean(true);
         TaskInbound ti =
-                new TaskInbound(p2pLOG, surveyLog, p2pMgr, selector, atb, nodeMgr, hldrMap, msgOutQue, rhs1, msgInQue);
+                new TaskInbound(p2pLOG, surveyLog, p2pMgr, selector, atb, nodeMgr, hldrMap, msgOutQue, rhs1, msgInQue, new BufferPool());
         assertNotNull(ti);
 
         when(sk.isValid()).thenReturn(true);
@@ -342,7 +342,7 @@ public class TaskInboundTest {
     public void testReadBuffer() throws InterruptedException, IOException {
         AtomicBoolean atb = new AtomicBoolean(true);
         TaskInbound ti =
-                new TaskInbound(p2pLOG, surveyLog, p2pMgr, selector, atb, nodeMgr, hldrMap, msgOutQue, rhs1, msgInQue);
+                new TaskInbound(p2pLOG, surveyLog, p2pMgr, selector, atb, nodeMgr, hldrMap, msgOutQue, rhs1, msgInQue, new BufferPool());
         assertNotNull(ti);
 
         // settings for readBuffer
@@ -374,16 +374,13 @@ public class TaskInboundTest {
     public void testReadBuffer2() throws InterruptedException, IOException {
         AtomicBoolean atb = new AtomicBoolean(true);
         TaskInbound ti =
-                new TaskInbound(p2pLOG, surveyLog, p2pMgr, selector, atb, nodeMgr, hldrMap, msgOutQue, rhs1, msgInQue);
+                new TaskInbound(p2pLOG, surveyLog, p2pMgr, selector, atb, nodeMgr, hldrMap, msgOutQue, rhs1, msgInQue, new BufferPool());
         assertNotNull(ti);
 
         // settings for readBuffer
         when(sk.channel()).thenReturn(sc);
         when(sc.read(any(ByteBuffer.class))).thenReturn(1).thenReturn(0);
 
-        // settings for calBuffer
-        // when(cb.buffRemain).thenReturn(1);
-
         // settings for run
         when(sk.isValid()).thenReturn(true);
         when(sk.isReadable()).thenReturn(true);
@@ -410,26 +407,19 @@ public class TaskInboundTest {
     public void testReadBuffer3() throws InterruptedException, IOException {
         AtomicBoolean atb = new AtomicBoolean(true);
         TaskInbound ti =
-                new TaskInbound(p2pLOG, surveyLog, p2pMgr, selector, atb, nodeMgr, hldrMap, msgOutQue, rhs1, msgInQue);
+                new TaskInbound(p2pLOG, surveyLog, p2pMgr, selector, atb, nodeMgr, hldrMap, msgOutQue, rhs1, msgInQue, new BufferPool());
         assertNotNull(ti);
 
         // settings for readBuffer
         when(sk.channel()).thenReturn(sc);
         int read = r.nextInt(10000);
-        int remain = r.nextInt(10000);
         when(sc.read(any(ByteBuffer.class))).thenReturn(read).thenReturn(0);
 
-        // settings for calBuffer
-        when(cb.getBuffRemain()).thenReturn(remain);
-        when(cb.getRemainBuffer()).thenReturn(new byte[remain]);
-
-        // settings for readMsg
-        when(cb.isHeaderNotCompleted()).thenReturn(true);
-        when(cb.isBodyNotCompleted()).thenReturn(true);
+        // settings for readFrame
+        when(cb.readFrame(any(ByteBuffer.class))).thenReturn(true).thenReturn(false);
 
-        // settings for readBody
+        // settings for handleMsg
         when(cb.getHeader()).thenReturn(hdr);
-        // when(hdr.getLen()).thenReturn(Header.LEN);
 
         // settings for run
         when(sk.isValid()).thenReturn(true);
@@ -4,6 +4,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
@@ -13,9 +14,10 @@ import static org.mockito.Mockito.when;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.aion.p2p.Handler;
+import org.aion.p2p.Handler.Priority;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -27,7 +29,7 @@ public class TaskRecvTest {
     @Mock private Logger p2pLOG;
     private Logger surveyLog;
 
-    @Mock private BlockingQueue<MsgIn> recvMsgQue;
+    @Mock private ReceiveQueue recvMsgQue;
 
     @Mock private Handler h;
 
@@ -43,7 +45,7 @@ public class TaskRecvTest {
     @Test(timeout = 10_000)
     public void testRun() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
-        TaskReceive ts = new TaskReceive(p2pLOG, surveyLog, atb, recvMsgQue, handler);
+        TaskReceive ts = new TaskReceive(p2pLOG, surveyLog, atb, recvMsgQue, Priority.LOW, handler);
         assertNotNull(ts);
 
         Thread t = new Thread(ts);
@@ -59,13 +61,13 @@ public class TaskRecvTest {
     @Test(timeout = 10_000)
     public void testRunMsgIn() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
-        TaskReceive ts = new TaskReceive(p2pLOG, surveyLog, atb, recvMsgQue, handler);
+        TaskReceive ts = new TaskReceive(p2pLOG, surveyLog, atb, recvMsgQue, Priority.LOW, handler);
         assertNotNull(ts);
 
         int route = 1;
         MsgIn mi = new MsgIn(1, "1", route, new byte[0]);
         assertNotNull(mi);
-        when(recvMsgQue.take()).thenReturn(mi);
+        when(recvMsgQue.poll(any(Priority.class), anyLong(), any(TimeUnit.class))).thenReturn(mi);
         when(handler.get(route)).thenReturn(null);
 
         Thread t = new Thread(ts);
@@ -88,13 +90,13 @@ public class TaskRecvTest {
     @Test(expected = Exception.class, timeout = 10_000)
     public void testRunMsgIn2() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
-        TaskReceive ts = new TaskReceive(p2pLOG, surveyLog, atb, recvMsgQue, handler);
+        TaskReceive ts = new TaskReceive(p2pLOG, surveyLog, atb, recvMsgQue, Priority.LOW, handler);
         assertNotNull(ts);
 
         int route = 1;
         MsgIn mi = new MsgIn(1, "1", route, new byte[0]);
         assertNotNull(mi);
-        when(recvMsgQue.take()).thenReturn(mi);
+        when(recvMsgQue.poll(any(Priority.class), anyLong(), any(TimeUnit.class))).thenReturn(mi);
         when(handler.get(route)).thenReturn(null);
 
         Thread t = new Thread(ts);
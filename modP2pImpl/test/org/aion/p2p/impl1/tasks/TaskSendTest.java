@@ -1,19 +1,30 @@
 package org.aion.p2p.impl1.tasks;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import org.aion.p2p.Header;
 import org.aion.p2p.INode;
 import org.aion.p2p.INodeMgr;
 import org.aion.p2p.IP2pMgr;
@@ -56,7 +67,7 @@ public class TaskSendTest {
     @Test(timeout = 10_000)
     public void testRun() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
-        TaskSend ts = new TaskSend(p2pLOG, p2pLOG, p2pMgr, sendMsgQue, atb, nodeMgr, selector);
+        TaskSend ts = new TaskSend(p2pLOG, p2pLOG, p2pMgr, sendMsgQue, atb, nodeMgr, selector, new BufferPool());
         assertNotNull(ts);
 
         Thread t = new Thread(ts);
@@ -72,12 +83,12 @@ public class TaskSendTest {
     @Test(timeout = 10_000)
     public void testRunMsgOutTimeout() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
-        TaskSend ts = new TaskSend(p2pLOG, p2pLOG, p2pMgr, sendMsgQue, atb, nodeMgr, selector);
+        TaskSend ts = new TaskSend(p2pLOG, p2pLOG, p2pMgr, sendMsgQue, atb, nodeMgr, selector, new BufferPool());
         assertNotNull(ts);
 
         MsgOut mo = new MsgOut(r.nextInt(), "1", msg, Dest.OUTBOUND);
         assertNotNull(mo);
-        when(sendMsgQue.take()).thenReturn(mo);
+        when(sendMsgQue.poll(anyLong(), any(TimeUnit.class))).thenReturn(mo);
         Thread.sleep(5000);
 
         Thread t = new Thread(ts);
@@ -93,13 +104,13 @@ public class TaskSendTest {
     @Test(timeout = 10_000)
     public void testRunLane() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
-        TaskSend ts = new TaskSend(p2pLOG, p2pLOG, p2pMgr, sendMsgQue, atb, nodeMgr, selector);
+        TaskSend ts = new TaskSend(p2pLOG, p2pLOG, p2pMgr, sendMsgQue, atb, nodeMgr, selector, new BufferPool());
         assertNotNull(ts);
 
         MsgOut mo = new MsgOut(1, "1", msg, Dest.OUTBOUND);
         assertNotNull(mo);
 
-        when(sendMsgQue.take()).thenReturn(mo);
+        when(sendMsgQue.poll(anyLong(), any(TimeUnit.class))).thenReturn(mo);
 
         Thread t = new Thread(ts);
         t.start();
@@ -114,13 +125,13 @@ public class TaskSendTest {
     @Test(timeout = 10_000)
     public void testRun2() throws InterruptedException, IOException {
         AtomicBoolean atb = new AtomicBoolean(true);
-        TaskSend ts = new TaskSend(p2pLOG, p2pLOG, p2pMgr, sendMsgQue, atb, nodeMgr, selector);
+        TaskSend ts = new TaskSend(p2pLOG, p2pLOG, p2pMgr, sendMsgQue, atb, nodeMgr, selector, new BufferPool());
         assertNotNull(ts);
 
         MsgOut mo = new MsgOut(0, "1", msg, Dest.OUTBOUND);
         assertNotNull(mo);
 
-        when(sendMsgQue.take()).thenReturn(mo);
+        when(sendMsgQue.poll(anyLong(), any(TimeUnit.class))).thenReturn(mo);
         when(nodeMgr.getOutboundNode(0)).thenReturn(node);
 
         ChannelBuffer cb = new ChannelBuffer(p2pLOG);
@@ -146,13 +157,13 @@ public class TaskSendTest {
     @Test(timeout = 10_000)
     public void testRun3() throws InterruptedException, IOException {
         AtomicBoolean atb = new AtomicBoolean(true);
-        TaskSend ts = new TaskSend(p2pLOG, p2pLOG, p2pMgr, sendMsgQue, atb, nodeMgr, selector);
+        TaskSend ts = new TaskSend(p2pLOG, p2pLOG, p2pMgr, sendMsgQue, atb, nodeMgr, selector, new BufferPool());
         assertNotNull(ts);
 
         MsgOut mo = new MsgOut(0, "1", msg, Dest.ACTIVE);
         assertNotNull(mo);
 
-        when(sendMsgQue.take()).thenReturn(mo);
+        when(sendMsgQue.poll(anyLong(), any(TimeUnit.class))).thenReturn(mo);
         when(nodeMgr.getActiveNode(0)).thenReturn(node);
 
         ChannelBuffer cb = new ChannelBuffer(p2pLOG);
@@ -178,13 +189,13 @@ public class TaskSendTest {
     @Test(timeout = 10_000)
     public void testRun4() throws InterruptedException, IOException {
         AtomicBoolean atb = new AtomicBoolean(true);
-        TaskSend ts = new TaskSend(p2pLOG, p2pLOG, p2pMgr, sendMsgQue, atb, nodeMgr, selector);
+        TaskSend ts = new TaskSend(p2pLOG, p2pLOG, p2pMgr, sendMsgQue, atb, nodeMgr, selector, new BufferPool());
         assertNotNull(ts);
 
         MsgOut mo = new MsgOut(0, "1", msg, Dest.INBOUND);
         assertNotNull(mo);
 
-        when(sendMsgQue.take()).thenReturn(mo);
+        when(sendMsgQue.poll(anyLong(), any(TimeUnit.class))).thenReturn(mo);
         when(nodeMgr.getInboundNode(0)).thenReturn(node);
 
         ChannelBuffer cb = new ChannelBuffer(p2pLOG);
@@ -210,13 +221,13 @@ public class TaskSendTest {
     @Test(timeout = 10_000)
     public void testRunNullNode() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
-        TaskSend ts = new TaskSend(p2pLOG, p2pLOG, p2pMgr, sendMsgQue, atb, nodeMgr, selector);
+        TaskSend ts = new TaskSend(p2pLOG, p2pLOG, p2pMgr, sendMsgQue, atb, nodeMgr, selector, new BufferPool());
         assertNotNull(ts);
 
         MsgOut mo = new MsgOut(0, "1", msg, Dest.INBOUND);
         assertNotNull(mo);
 
-        when(sendMsgQue.take()).thenReturn(mo);
+        when(sendMsgQue.poll(anyLong(), any(TimeUnit.class))).thenReturn(mo);
         when(nodeMgr.getInboundNode(0)).thenReturn(null);
 
         Thread t = new Thread(ts);
@@ -229,4 +240,73 @@ public class TaskSendTest {
             Thread.sleep(10);
         }
     }
+
+    /** A message with a fixed body. */
+    private static class BytesMsg extends Msg {
+        private final byte[] body;
+
+        BytesMsg(byte act, byte[] body) {
+            super((short) 0, (byte) 1, act);
+            this.body = body;
+        }
+
+        @Override
+        public byte[] encode() {
+            return body;
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void testWriteFramesInOrderToSlowPeer() throws InterruptedException, IOException {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("127.0.0.1", 0));
+        SocketChannel ch = SocketChannel.open(server.getLocalAddress());
+        SocketChannel peer = server.accept();
+        ch.configureBlocking(false);
+        ch.register(selector, SelectionKey.OP_READ, new ChannelBuffer(p2pLOG));
+
+        when(nodeMgr.getActiveNode(0)).thenReturn(node);
+        when(node.getChannel()).thenReturn(ch);
+        when(node.getIdShort()).thenReturn("1");
+
+        // small messages coalesced into pooled buffers and large ones written from their arrays
+        BlockingQueue<MsgOut> queue = new LinkedBlockingQueue<>();
+        List<byte[]> bodies = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            byte[] body = new byte[i % 10 == 0 ? 300_000 : r.nextInt(2_000)];
+            r.nextBytes(body);
+            bodies.add(body);
+            queue.add(new MsgOut(0, "1", new BytesMsg((byte) i, body), Dest.ACTIVE));
+        }
+
+        AtomicBoolean atb = new AtomicBoolean(true);
+        TaskSend ts =
+                new TaskSend(p2pLOG, p2pLOG, p2pMgr, queue, atb, nodeMgr, selector, new BufferPool(4096, 4));
+        Thread t = new Thread(ts);
+        t.start();
+
+        // the peer reads only after the socket buffers are full
+        Thread.sleep(500);
+        for (int i = 0; i < bodies.size(); i++) {
+            ByteBuffer head = ByteBuffer.allocate(Header.LEN);
+            while (head.hasRemaining()) {
+                peer.read(head);
+            }
+            Header h = Header.decode(head.array());
+            assertEquals(i, h.getAction());
+            assertEquals(bodies.get(i).length, h.getLen());
+
+            ByteBuffer body = ByteBuffer.allocate(h.getLen());
+            while (body.hasRemaining()) {
+                peer.read(body);
+            }
+            assertArrayEquals(bodies.get(i), body.array());
+        }
+
+        atb.set(false);
+        t.join();
+        peer.close();
+        ch.close();
+        server.close();
+    }
 }
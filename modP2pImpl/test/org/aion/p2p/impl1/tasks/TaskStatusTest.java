@@ -25,7 +25,7 @@ public class TaskStatusTest {
 
     @Mock private BlockingQueue<MsgOut> msgOutQue;
 
-    @Mock private BlockingQueue<MsgIn> msgInQue;
+    @Mock private ReceiveQueue msgInQue;
 
     @Mock private INodeMgr nodeMgr;
 
@@ -153,6 +153,13 @@ public class RLP {
         return rlpList;
     }
 
+    /** Decodes the elements encoded between the given positions, see {@link #decode2(byte[])}. */
+    static RLPList decode2(byte[] msgData, int startPos, int endPos) {
+        RLPList rlpList = new RLPList();
+        fullTraverse(msgData, 0, startPos, endPos, rlpList);
+        return rlpList;
+    }
+
     /** @implNote Considers only encodings of one byte. */
     public static RLPElement decode2OneItem(byte[] msgData, int startPos) {
         RLPList rlpList = new RLPList();
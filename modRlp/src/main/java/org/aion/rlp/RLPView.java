@@ -0,0 +1,314 @@
+package org.aion.rlp;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A view of one RLP encoded element inside a byte array, offered alongside {@link RLPList} for
+ * decoding without copying. Creating a view only reads the prefix of the element: the elements of
+ * a list are located when they are accessed and the bytes of an item are only copied when
+ * requested, e.g. by {@link #getRLPData()}.
+ *
+ * <p>The elements of a list can be streamed with a {@link Cursor}, which decodes one prefix per
+ * element. Accessing a list element by index walks the list from its start, so repeated random
+ * access should use {@link #elements()} instead.
+ *
+ * <p>The bounds of every element are checked against the bounds of its enclosing list, so views
+ * can be created over data from unsafe sources. Malformed encodings are reported with an {@link
+ * IllegalArgumentException} when the affected element is reached.
+ *
+ * @implNote The view shares the underlying array, which must not be modified while it is in use.
+ */
+public final class RLPView implements RLPElement, Iterable<RLPView> {
+
+    private static final long serialVersionUID = 1740452826305719011L;
+
+    private static final int OFFSET_SHORT_ITEM = 0x80;
+    private static final int OFFSET_LONG_ITEM = 0xb7;
+    private static final int OFFSET_SHORT_LIST = 0xc0;
+    private static final int OFFSET_LONG_LIST = 0xf7;
+
+    private final byte[] data;
+    // the position of the prefix
+    private final int offset;
+    // the position and length of the payload, which follows the prefix
+    private final int payloadOffset;
+    private final int payloadLength;
+    private final boolean list;
+
+    private RLPView(byte[] data, int offset, int payloadOffset, int payloadLength, boolean list) {
+        this.data = data;
+        this.offset = offset;
+        this.payloadOffset = payloadOffset;
+        this.payloadLength = payloadLength;
+        this.list = list;
+    }
+
+    /**
+     * Creates a view of the first element encoded in the given array.
+     *
+     * @throws IllegalArgumentException if the array does not start with a complete element
+     */
+    public static RLPView wrap(byte[] encoding) {
+        return wrap(encoding, 0, encoding.length);
+    }
+
+    /**
+     * Creates a view of the first element encoded in the given range of the array.
+     *
+     * @throws IndexOutOfBoundsException if the offset or the length is negative, or the range
+     *     extends past the end of the array
+     * @throws IllegalArgumentException if the range does not start with a complete element
+     */
+    public static RLPView wrap(byte[] data, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > data.length - length) {
+            throw new IndexOutOfBoundsException(
+                    "Range [" + offset + ", " + (offset + length) + ") out of " + data.length);
+        }
+        return parse(data, offset, offset + length);
+    }
+
+    /**
+     * Creates a view of the first element encoded in the remaining bytes of the given buffer,
+     * without copying them when the buffer is backed by an accessible array. The position of the
+     * buffer is not modified.
+     *
+     * @throws IllegalArgumentException if the remaining bytes do not start with a complete element
+     */
+    public static RLPView wrap(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            return wrap(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        byte[] copy = new byte[buffer.remaining()];
+        buffer.duplicate().get(copy);
+        return wrap(copy);
+    }
+
+    /** Decodes the prefix of the element at the given position, which must end before the limit. */
+    private static RLPView parse(byte[] data, int pos, int limit) {
+        if (pos >= limit) {
+            throw malformed(pos);
+        }
+
+        int prefix = data[pos] & 0xFF;
+        RLPView view;
+        if (prefix < OFFSET_SHORT_ITEM) {
+            // single byte item, which is its own encoding
+            view = new RLPView(data, pos, pos, 1, false);
+        } else if (prefix <= OFFSET_LONG_ITEM) {
+            view = new RLPView(data, pos, pos + 1, prefix - OFFSET_SHORT_ITEM, false);
+        } else if (prefix < OFFSET_SHORT_LIST) {
+            int lengthOfLength = prefix - OFFSET_LONG_ITEM;
+            int length = readLength(data, pos, lengthOfLength, limit);
+            view = new RLPView(data, pos, pos + 1 + lengthOfLength, length, false);
+        } else if (prefix <= OFFSET_LONG_LIST) {
+            view = new RLPView(data, pos, pos + 1, prefix - OFFSET_SHORT_LIST, true);
+        } else {
+            int lengthOfLength = prefix - OFFSET_LONG_LIST;
+            int length = readLength(data, pos, lengthOfLength, limit);
+            view = new RLPView(data, pos, pos + 1 + lengthOfLength, length, true);
+        }
+
+        if ((long) view.payloadOffset + view.payloadLength > limit) {
+            throw malformed(pos);
+        }
+        return view;
+    }
+
+    private static int readLength(byte[] data, int pos, int lengthOfLength, int limit) {
+        if (lengthOfLength > Integer.BYTES || pos + 1 + lengthOfLength > limit) {
+            throw malformed(pos);
+        }
+        int length = 0;
+        for (int i = 1; i <= lengthOfLength; i++) {
+            length = (length << 8) | (data[pos + i] & 0xFF);
+        }
+        if (length < 0) {
+            throw malformed(pos);
+        }
+        return length;
+    }
+
+    private static IllegalArgumentException malformed(int pos) {
+        return new IllegalArgumentException("RLP wrong encoding at position " + pos + ".");
+    }
+
+    /** Returns {@code true} if the element is a list, {@code false} if it is an item. */
+    public boolean isList() {
+        return list;
+    }
+
+    /** Returns the length of the payload, i.e. of the item bytes or of the encoded list elements. */
+    public int length() {
+        return payloadLength;
+    }
+
+    /** Returns {@code true} if the payload is empty, i.e. for the empty item and the empty list. */
+    public boolean isEmpty() {
+        return payloadLength == 0;
+    }
+
+    /** Returns the length of the complete encoding, including the prefix. */
+    public int encodedLength() {
+        return payloadOffset - offset + payloadLength;
+    }
+
+    /**
+     * Returns a copy of the item bytes for items and a copy of the complete encoding for lists, in
+     * the same way as {@link RLPItem#getRLPData()} and {@link RLPList#getRLPData()}.
+     */
+    @Override
+    public byte[] getRLPData() {
+        return list ? getEncoded() : getPayload();
+    }
+
+    /** Returns a copy of the payload. */
+    public byte[] getPayload() {
+        return Arrays.copyOfRange(data, payloadOffset, payloadOffset + payloadLength);
+    }
+
+    /** Returns a copy of the complete encoding, including the prefix. */
+    public byte[] getEncoded() {
+        return Arrays.copyOfRange(data, offset, payloadOffset + payloadLength);
+    }
+
+    /** Returns a read-only buffer over the payload, without copying it. */
+    public ByteBuffer payloadBuffer() {
+        return ByteBuffer.wrap(data, payloadOffset, payloadLength).slice().asReadOnlyBuffer();
+    }
+
+    /** Decodes the payload of an item as an unsigned big-endian number of at most 8 bytes. */
+    public long asLong() {
+        checkItem();
+        if (payloadLength > Long.BYTES) {
+            throw new IllegalStateException("Item of " + payloadLength + " bytes is not a long.");
+        }
+        long value = 0;
+        for (int i = payloadOffset; i < payloadOffset + payloadLength; i++) {
+            value = (value << 8) | (data[i] & 0xFF);
+        }
+        return value;
+    }
+
+    /** Decodes the payload of an item as an unsigned big-endian number of at most 4 bytes. */
+    public int asInt() {
+        checkItem();
+        if (payloadLength > Integer.BYTES) {
+            throw new IllegalStateException("Item of " + payloadLength + " bytes is not an int.");
+        }
+        return (int) asLong();
+    }
+
+    /** Decodes the payload of an item as an unsigned big-endian number. */
+    public BigInteger asBigInteger() {
+        checkItem();
+        return payloadLength == 0 ? BigInteger.ZERO : new BigInteger(1, getPayload());
+    }
+
+    private void checkItem() {
+        if (list) {
+            throw new IllegalStateException("The element is a list.");
+        }
+    }
+
+    private void checkList() {
+        if (!list) {
+            throw new IllegalStateException("The element is not a list.");
+        }
+    }
+
+    /** Returns a cursor over the elements of the list. */
+    public Cursor cursor() {
+        checkList();
+        return new Cursor();
+    }
+
+    @Override
+    public Iterator<RLPView> iterator() {
+        return cursor();
+    }
+
+    /** Returns the number of elements of the list, decoding only their prefixes. */
+    public int size() {
+        Cursor cursor = cursor();
+        int size = 0;
+        while (cursor.hasNext()) {
+            cursor.skip();
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Returns the element of the list with the given index.
+     *
+     * @throws IndexOutOfBoundsException if the list has fewer elements
+     */
+    public RLPView get(int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        Cursor cursor = cursor();
+        for (int i = 0; i < index; i++) {
+            if (!cursor.hasNext()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + i);
+            }
+            cursor.skip();
+        }
+        if (!cursor.hasNext()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + index);
+        }
+        return cursor.next();
+    }
+
+    /** Returns the views of all the elements of the list, located in one pass. */
+    public List<RLPView> elements() {
+        List<RLPView> elements = new ArrayList<>();
+        for (RLPView element : this) {
+            elements.add(element);
+        }
+        return elements;
+    }
+
+    /**
+     * Fully decodes the list into an {@link RLPList}, for the code that expects one. Only the bytes
+     * of this list are decoded.
+     */
+    public RLPList toRLPList() {
+        checkList();
+        return (RLPList) RLP.decode2(data, offset, payloadOffset + payloadLength).get(0);
+    }
+
+    /** Streams over the elements of a list, locating each one when it is reached. */
+    public final class Cursor implements Iterator<RLPView> {
+        private int position = payloadOffset;
+        private final int limit = payloadOffset + payloadLength;
+
+        private Cursor() {}
+
+        @Override
+        public boolean hasNext() {
+            return position < limit;
+        }
+
+        @Override
+        public RLPView next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            RLPView next = parse(data, position, limit);
+            position = next.payloadOffset + next.payloadLength;
+            return next;
+        }
+
+        /** Moves past the next element. */
+        public void skip() {
+            next();
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package org.aion.rlp;
+
+import static org.aion.rlp.Utils.asUnsignedByteArray;
+
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Builds an RLP encoding in two passes, offered alongside the {@code encode*} methods of {@link
+ * RLP} which allocate a new array for every nested element. The elements are recorded as they are
+ * added, with the length of each list computed when it is closed, so the complete encoding is
+ * written once into an array or buffer of exactly the required size.
+ *
+ * <p>Items and numbers are encoded in the same way as by {@link RLP#encodeElement(byte[])} and
+ * {@link RLP#encodeLong(long)}, so the two can be used interchangeably:
+ *
+ * <pre>{@code
+ * byte[] encoding =
+ *         new RLPWriter()
+ *                 .beginList()
+ *                 .addElement(hash)
+ *                 .addLong(number)
+ *                 .addEncoded(cachedEncoding)
+ *                 .endList()
+ *                 .toByteArray();
+ * }</pre>
+ *
+ * @implNote The added arrays are referenced rather than copied until the encoding is written, so
+ *     they must not be modified in between. A writer is not thread safe; it can be reused after
+ *     calling {@link #reset()}.
+ */
+public final class RLPWriter {
+
+    private static final int SIZE_THRESHOLD = 56;
+    private static final int OFFSET_SHORT_ITEM = 0x80;
+    private static final int OFFSET_LONG_ITEM = 0xb7;
+    private static final int OFFSET_SHORT_LIST = 0xc0;
+    private static final int OFFSET_LONG_LIST = 0xf7;
+
+    // the longest prefix or number: one byte followed by at most 8 bytes
+    private static final int MAX_HEAD_LENGTH = 1 + Long.BYTES;
+
+    // marks the recorded lists, compared by identity
+    private static final byte[] LIST = new byte[0];
+    // distinguishes the recorded arrays copied as they are from the items that need a prefix
+    private static final long ENCODED = 1;
+
+    // the recorded elements: the referenced array, or null for numbers and LIST for lists, and
+    // the value, i.e. the number, the payload length of a list or whether an array is ENCODED
+    private byte[][] arrays;
+    private long[] values;
+    private int count;
+
+    // the recorded indexes of the open lists and the payload length of each nesting level, where
+    // level 0 holds the elements outside any list
+    private int[] open = new int[4];
+    private int[] payloads = new int[5];
+    private int depth;
+
+    /** Creates a writer with room for a few elements, which grows as needed. */
+    public RLPWriter() {
+        this(8);
+    }
+
+    /** Creates a writer with room for the given number of elements, nested ones included. */
+    public RLPWriter(int expectedElements) {
+        int capacity = Math.max(expectedElements, 1);
+        arrays = new byte[capacity][];
+        values = new long[capacity];
+    }
+
+    /** Starts a list, whose elements are the ones added until the matching {@link #endList()}. */
+    public RLPWriter beginList() {
+        if (depth == open.length) {
+            open = Arrays.copyOf(open, depth * 2);
+            payloads = Arrays.copyOf(payloads, depth * 2 + 1);
+        }
+        open[depth] = record(LIST, 0);
+        depth++;
+        payloads[depth] = 0;
+        return this;
+    }
+
+    /**
+     * Closes the innermost open list.
+     *
+     * @throws IllegalStateException if there is no open list
+     */
+    public RLPWriter endList() {
+        if (depth == 0) {
+            throw new IllegalStateException("There is no open list.");
+        }
+        int payload = payloads[depth];
+        depth--;
+        values[open[depth]] = payload;
+        addToPayload(prefixLength(payload) + (long) payload);
+        return this;
+    }
+
+    /** Adds an item with the given bytes, encoded as by {@link RLP#encodeElement(byte[])}. */
+    public RLPWriter addElement(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return addNumber(0);
+        }
+        if (bytes.length == 1 && (bytes[0] & 0xFF) < OFFSET_SHORT_ITEM) {
+            // a single byte below the item offset, including zero, is its own encoding
+            return addEncoded(bytes);
+        }
+        record(bytes, 0);
+        addToPayload(prefixLength(bytes.length) + (long) bytes.length);
+        return this;
+    }
+
+    /** Adds the given string as an item, encoded as by {@link RLP#encodeString(String)}. */
+    public RLPWriter addString(String string) {
+        return addElement(string.getBytes());
+    }
+
+    /** Adds the given byte as an unsigned number, encoded as by {@link RLP#encodeByte(byte)}. */
+    public RLPWriter addByte(byte value) {
+        return addNumber(value & 0xFFL);
+    }
+
+    /** Adds the given int as an unsigned number, encoded as by {@link RLP#encodeInt(int)}. */
+    public RLPWriter addInt(int value) {
+        return addNumber(value & 0xFFFFFFFFL);
+    }
+
+    /** Adds the given long as an unsigned number, encoded as by {@link RLP#encodeLong(long)}. */
+    public RLPWriter addLong(long value) {
+        return addNumber(value);
+    }
+
+    /**
+     * Adds the given non-negative number, encoded as by {@link RLP#encodeBigInteger(BigInteger)}.
+     */
+    public RLPWriter addBigInteger(BigInteger value) {
+        return value.signum() == 0 ? addNumber(0) : addElement(asUnsignedByteArray(value));
+    }
+
+    /**
+     * Adds an element that is already RLP encoded, such as a cached transaction encoding. The
+     * encoding is copied as is, without being validated.
+     */
+    public RLPWriter addEncoded(byte[] encoding) {
+        if (encoding == null || encoding.length == 0) {
+            throw new IllegalArgumentException("An encoded element may not be empty.");
+        }
+        record(encoding, ENCODED);
+        addToPayload(encoding.length);
+        return this;
+    }
+
+    private RLPWriter addNumber(long value) {
+        record(null, value);
+        addToPayload(numberLength(value));
+        return this;
+    }
+
+    private int record(byte[] array, long value) {
+        if (count == arrays.length) {
+            arrays = Arrays.copyOf(arrays, count * 2);
+            values = Arrays.copyOf(values, count * 2);
+        }
+        arrays[count] = array;
+        values[count] = value;
+        return count++;
+    }
+
+    private void addToPayload(long encodedLength) {
+        long payload = payloads[depth] + encodedLength;
+        if (payload > Integer.MAX_VALUE) {
+            throw new IllegalStateException("The encoding of " + payload + " bytes is too long.");
+        }
+        payloads[depth] = (int) payload;
+    }
+
+    /**
+     * Returns the length of the encoding of the elements added so far.
+     *
+     * @throws IllegalStateException if a list is still open
+     */
+    public int encodedLength() {
+        if (depth != 0) {
+            throw new IllegalStateException(depth + " list(s) have not been closed.");
+        }
+        return payloads[0];
+    }
+
+    /**
+     * Returns the encoding of the elements added so far, written into a new array of exactly the
+     * required size.
+     *
+     * @throws IllegalStateException if a list is still open
+     */
+    public byte[] toByteArray() {
+        byte[] encoding = new byte[encodedLength()];
+        write(encoding, 0);
+        return encoding;
+    }
+
+    /**
+     * Writes the encoding of the elements added so far at the position of the given buffer, e.g. a
+     * pooled direct buffer, and advances its position.
+     *
+     * @throws IllegalStateException if a list is still open
+     * @throws BufferOverflowException if the remaining space is smaller than {@link
+     *     #encodedLength()}
+     */
+    public ByteBuffer writeTo(ByteBuffer buffer) {
+        int length = encodedLength();
+        if (buffer.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+
+        if (buffer.hasArray()) {
+            write(buffer.array(), buffer.arrayOffset() + buffer.position());
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] head = new byte[MAX_HEAD_LENGTH];
+            for (int i = 0; i < count; i++) {
+                buffer.put(head, 0, writeHead(i, head, 0));
+                if (hasPayload(i)) {
+                    buffer.put(arrays[i]);
+                }
+            }
+        }
+        return buffer;
+    }
+
+    private void write(byte[] out, int position) {
+        for (int i = 0; i < count; i++) {
+            position = writeHead(i, out, position);
+            if (hasPayload(i)) {
+                System.arraycopy(arrays[i], 0, out, position, arrays[i].length);
+                position += arrays[i].length;
+            }
+        }
+    }
+
+    /** Returns {@code true} if the recorded element ends with the bytes of its array. */
+    private boolean hasPayload(int i) {
+        return arrays[i] != null && arrays[i] != LIST;
+    }
+
+    /**
+     * Writes the recorded element except for the bytes of its array, i.e. the prefix of items and
+     * lists or the complete encoding of numbers.
+     *
+     * @return the position following the written bytes
+     */
+    private int writeHead(int i, byte[] out, int position) {
+        byte[] array = arrays[i];
+        if (array == null) {
+            return writeNumber(values[i], out, position);
+        } else if (array == LIST) {
+            return writePrefix((int) values[i], OFFSET_SHORT_LIST, OFFSET_LONG_LIST, out, position);
+        } else if (values[i] == ENCODED) {
+            return position;
+        } else {
+            return writePrefix(array.length, OFFSET_SHORT_ITEM, OFFSET_LONG_ITEM, out, position);
+        }
+    }
+
+    /** Discards the added elements, keeping the allocated capacity for the next encoding. */
+    public void reset() {
+        Arrays.fill(arrays, 0, count, null);
+        count = 0;
+        depth = 0;
+        payloads[0] = 0;
+    }
+
+    private static int prefixLength(int payloadLength) {
+        return payloadLength < SIZE_THRESHOLD ? 1 : 1 + bytesOf(payloadLength);
+    }
+
+    private static int numberLength(long value) {
+        if (value >= 0 && value < OFFSET_SHORT_ITEM) {
+            // zero is the empty item and other small numbers are their own encoding
+            return 1;
+        }
+        return 1 + numberBytes(value);
+    }
+
+    /**
+     * Returns the number of bytes of the encoded number, which like {@link RLP#encodeLong(long)}
+     * drops the leading zeroes of numbers up to 4 bytes only.
+     */
+    private static int numberBytes(long value) {
+        return (value & 0xFFFFFFFFL) == value ? bytesOf(value) : Long.BYTES;
+    }
+
+    /** Returns the number of bytes of the unsigned value without leading zeroes. */
+    private static int bytesOf(long value) {
+        return (Long.SIZE - Long.numberOfLeadingZeros(value) + 7) / 8;
+    }
+
+    private static int writePrefix(
+            int length, int shortOffset, int longOffset, byte[] out, int position) {
+        if (length < SIZE_THRESHOLD) {
+            out[position] = (byte) (shortOffset + length);
+            return position + 1;
+        }
+        int size = bytesOf(length);
+        out[position] = (byte) (longOffset + size);
+        return writeBigEndian(length, size, out, position + 1);
+    }
+
+    private static int writeNumber(long value, byte[] out, int position) {
+        if (value == 0) {
+            out[position] = (byte) OFFSET_SHORT_ITEM;
+            return position + 1;
+        } else if (value > 0 && value < OFFSET_SHORT_ITEM) {
+            out[position] = (byte) value;
+            return position + 1;
+        }
+        int size = numberBytes(value);
+        out[position] = (byte) (OFFSET_SHORT_ITEM + size);
+        return writeBigEndian(value, size, out, position + 1);
+    }
+
+    private static int writeBigEndian(long value, int size, byte[] out, int position) {
+        for (int shift = 8 * (size - 1); shift >= 0; shift -= 8) {
+            out[position++] = (byte) (value >>> shift);
+        }
+        return position;
+    }
+}
@@ -0,0 +1,195 @@
+package org.aion.rlp;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Compares the decoding of block and receipt encodings through {@link RLP#decode2(byte[])} with
+ * the decoding through {@link RLPView}, both when only locating the transactions of a block and
+ * when reading every field. The encodings have the shapes of the Aion blocks and receipts.
+ *
+ * <p>Runs as part of the benchmark tests only, since the timings are printed rather than asserted.
+ */
+public class RLPDecodeBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+    private static final int BLOCKS = 200;
+    private static final int TRANSACTIONS_PER_BLOCK = 100;
+    private static final int RECEIPTS = 20_000;
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void benchmarkBlockDecoding() {
+        List<byte[]> blocks = new ArrayList<>(BLOCKS);
+        for (int i = 0; i < BLOCKS; i++) {
+            blocks.add(block());
+        }
+
+        for (int r = 0; r < WARMUP_ROUNDS + ROUNDS; r++) {
+            long t = System.nanoTime();
+            for (byte[] block : blocks) {
+                RLPList decoded = (RLPList) RLP.decode2(block).get(0);
+                consume(decoded.get(1).getRLPData());
+            }
+            long locateFull = System.nanoTime() - t;
+
+            t = System.nanoTime();
+            for (byte[] block : blocks) {
+                RLPView.Cursor cursor = RLPView.wrap(block).cursor();
+                cursor.skip();
+                consume(cursor.next().getEncoded());
+            }
+            long locateView = System.nanoTime() - t;
+
+            t = System.nanoTime();
+            for (byte[] block : blocks) {
+                RLPList decoded = (RLPList) RLP.decode2(block).get(0);
+                for (RLPElement tx : (RLPList) decoded.get(1)) {
+                    for (RLPElement field : (RLPList) tx) {
+                        consume(field.getRLPData());
+                    }
+                }
+            }
+            long readFull = System.nanoTime() - t;
+
+            t = System.nanoTime();
+            for (byte[] block : blocks) {
+                RLPView.Cursor cursor = RLPView.wrap(block).cursor();
+                cursor.skip();
+                for (RLPView tx : cursor.next()) {
+                    for (RLPView field : tx) {
+                        consume(field.getRLPData());
+                    }
+                }
+            }
+            long readView = System.nanoTime() - t;
+
+            if (r >= WARMUP_ROUNDS) {
+                System.out.printf(
+                        "locate transactions: decode2 %,d blocks/s, view %,d blocks/s; "
+                                + "read all fields: decode2 %,d blocks/s, view %,d blocks/s%n",
+                        opsPerSecond(BLOCKS, locateFull),
+                        opsPerSecond(BLOCKS, locateView),
+                        opsPerSecond(BLOCKS, readFull),
+                        opsPerSecond(BLOCKS, readView));
+            }
+        }
+    }
+
+    @Test
+    public void benchmarkReceiptDecoding() {
+        List<byte[]> receipts = new ArrayList<>(RECEIPTS);
+        for (int i = 0; i < RECEIPTS; i++) {
+            receipts.add(receipt());
+        }
+
+        // both decodings find the same state roots
+        byte[] first = receipts.get(0);
+        assertArrayEquals(
+                ((RLPList) RLP.decode2(first).get(0)).get(0).getRLPData(),
+                RLPView.wrap(first).get(0).getRLPData());
+
+        for (int r = 0; r < WARMUP_ROUNDS + ROUNDS; r++) {
+            long t = System.nanoTime();
+            for (byte[] receipt : receipts) {
+                RLPList decoded = (RLPList) RLP.decode2(receipt).get(0);
+                consume(decoded.get(0).getRLPData());
+                consume(decoded.get(3).getRLPData());
+            }
+            long full = System.nanoTime() - t;
+
+            t = System.nanoTime();
+            for (byte[] receipt : receipts) {
+                RLPView.Cursor cursor = RLPView.wrap(receipt).cursor();
+                consume(cursor.next().getRLPData());
+                cursor.skip();
+                cursor.skip();
+                consume(cursor.next().getRLPData());
+            }
+            long view = System.nanoTime() - t;
+
+            if (r >= WARMUP_ROUNDS) {
+                System.out.printf(
+                        "receipts: decode2 %,d ops/s, view %,d ops/s%n",
+                        opsPerSecond(RECEIPTS, full), opsPerSecond(RECEIPTS, view));
+            }
+        }
+    }
+
+    /** Encodes a block with an Aion header and transactions with the Aion transaction fields. */
+    private byte[] block() {
+        byte[] header =
+                RLP.encodeList(
+                        RLP.encodeLong(1),
+                        RLP.encodeLong(random.nextInt(10_000_000)),
+                        element(32), // parent hash
+                        element(32), // coinbase
+                        element(32), // state root
+                        element(32), // transactions root
+                        element(32), // receipts root
+                        element(256), // logs bloom
+                        element(16), // difficulty
+                        element(32), // extra data
+                        RLP.encodeLong(random.nextInt(1_000_000)),
+                        RLP.encodeLong(15_000_000),
+                        RLP.encodeLong(System.currentTimeMillis() / 1000),
+                        element(32), // nonce
+                        element(1408)); // solution
+
+        byte[][] transactions = new byte[TRANSACTIONS_PER_BLOCK][];
+        for (int i = 0; i < transactions.length; i++) {
+            transactions[i] =
+                    RLP.encodeList(
+                            RLP.encodeLong(random.nextInt(1_000)),
+                            element(32), // to
+                            element(8), // value
+                            element(random.nextInt(200)), // data
+                            element(8), // timestamp
+                            RLP.encodeLong(21_000),
+                            RLP.encodeLong(10_000_000_000L),
+                            RLP.encodeByte((byte) 1),
+                            element(96)); // signature
+        }
+
+        return RLP.encodeList(header, RLP.encodeList(transactions));
+    }
+
+    /** Encodes a receipt with a state root, a bloom, a few logs, the energy used and no error. */
+    private byte[] receipt() {
+        byte[][] logs = new byte[random.nextInt(4)][];
+        for (int i = 0; i < logs.length; i++) {
+            logs[i] =
+                    RLP.encodeList(
+                            element(32), RLP.encodeList(element(32), element(32)), element(64));
+        }
+        return RLP.encodeList(
+                element(32),
+                element(256),
+                RLP.encodeList(logs),
+                RLP.encodeLong(21_000 + random.nextInt(100_000)),
+                RLP.encodeString(""));
+    }
+
+    private byte[] element(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return RLP.encodeElement(bytes);
+    }
+
+    // keeps the decoded data reachable so that the decoding is not optimized away
+    private long sink;
+
+    private void consume(byte[] data) {
+        sink += data.length;
+    }
+
+    private static long opsPerSecond(long ops, long nanos) {
+        return nanos == 0 ? 0 : ops * 1_000_000_000L / nanos;
+    }
+}
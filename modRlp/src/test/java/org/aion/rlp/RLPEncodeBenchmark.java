@@ -0,0 +1,210 @@
+package org.aion.rlp;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.function.Supplier;
+import org.junit.Test;
+
+/**
+ * Compares the allocations and the throughput of encoding with the static methods of {@link RLP},
+ * which allocate an array for every element, with {@link RLPWriter}, which writes the encoding
+ * into a single array. The encoded structures have the shapes of the Aion transactions, receipts,
+ * block index entries and blocks.
+ *
+ * <p>Runs as part of the benchmark tests only, since the results are printed rather than asserted.
+ */
+public class RLPEncodeBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+    private static final int ITERATIONS = 20_000;
+    private static final int TRANSACTIONS_PER_BLOCK = 100;
+
+    private final Random random = new Random(42);
+
+    private final byte[] nonce = bytes(2);
+    private final byte[] to = bytes(32);
+    private final byte[] value = bytes(8);
+    private final byte[] data = bytes(120);
+    private final byte[] timestamp = bytes(8);
+    private final byte[] signature = bytes(96);
+    private final byte[] stateRoot = bytes(32);
+    private final byte[] bloom = bytes(256);
+    private final byte[][] topics = {bytes(32), bytes(32)};
+    private final byte[] hash = bytes(32);
+    private final BigInteger difficulty = new BigInteger(1, bytes(16));
+    private final byte[] header = RLP.encodeList(bytes(300));
+    private final byte[][] transactions = new byte[TRANSACTIONS_PER_BLOCK][];
+
+    public RLPEncodeBenchmark() {
+        for (int i = 0; i < transactions.length; i++) {
+            transactions[i] = staticTransaction();
+        }
+    }
+
+    @Test
+    public void benchmarkEncoding() {
+        compare("transaction", this::staticTransaction, this::writerTransaction);
+        compare("receipt", this::staticReceipt, this::writerReceipt);
+        compare("block infos", this::staticBlockInfos, this::writerBlockInfos);
+        compare("block", this::staticBlock, this::writerBlock);
+    }
+
+    private void compare(String name, Supplier<byte[]> expected, Supplier<byte[]> actual) {
+        assertArrayEquals(expected.get(), actual.get());
+
+        for (int r = 0; r < WARMUP_ROUNDS + ROUNDS; r++) {
+            long[] statics = measure(expected);
+            long[] writer = measure(actual);
+
+            if (r >= WARMUP_ROUNDS) {
+                System.out.printf(
+                        "%s: RLP %,d bytes/op %,d ops/s, RLPWriter %,d bytes/op %,d ops/s%n",
+                        name,
+                        statics[0] / ITERATIONS,
+                        opsPerSecond(ITERATIONS, statics[1]),
+                        writer[0] / ITERATIONS,
+                        opsPerSecond(ITERATIONS, writer[1]));
+            }
+        }
+    }
+
+    /** Returns the bytes allocated by the current thread and the time taken by the iterations. */
+    private static long[] measure(Supplier<byte[]> encoder) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        long t = System.nanoTime();
+        long sink = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += encoder.get().length;
+        }
+        long time = System.nanoTime() - t;
+        allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+
+        if (sink == 0) {
+            throw new IllegalStateException();
+        }
+        return new long[] {allocated, time};
+    }
+
+    private byte[] staticTransaction() {
+        return RLP.encodeList(
+                RLP.encodeElement(nonce),
+                RLP.encodeElement(to),
+                RLP.encodeElement(value),
+                RLP.encodeElement(data),
+                RLP.encodeElement(timestamp),
+                RLP.encodeLong(2_000_000),
+                RLP.encodeLong(10_000_000_000L),
+                RLP.encodeByte((byte) 1),
+                RLP.encodeElement(signature));
+    }
+
+    private byte[] writerTransaction() {
+        return new RLPWriter(12)
+                .beginList()
+                .addElement(nonce)
+                .addElement(to)
+                .addElement(value)
+                .addElement(data)
+                .addElement(timestamp)
+                .addLong(2_000_000)
+                .addLong(10_000_000_000L)
+                .addByte((byte) 1)
+                .addElement(signature)
+                .endList()
+                .toByteArray();
+    }
+
+    private byte[] staticReceipt() {
+        byte[][] logs = new byte[3][];
+        for (int i = 0; i < logs.length; i++) {
+            logs[i] =
+                    RLP.encodeList(
+                            RLP.encodeElement(to),
+                            RLP.encodeList(
+                                    RLP.encodeElement(topics[0]), RLP.encodeElement(topics[1])),
+                            RLP.encodeElement(data));
+        }
+        return RLP.encodeList(
+                RLP.encodeElement(stateRoot),
+                RLP.encodeElement(bloom),
+                RLP.encodeList(logs),
+                RLP.encodeElement(null),
+                RLP.encodeLong(21_000),
+                RLP.encodeElement(null));
+    }
+
+    private byte[] writerReceipt() {
+        RLPWriter writer =
+                new RLPWriter().beginList().addElement(stateRoot).addElement(bloom).beginList();
+        for (int i = 0; i < 3; i++) {
+            writer.beginList()
+                    .addElement(to)
+                    .beginList()
+                    .addElement(topics[0])
+                    .addElement(topics[1])
+                    .endList()
+                    .addElement(data)
+                    .endList();
+        }
+        return writer.endList()
+                .addElement(null)
+                .addLong(21_000)
+                .addElement(null)
+                .endList()
+                .toByteArray();
+    }
+
+    private byte[] staticBlockInfos() {
+        byte[][] infos = new byte[3][];
+        for (int i = 0; i < infos.length; i++) {
+            infos[i] =
+                    RLP.encodeList(
+                            RLP.encodeElement(hash),
+                            RLP.encodeElement(difficulty.toByteArray()),
+                            RLP.encodeByte((byte) (i == 0 ? 1 : 0)));
+        }
+        return RLP.encodeList(infos);
+    }
+
+    private byte[] writerBlockInfos() {
+        RLPWriter writer = new RLPWriter(13).beginList();
+        for (int i = 0; i < 3; i++) {
+            writer.beginList()
+                    .addElement(hash)
+                    .addElement(difficulty.toByteArray())
+                    .addByte((byte) (i == 0 ? 1 : 0))
+                    .endList();
+        }
+        return writer.endList().toByteArray();
+    }
+
+    private byte[] staticBlock() {
+        return RLP.encodeList(header, RLP.encodeList(transactions));
+    }
+
+    private byte[] writerBlock() {
+        RLPWriter writer = new RLPWriter().beginList().addEncoded(header).beginList();
+        for (byte[] transaction : transactions) {
+            writer.addEncoded(transaction);
+        }
+        return writer.endList().endList().toByteArray();
+    }
+
+    private byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static long opsPerSecond(long ops, long nanos) {
+        return nanos == 0 ? 0 : ops * 1_000_000_000L / nanos;
+    }
+}
@@ -0,0 +1,166 @@
+package org.aion.rlp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import org.junit.Test;
+
+public class RLPViewTest {
+
+    private final Random random = new Random(7);
+
+    /** Encodes a random structure of nested lists with items of all the encoded lengths. */
+    private byte[] randomEncoding(int depth) {
+        if (depth == 0 || random.nextInt(3) == 0) {
+            int[] lengths = {0, 1, 20, 55, 56, 300, 70_000};
+            byte[] item = new byte[lengths[random.nextInt(lengths.length)]];
+            random.nextBytes(item);
+            return RLP.encodeElement(item);
+        }
+        byte[][] elements = new byte[random.nextInt(6)][];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = randomEncoding(depth - 1);
+        }
+        return RLP.encodeList(elements);
+    }
+
+    private static void assertSameElement(RLPView view, RLPElement expected) {
+        assertThat(view.getRLPData()).isEqualTo(expected.getRLPData());
+        assertThat(view.isList()).isEqualTo(expected instanceof RLPList);
+        if (view.isList()) {
+            RLPList list = (RLPList) expected;
+            assertThat(view.size()).isEqualTo(list.size());
+            Iterator<RLPView> cursor = view.iterator();
+            for (RLPElement element : list) {
+                assertSameElement(cursor.next(), element);
+            }
+            assertThat(cursor.hasNext()).isFalse();
+        }
+    }
+
+    @Test
+    public void testMatchesFullDecoding() {
+        for (int i = 0; i < 50; i++) {
+            byte[] encoding = randomEncoding(4);
+            RLPView view = RLPView.wrap(encoding);
+
+            assertSameElement(view, RLP.decode2(encoding).get(0));
+            assertThat(view.getEncoded()).isEqualTo(encoding);
+            assertThat(view.encodedLength()).isEqualTo(encoding.length);
+            if (view.isList()) {
+                assertThat(view.toRLPList().getRLPData()).isEqualTo(encoding);
+            }
+        }
+    }
+
+    @Test
+    public void testGetByIndex() {
+        byte[] encoding =
+                RLP.encodeList(
+                        RLP.encodeElement(new byte[] {1, 2}),
+                        RLP.encodeList(RLP.encodeByte((byte) 3)),
+                        RLP.encodeElement(new byte[0]));
+        RLPView view = RLPView.wrap(encoding);
+
+        assertThat(view.get(0).getRLPData()).isEqualTo(new byte[] {1, 2});
+        assertThat(view.get(1).get(0).getRLPData()).isEqualTo(new byte[] {3});
+        assertThat(view.get(2).isEmpty()).isTrue();
+        assertThat(view.elements()).hasSize(3);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetPastTheEnd() {
+        RLPView.wrap(RLP.encodeList(RLP.encodeByte((byte) 1))).get(1);
+    }
+
+    @Test
+    public void testNumbers() {
+        assertThat(RLPView.wrap(RLP.encodeLong(0)).asLong()).isEqualTo(0);
+        assertThat(RLPView.wrap(RLP.encodeLong(100)).asLong()).isEqualTo(100);
+        assertThat(RLPView.wrap(RLP.encodeLong(Long.MAX_VALUE)).asLong()).isEqualTo(Long.MAX_VALUE);
+        assertThat(RLPView.wrap(RLP.encodeInt(65_536)).asInt()).isEqualTo(65_536);
+
+        BigInteger big = BigInteger.TWO.pow(200).add(BigInteger.TEN);
+        assertThat(RLPView.wrap(RLP.encodeBigInteger(big)).asBigInteger()).isEqualTo(big);
+    }
+
+    @Test
+    public void testWrapBuffer() {
+        byte[] encoding = randomEncoding(3);
+        byte[] padded = new byte[encoding.length + 10];
+        System.arraycopy(encoding, 0, padded, 5, encoding.length);
+
+        ByteBuffer heap = ByteBuffer.wrap(padded);
+        heap.position(5);
+        assertThat(RLPView.wrap(heap).getEncoded()).isEqualTo(encoding);
+        assertThat(heap.position()).isEqualTo(5);
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(encoding.length);
+        direct.put(encoding).flip();
+        assertThat(RLPView.wrap(direct).getEncoded()).isEqualTo(encoding);
+    }
+
+    @Test
+    public void testPayloadBuffer() {
+        byte[] item = new byte[100];
+        random.nextBytes(item);
+        ByteBuffer payload = RLPView.wrap(RLP.encodeElement(item)).payloadBuffer();
+
+        assertThat(payload.isReadOnly()).isTrue();
+        byte[] read = new byte[payload.remaining()];
+        payload.get(read);
+        assertThat(read).isEqualTo(item);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncatedEncoding() {
+        byte[] encoding = RLP.encodeElement(new byte[100]);
+        RLPView.wrap(Arrays.copyOf(encoding, encoding.length - 1));
+    }
+
+    @Test
+    public void testRangeOutOfBounds() {
+        byte[] encoding = RLP.encodeElement(new byte[] {1, 2});
+        int[][] ranges = {{-1, 1}, {0, -1}, {1, encoding.length}, {1, Integer.MAX_VALUE}};
+        for (int[] range : ranges) {
+            try {
+                RLPView.wrap(encoding, range[0], range[1]);
+                throw new AssertionError("The range " + Arrays.toString(range) + " was accepted.");
+            } catch (IndexOutOfBoundsException e) {
+                assertThat(e.getMessage()).contains("out of " + encoding.length);
+            }
+        }
+
+        // a valid range holding a malformed element
+        try {
+            RLPView.wrap(encoding, 0, encoding.length - 1);
+            throw new AssertionError("The truncated element was not detected.");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains("wrong encoding");
+        }
+    }
+
+    @Test
+    public void testElementOverflowingItsList() {
+        // a list of 2 bytes containing an item claiming 3 bytes
+        byte[] encoding = {(byte) 0xc2, (byte) 0x83, 1, 2, 3};
+        Iterator<RLPView> cursor = RLPView.wrap(encoding, 0, encoding.length).iterator();
+
+        assertThat(cursor.hasNext()).isTrue();
+        try {
+            cursor.next();
+            throw new AssertionError("The malformed element was not detected.");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains("position 1");
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCursorOverItem() {
+        RLPView.wrap(RLP.encodeElement(new byte[] {1, 2})).cursor();
+    }
+}
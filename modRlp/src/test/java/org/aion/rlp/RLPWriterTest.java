@@ -0,0 +1,173 @@
+package org.aion.rlp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.Test;
+
+public class RLPWriterTest {
+
+    private final Random random = new Random(11);
+
+    @Test
+    public void testItemsMatchEncodeElement() {
+        int[] lengths = {0, 1, 2, 55, 56, 255, 256, 70_000};
+        for (int length : lengths) {
+            byte[] item = new byte[length];
+            random.nextBytes(item);
+            assertThat(new RLPWriter().addElement(item).toByteArray())
+                    .isEqualTo(RLP.encodeElement(item));
+        }
+
+        for (int b = 0; b < 256; b++) {
+            byte[] item = {(byte) b};
+            assertThat(new RLPWriter().addElement(item).toByteArray())
+                    .isEqualTo(RLP.encodeElement(item));
+            assertThat(new RLPWriter().addByte((byte) b).toByteArray())
+                    .isEqualTo(RLP.encodeByte((byte) b));
+        }
+
+        assertThat(new RLPWriter().addElement(null).toByteArray())
+                .isEqualTo(RLP.encodeElement(null));
+        assertThat(new RLPWriter().addString("aion").toByteArray())
+                .isEqualTo(RLP.encodeString("aion"));
+    }
+
+    @Test
+    public void testNumbersMatchEncodeLong() {
+        long[] values = {
+            0, 1, 0x7f, 0x80, 0xff, 0x100, 0xffff, 0x10000, 0xffffff, Integer.MAX_VALUE,
+            0x80000000L, 0xffffffffL, 0x100000000L, Long.MAX_VALUE, -1, Long.MIN_VALUE
+        };
+        for (long value : values) {
+            assertThat(new RLPWriter().addLong(value).toByteArray())
+                    .isEqualTo(RLP.encodeLong(value));
+            assertThat(new RLPWriter().addInt((int) value).toByteArray())
+                    .isEqualTo(RLP.encodeInt((int) value));
+        }
+
+        BigInteger[] bigs = {
+            BigInteger.ZERO, BigInteger.ONE, BigInteger.valueOf(200), BigInteger.TWO.pow(255)
+        };
+        for (BigInteger big : bigs) {
+            assertThat(new RLPWriter().addBigInteger(big).toByteArray())
+                    .isEqualTo(RLP.encodeBigInteger(big));
+        }
+    }
+
+    /** Encodes a random structure with both the writer and the static methods. */
+    private byte[] randomStructure(RLPWriter writer, int depth) {
+        if (depth == 0 || random.nextInt(3) == 0) {
+            switch (random.nextInt(3)) {
+                case 0:
+                    long value = random.nextLong() >>> random.nextInt(64);
+                    writer.addLong(value);
+                    return RLP.encodeLong(value);
+                case 1:
+                    byte[] encoded = RLP.encodeList(RLP.encodeInt(random.nextInt()));
+                    writer.addEncoded(encoded);
+                    return encoded;
+                default:
+                    int[] lengths = {0, 1, 20, 55, 56, 300};
+                    byte[] item = new byte[lengths[random.nextInt(lengths.length)]];
+                    random.nextBytes(item);
+                    writer.addElement(item);
+                    return RLP.encodeElement(item);
+            }
+        }
+
+        writer.beginList();
+        byte[][] elements = new byte[random.nextInt(4)][];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = randomStructure(writer, depth - 1);
+        }
+        writer.endList();
+        return RLP.encodeList(elements);
+    }
+
+    @Test
+    public void testNestedListsMatchEncodeList() {
+        RLPWriter writer = new RLPWriter(1);
+        for (int i = 0; i < 100; i++) {
+            writer.reset();
+            byte[] expected = randomStructure(writer, 10);
+
+            assertThat(writer.encodedLength()).isEqualTo(expected.length);
+            assertThat(writer.toByteArray()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void testDeepNesting() {
+        RLPWriter writer = new RLPWriter();
+        byte[] expected = RLP.encodeElement(new byte[60]);
+        writer.addElement(new byte[60]);
+        for (int i = 0; i < 40; i++) {
+            expected = RLP.encodeList(expected);
+        }
+        for (int i = 0; i < 40; i++) {
+            writer.beginList();
+        }
+        writer.addElement(new byte[60]);
+        for (int i = 0; i < 40; i++) {
+            writer.endList();
+        }
+
+        // the writer is reusable after a reset
+        writer.reset();
+        for (int i = 0; i < 40; i++) {
+            writer.beginList();
+        }
+        writer.addElement(new byte[60]);
+        for (int i = 0; i < 40; i++) {
+            writer.endList();
+        }
+        assertThat(writer.toByteArray()).isEqualTo(expected);
+    }
+
+    @Test
+    public void testEmptyList() {
+        assertThat(new RLPWriter().beginList().endList().toByteArray())
+                .isEqualTo(RLP.encodeList());
+    }
+
+    @Test
+    public void testWriteToBuffer() {
+        RLPWriter writer = new RLPWriter();
+        byte[] expected = randomStructure(writer, 4);
+
+        for (ByteBuffer buffer :
+                new ByteBuffer[] {
+                    ByteBuffer.allocateDirect(expected.length + 10),
+                    ByteBuffer.allocate(expected.length + 15).position(5).slice()
+                }) {
+            buffer.position(3);
+            writer.writeTo(buffer);
+            assertThat(buffer.position()).isEqualTo(3 + expected.length);
+
+            byte[] written = new byte[expected.length];
+            buffer.position(3);
+            buffer.get(written);
+            assertThat(written).isEqualTo(expected);
+        }
+    }
+
+    @Test(expected = BufferOverflowException.class)
+    public void testWriteToSmallBuffer() {
+        RLPWriter writer = new RLPWriter().addElement(new byte[100]);
+        writer.writeTo(ByteBuffer.allocate(100));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testOpenList() {
+        new RLPWriter().beginList().addLong(1).toByteArray();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnbalancedEnd() {
+        new RLPWriter().addLong(1).endList();
+    }
+}
@@ -0,0 +1,215 @@
+package org.aion.txpool;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * The pooled values of one sender ordered by nonce, kept in parallel primitive arrays so lookups,
+ * inserts and removals do not box or allocate per operation.
+ *
+ * <p>Nonces which do not fit in a long can not be reached by any account in practice, but they are
+ * still valid transaction fields. Those fall back to a {@link BigInteger} keyed map that orders
+ * after every primitive nonce.
+ *
+ * <p>Not thread safe, the pool guards every chain with the lock of its sender.
+ */
+final class NonceChain<E> {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private long[] nonces = new long[INITIAL_CAPACITY];
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private int size;
+
+    private TreeMap<BigInteger, E> overflow;
+
+    static boolean fitsLong(BigInteger nonce) {
+        return nonce.signum() >= 0 && nonce.bitLength() < Long.SIZE;
+    }
+
+    int size() {
+        return size + (overflow == null ? 0 : overflow.size());
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    E get(BigInteger nonce) {
+        if (fitsLong(nonce)) {
+            return get(nonce.longValue());
+        }
+        return overflow == null ? null : overflow.get(nonce);
+    }
+
+    E get(long nonce) {
+        int idx = Arrays.binarySearch(nonces, 0, size, nonce);
+        return idx < 0 ? null : value(idx);
+    }
+
+    /** @return the value previously stored for the nonce, or {@code null} */
+    E put(BigInteger nonce, E value) {
+        if (fitsLong(nonce)) {
+            return put(nonce.longValue(), value);
+        }
+        if (overflow == null) {
+            overflow = new TreeMap<>();
+        }
+        return overflow.put(nonce, value);
+    }
+
+    /** @return the value previously stored for the nonce, or {@code null} */
+    E put(long nonce, E value) {
+        int idx = Arrays.binarySearch(nonces, 0, size, nonce);
+        if (idx >= 0) {
+            E previous = value(idx);
+            values[idx] = value;
+            return previous;
+        }
+
+        idx = -(idx + 1);
+        if (size == nonces.length) {
+            nonces = Arrays.copyOf(nonces, size << 1);
+            values = Arrays.copyOf(values, size << 1);
+        }
+        System.arraycopy(nonces, idx, nonces, idx + 1, size - idx);
+        System.arraycopy(values, idx, values, idx + 1, size - idx);
+        nonces[idx] = nonce;
+        values[idx] = value;
+        size++;
+        return null;
+    }
+
+    E remove(BigInteger nonce) {
+        if (fitsLong(nonce)) {
+            return remove(nonce.longValue());
+        }
+        if (overflow == null) {
+            return null;
+        }
+        E removed = overflow.remove(nonce);
+        if (overflow.isEmpty()) {
+            overflow = null;
+        }
+        return removed;
+    }
+
+    E remove(long nonce) {
+        int idx = Arrays.binarySearch(nonces, 0, size, nonce);
+        if (idx < 0) {
+            return null;
+        }
+
+        E removed = value(idx);
+        System.arraycopy(nonces, idx + 1, nonces, idx, size - idx - 1);
+        System.arraycopy(values, idx + 1, values, idx, size - idx - 1);
+        values[--size] = null;
+        return removed;
+    }
+
+    /**
+     * Removes every value with a nonce strictly lower than the given one.
+     *
+     * @param removed receives the removed values in nonce order
+     */
+    void removeLessThan(BigInteger nonce, Consumer<E> removed) {
+        if (nonce.signum() <= 0) {
+            return;
+        }
+
+        boolean primitive = fitsLong(nonce);
+        int cut;
+        if (primitive) {
+            int idx = Arrays.binarySearch(nonces, 0, size, nonce.longValue());
+            cut = idx < 0 ? -(idx + 1) : idx;
+        } else {
+            cut = size;
+        }
+
+        for (int i = 0; i < cut; i++) {
+            removed.accept(value(i));
+        }
+        System.arraycopy(nonces, cut, nonces, 0, size - cut);
+        System.arraycopy(values, cut, values, 0, size - cut);
+        Arrays.fill(values, size - cut, size, null);
+        size -= cut;
+
+        if (overflow != null && !primitive) {
+            Map<BigInteger, E> stale = overflow.headMap(nonce);
+            stale.values().forEach(removed);
+            stale.clear();
+            if (overflow.isEmpty()) {
+                overflow = null;
+            }
+        }
+    }
+
+    /** @return the value with the lowest nonce, or {@code null} */
+    E first() {
+        if (size > 0) {
+            return value(0);
+        }
+        return overflow == null ? null : overflow.firstEntry().getValue();
+    }
+
+    /** @return the highest nonce in the chain, or {@code null} when it is empty */
+    BigInteger lastNonce() {
+        if (overflow != null) {
+            return overflow.lastKey();
+        }
+        return size == 0 ? null : BigInteger.valueOf(nonces[size - 1]);
+    }
+
+    /** @return the value following the given nonce, or {@code null} */
+    E higher(BigInteger nonce) {
+        if (fitsLong(nonce)) {
+            return higher(nonce.longValue());
+        }
+
+        if (overflow == null) {
+            return null;
+        }
+        Map.Entry<BigInteger, E> next = overflow.higherEntry(nonce);
+        return next == null ? null : next.getValue();
+    }
+
+    /** @return the value following the given nonce, or {@code null} */
+    E higher(long nonce) {
+        int idx = Arrays.binarySearch(nonces, 0, size, nonce);
+        idx = idx < 0 ? -(idx + 1) : idx + 1;
+        if (idx < size) {
+            return value(idx);
+        }
+        return overflow == null ? null : overflow.firstEntry().getValue();
+    }
+
+    void forEach(Consumer<E> action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(value(i));
+        }
+        if (overflow != null) {
+            overflow.values().forEach(action);
+        }
+    }
+
+    List<BigInteger> nonceList() {
+        List<BigInteger> rtn = new ArrayList<>(size());
+        for (int i = 0; i < size; i++) {
+            rtn.add(BigInteger.valueOf(nonces[i]));
+        }
+        if (overflow != null) {
+            rtn.addAll(overflow.keySet());
+        }
+        return rtn;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E value(int idx) {
+        return (E) values[idx];
+    }
+}
@@ -1,6 +1,5 @@
 package org.aion.txpool;
 
-import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
 import org.aion.types.AionAddress;
@@ -10,7 +9,7 @@ public class TxDependList {
     private final List<ByteArrayWrapper> txList;
     private ByteArrayWrapper dependTx;
     private AionAddress address;
-    private BigInteger timeStamp;
+    private long timeStamp;
 
     public TxDependList() {
         txList = new ArrayList<>();
@@ -48,15 +47,15 @@ public class TxDependList {
         return txList.isEmpty();
     }
 
-    public BigInteger getTimeStamp() {
+    public long getTimeStamp() {
         return timeStamp;
     }
 
-    public void setTimeStamp(BigInteger timeStamp) {
+    public void setTimeStamp(long timeStamp) {
         this.timeStamp = timeStamp;
     }
 
     public int compare(TxDependList td) {
-        return timeStamp.compareTo(td.timeStamp);
+        return Long.compare(timeStamp, td.timeStamp);
     }
 }
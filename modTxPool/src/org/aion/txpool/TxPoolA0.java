@@ -483,15 +483,15 @@ public class TxPoolA0 implements ITxPool {
                 LOG.trace("snapshot  fee[{}]", e.getKey().toString());
             }
 
-            SortedMap<BigInteger, Entry<ByteArrayWrapper, TxDependList>>
-                    timeTxDep = Collections.synchronizedSortedMap(new TreeMap<>());
+            SortedMap<Long, Entry<ByteArrayWrapper, TxDependList>>
+                    timeTxDep = new TreeMap<>();
             for (Entry<ByteArrayWrapper, TxDependList> pair :
                     e.getValue().entrySet()) {
-                BigInteger ts = pair.getValue().getTimeStamp();
+                long ts = pair.getValue().getTimeStamp();
                 // If timestamp has collision, increase 1 for getting a new slot to put the
                 // transaction pair.
-                while (timeTxDep.get(ts) != null) {
-                    ts = ts.add(BigInteger.ONE);
+                while (timeTxDep.containsKey(ts)) {
+                    ts++;
                 }
                 timeTxDep.put(ts, pair);
             }
@@ -640,15 +640,15 @@ public class TxPoolA0 implements ITxPool {
                 LOG.trace("snapshot  fee[{}]", e.getKey().toString());
             }
 
-            SortedMap<BigInteger, Entry<ByteArrayWrapper, TxDependList>>
-                timeTxDep = Collections.synchronizedSortedMap(new TreeMap<>());
+            SortedMap<Long, Entry<ByteArrayWrapper, TxDependList>>
+                timeTxDep = new TreeMap<>();
             for (Entry<ByteArrayWrapper, TxDependList> pair :
                 e.getValue().entrySet()) {
-                BigInteger ts = pair.getValue().getTimeStamp();
+                long ts = pair.getValue().getTimeStamp();
                 // If timestamp has collision, increase 1 for getting a new slot to put the
                 // transaction pair.
-                while (timeTxDep.get(ts) != null) {
-                    ts = ts.add(BigInteger.ONE);
+                while (timeTxDep.containsKey(ts)) {
+                    ts++;
                 }
                 timeTxDep.put(ts, pair);
             }
@@ -1329,7 +1329,7 @@ public class TxPoolA0 implements ITxPool {
                 } else {
 
                     TxDependList txl = new TxDependList();
-                    BigInteger timestamp = BigInteger.ZERO;
+                    long timestamp = 0;
                     for (BigInteger i = ps.firstNonce;
                         i.compareTo(ps.firstNonce.add(BigInteger.valueOf(ps.combo))) < 0;
                         i = i.add(BigInteger.ONE)) {
@@ -1337,7 +1337,7 @@ public class TxPoolA0 implements ITxPool {
                         ByteArrayWrapper bw =
                             this.accountView.get(e.getKey()).getMap().get(i).getKey();
                         if (i.equals(ps.firstNonce)) {
-                            timestamp = this.mainMap.get(bw).getTx().tx.getTimeStampBI();
+                            timestamp = this.mainMap.get(bw).getTx().tx.getTimeStampBI().longValue();
                         }
 
                         txl.addTx(bw);
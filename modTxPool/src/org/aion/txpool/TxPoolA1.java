@@ -0,0 +1,688 @@
+package org.aion.txpool;
+
+import static org.aion.txpool.TxPoolA0.MIN_ENERGY_CONSUME;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.aion.base.AionTransaction;
+import org.aion.base.PooledTransaction;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.types.AionAddress;
+import org.aion.util.bytes.ByteUtil;
+import org.aion.util.time.TimeInstant;
+import org.aion.util.types.ByteArrayWrapper;
+import org.slf4j.Logger;
+
+/**
+ * Transaction pool which keeps its block template ordering up to date on every add and remove.
+ *
+ * <p>Every sender owns a nonce ordered chain of entries that cache the encoded size and the
+ * effective energy of their transaction. The lowest nonce entry of each chain is kept in a fee
+ * ordered head index, so {@link #snapshot()} is a bounded merge over already sorted heads instead
+ * of a full re-sort of the pool.
+ *
+ * <p>State is sharded by sender address: every sender maps to one of {@link #LOCK_STRIPES} locks
+ * and a sender's chain is only modified while holding its lock, so independent senders are
+ * admitted, replaced and evicted in parallel. The shared indexes are concurrent collections and a
+ * snapshot never blocks writers.
+ *
+ * <p>Nonces, fees and timestamps are kept as primitive longs: chains are {@link NonceChain}s and
+ * fees saturate at {@code Long.MAX_VALUE}, falling back to exact {@link BigInteger} arithmetic only
+ * for the out-of-range values, so pool maintenance does not allocate per transaction.
+ */
+public class TxPoolA1 implements ITxPool {
+
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.TXPOOL.toString());
+
+    private int txn_timeout = 3600; // 1 hour
+    private int blkSizeLimit = Constant.MAX_BLK_SIZE; // 2MB
+
+    private final AtomicLong blkNrgLimit = new AtomicLong(10_000_000L);
+    private final int multiplyM = 1_000_000;
+    private final int TXN_TIMEOUT_MIN = 10; // 10s
+
+    private final int BLK_SIZE_MAX = 16 * 1024 * 1024; // 16MB
+    private final int BLK_SIZE_MIN = 1024 * 1024; // 1MB
+
+    private final int BLK_NRG_MAX = 100_000_000;
+    private final int BLK_NRG_MIN = 1_000_000;
+
+    private static final int LOCK_STRIPES = 64;
+
+    /** Higher fee first, then the earlier transaction, then the transaction hash. */
+    private static final Comparator<TxEntry> FEE_ORDER =
+            (a, b) -> {
+                int cmp = Long.compare(b.fee, a.fee);
+                if (cmp == 0 && a.fee == Long.MAX_VALUE) {
+                    cmp = b.exactFee().compareTo(a.exactFee());
+                }
+                if (cmp == 0) {
+                    cmp = Long.compare(a.timestamp, b.timestamp);
+                }
+                return cmp != 0 ? cmp : a.hash.compareTo(b.hash);
+            };
+
+    /** mainMap : transaction hash -> pooled entry */
+    private final Map<ByteArrayWrapper, TxEntry> mainMap = new ConcurrentHashMap<>();
+    /** accountView : sender -> pooled entries ordered by nonce, guarded by the sender lock */
+    private final Map<AionAddress, NonceChain<TxEntry>> accountView =
+            new ConcurrentHashMap<>();
+    /** headView : the lowest nonce entry of every sender ordered by {@link #FEE_ORDER} */
+    private final NavigableSet<TxEntry> headView = new ConcurrentSkipListSet<>(FEE_ORDER);
+    /** timeView : transaction timestamp in seconds -> transaction hashes */
+    private final ConcurrentNavigableMap<Long, Set<ByteArrayWrapper>> timeView =
+            new ConcurrentSkipListMap<>();
+
+    private final List<PooledTransaction> outDated = new ArrayList<>();
+
+    private final ReentrantLock[] senderLocks = new ReentrantLock[LOCK_STRIPES];
+
+    public TxPoolA1(Properties config) {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            senderLocks[i] = new ReentrantLock();
+        }
+        setPoolArgs(config);
+    }
+
+    private void setPoolArgs(Properties config) {
+        if (Optional.ofNullable(config.get(PROP_TX_TIMEOUT)).isPresent()) {
+            txn_timeout = Integer.valueOf(config.get(PROP_TX_TIMEOUT).toString());
+            if (txn_timeout < TXN_TIMEOUT_MIN) {
+                txn_timeout = TXN_TIMEOUT_MIN;
+            }
+        }
+
+        txn_timeout--; // final timeout value sub -1 sec
+
+        if (Optional.ofNullable(config.get(PROP_BLOCK_SIZE_LIMIT)).isPresent()) {
+            blkSizeLimit = Integer.valueOf(config.get(PROP_BLOCK_SIZE_LIMIT).toString());
+            if (blkSizeLimit < BLK_SIZE_MIN) {
+                blkSizeLimit = BLK_SIZE_MIN;
+            } else if (blkSizeLimit > BLK_SIZE_MAX) {
+                blkSizeLimit = BLK_SIZE_MAX;
+            }
+        }
+
+        if (Optional.ofNullable(config.get(PROP_BLOCK_NRG_LIMIT)).isPresent()) {
+            updateBlkNrgLimit(Long.valueOf((String) config.get(PROP_BLOCK_NRG_LIMIT)));
+        }
+    }
+
+    @Override
+    public PooledTransaction add(PooledTransaction tx) {
+        List<PooledTransaction> rtn = this.add(Collections.singletonList(tx));
+        return rtn.isEmpty() ? null : rtn.get(0);
+    }
+
+    @Override
+    public List<PooledTransaction> add(List<PooledTransaction> txl) {
+        if (txl == null || txl.isEmpty()) return new ArrayList<>();
+
+        List<PooledTransaction> newPendingTx = new ArrayList<>();
+        for (PooledTransaction pendingTx : txl) {
+            TxEntry entry = new TxEntry(pendingTx);
+            ReentrantLock senderLock = lockFor(entry.sender);
+            senderLock.lock();
+            try {
+                if (mainMap.containsKey(entry.hash)) {
+                    if (LOG.isWarnEnabled()) {
+                        LOG.warn(
+                                "The tx hash existed in the pool! [{}]",
+                                ByteUtil.toHexString(entry.hash.toBytes()));
+                    }
+                    continue;
+                }
+
+                NonceChain<TxEntry> chain = accountView.get(entry.sender);
+                TxEntry replaced = chain == null ? null : find(chain, entry);
+                if (replaced != null) {
+                    if (LOG.isTraceEnabled()) {
+                        LOG.trace("repay tx, remove previous tx!");
+                    }
+                    removeEntry(replaced);
+                    newPendingTx.add(replaced.pooledTx);
+                } else {
+                    if (LOG.isTraceEnabled()) {
+                        LOG.trace("new tx! n[{}]", entry.nonceForLog());
+                    }
+                    newPendingTx.add(pendingTx);
+                }
+
+                insertEntry(entry);
+            } finally {
+                senderLock.unlock();
+            }
+        }
+
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("new add tx! np[{}] tx[{}]", newPendingTx.size(), txl.size());
+        }
+
+        return newPendingTx;
+    }
+
+    @Override
+    public PooledTransaction remove(PooledTransaction tx) {
+        List<PooledTransaction> rtn = remove(Collections.singletonList(tx));
+        return rtn.isEmpty() ? null : rtn.get(0);
+    }
+
+    /** Removes only txs whose transactionHash the given transactions (disregards energyUsed) */
+    @Override
+    public List<PooledTransaction> remove(List<PooledTransaction> pooledTxs) {
+        List<PooledTransaction> removedTxl = new ArrayList<>();
+        for (PooledTransaction pooledTx : pooledTxs) {
+            ByteArrayWrapper bw = ByteArrayWrapper.wrap(pooledTx.tx.getTransactionHash());
+            ReentrantLock senderLock = lockFor(pooledTx.tx.getSenderAddress());
+            senderLock.lock();
+            try {
+                TxEntry entry = mainMap.get(bw);
+                if (entry != null) {
+                    removeEntry(entry);
+                    removedTxl.add(pooledTx);
+                }
+            } finally {
+                senderLock.unlock();
+            }
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(
+                    "TxPoolA1.remove TX remove [{}] removed [{}]",
+                    pooledTxs.size(),
+                    removedTxl.size());
+        }
+
+        return removedTxl;
+    }
+
+    /** For each address in map, removes any tx with a smaller nonce for that address */
+    @Override
+    public List<PooledTransaction> removeTxsWithNonceLessThan(
+            Map<AionAddress, BigInteger> accNonce) {
+        List<PooledTransaction> removedTxl = new ArrayList<>();
+        for (Entry<AionAddress, BigInteger> en : accNonce.entrySet()) {
+            ReentrantLock senderLock = lockFor(en.getKey());
+            senderLock.lock();
+            try {
+                NonceChain<TxEntry> chain = accountView.get(en.getKey());
+                if (chain == null) {
+                    continue;
+                }
+
+                TxEntry head = chain.first();
+                int before = removedTxl.size();
+                chain.removeLessThan(
+                        en.getValue(),
+                        entry -> {
+                            mainMap.remove(entry.hash);
+                            removeFromTimeView(entry);
+                            removedTxl.add(entry.pooledTx);
+                        });
+                if (removedTxl.size() == before) {
+                    continue;
+                }
+
+                headView.remove(head);
+                if (chain.isEmpty()) {
+                    accountView.remove(en.getKey());
+                } else {
+                    headView.add(chain.first());
+                }
+            } finally {
+                senderLock.unlock();
+            }
+        }
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("TxPoolA1.remove {} TX", removedTxl.size());
+        }
+
+        return removedTxl;
+    }
+
+    @Override
+    public int size() {
+        return mainMap.size();
+    }
+
+    @Override
+    public List<AionTransaction> snapshot() {
+        return snapshot(TimeInstant.now().toEpochSec());
+    }
+
+    @VisibleForTesting
+    public List<AionTransaction> snapshot(long time) {
+        removeTimeoutTxn(time);
+
+        int cnt_txSz = 0;
+        long cnt_nrg = 0;
+        List<AionTransaction> rtn = new ArrayList<>();
+
+        // Merge the sorted sender heads with the successors of the picked transactions. A
+        // successor only enters the queue once its lower nonce transaction has been picked.
+        // Writers are not blocked, so entries removed while merging and heads of senders which
+        // are already being followed through their successors are skipped.
+        Iterator<TxEntry> heads = headView.iterator();
+        PriorityQueue<TxEntry> successors = new PriorityQueue<>(FEE_ORDER);
+        Set<AionAddress> pickedSenders = new HashSet<>();
+        TxEntry nextHead = heads.hasNext() ? heads.next() : null;
+
+        while (nextHead != null || !successors.isEmpty()) {
+            TxEntry picked;
+            boolean isHead;
+            if (successors.isEmpty()
+                    || (nextHead != null && FEE_ORDER.compare(nextHead, successors.peek()) <= 0)) {
+                picked = nextHead;
+                nextHead = heads.hasNext() ? heads.next() : null;
+                isHead = true;
+            } else {
+                picked = successors.poll();
+                isHead = false;
+            }
+
+            TxEntry successor;
+            ReentrantLock senderLock = lockFor(picked.sender);
+            senderLock.lock();
+            try {
+                NonceChain<TxEntry> chain = accountView.get(picked.sender);
+                if (chain == null
+                        || find(chain, picked) != picked
+                        || (isHead && !pickedSenders.add(picked.sender))) {
+                    continue;
+                }
+                successor =
+                        picked.overflowNonce == null
+                                ? chain.higher(picked.nonce)
+                                : chain.higher(picked.overflowNonce);
+            } finally {
+                senderLock.unlock();
+            }
+
+            cnt_txSz += picked.encodedSize;
+            cnt_nrg += picked.energy;
+            if (LOG.isTraceEnabled()) {
+                LOG.trace(
+                        "from:[{}] nonce:[{}] txSize: txSize[{}] nrgConsume[{}]",
+                        picked.sender.toString(),
+                        picked.nonceForLog(),
+                        picked.encodedSize,
+                        picked.pooledTx.energyConsumed);
+            }
+
+            if (cnt_txSz >= blkSizeLimit || cnt_nrg >= blkNrgLimit.get()) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(
+                            "Reach blockLimit: txSize[{}], nrgConsume[{}], tx#[{}]",
+                            cnt_txSz,
+                            cnt_nrg,
+                            rtn.size());
+                }
+                break;
+            }
+
+            rtn.add(picked.pooledTx.tx);
+
+            if (successor != null) {
+                successors.add(successor);
+            }
+        }
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info(
+                    "TxPoolA1.snapshot return [{}] TX, poolSize[{}]",
+                    rtn.size(),
+                    mainMap.size());
+        }
+
+        return rtn;
+    }
+
+    @Override
+    public List<AionTransaction> snapshotAll() {
+        removeTimeoutTxn(TimeInstant.now().toEpochSec());
+
+        List<AionTransaction> rtn = new ArrayList<>();
+        for (AionAddress sender : accountView.keySet()) {
+            ReentrantLock senderLock = lockFor(sender);
+            senderLock.lock();
+            try {
+                NonceChain<TxEntry> chain = accountView.get(sender);
+                if (chain != null) {
+                    chain.forEach(entry -> rtn.add(entry.pooledTx.tx));
+                }
+            } finally {
+                senderLock.unlock();
+            }
+        }
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info(
+                    "TxPoolA1.snapshot All return [{}] TX, poolSize[{}]",
+                    rtn.size(),
+                    mainMap.size());
+        }
+
+        return rtn;
+    }
+
+    @Override
+    public List<PooledTransaction> getOutdatedList() {
+        synchronized (outDated) {
+            List<PooledTransaction> rtn = new ArrayList<>(outDated);
+            outDated.clear();
+            return rtn;
+        }
+    }
+
+    @Override
+    public long getOutDateTime() {
+        return txn_timeout;
+    }
+
+    @Override
+    public BigInteger bestPoolNonce(AionAddress addr) {
+        if (addr == null) {
+            return BigInteger.ONE.negate();
+        }
+
+        ReentrantLock senderLock = lockFor(addr);
+        senderLock.lock();
+        try {
+            NonceChain<TxEntry> chain = accountView.get(addr);
+            return chain == null ? BigInteger.ONE.negate() : chain.lastNonce();
+        } finally {
+            senderLock.unlock();
+        }
+    }
+
+    @Override
+    public void updateBlkNrgLimit(long nrg) {
+        if (nrg < BLK_NRG_MIN) {
+            blkNrgLimit.set(BLK_NRG_MIN);
+        } else if (nrg > BLK_NRG_MAX) {
+            blkNrgLimit.set(BLK_NRG_MAX);
+        } else {
+            blkNrgLimit.set(nrg);
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("TxPoolA1.updateBlkNrgLimit nrg[{}] blkNrgLimit[{}]", nrg, blkNrgLimit.get());
+        }
+    }
+
+    @Override
+    public String getVersion() {
+        return "0.2.0";
+    }
+
+    @Override
+    public PooledTransaction getPoolTx(AionAddress from, BigInteger txNonce) {
+        if (from == null || txNonce == null) {
+            LOG.error("TxPoolA1.getPoolTx null args");
+            return null;
+        }
+
+        ReentrantLock senderLock = lockFor(from);
+        senderLock.lock();
+        try {
+            NonceChain<TxEntry> chain = accountView.get(from);
+            TxEntry entry = chain == null ? null : chain.get(txNonce);
+            return entry == null ? null : entry.pooledTx;
+        } finally {
+            senderLock.unlock();
+        }
+    }
+
+    /**
+     * This function is a test function
+     *
+     * @param acc
+     * @return
+     */
+    public List<BigInteger> getNonceList(AionAddress acc) {
+        ReentrantLock senderLock = lockFor(acc);
+        senderLock.lock();
+        try {
+            NonceChain<TxEntry> chain = accountView.get(acc);
+            return chain == null ? new ArrayList<>() : chain.nonceList();
+        } finally {
+            senderLock.unlock();
+        }
+    }
+
+    public void clear() {
+        for (ReentrantLock senderLock : senderLocks) {
+            senderLock.lock();
+        }
+        try {
+            mainMap.clear();
+            accountView.clear();
+            headView.clear();
+            timeView.clear();
+        } finally {
+            for (ReentrantLock senderLock : senderLocks) {
+                senderLock.unlock();
+            }
+        }
+
+        synchronized (outDated) {
+            outDated.clear();
+        }
+    }
+
+    private void removeTimeoutTxn(long time) {
+        long ts = time - txn_timeout;
+        List<PooledTransaction> txl = new ArrayList<>();
+
+        List<ByteArrayWrapper> hashes = new ArrayList<>();
+        for (Set<ByteArrayWrapper> set : timeView.headMap(ts).values()) {
+            hashes.addAll(set);
+        }
+
+        for (ByteArrayWrapper bw : hashes) {
+            TxEntry entry = mainMap.get(bw);
+            if (entry == null) {
+                continue;
+            }
+
+            ReentrantLock senderLock = lockFor(entry.sender);
+            senderLock.lock();
+            try {
+                if (mainMap.get(bw) == entry) {
+                    removeEntry(entry);
+                    txl.add(entry.pooledTx);
+                }
+            } finally {
+                senderLock.unlock();
+            }
+        }
+
+        if (txl.isEmpty()) {
+            return;
+        }
+
+        synchronized (outDated) {
+            outDated.addAll(txl);
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("TxPoolA1.removeTimeoutTxn return [{}] TX", txl.size());
+        }
+    }
+
+    private ReentrantLock lockFor(AionAddress sender) {
+        return senderLocks[(sender.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+
+    /** Returns the entry of the chain with the same nonce as the given one. */
+    private static TxEntry find(NonceChain<TxEntry> chain, TxEntry entry) {
+        return entry.overflowNonce == null
+                ? chain.get(entry.nonce)
+                : chain.get(entry.overflowNonce);
+    }
+
+    /** Caller must hold the lock of the entry sender. */
+    private void insertEntry(TxEntry entry) {
+        mainMap.put(entry.hash, entry);
+
+        NonceChain<TxEntry> chain =
+                accountView.computeIfAbsent(entry.sender, k -> new NonceChain<>());
+        TxEntry head = chain.first();
+        if (entry.overflowNonce == null) {
+            chain.put(entry.nonce, entry);
+        } else {
+            chain.put(entry.overflowNonce, entry);
+        }
+
+        if (head == null) {
+            headView.add(entry);
+        } else if (chain.first() == entry) {
+            headView.remove(head);
+            headView.add(entry);
+        }
+
+        // an emptied bucket may be dropped concurrently by another sender, retry until the hash
+        // lands in the bucket which is actually indexed
+        long timestamp = entry.timestamp / multiplyM;
+        Set<ByteArrayWrapper> set;
+        do {
+            set = timeView.computeIfAbsent(timestamp, k -> ConcurrentHashMap.newKeySet());
+            set.add(entry.hash);
+        } while (timeView.get(timestamp) != set);
+    }
+
+    /** Caller must hold the lock of the entry sender. */
+    private void removeEntry(TxEntry entry) {
+        mainMap.remove(entry.hash);
+        removeFromTimeView(entry);
+
+        NonceChain<TxEntry> chain = accountView.get(entry.sender);
+        if (chain == null || find(chain, entry) != entry) {
+            return;
+        }
+
+        boolean isHead = chain.first() == entry;
+        if (entry.overflowNonce == null) {
+            chain.remove(entry.nonce);
+        } else {
+            chain.remove(entry.overflowNonce);
+        }
+
+        if (isHead) {
+            headView.remove(entry);
+            if (!chain.isEmpty()) {
+                headView.add(chain.first());
+            }
+        }
+
+        if (chain.isEmpty()) {
+            accountView.remove(entry.sender);
+        }
+    }
+
+    private void removeFromTimeView(TxEntry entry) {
+        long timestamp = entry.timestamp / multiplyM;
+        Set<ByteArrayWrapper> set = timeView.get(timestamp);
+        if (set != null && set.remove(entry.hash) && set.isEmpty()) {
+            timeView.remove(timestamp, Collections.<ByteArrayWrapper>emptySet());
+        }
+    }
+
+    /**
+     * An immutable pooled transaction with the values needed for ordering and block template
+     * selection computed once on insertion.
+     */
+    static final class TxEntry {
+        final PooledTransaction pooledTx;
+        final ByteArrayWrapper hash;
+        final AionAddress sender;
+        // the nonce when it fits in a long, see overflowNonce
+        final long nonce;
+        // the nonce when it does not fit in a long, null otherwise
+        final BigInteger overflowNonce;
+        final long timestamp; // microseconds
+        final int encodedSize;
+        // Set the lowerbound energy consume for the energy refund case.
+        // In the solidity, the refund energy might exceed the transaction energy consume like 21K.
+        // But the AVM does not. We use half of the Minimum energy consume as the transaction
+        // picking rule
+        final long energy;
+        // energy price * energy, saturated at Long.MAX_VALUE
+        final long fee;
+
+        TxEntry(PooledTransaction pooledTx) {
+            AionTransaction tx = pooledTx.tx;
+            this.pooledTx = pooledTx;
+            this.hash = ByteArrayWrapper.wrap(tx.getTransactionHash());
+            this.sender = tx.getSenderAddress();
+            byte[] nonceBytes = tx.getNonce();
+            if (fitsLong(nonceBytes)) {
+                this.nonce = toLong(nonceBytes);
+                this.overflowNonce = null;
+            } else {
+                this.nonce = -1;
+                this.overflowNonce = tx.getNonceBI();
+            }
+            this.timestamp = toLong(tx.getTimestamp());
+            this.encodedSize = tx.getEncoded().length;
+            this.energy = Math.max(pooledTx.energyConsumed, MIN_ENERGY_CONSUME / 2);
+            long price = tx.getEnergyPrice();
+            this.fee =
+                    Math.multiplyHigh(price, energy) == 0 && price * energy >= 0
+                            ? price * energy
+                            : Long.MAX_VALUE;
+        }
+
+        /** Whether the bytes, read as an unsigned number, are at most {@code Long.MAX_VALUE}. */
+        private static boolean fitsLong(byte[] bytes) {
+            int i = 0;
+            while (i < bytes.length && bytes[i] == 0) {
+                i++;
+            }
+            int significant = bytes.length - i;
+            return significant < Long.BYTES || (significant == Long.BYTES && bytes[i] >= 0);
+        }
+
+        private static long toLong(byte[] bytes) {
+            if (bytes.length > Long.BYTES) {
+                return new BigInteger(1, bytes).longValue();
+            }
+            long value = 0;
+            for (byte b : bytes) {
+                value = (value << 8) | (b & 0xFF);
+            }
+            return value;
+        }
+
+        Object nonceForLog() {
+            return overflowNonce == null ? nonce : overflowNonce;
+        }
+
+        /** The fee without saturation, only needed to order entries whose fee overflows. */
+        BigInteger exactFee() {
+            return BigInteger.valueOf(pooledTx.tx.getEnergyPrice())
+                    .multiply(BigInteger.valueOf(energy));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.aion.txpool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class NonceChainTest {
+
+    private static final BigInteger BIG = BigInteger.ONE.shiftLeft(64);
+
+    @Test
+    public void putKeepsNonceOrder() {
+        NonceChain<String> chain = new NonceChain<>();
+        chain.put(5L, "5");
+        chain.put(1L, "1");
+        chain.put(3L, "3");
+        chain.put(BigInteger.valueOf(2), "2");
+        chain.put(BigInteger.valueOf(4), "4");
+
+        assertEquals(5, chain.size());
+        assertEquals("1", chain.first());
+        assertEquals(BigInteger.valueOf(5), chain.lastNonce());
+
+        List<String> values = new ArrayList<>();
+        chain.forEach(values::add);
+        assertEquals(List.of("1", "2", "3", "4", "5"), values);
+    }
+
+    @Test
+    public void putReplacesSameNonce() {
+        NonceChain<String> chain = new NonceChain<>();
+        assertNull(chain.put(7L, "a"));
+        assertEquals("a", chain.put(7L, "b"));
+        assertEquals(1, chain.size());
+        assertEquals("b", chain.get(BigInteger.valueOf(7)));
+    }
+
+    @Test
+    public void removeAndHigher() {
+        NonceChain<String> chain = new NonceChain<>();
+        for (long i = 0; i < 10; i++) {
+            chain.put(i, String.valueOf(i));
+        }
+
+        assertEquals("4", chain.remove(4L));
+        assertNull(chain.remove(4L));
+        assertEquals("5", chain.higher(BigInteger.valueOf(3)));
+        assertEquals("5", chain.higher(BigInteger.valueOf(4)));
+        assertNull(chain.higher(BigInteger.valueOf(9)));
+        assertEquals("5", chain.higher(3L));
+        assertNull(chain.higher(9L));
+        assertEquals(9, chain.size());
+    }
+
+    @Test
+    public void removeLessThan() {
+        NonceChain<String> chain = new NonceChain<>();
+        for (long i = 0; i < 10; i++) {
+            chain.put(i, String.valueOf(i));
+        }
+
+        List<String> removed = new ArrayList<>();
+        chain.removeLessThan(BigInteger.valueOf(6), removed::add);
+
+        assertEquals(List.of("0", "1", "2", "3", "4", "5"), removed);
+        assertEquals("6", chain.first());
+        assertEquals(4, chain.size());
+
+        removed.clear();
+        chain.removeLessThan(BigInteger.ZERO, removed::add);
+        assertTrue(removed.isEmpty());
+    }
+
+    @Test
+    public void overflowNoncesOrderAfterPrimitiveNonces() {
+        NonceChain<String> chain = new NonceChain<>();
+        chain.put(BIG.add(BigInteger.ONE), "big+1");
+        chain.put(BIG, "big");
+        chain.put(Long.MAX_VALUE, "max");
+
+        assertEquals(3, chain.size());
+        assertEquals("max", chain.first());
+        assertEquals("big", chain.higher(BigInteger.valueOf(Long.MAX_VALUE)));
+        assertEquals("big", chain.higher(Long.MAX_VALUE));
+        assertEquals("big+1", chain.higher(BIG));
+        assertEquals(BIG.add(BigInteger.ONE), chain.lastNonce());
+        assertEquals(
+                List.of(BigInteger.valueOf(Long.MAX_VALUE), BIG, BIG.add(BigInteger.ONE)),
+                chain.nonceList());
+
+        List<String> removed = new ArrayList<>();
+        chain.removeLessThan(BIG.add(BigInteger.ONE), removed::add);
+        assertEquals(List.of("max", "big"), removed);
+        assertEquals("big+1", chain.first());
+
+        assertEquals("big+1", chain.remove(BIG.add(BigInteger.ONE)));
+        assertTrue(chain.isEmpty());
+        assertNull(chain.first());
+        assertNull(chain.lastNonce());
+    }
+}
@@ -0,0 +1,268 @@
+package org.aion.txpool;
+
+import static org.aion.txpool.TxPoolA0.MIN_ENERGY_CONSUME;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.aion.base.AionTransaction;
+import org.aion.base.PooledTransaction;
+import org.aion.base.TransactionTypes;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.types.AionAddress;
+import org.aion.util.time.TimeInstant;
+import org.aion.util.types.AddressUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.spongycastle.pqc.math.linearalgebra.ByteUtils;
+
+public class TxPoolA1Test {
+
+    private List<ECKey> key;
+
+    @Before
+    public void Setup() {
+        ECKeyFac.setType(ECKeyFac.ECKeyType.ED25519);
+        key = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            key.add(ECKeyFac.inst().create());
+        }
+    }
+
+    private PooledTransaction genTransaction(ECKey k, long nonce, long price) {
+        return genTransaction(k, BigInteger.valueOf(nonce), price);
+    }
+
+    private PooledTransaction genTransaction(ECKey k, BigInteger nonce, long price) {
+        AionTransaction tx =
+                AionTransaction.create(
+                        k,
+                        nonce.toByteArray(),
+                        AddressUtils.wrapAddress(
+                                "0000000000000000000000000000000000000000000000000000000000000001"),
+                        ByteUtils.fromHexString("1"),
+                        ByteUtils.fromHexString("1"),
+                        MIN_ENERGY_CONSUME,
+                        price,
+                        TransactionTypes.DEFAULT,
+                        null);
+        return new PooledTransaction(tx, MIN_ENERGY_CONSUME);
+    }
+
+    private TxPoolA1 newPool() {
+        Properties config = new Properties();
+        config.put("tx-timeout", "100");
+        return new TxPoolA1(config);
+    }
+
+    @Test
+    public void addAndSize() {
+        TxPoolA1 tp = newPool();
+        List<PooledTransaction> txl = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            txl.add(genTransaction(key.get(0), i, 1L));
+        }
+
+        List<PooledTransaction> rtn = tp.add(txl);
+
+        assertEquals(10, rtn.size());
+        assertEquals(10, tp.size());
+        assertEquals(BigInteger.valueOf(9), tp.bestPoolNonce(new AionAddress(key.get(0).getAddress())));
+    }
+
+    @Test
+    public void addDuplicateHash() {
+        TxPoolA1 tp = newPool();
+        PooledTransaction tx = genTransaction(key.get(0), 0, 1L);
+
+        tp.add(tx);
+        assertNull(tp.add(tx));
+        assertEquals(1, tp.size());
+    }
+
+    @Test
+    public void replaceSameNonce() {
+        TxPoolA1 tp = newPool();
+        PooledTransaction tx1 = genTransaction(key.get(0), 0, 1L);
+        PooledTransaction tx2 = genTransaction(key.get(0), 0, 2L);
+
+        tp.add(tx1);
+        PooledTransaction rtn = tp.add(tx2);
+
+        assertEquals(tx1, rtn);
+        assertEquals(1, tp.size());
+        assertEquals(
+                tx2, tp.getPoolTx(new AionAddress(key.get(0).getAddress()), BigInteger.ZERO));
+    }
+
+    @Test
+    public void snapshotOrdersByFeeAndNonce() {
+        TxPoolA1 tp = newPool();
+        List<PooledTransaction> txl = new ArrayList<>();
+        // sender 0 pays less on its first tx than sender 1, but more on the later ones
+        txl.add(genTransaction(key.get(0), 0, 1L));
+        txl.add(genTransaction(key.get(0), 1, 5L));
+        txl.add(genTransaction(key.get(1), 0, 3L));
+        txl.add(genTransaction(key.get(1), 1, 2L));
+        tp.add(txl);
+
+        List<AionTransaction> snapshot = tp.snapshot();
+
+        assertEquals(4, snapshot.size());
+        assertEquals(txl.get(2).tx, snapshot.get(0));
+        assertEquals(txl.get(3).tx, snapshot.get(1));
+        assertEquals(txl.get(0).tx, snapshot.get(2));
+        assertEquals(txl.get(1).tx, snapshot.get(3));
+    }
+
+    @Test
+    public void overflowNoncesFollowLongNonces() {
+        TxPoolA1 tp = newPool();
+        AionAddress sender = new AionAddress(key.get(0).getAddress());
+        BigInteger big = BigInteger.ONE.shiftLeft(64);
+        PooledTransaction max = genTransaction(key.get(0), Long.MAX_VALUE, 1L);
+        PooledTransaction overflow = genTransaction(key.get(0), big, 5L);
+        tp.add(List.of(overflow, max));
+
+        assertEquals(2, tp.size());
+        assertEquals(big, tp.bestPoolNonce(sender));
+        assertEquals(overflow, tp.getPoolTx(sender, big));
+
+        List<AionTransaction> snapshot = tp.snapshot();
+        assertEquals(List.of(max.tx, overflow.tx), snapshot);
+
+        tp.remove(overflow);
+        assertEquals(1, tp.size());
+        assertEquals(BigInteger.valueOf(Long.MAX_VALUE), tp.bestPoolNonce(sender));
+    }
+
+    @Test
+    public void snapshotKeepsNonceOrderPerSender() {
+        TxPoolA1 tp = newPool();
+        List<PooledTransaction> txl = new ArrayList<>();
+        for (ECKey k : key) {
+            for (int i = 0; i < 20; i++) {
+                txl.add(genTransaction(k, i, 1L + (i * 7) % 5));
+            }
+        }
+        Collections.shuffle(txl);
+        tp.add(txl);
+
+        List<AionTransaction> snapshot = tp.snapshot();
+        assertEquals(txl.size(), snapshot.size());
+
+        for (ECKey k : key) {
+            AionAddress addr = new AionAddress(k.getAddress());
+            BigInteger expected = BigInteger.ZERO;
+            for (AionTransaction tx : snapshot) {
+                if (tx.getSenderAddress().equals(addr)) {
+                    assertEquals(expected, tx.getNonceBI());
+                    expected = expected.add(BigInteger.ONE);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void snapshotRespectsEnergyLimit() {
+        Properties config = new Properties();
+        config.put("tx-timeout", "100");
+        config.put(ITxPool.PROP_BLOCK_NRG_LIMIT, "1000000");
+        TxPoolA1 tp = new TxPoolA1(config);
+
+        List<PooledTransaction> txl = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            txl.add(genTransaction(key.get(0), i, 1L));
+        }
+        tp.add(txl);
+
+        // 1_000_000 / 21_000 rounded down
+        assertEquals(47, tp.snapshot().size());
+        assertEquals(100, tp.size());
+    }
+
+    @Test
+    public void removeUpdatesHead() {
+        TxPoolA1 tp = newPool();
+        List<PooledTransaction> txl = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            txl.add(genTransaction(key.get(0), i, 1L));
+        }
+        tp.add(txl);
+
+        tp.remove(txl.get(0));
+        assertEquals(4, tp.size());
+        List<AionTransaction> snapshot = tp.snapshot();
+        assertEquals(4, snapshot.size());
+        assertEquals(BigInteger.ONE, snapshot.get(0).getNonceBI());
+    }
+
+    @Test
+    public void removeTxsWithNonceLessThan() {
+        TxPoolA1 tp = newPool();
+        List<PooledTransaction> txl = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            txl.add(genTransaction(key.get(0), i, 1L));
+            txl.add(genTransaction(key.get(1), i, 1L));
+        }
+        tp.add(txl);
+
+        AionAddress addr = new AionAddress(key.get(0).getAddress());
+        List<PooledTransaction> removed =
+                tp.removeTxsWithNonceLessThan(Map.of(addr, BigInteger.valueOf(6)));
+
+        assertEquals(6, removed.size());
+        assertEquals(14, tp.size());
+        assertEquals(BigInteger.valueOf(6), tp.getNonceList(addr).get(0));
+        assertEquals(14, tp.snapshot().size());
+    }
+
+    @Test
+    public void snapshotRemovesTimeoutTx() {
+        TxPoolA1 tp = newPool();
+        List<PooledTransaction> txl = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            txl.add(genTransaction(key.get(0), i, 1L));
+        }
+        tp.add(txl);
+
+        List<AionTransaction> snapshot = tp.snapshot(TimeInstant.now().toEpochSec() + 200);
+
+        assertTrue(snapshot.isEmpty());
+        assertEquals(0, tp.size());
+        assertEquals(10, tp.getOutdatedList().size());
+        assertEquals(BigInteger.ONE.negate(), tp.bestPoolNonce(new AionAddress(key.get(0).getAddress())));
+    }
+
+    @Test
+    public void concurrentAddFromDifferentSenders() throws InterruptedException {
+        TxPoolA1 tp = newPool();
+        List<Thread> threads = new ArrayList<>();
+        for (ECKey k : key) {
+            List<PooledTransaction> txl = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                txl.add(genTransaction(k, i, 1L));
+            }
+            threads.add(new Thread(() -> txl.forEach(tp::add)));
+        }
+
+        threads.forEach(Thread::start);
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        assertEquals(500, tp.size());
+        assertEquals(500, tp.snapshot().size());
+        for (ECKey k : key) {
+            assertEquals(
+                    BigInteger.valueOf(49), tp.bestPoolNonce(new AionAddress(k.getAddress())));
+        }
+    }
+}
@@ -7,6 +7,9 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.aion.base.AionTransaction;
 import org.aion.base.PooledTransaction;
 import org.aion.base.TransactionTypes;
@@ -343,4 +346,88 @@ public class TxnPoolBenchmarkTest {
             }
         }
     }
+
+    @Test
+    /* 100K new transactions from 1000 accounts added by 8 threads, each thread owning its own
+      senders. TxPoolA1 shards its state by sender so the threads do not serialize on one lock.
+    */
+    public void benchmarkConcurrentAdd() throws InterruptedException {
+        Properties config = new Properties();
+        config.put("tx-timeout", "100");
+
+        int threads = 8;
+        int accounts = 1000;
+        int cnt = 100;
+
+        List<List<PooledTransaction>> batches = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            batches.add(new ArrayList<>());
+        }
+
+        System.out.println("gen new transactions...");
+        for (int a = 0; a < accounts; a++) {
+            ECKey aKey = key2.get(a);
+            for (int i = 0; i < cnt; i++) {
+                AionTransaction txn =
+                        AionTransaction.create(
+                                aKey,
+                                BigInteger.valueOf(i).toByteArray(),
+                                AddressUtils.wrapAddress(
+                                        "0000000000000000000000000000000000000000000000000000000000000001"),
+                                ByteUtils.fromHexString("1"),
+                                ByteUtils.fromHexString("1"),
+                                MIN_ENERGY_CONSUME,
+                                1L,
+                                TransactionTypes.DEFAULT, null);
+                batches.get(a % threads).add(new PooledTransaction(txn, MIN_ENERGY_CONSUME));
+            }
+        }
+
+        ITxPool tp0 = new TxPoolA0(config);
+        long time0 = concurrentAdd(tp0, batches);
+        Assert.assertEquals(accounts * cnt, tp0.size());
+        System.out.println(
+                "TxPoolA0 " + threads + " threads: " + time0 + " ms, "
+                        + (accounts * cnt * 1000L / Math.max(time0, 1)) + " tx/s");
+
+        ITxPool tp1 = new TxPoolA1(config);
+        long time1 = concurrentAdd(tp1, batches);
+        Assert.assertEquals(accounts * cnt, tp1.size());
+        System.out.println(
+                "TxPoolA1 " + threads + " threads: " + time1 + " ms, "
+                        + (accounts * cnt * 1000L / Math.max(time1, 1)) + " tx/s");
+
+        Assert.assertEquals(accounts * cnt, tp1.snapshotAll().size());
+    }
+
+    private long concurrentAdd(ITxPool tp, List<List<PooledTransaction>> batches)
+            throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(batches.size());
+        CountDownLatch ready = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(batches.size());
+
+        for (List<PooledTransaction> batch : batches) {
+            executor.submit(
+                    () -> {
+                        try {
+                            ready.await();
+                            // admit in small chunks the way BroadcastTxHandler hands them over
+                            for (int i = 0; i < batch.size(); i += 10) {
+                                tp.add(batch.subList(i, Math.min(i + 10, batch.size())));
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            done.countDown();
+                        }
+                    });
+        }
+
+        long start = System.currentTimeMillis();
+        ready.countDown();
+        done.await();
+        long spent = System.currentTimeMillis() - start;
+        executor.shutdown();
+        return spent;
+    }
 }